@@ -0,0 +1,13 @@
+package com.assignment.task1.aggregation;
+
+/**
+ * How unique players are counted.
+ */
+public enum AggregationMode {
+    /** Keep every player ID; exact counts, memory grows with the number of players. */
+    EXACT,
+    /** Keep 64-bit player ID fingerprints in primitive sets; exact up to hash collisions, far less memory. */
+    HASHED,
+    /** HyperLogLog sketches; counts within a configured error, fixed memory. */
+    APPROXIMATE
+}
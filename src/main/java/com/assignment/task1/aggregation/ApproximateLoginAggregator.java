@@ -0,0 +1,78 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.XxHash64;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Approximate aggregator backed by one {@link HyperLogLog} sketch for the total and one per country.
+ * <p>
+ * Memory depends only on the precision and the number of countries, never on the number of players.
+ */
+public class ApproximateLoginAggregator implements LoginAggregator {
+
+    private final int precision;
+    private final HyperLogLog totalSketch;
+    private final ConcurrentMap<String, HyperLogLog> sketchesByCountry = new ConcurrentHashMap<>();
+
+    /**
+     * @param precision The sketch precision, see {@link HyperLogLog#precisionForError(double)}.
+     */
+    public ApproximateLoginAggregator(int precision) {
+        this.precision = precision;
+        this.totalSketch = new HyperLogLog(precision);
+    }
+
+    @Override
+    public void add(String playerId, String country) {
+        add(XxHash64.hashUtf8(playerId), country);
+    }
+
+    @Override
+    public void add(LoginEvent event, String country) {
+        add(event.getPlayerFingerprint(), country);
+    }
+
+    private void add(long hash, String country) {
+        totalSketch.offer(hash);
+        sketchesByCountry.computeIfAbsent(country, k -> new HyperLogLog(precision)).offer(hash);
+    }
+
+    @Override
+    public long getTotalCount() {
+        return totalSketch.estimate();
+    }
+
+    @Override
+    public Map<String, Long> getCountsByCountry() {
+        Map<String, Long> counts = new HashMap<>();
+        sketchesByCountry.forEach((country, sketch) -> counts.put(country, sketch.estimate()));
+        return counts;
+    }
+
+    @Override
+    public void merge(LoginAggregator other) {
+        ApproximateLoginAggregator approximate = (ApproximateLoginAggregator) other;
+        totalSketch.merge(approximate.totalSketch);
+        approximate.sketchesByCountry.forEach((country, sketch) ->
+                sketchesByCountry.computeIfAbsent(country, k -> new HyperLogLog(precision)).merge(sketch));
+    }
+
+    @Override
+    public void clear() {
+        totalSketch.clear();
+        sketchesByCountry.clear();
+    }
+
+    public HyperLogLog getTotalSketch() {
+        return totalSketch;
+    }
+
+    public Map<String, HyperLogLog> getSketchesByCountry() {
+        return sketchesByCountry;
+    }
+}
@@ -0,0 +1,149 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.ActiveWriters;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Double-buffered aggregation state for interval flushes.
+ * <p>
+ * Writers always add to the aggregator of the current epoch. {@link #seal()} swaps in a fresh epoch
+ * with a single atomic write, waits until the writers that were already inside the old epoch have
+ * left, and hands its aggregator to the caller, which can read it at leisure; writers never wait
+ * on the flush and no login is lost between reading and clearing. A sealed aggregator given back
+ * with {@link #release(LoginAggregator)} is cleared and becomes the next epoch.
+ */
+public class EpochAggregator implements SealableAggregator, LoginAggregator {
+
+    private final Supplier<LoginAggregator> factory;
+    private final AtomicReference<LoginAggregator> spare = new AtomicReference<>();
+    private volatile Epoch current;
+
+    /**
+     * @param factory Creates the aggregator of an epoch when no released one can be reused.
+     */
+    public EpochAggregator(Supplier<LoginAggregator> factory) {
+        this.factory = factory;
+        this.current = new Epoch(factory.get());
+    }
+
+    @Override
+    public void add(String playerId, String country) {
+        Epoch epoch = enter();
+        try {
+            epoch.aggregator.add(playerId, country);
+        } finally {
+            epoch.exit();
+        }
+    }
+
+    @Override
+    public void add(LoginEvent event, String country) {
+        Epoch epoch = enter();
+        try {
+            epoch.aggregator.add(event, country);
+        } finally {
+            epoch.exit();
+        }
+    }
+
+    /**
+     * Ends the current epoch and starts a new one.
+     *
+     * @return the aggregator of the ended epoch; no writer touches it any more.
+     */
+    @Override
+    public synchronized LoginAggregator seal() {
+        LoginAggregator next = spare.getAndSet(null);
+        Epoch sealed = current;
+        current = new Epoch(next != null ? next : factory.get());
+
+        // Writers that entered before the swap finish their add; later ones retry on the new epoch
+        while (sealed.hasWriters()) {
+            LockSupport.parkNanos(10_000);
+        }
+        return sealed.aggregator;
+    }
+
+    /**
+     * Gives a sealed aggregator back for reuse by a later epoch.
+     */
+    @Override
+    public void release(LoginAggregator sealed) {
+        sealed.clear();
+        spare.set(sealed);
+    }
+
+    /**
+     * @return the aggregator of the current epoch.
+     */
+    public LoginAggregator current() {
+        return current.aggregator;
+    }
+
+    @Override
+    public long getTotalCount() {
+        return current.aggregator.getTotalCount();
+    }
+
+    @Override
+    public Map<String, Long> getCountsByCountry() {
+        return current.aggregator.getCountsByCountry();
+    }
+
+    @Override
+    public void merge(LoginAggregator other) {
+        Epoch epoch = enter();
+        try {
+            epoch.aggregator.merge(other);
+        } finally {
+            epoch.exit();
+        }
+    }
+
+    /**
+     * Drops the current epoch's players by sealing it.
+     */
+    @Override
+    public void clear() {
+        release(seal());
+    }
+
+    private Epoch enter() {
+        while (true) {
+            Epoch epoch = current;
+            epoch.enter();
+            // Re-check after announcing ourselves: once seal() has swapped, it may already have seen
+            // zero writers, so writing to the old epoch would be lost
+            if (epoch == current) {
+                return epoch;
+            }
+            epoch.exit();
+        }
+    }
+
+    private static final class Epoch {
+        final LoginAggregator aggregator;
+        final ActiveWriters writers = new ActiveWriters();
+
+        Epoch(LoginAggregator aggregator) {
+            this.aggregator = aggregator;
+        }
+
+        void enter() {
+            writers.enter();
+        }
+
+        void exit() {
+            writers.exit();
+        }
+
+        boolean hasWriters() {
+            return writers.hasWriters();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.ActiveWriters;
+import com.assignment.task1.watermark.WatermarkTracker;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Counts unique players per tumbling event-time window.
+ * <p>
+ * A login is added to the window its message timestamp falls in, so a backlog replayed at full
+ * speed is reported for the minutes it happened in rather than for the minute it was read. Windows
+ * sit in a ring and several stay open at once. A window closes once the stream watermark, the event
+ * time every shard has reached, passes its end by the allowed lateness; {@link #closeWindows()}
+ * closes such windows and queues them, in window order, for {@link #peekClosed()} and
+ * {@link #pollClosed()}. Each window is closed and queued exactly once; logins that arrive for a
+ * closed window are counted as late and dropped.
+ * <p>
+ * The ring bounds the open windows: an event more than that many windows ahead of the oldest open
+ * window closes the oldest ones early. Messages without a timestamp are placed at the watermark,
+ * or at the current time while there is none.
+ * <p>
+ * Logins are only added here; the counts are read from the aggregators of the closed windows.
+ */
+public class EventTimeWindowAggregator implements LoginRecorder {
+
+    private final WatermarkTracker watermarkTracker;
+    private final Clock clock;
+    private final long windowMillis;
+    private final long allowedLatenessMillis;
+    private final Supplier<LoginAggregator> factory;
+    private final AtomicReferenceArray<Window> ring;
+
+    // Windows below this index are closed; only raised under the instance lock
+    private volatile long closedBelow = Long.MIN_VALUE;
+    private final Queue<ClosedWindow> closed = new ConcurrentLinkedQueue<>();
+    // The latest window opened; raised before the window is published, so before any login lands in it
+    private final AtomicLong latestIndex = new AtomicLong(Long.MIN_VALUE);
+
+    private final LongAdder closedWindows = new LongAdder();
+    private final LongAdder forcedWindows = new LongAdder();
+    private final LongAdder lateEvents = new LongAdder();
+
+    /**
+     * @param windowMillis          The size of the tumbling windows.
+     * @param allowedLatenessMillis How far the watermark must pass the end of a window before it closes.
+     * @param maxOpenWindows        The windows that may be open at once.
+     * @param watermarkTracker      The source of the stream watermark.
+     * @param factory               Creates the thread-safe aggregator of each window.
+     */
+    public EventTimeWindowAggregator(long windowMillis, long allowedLatenessMillis, int maxOpenWindows,
+                                     WatermarkTracker watermarkTracker, Supplier<LoginAggregator> factory) {
+        this(windowMillis, allowedLatenessMillis, maxOpenWindows, watermarkTracker, factory, Clock.systemUTC());
+    }
+
+    public EventTimeWindowAggregator(long windowMillis, long allowedLatenessMillis, int maxOpenWindows,
+                                     WatermarkTracker watermarkTracker, Supplier<LoginAggregator> factory, Clock clock) {
+        if (windowMillis <= 0 || maxOpenWindows <= 0) {
+            throw new IllegalArgumentException("The window size and the open windows must be positive");
+        }
+        this.windowMillis = windowMillis;
+        this.allowedLatenessMillis = allowedLatenessMillis;
+        this.ring = new AtomicReferenceArray<>(maxOpenWindows);
+        this.watermarkTracker = watermarkTracker;
+        this.factory = factory;
+        this.clock = clock;
+    }
+
+    @Override
+    public void add(String playerId, String country) {
+        Window window = windowFor(defaultEventTime());
+        if (window != null) {
+            try {
+                window.aggregator.add(playerId, country);
+            } finally {
+                window.writers.exit();
+            }
+        }
+    }
+
+    @Override
+    public void add(LoginEvent event, String country) {
+        Window window = windowFor(event.hasTimestamp() ? event.getTimestampMillis() : defaultEventTime());
+        if (window != null) {
+            try {
+                window.aggregator.add(event, country);
+            } finally {
+                window.writers.exit();
+            }
+        }
+    }
+
+    /**
+     * Closes the windows the watermark has passed by the allowed lateness and queues them.
+     *
+     * @return the number of windows closed.
+     */
+    public int closeWindows() {
+        long watermark = watermarkTracker.getWatermark();
+        if (watermark == WatermarkTracker.NO_WATERMARK) {
+            return 0;
+        }
+        // A window closes once the watermark reaches its end plus the allowed lateness
+        long lastClosable = Math.floorDiv(watermark - allowedLatenessMillis, windowMillis) - 1;
+        return closeThrough(lastClosable, false);
+    }
+
+    /**
+     * Closes every open window and queues it, whatever the watermark; logins for them that arrive
+     * later are counted as late. Used on shutdown to hand on the windows still open.
+     *
+     * @return the number of windows closed.
+     */
+    public int closeAllWindows() {
+        long latest = latestIndex.get();
+        return latest != Long.MIN_VALUE ? closeThrough(latest, false) : 0;
+    }
+
+    /**
+     * Every login added before this is called is in a window that ends at or before the returned time.
+     *
+     * @return the end of the latest window opened in epoch milliseconds, or {@link Long#MIN_VALUE}
+     *         if no window was opened yet.
+     */
+    public long getLatestWindowEndMillis() {
+        long latest = latestIndex.get();
+        return latest != Long.MIN_VALUE ? (latest + 1) * windowMillis : Long.MIN_VALUE;
+    }
+
+    /**
+     * Every window that ends at or before the returned time has been closed and queued, or dropped
+     * as late, by the time this returns.
+     *
+     * @return the end of the closed windows in epoch milliseconds, or {@link Long#MIN_VALUE} if none
+     *         has closed yet.
+     */
+    public synchronized long getClosedEndMillis() {
+        return closedBelow != Long.MIN_VALUE ? closedBelow * windowMillis : Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the oldest closed window that has not been polled yet, or null if there is none.
+     */
+    public ClosedWindow peekClosed() {
+        return closed.peek();
+    }
+
+    /**
+     * Removes the oldest closed window, once it has been handed on.
+     */
+    public ClosedWindow pollClosed() {
+        return closed.poll();
+    }
+
+    /**
+     * @return the closed, early closed and queued windows and the late logins so far, e.g.
+     *         {@code open=3 closed=120 forced=0 queued=1 late=17}.
+     */
+    public String describeStats() {
+        int open = 0;
+        for (int i = 0; i < ring.length(); i++) {
+            Window window = ring.get(i);
+            if (window != null && !window.closed) {
+                open++;
+            }
+        }
+        return String.format("open=%d closed=%d forced=%d queued=%d late=%d",
+                open, closedWindows.sum(), forcedWindows.sum(), closed.size(), lateEvents.sum());
+    }
+
+    /**
+     * @return the number of logins that arrived after their window had closed.
+     */
+    public long getLateEventCount() {
+        return lateEvents.sum();
+    }
+
+    /**
+     * Finds or opens the window of an event time and enters it.
+     *
+     * @return the window, entered by the calling thread; or null if the window has closed already.
+     */
+    private Window windowFor(long eventTimeMillis) {
+        long index = Math.floorDiv(eventTimeMillis, windowMillis);
+        int slot = (int) Math.floorMod(index, (long) ring.length());
+        while (true) {
+            if (index < closedBelow) {
+                lateEvents.increment();
+                return null;
+            }
+            Window window = ring.get(slot);
+            if (window != null && window.index == index) {
+                window.writers.enter();
+                // Re-check after announcing ourselves: once close() has set the flag, it may already
+                // have seen no writers, so adding to the window would be lost
+                if (!window.closed) {
+                    return window;
+                }
+                window.writers.exit();
+                lateEvents.increment();
+                return null;
+            }
+            if (window != null && window.index > index) {
+                // The slot moved on to a later window, so this one has closed
+                lateEvents.increment();
+                return null;
+            }
+            long lastToClose = index - ring.length();
+            if (lastToClose >= closedBelow || (window != null && !window.closed)) {
+                // The ring is full: close what the new window pushes out of it
+                closeThrough(lastToClose, true);
+                continue;
+            }
+            latestIndex.accumulateAndGet(index, Math::max);
+            ring.compareAndSet(slot, window, new Window(index, factory.get()));
+        }
+    }
+
+    /**
+     * Closes every open window up to and including the given index. Windows at or past the previous
+     * bound are queued in window order; older ones were opened by a writer that raced an earlier
+     * close and are dropped as late, as they were closed already.
+     *
+     * @return the number of windows queued.
+     */
+    private synchronized int closeThrough(long lastIndex, boolean forced) {
+        long previousBound = closedBelow;
+        if (lastIndex >= previousBound) {
+            closedBelow = lastIndex + 1;
+        }
+        List<Window> closing = new ArrayList<>();
+        for (int i = 0; i < ring.length(); i++) {
+            Window window = ring.get(i);
+            if (window != null && !window.closed && window.index < closedBelow) {
+                close(window);
+                if (window.index >= previousBound) {
+                    closing.add(window);
+                } else {
+                    lateEvents.add(window.aggregator.getTotalCount());
+                }
+            }
+        }
+        closing.sort(Comparator.comparingLong(window -> window.index));
+        for (Window window : closing) {
+            closed.add(new ClosedWindow(window.index * windowMillis, windowMillis, window.aggregator));
+        }
+        closedWindows.add(closing.size());
+        if (forced) {
+            forcedWindows.add(closing.size());
+        }
+        return closing.size();
+    }
+
+    // Writers that entered before the flag was set finish their add; later ones see the flag
+    private static void close(Window window) {
+        window.closed = true;
+        while (window.writers.hasWriters()) {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    private long defaultEventTime() {
+        long watermark = watermarkTracker.getWatermark();
+        return watermark != WatermarkTracker.NO_WATERMARK ? watermark : clock.millis();
+    }
+
+    private static final class Window {
+        final long index;
+        final LoginAggregator aggregator;
+        final ActiveWriters writers = new ActiveWriters();
+        volatile boolean closed;
+
+        Window(long index, LoginAggregator aggregator) {
+            this.index = index;
+            this.aggregator = aggregator;
+        }
+    }
+
+    /**
+     * A window that has closed; no writer touches its aggregator any more.
+     */
+    public static final class ClosedWindow {
+
+        private final long startMillis;
+        private final long sizeMillis;
+        private final LoginAggregator aggregator;
+
+        ClosedWindow(long startMillis, long sizeMillis, LoginAggregator aggregator) {
+            this.startMillis = startMillis;
+            this.sizeMillis = sizeMillis;
+            this.aggregator = aggregator;
+        }
+
+        /**
+         * @return the start of the window in epoch milliseconds, inclusive.
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * @return the end of the window in epoch milliseconds, exclusive.
+         */
+        public long getEndMillis() {
+            return startMillis + sizeMillis;
+        }
+
+        public LoginAggregator getAggregator() {
+            return aggregator;
+        }
+    }
+}
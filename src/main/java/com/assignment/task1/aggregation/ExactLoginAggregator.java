@@ -0,0 +1,57 @@
+package com.assignment.task1.aggregation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Exact aggregator keeping every unique player ID in concurrent sets.
+ */
+public class ExactLoginAggregator implements LoginAggregator {
+
+    private final Set<String> uniquePlayerLogins = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(String playerId, String country) {
+        uniquePlayerLogins.add(playerId);
+        uniquePlayerLoginsByCountry.computeIfAbsent(country, k -> ConcurrentHashMap.newKeySet())
+                .add(playerId);
+    }
+
+    @Override
+    public long getTotalCount() {
+        return uniquePlayerLogins.size();
+    }
+
+    @Override
+    public Map<String, Long> getCountsByCountry() {
+        Map<String, Long> counts = new HashMap<>();
+        uniquePlayerLoginsByCountry.forEach((country, players) -> counts.put(country, (long) players.size()));
+        return counts;
+    }
+
+    @Override
+    public void merge(LoginAggregator other) {
+        ExactLoginAggregator exact = (ExactLoginAggregator) other;
+        uniquePlayerLogins.addAll(exact.uniquePlayerLogins);
+        exact.uniquePlayerLoginsByCountry.forEach((country, players) ->
+                uniquePlayerLoginsByCountry.computeIfAbsent(country, k -> ConcurrentHashMap.newKeySet()).addAll(players));
+    }
+
+    @Override
+    public void clear() {
+        uniquePlayerLogins.clear();
+        uniquePlayerLoginsByCountry.clear();
+    }
+
+    public Set<String> getUniquePlayerLogins() {
+        return uniquePlayerLogins;
+    }
+
+    public ConcurrentMap<String, Set<String>> getUniquePlayerLoginsByCountry() {
+        return uniquePlayerLoginsByCountry;
+    }
+}
@@ -0,0 +1,69 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.ConcurrentLongHashSet;
+import com.assignment.task1.util.XxHash64;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Exact aggregator over 64-bit player ID fingerprints stored in primitive open-addressing sets.
+ * <p>
+ * Counts are exact up to 64-bit hash collisions, which are negligible at any realistic player count,
+ * while an entry costs roughly 8 to 16 bytes instead of a String plus a map node.
+ */
+public class HashedLoginAggregator implements LoginAggregator {
+
+    private final ConcurrentLongHashSet uniquePlayerFingerprints = new ConcurrentLongHashSet();
+    private final ConcurrentMap<String, ConcurrentLongHashSet> fingerprintsByCountry = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(String playerId, String country) {
+        add(XxHash64.hashUtf8(playerId), country);
+    }
+
+    @Override
+    public void add(LoginEvent event, String country) {
+        add(event.getPlayerFingerprint(), country);
+    }
+
+    /**
+     * Records a login by the fingerprint of its player ID.
+     *
+     * @param fingerprint The 64-bit fingerprint of the player ID.
+     * @param country     The country of the login; empty for messages that carry none.
+     */
+    public void add(long fingerprint, String country) {
+        uniquePlayerFingerprints.add(fingerprint);
+        fingerprintsByCountry.computeIfAbsent(country, k -> new ConcurrentLongHashSet()).add(fingerprint);
+    }
+
+    @Override
+    public long getTotalCount() {
+        return uniquePlayerFingerprints.size();
+    }
+
+    @Override
+    public Map<String, Long> getCountsByCountry() {
+        Map<String, Long> counts = new HashMap<>();
+        fingerprintsByCountry.forEach((country, fingerprints) -> counts.put(country, fingerprints.size()));
+        return counts;
+    }
+
+    @Override
+    public void merge(LoginAggregator other) {
+        HashedLoginAggregator hashed = (HashedLoginAggregator) other;
+        uniquePlayerFingerprints.addAll(hashed.uniquePlayerFingerprints);
+        hashed.fingerprintsByCountry.forEach((country, fingerprints) ->
+                fingerprintsByCountry.computeIfAbsent(country, k -> new ConcurrentLongHashSet()).addAll(fingerprints));
+    }
+
+    @Override
+    public void clear() {
+        uniquePlayerFingerprints.clear();
+        fingerprintsByCountry.clear();
+    }
+}
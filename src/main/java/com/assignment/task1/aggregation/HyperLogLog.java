@@ -0,0 +1,177 @@
+package com.assignment.task1.aggregation;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog cardinality sketch over 64-bit hashes.
+ * <p>
+ * Uses {@code 2^precision} one-byte registers, so memory is fixed by the precision no matter how many
+ * values are offered; the relative standard error is about {@code 1.04 / sqrt(2^precision)}.
+ * Registers are packed eight to a {@code long} and updated with CAS, so {@link #offer(long)} can be
+ * called from several threads. Sketches of the same precision can be merged, which is how
+ * per-shard or per-interval sketches are combined.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final double[] INVERSE_POWERS_OF_TWO = new double[65];
+
+    static {
+        for (int i = 0; i < INVERSE_POWERS_OF_TWO.length; i++) {
+            INVERSE_POWERS_OF_TWO[i] = Math.scalb(1.0, -i);
+        }
+    }
+
+    private final int precision;
+    private final int registerCount;
+    private final long[] words;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+        this.words = new long[registerCount / Long.BYTES];
+    }
+
+    /**
+     * Picks the smallest precision whose standard error does not exceed the given bound.
+     *
+     * @param relativeError The accepted relative standard error, e.g. 0.01 for 1%.
+     * @return the precision to create sketches with.
+     */
+    public static int precisionForError(double relativeError) {
+        if (relativeError <= 0 || relativeError >= 1) {
+            throw new IllegalArgumentException("Relative error must be between 0 and 1");
+        }
+        double registers = Math.pow(1.04 / relativeError, 2);
+        int precision = (int) Math.ceil(Math.log(registers) / Math.log(2));
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    /**
+     * Adds a hashed value to the sketch.
+     *
+     * @param hash A well-mixed 64-bit hash of the value.
+     */
+    public void offer(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        raise(index, rank);
+    }
+
+    /**
+     * @return the estimated number of distinct values offered.
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (long word : words) {
+            for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                int register = (int) (word >>> shift) & 0xFF;
+                sum += INVERSE_POWERS_OF_TWO[register];
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        }
+
+        double m = registerCount;
+        double estimate = alpha(registerCount) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate for small cardinalities
+            estimate = m * Math.log(m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Folds another sketch into this one; afterwards this sketch estimates the union of both.
+     *
+     * @param other A sketch with the same precision.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < words.length; i++) {
+            long word = (long) WORDS.getVolatile(other.words, i);
+            for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                int register = (int) (word >>> shift) & 0xFF;
+                if (register != 0) {
+                    raise(i * Long.BYTES + shift / Byte.SIZE, register);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length; i++) {
+            WORDS.setVolatile(words, i, 0L);
+        }
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Serializes the sketch so it can be merged in another process: one precision byte followed by
+     * the registers.
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + words.length * Long.BYTES);
+        buffer.put((byte) precision);
+        for (int i = 0; i < words.length; i++) {
+            buffer.putLong((long) WORDS.getVolatile(words, i));
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromByteArray(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (buffer.remaining() != sketch.words.length * Long.BYTES) {
+            throw new IllegalArgumentException("Serialized sketch has " + buffer.remaining() + " register bytes, expected "
+                    + sketch.words.length * Long.BYTES);
+        }
+        for (int i = 0; i < sketch.words.length; i++) {
+            sketch.words[i] = buffer.getLong();
+        }
+        return sketch;
+    }
+
+    private void raise(int index, int rank) {
+        int wordIndex = index >>> 3;
+        int shift = (index & 7) * Byte.SIZE;
+        long mask = 0xFFL << shift;
+        long current = (long) WORDS.getVolatile(words, wordIndex);
+        while (((current & mask) >>> shift) < rank) {
+            long updated = (current & ~mask) | ((long) rank << shift);
+            long witness = (long) WORDS.compareAndExchange(words, wordIndex, current, updated);
+            if (witness == current) {
+                return;
+            }
+            current = witness;
+        }
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
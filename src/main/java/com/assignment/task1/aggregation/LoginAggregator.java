@@ -0,0 +1,44 @@
+package com.assignment.task1.aggregation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts unique players over an output interval, in total and per country.
+ * Implementations are thread-safe; {@link #add(String, String)} is called from all shard threads.
+ */
+public interface LoginAggregator extends LoginRecorder {
+
+    /**
+     * @return the number of unique players recorded.
+     */
+    long getTotalCount();
+
+    /**
+     * @return the number of unique players recorded, by country.
+     */
+    Map<String, Long> getCountsByCountry();
+
+    /**
+     * Folds the state of another aggregator of the same kind into this one.
+     *
+     * @param other The aggregator to merge; it is left unchanged.
+     */
+    void merge(LoginAggregator other);
+
+    /**
+     * Folds the state of several aggregators of the same kind into this one.
+     *
+     * @param others The aggregators to merge; they are left unchanged.
+     */
+    default void mergeAll(List<? extends LoginAggregator> others) {
+        for (LoginAggregator other : others) {
+            merge(other);
+        }
+    }
+
+    /**
+     * Drops all recorded players.
+     */
+    void clear();
+}
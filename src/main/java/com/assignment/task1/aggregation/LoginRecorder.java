@@ -0,0 +1,29 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+
+/**
+ * Takes the logins that passed deduplication.
+ * Implementations are thread-safe; {@link #add(String, String)} is called from all shard threads.
+ */
+public interface LoginRecorder {
+
+    /**
+     * Records a login of a player that passed deduplication.
+     *
+     * @param playerId The player ID.
+     * @param country  The country of the login; empty for messages that carry none.
+     */
+    void add(String playerId, String country);
+
+    /**
+     * Records the login of a decoded event. Recorders that work on fingerprints override this
+     * to reuse the fingerprint computed for deduplication.
+     *
+     * @param event   The decoded login event.
+     * @param country The country of the login; empty for messages that carry none.
+     */
+    default void add(LoginEvent event, String country) {
+        add(event.getPlayerId(), country);
+    }
+}
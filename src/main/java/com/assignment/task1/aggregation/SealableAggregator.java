@@ -0,0 +1,32 @@
+package com.assignment.task1.aggregation;
+
+/**
+ * Aggregator whose state can be cut off at the end of an output interval while writers keep adding.
+ * Counts are read from the sealed aggregators.
+ */
+public interface SealableAggregator extends LoginRecorder {
+
+    /**
+     * Ends the current interval; later adds go to the next one.
+     *
+     * @return the players of the ended interval; no writer touches it any more.
+     */
+    LoginAggregator seal();
+
+    /**
+     * Gives an aggregator returned by {@link #seal()} back once it has been read.
+     */
+    void release(LoginAggregator sealed);
+
+    /**
+     * Adds the players of a sealed aggregator to the current interval, e.g. when it could not be written.
+     *
+     * @param other The aggregator to merge; it is left unchanged.
+     */
+    void merge(LoginAggregator other);
+
+    /**
+     * Drops the players of the current interval.
+     */
+    void clear();
+}
@@ -0,0 +1,120 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.XxHash64;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Approximate aggregator with one {@link HyperLogLog} sketch for the total and one per country, kept
+ * in a plain map.
+ * <p>
+ * The single-writer counterpart of {@link ApproximateLoginAggregator}, meant to be written by one
+ * thread only as the per-thread aggregator of a {@link ThreadLocalLoginAggregator}. The sketches are
+ * the same: a register is only written when it rises, which a filling sketch rarely does, so with
+ * one writer their CAS is uncontended and seldom taken. {@link #mergeAll(List)} merges the
+ * per-thread sketches with one parallel task per country.
+ */
+public class SingleWriterApproximateLoginAggregator implements LoginAggregator {
+
+    private final int precision;
+    private HyperLogLog totalSketch;
+    private Map<String, HyperLogLog> sketchesByCountry = new HashMap<>();
+
+    /**
+     * @param precision The sketch precision, see {@link HyperLogLog#precisionForError(double)}.
+     */
+    public SingleWriterApproximateLoginAggregator(int precision) {
+        this.precision = precision;
+        this.totalSketch = new HyperLogLog(precision);
+    }
+
+    @Override
+    public void add(String playerId, String country) {
+        add(XxHash64.hashUtf8(playerId), country);
+    }
+
+    @Override
+    public void add(LoginEvent event, String country) {
+        add(event.getPlayerFingerprint(), country);
+    }
+
+    private void add(long hash, String country) {
+        totalSketch.offer(hash);
+        HyperLogLog sketch = sketchesByCountry.get(country);
+        if (sketch == null) {
+            sketch = new HyperLogLog(precision);
+            sketchesByCountry.put(country, sketch);
+        }
+        sketch.offer(hash);
+    }
+
+    @Override
+    public long getTotalCount() {
+        return totalSketch.estimate();
+    }
+
+    @Override
+    public Map<String, Long> getCountsByCountry() {
+        Map<String, Long> counts = new HashMap<>();
+        sketchesByCountry.forEach((country, sketch) -> counts.put(country, sketch.estimate()));
+        return counts;
+    }
+
+    @Override
+    public void merge(LoginAggregator other) {
+        mergeAll(List.of(other));
+    }
+
+    /**
+     * Merges the total and every country on its own task of the common fork/join pool.
+     */
+    @Override
+    public void mergeAll(List<? extends LoginAggregator> others) {
+        List<SingleWriterApproximateLoginAggregator> sources = new ArrayList<>(others.size() + 1);
+        sources.add(this);
+        for (LoginAggregator other : others) {
+            sources.add((SingleWriterApproximateLoginAggregator) other);
+        }
+
+        CompletableFuture<HyperLogLog> total = CompletableFuture.supplyAsync(
+                () -> union(sources, source -> source.totalSketch));
+
+        Set<String> countries = new HashSet<>();
+        for (SingleWriterApproximateLoginAggregator source : sources) {
+            countries.addAll(source.sketchesByCountry.keySet());
+        }
+        Map<String, HyperLogLog> byCountry = countries.parallelStream()
+                .collect(Collectors.toMap(Function.identity(),
+                        country -> union(sources, source -> source.sketchesByCountry.get(country))));
+
+        totalSketch = total.join();
+        sketchesByCountry = new HashMap<>(byCountry);
+    }
+
+    @Override
+    public void clear() {
+        totalSketch.clear();
+        sketchesByCountry.clear();
+    }
+
+    private HyperLogLog union(List<SingleWriterApproximateLoginAggregator> sources,
+                              Function<SingleWriterApproximateLoginAggregator, HyperLogLog> sketch) {
+        HyperLogLog union = new HyperLogLog(precision);
+        for (SingleWriterApproximateLoginAggregator source : sources) {
+            HyperLogLog other = sketch.apply(source);
+            if (other != null) {
+                union.merge(other);
+            }
+        }
+        return union;
+    }
+}
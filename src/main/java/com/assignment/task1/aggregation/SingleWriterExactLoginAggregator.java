@@ -0,0 +1,103 @@
+package com.assignment.task1.aggregation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Exact aggregator keeping every unique player ID in plain, non-thread-safe sets.
+ * <p>
+ * The single-writer counterpart of {@link ExactLoginAggregator}, meant to be written by one thread
+ * only as the per-thread aggregator of a {@link ThreadLocalLoginAggregator}. {@link #mergeAll(List)}
+ * unions the per-thread aggregators with one parallel task per country.
+ */
+public class SingleWriterExactLoginAggregator implements LoginAggregator {
+
+    private Set<String> uniquePlayerLogins = new HashSet<>();
+    private Map<String, Set<String>> uniquePlayerLoginsByCountry = new HashMap<>();
+
+    @Override
+    public void add(String playerId, String country) {
+        uniquePlayerLogins.add(playerId);
+        Set<String> players = uniquePlayerLoginsByCountry.get(country);
+        if (players == null) {
+            players = new HashSet<>();
+            uniquePlayerLoginsByCountry.put(country, players);
+        }
+        players.add(playerId);
+    }
+
+    @Override
+    public long getTotalCount() {
+        return uniquePlayerLogins.size();
+    }
+
+    @Override
+    public Map<String, Long> getCountsByCountry() {
+        Map<String, Long> counts = new HashMap<>();
+        uniquePlayerLoginsByCountry.forEach((country, players) -> counts.put(country, (long) players.size()));
+        return counts;
+    }
+
+    @Override
+    public void merge(LoginAggregator other) {
+        mergeAll(List.of(other));
+    }
+
+    /**
+     * Unions the total and every country on its own task of the common fork/join pool.
+     */
+    @Override
+    public void mergeAll(List<? extends LoginAggregator> others) {
+        List<SingleWriterExactLoginAggregator> sources = new ArrayList<>(others.size() + 1);
+        sources.add(this);
+        for (LoginAggregator other : others) {
+            sources.add((SingleWriterExactLoginAggregator) other);
+        }
+
+        CompletableFuture<Set<String>> total = CompletableFuture.supplyAsync(
+                () -> union(sources, source -> source.uniquePlayerLogins));
+
+        Set<String> countries = new HashSet<>();
+        for (SingleWriterExactLoginAggregator source : sources) {
+            countries.addAll(source.uniquePlayerLoginsByCountry.keySet());
+        }
+        Map<String, Set<String>> byCountry = countries.parallelStream()
+                .collect(Collectors.toMap(Function.identity(),
+                        country -> union(sources, source -> source.uniquePlayerLoginsByCountry.get(country))));
+
+        uniquePlayerLogins = total.join();
+        uniquePlayerLoginsByCountry = new HashMap<>(byCountry);
+    }
+
+    @Override
+    public void clear() {
+        uniquePlayerLogins.clear();
+        uniquePlayerLoginsByCountry.clear();
+    }
+
+    private static Set<String> union(List<SingleWriterExactLoginAggregator> sources,
+                                     Function<SingleWriterExactLoginAggregator, Set<String>> set) {
+        int largest = 0;
+        for (SingleWriterExactLoginAggregator source : sources) {
+            Set<String> players = set.apply(source);
+            if (players != null) {
+                largest = Math.max(largest, players.size());
+            }
+        }
+        Set<String> union = new HashSet<>(largest * 2);
+        for (SingleWriterExactLoginAggregator source : sources) {
+            Set<String> players = set.apply(source);
+            if (players != null) {
+                union.addAll(players);
+            }
+        }
+        return union;
+    }
+}
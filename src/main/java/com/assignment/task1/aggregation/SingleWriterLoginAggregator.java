@@ -0,0 +1,123 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.LongHashSet;
+import com.assignment.task1.util.XxHash64;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Exact aggregator over player ID fingerprints in plain, non-thread-safe primitive sets.
+ * <p>
+ * Meant to be written by one thread only, as the per-thread aggregator of a
+ * {@link ThreadLocalLoginAggregator}; with no shared writes there is no CAS traffic or cache-line
+ * ping-pong between shard threads. {@link #mergeAll(List)} unions the per-thread aggregators with
+ * one parallel task per country.
+ */
+public class SingleWriterLoginAggregator implements LoginAggregator {
+
+    private LongHashSet uniquePlayerFingerprints = new LongHashSet();
+    private Map<String, LongHashSet> fingerprintsByCountry = new HashMap<>();
+
+    @Override
+    public void add(String playerId, String country) {
+        add(XxHash64.hashUtf8(playerId), country);
+    }
+
+    @Override
+    public void add(LoginEvent event, String country) {
+        add(event.getPlayerFingerprint(), country);
+    }
+
+    /**
+     * Records a login by the fingerprint of its player ID.
+     *
+     * @param fingerprint The 64-bit fingerprint of the player ID.
+     * @param country     The country of the login; empty for messages that carry none.
+     */
+    public void add(long fingerprint, String country) {
+        uniquePlayerFingerprints.add(fingerprint);
+        LongHashSet fingerprints = fingerprintsByCountry.get(country);
+        if (fingerprints == null) {
+            fingerprints = new LongHashSet();
+            fingerprintsByCountry.put(country, fingerprints);
+        }
+        fingerprints.add(fingerprint);
+    }
+
+    @Override
+    public long getTotalCount() {
+        return uniquePlayerFingerprints.size();
+    }
+
+    @Override
+    public Map<String, Long> getCountsByCountry() {
+        Map<String, Long> counts = new HashMap<>();
+        fingerprintsByCountry.forEach((country, fingerprints) -> counts.put(country, (long) fingerprints.size()));
+        return counts;
+    }
+
+    @Override
+    public void merge(LoginAggregator other) {
+        mergeAll(List.of(other));
+    }
+
+    /**
+     * Unions the total and every country on its own task of the common fork/join pool.
+     */
+    @Override
+    public void mergeAll(List<? extends LoginAggregator> others) {
+        List<SingleWriterLoginAggregator> sources = new ArrayList<>(others.size() + 1);
+        sources.add(this);
+        for (LoginAggregator other : others) {
+            sources.add((SingleWriterLoginAggregator) other);
+        }
+
+        CompletableFuture<LongHashSet> total = CompletableFuture.supplyAsync(
+                () -> union(sources, source -> source.uniquePlayerFingerprints));
+
+        Set<String> countries = new HashSet<>();
+        for (SingleWriterLoginAggregator source : sources) {
+            countries.addAll(source.fingerprintsByCountry.keySet());
+        }
+        Map<String, LongHashSet> byCountry = countries.parallelStream()
+                .collect(Collectors.toMap(Function.identity(),
+                        country -> union(sources, source -> source.fingerprintsByCountry.get(country))));
+
+        uniquePlayerFingerprints = total.join();
+        fingerprintsByCountry = new HashMap<>(byCountry);
+    }
+
+    @Override
+    public void clear() {
+        uniquePlayerFingerprints.clear();
+        fingerprintsByCountry.clear();
+    }
+
+    private static LongHashSet union(List<SingleWriterLoginAggregator> sources,
+                                     Function<SingleWriterLoginAggregator, LongHashSet> set) {
+        int largest = 0;
+        for (SingleWriterLoginAggregator source : sources) {
+            LongHashSet fingerprints = set.apply(source);
+            if (fingerprints != null) {
+                largest = Math.max(largest, fingerprints.size());
+            }
+        }
+        LongHashSet union = new LongHashSet(largest);
+        for (SingleWriterLoginAggregator source : sources) {
+            LongHashSet fingerprints = set.apply(source);
+            if (fingerprints != null) {
+                union.addAll(fingerprints);
+            }
+        }
+        return union;
+    }
+}
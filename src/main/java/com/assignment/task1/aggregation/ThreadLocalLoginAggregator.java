@@ -0,0 +1,121 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Gives every writer thread its own aggregator and merges them when an interval is sealed.
+ * <p>
+ * Each shard worker adds to an {@link EpochAggregator} of its own, so the per-thread aggregators can
+ * be single-writer structures such as {@link SingleWriterLoginAggregator} and shard threads share
+ * no written memory on the aggregation path. {@link #seal()} seals every thread's epoch and merges
+ * them into one aggregator with {@link LoginAggregator#mergeAll(List)}. Counts can only be read from
+ * that merged result; the per-thread state is never read while its thread may be writing.
+ * <p>
+ * The aggregator of a thread that has ended is merged one last time and then dropped, so per-task
+ * worker threads do not pile up. Players merged back with {@link #merge(LoginAggregator)} are kept
+ * aside until the next seal instead of going to the calling thread.
+ */
+public class ThreadLocalLoginAggregator implements SealableAggregator {
+
+    private final Supplier<LoginAggregator> factory;
+    private final List<Writer> writers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<EpochAggregator> local;
+    // Carried over to the next seal; only touched under the instance lock
+    private LoginAggregator carried;
+
+    /**
+     * @param factory Creates the per-thread aggregators and the merged result; all of one kind.
+     */
+    public ThreadLocalLoginAggregator(Supplier<LoginAggregator> factory) {
+        this.factory = factory;
+        this.local = ThreadLocal.withInitial(() -> {
+            EpochAggregator epochs = new EpochAggregator(factory);
+            writers.add(new Writer(Thread.currentThread(), epochs));
+            return epochs;
+        });
+    }
+
+    @Override
+    public void add(String playerId, String country) {
+        local.get().add(playerId, country);
+    }
+
+    @Override
+    public void add(LoginEvent event, String country) {
+        local.get().add(event, country);
+    }
+
+    @Override
+    public synchronized LoginAggregator seal() {
+        List<Writer> sealedWriters = new ArrayList<>(writers);
+        List<LoginAggregator> sealed = new ArrayList<>(sealedWriters.size() + 1);
+        boolean[] ended = new boolean[sealedWriters.size()];
+        for (int i = 0; i < sealedWriters.size(); i++) {
+            Writer writer = sealedWriters.get(i);
+            // Checked before sealing: a thread that had ended by then has all its players in this epoch
+            ended[i] = !writer.thread.isAlive();
+            sealed.add(writer.epochs.seal());
+        }
+        if (carried != null) {
+            sealed.add(carried);
+            carried = null;
+        }
+
+        LoginAggregator merged = factory.get();
+        merged.mergeAll(sealed);
+
+        for (int i = 0; i < sealedWriters.size(); i++) {
+            if (ended[i]) {
+                writers.remove(sealedWriters.get(i));
+            } else {
+                sealedWriters.get(i).epochs.release(sealed.get(i));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The merged aggregator is built fresh on every seal, so there is nothing to recycle.
+     */
+    @Override
+    public void release(LoginAggregator sealed) {
+    }
+
+    /**
+     * Keeps the players aside and merges them into the result of the next {@link #seal()}.
+     */
+    @Override
+    public synchronized void merge(LoginAggregator other) {
+        if (carried == null) {
+            carried = factory.get();
+        }
+        carried.merge(other);
+    }
+
+    @Override
+    public void clear() {
+        seal();
+    }
+
+    /**
+     * @return the number of threads whose aggregators are kept.
+     */
+    int getWriterCount() {
+        return writers.size();
+    }
+
+    private static final class Writer {
+        final Thread thread;
+        final EpochAggregator epochs;
+
+        Writer(Thread thread, EpochAggregator epochs) {
+            this.thread = thread;
+            this.epochs = epochs;
+        }
+    }
+}
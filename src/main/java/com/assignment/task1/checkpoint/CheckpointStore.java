@@ -0,0 +1,26 @@
+package com.assignment.task1.checkpoint;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Durable storage for the last processed sequence number of each shard.
+ * Implement this to keep checkpoints in an external store such as a database table.
+ */
+public interface CheckpointStore {
+
+    /**
+     * @return the last saved sequence number by shard ID.
+     */
+    Map<String, String> load() throws IOException;
+
+    /**
+     * Durably saves a batch of checkpoints; shards that are not in the batch keep their checkpoint.
+     *
+     * @param checkpoints Sequence numbers by shard ID.
+     */
+    void save(Map<String, String> checkpoints) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
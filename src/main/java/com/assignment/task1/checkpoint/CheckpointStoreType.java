@@ -0,0 +1,13 @@
+package com.assignment.task1.checkpoint;
+
+/**
+ * Where shard checkpoints are kept.
+ */
+public enum CheckpointStoreType {
+    /** No checkpoints; every shard starts at TRIM_HORIZON. */
+    NONE,
+    /** Append-only log file on local disk. */
+    FILE,
+    /** Stored with the shard's lease, so a shard taken over by another instance resumes where it stopped. */
+    LEASE
+}
@@ -0,0 +1,68 @@
+package com.assignment.task1.checkpoint;
+
+/**
+ * Checkpoint position of a user record: the sequence number of the Kinesis record that carries it plus,
+ * for records de-aggregated from a KPL aggregate, the index of the user record inside the aggregate.
+ * <p>
+ * A checkpoint covering whole Kinesis records is the plain sequence number, as before. A checkpoint
+ * inside an aggregate is written as {@code <sequenceNumber>:<subSequenceNumber>}; reading then resumes
+ * at that Kinesis record and skips the user records up to and including the sub-sequence number.
+ */
+public final class ExtendedSequenceNumber {
+
+    private static final char SEPARATOR = ':';
+
+    private final String sequenceNumber;
+    private final long subSequenceNumber;
+
+    private ExtendedSequenceNumber(String sequenceNumber, long subSequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+        this.subSequenceNumber = subSequenceNumber;
+    }
+
+    /**
+     * @param checkpoint A checkpoint as stored by {@link ShardCheckpointer}, or null.
+     * @return the parsed position, or null if there is no checkpoint.
+     */
+    public static ExtendedSequenceNumber parse(String checkpoint) {
+        if (checkpoint == null) {
+            return null;
+        }
+        int separator = checkpoint.indexOf(SEPARATOR);
+        if (separator < 0) {
+            return new ExtendedSequenceNumber(checkpoint, -1);
+        }
+        return new ExtendedSequenceNumber(checkpoint.substring(0, separator),
+                Long.parseLong(checkpoint.substring(separator + 1)));
+    }
+
+    /**
+     * @return the checkpoint of an aggregate processed up to and including the given user record.
+     */
+    public static String format(String sequenceNumber, long subSequenceNumber) {
+        return sequenceNumber + SEPARATOR + subSequenceNumber;
+    }
+
+    public String getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * @return the last processed user record of the aggregate, or -1 if the whole record is processed.
+     */
+    public long getSubSequenceNumber() {
+        return subSequenceNumber;
+    }
+
+    /**
+     * @return true if the Kinesis record is only partly processed and has to be read again.
+     */
+    public boolean isPartial() {
+        return subSequenceNumber >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return isPartial() ? format(sequenceNumber, subSequenceNumber) : sequenceNumber;
+    }
+}
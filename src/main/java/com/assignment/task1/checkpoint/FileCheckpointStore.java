@@ -0,0 +1,116 @@
+package com.assignment.task1.checkpoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checkpoint store backed by an append-only log of {@code shardId<TAB>sequenceNumber} lines.
+ * <p>
+ * A batch is one append followed by an fsync, so saving costs a single sequential write however many
+ * shards it covers. On load the log is replayed and the last line of a shard wins; a torn last line
+ * left by a crash is cut off. Once the log holds {@code compactAfter} lines it is rewritten with one
+ * line per shard and atomically moved into place.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+    private static final char SEPARATOR = '\t';
+
+    private final Path file;
+    private final int compactAfter;
+    private final Map<String, String> latest = new HashMap<>();
+    private int linesInLog;
+
+    /**
+     * @param file         The log file; created with its parent directories if missing.
+     * @param compactAfter The number of log lines after which the log is compacted.
+     */
+    public FileCheckpointStore(Path file, int compactAfter) {
+        this.file = file;
+        this.compactAfter = compactAfter;
+    }
+
+    @Override
+    public synchronized Map<String, String> load() throws IOException {
+        latest.clear();
+        linesInLog = 0;
+        if (!Files.exists(file)) {
+            return new HashMap<>();
+        }
+
+        String log = Files.readString(file, StandardCharsets.UTF_8);
+        int end = log.lastIndexOf('\n') + 1;
+        if (end < log.length()) {
+            // A crash cut the last append short; drop it so the next append starts on a fresh line
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(log.substring(0, end).getBytes(StandardCharsets.UTF_8).length);
+            }
+        }
+
+        int start = 0;
+        while (start < end) {
+            int lineEnd = log.indexOf('\n', start);
+            int separator = log.indexOf(SEPARATOR, start);
+            if (separator > start && separator < lineEnd - 1) {
+                latest.put(log.substring(start, separator), log.substring(separator + 1, lineEnd));
+            }
+            linesInLog++;
+            start = lineEnd + 1;
+        }
+        return new HashMap<>(latest);
+    }
+
+    @Override
+    public synchronized void save(Map<String, String> checkpoints) throws IOException {
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+        StringBuilder batch = new StringBuilder();
+        checkpoints.forEach((shardId, sequenceNumber) ->
+                batch.append(shardId).append(SEPARATOR).append(sequenceNumber).append('\n'));
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(channel, batch);
+            channel.force(false);
+        }
+        latest.putAll(checkpoints);
+        linesInLog += checkpoints.size();
+
+        if (linesInLog >= compactAfter) {
+            compact();
+        }
+    }
+
+    private void compact() throws IOException {
+        StringBuilder snapshot = new StringBuilder();
+        latest.forEach((shardId, sequenceNumber) ->
+                snapshot.append(shardId).append(SEPARATOR).append(sequenceNumber).append('\n'));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, snapshot);
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        linesInLog = latest.size();
+    }
+
+    private static void writeFully(FileChannel channel, CharSequence content) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(content.toString());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
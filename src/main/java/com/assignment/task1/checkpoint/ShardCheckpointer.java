@@ -0,0 +1,156 @@
+package com.assignment.task1.checkpoint;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks the last processed sequence number of each shard and writes them to a {@link CheckpointStore}.
+ * <p>
+ * Shard threads only update an in-memory map. A checkpoint may only be saved once the logins of the
+ * records it covers have been written out, or a restart would skip records whose counts were never
+ * written. So the output flush {@link #capture() captures} the checkpoints that moved before it
+ * seals the interval, and {@link #commit(Map) commits} them once the writer has written that
+ * interval. The store is written in one batch per {@code app.checkpoint.interval-ms} with the
+ * committed checkpoints that are not saved yet, and once more on shutdown. A failed write is
+ * retried with the next batch.
+ */
+public class ShardCheckpointer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardCheckpointer.class);
+
+    /**
+     * Checkpoint of a closed shard that has been read to its end.
+     */
+    public static final String SHARD_END = "SHARD_END";
+
+    private final CheckpointStore store;
+    // Saved in the store
+    private final ConcurrentMap<String, String> committed = new ConcurrentHashMap<>();
+    // The latest progress of the shards processed here, which is where a retry resumes
+    private final ConcurrentMap<String, String> processed = new ConcurrentHashMap<>();
+    // Moved since the last capture
+    private final ConcurrentMap<String, String> pending = new ConcurrentHashMap<>();
+    // Committed but not saved yet
+    private final ConcurrentMap<String, String> ready = new ConcurrentHashMap<>();
+
+    public ShardCheckpointer(CheckpointStore store) {
+        this.store = store;
+        try {
+            committed.putAll(store.load());
+            logger.info("Loaded checkpoints for {} shard(s)", committed.size());
+        } catch (IOException e) {
+            logger.error("Failed to load checkpoints, shards start from TRIM_HORIZON: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the sequence number to resume the shard after, or null to start from the beginning.
+     */
+    public String getCheckpoint(String shardId) {
+        String sequenceNumber = processed.get(shardId);
+        return sequenceNumber != null ? sequenceNumber : committed.get(shardId);
+    }
+
+    /**
+     * Records that all records of the shard up to and including the sequence number are processed.
+     */
+    public void checkpoint(String shardId, String sequenceNumber) {
+        processed.put(shardId, sequenceNumber);
+        pending.put(shardId, sequenceNumber);
+    }
+
+    /**
+     * Takes the checkpoints recorded since the last capture. Their logins were added before them, so
+     * an aggregator sealed after the capture holds all of them.
+     *
+     * @return the captured checkpoints by shard; pass them to {@link #commit(Map)} once those logins
+     *         are written, or to {@link #restore(Map)} if they are not.
+     */
+    public Map<String, String> capture() {
+        Map<String, String> batch = new HashMap<>(pending);
+        // Keep shards that moved on while the batch was copied
+        batch.forEach(pending::remove);
+        return batch;
+    }
+
+    /**
+     * Marks captured checkpoints as safe to save with the next flush. Shards adopted from another
+     * instance since the capture are skipped.
+     */
+    public void commit(Map<String, String> batch) {
+        batch.forEach((shardId, sequenceNumber) -> {
+            if (processed.containsKey(shardId)) {
+                ready.put(shardId, sequenceNumber);
+            }
+        });
+    }
+
+    /**
+     * Returns captured checkpoints whose logins were not handed to the output, so the next capture
+     * takes them again unless their shards have moved on by then.
+     */
+    public void restore(Map<String, String> batch) {
+        batch.forEach((shardId, sequenceNumber) -> {
+            if (processed.containsKey(shardId)) {
+                pending.putIfAbsent(shardId, sequenceNumber);
+            }
+        });
+    }
+
+    /**
+     * Takes over a checkpoint another instance saved for a shard this instance does not consume;
+     * local progress of the shard that was not saved yet is dropped.
+     */
+    public void adopt(String shardId, String sequenceNumber) {
+        processed.remove(shardId);
+        pending.remove(shardId);
+        ready.remove(shardId);
+        committed.put(shardId, sequenceNumber);
+    }
+
+    /**
+     * @return true if the shard was closed and every record of it has been processed.
+     */
+    public boolean isShardEnd(String shardId) {
+        return SHARD_END.equals(getCheckpoint(shardId));
+    }
+
+    /**
+     * Saves the committed checkpoints; checkpoints that were not committed yet stay in memory.
+     */
+    @Scheduled(fixedDelayString = "${app.checkpoint.interval-ms}")
+    public synchronized void flush() {
+        if (ready.isEmpty()) {
+            return;
+        }
+        Map<String, String> batch = new HashMap<>(ready);
+        try {
+            store.save(batch);
+        } catch (IOException e) {
+            logger.error("Failed to save checkpoints for {} shard(s): {}", batch.size(), e.getMessage(), e);
+            return;
+        }
+        committed.putAll(batch);
+        // Keep shards committed again while the batch was being written
+        batch.forEach(ready::remove);
+        logger.debug("Saved checkpoints for {} shard(s)", batch.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        try {
+            store.close();
+        } catch (IOException e) {
+            logger.error("Failed to close checkpoint store: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.assignment.task1.compression;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compression of a record payload, recognized by the magic bytes the codec's format starts with.
+ * <p>
+ * Neither magic number can open an uncompressed payload: JSON starts with '{' or whitespace, and
+ * 0x1F and 0x28 would be tags of fields 3 and 5, which no login message version declares.
+ */
+public enum PayloadCodec {
+    NONE,
+    GZIP,
+    ZSTD;
+
+    private static final int ZSTD_MAGIC = 0xFD2FB528;
+
+    /**
+     * Detects the codec of the bytes between the buffer's position and limit.
+     */
+    public static PayloadCodec detect(ByteBuffer data) {
+        int start = data.position();
+        int length = data.remaining();
+        if (length >= 2 && data.get(start) == (byte) 0x1F && data.get(start + 1) == (byte) 0x8B) {
+            return GZIP;
+        }
+        if (length >= 4 && Integer.reverseBytes(data.getInt(start)) == ZSTD_MAGIC) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,227 @@
+package com.assignment.task1.compression;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses gzip and zstd record payloads; other payloads are passed through.
+ * <p>
+ * Every thread keeps its own inflater, zstd context and output buffer, which grows to the largest
+ * payload seen and is then reused, so decompressing a record allocates nothing. The buffer returned
+ * for a compressed payload is that output buffer: it is only valid until the same thread decompresses
+ * the next payload, which holds because every record is decoded before the next one is read.
+ * Sizes and decode times are counted for {@link #describeStats()}.
+ */
+public class PayloadDecompressor {
+
+    private static final int INITIAL_OUTPUT_BYTES = 64 * 1024;
+
+    // Gzip header flags (RFC 1952)
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int GZIP_HEADER_BYTES = 10;
+    private static final int GZIP_TRAILER_BYTES = 8;
+
+    private final int maxDecompressedBytes;
+    private final ThreadLocal<Contexts> contexts = ThreadLocal.withInitial(Contexts::new);
+
+    private final LongAdder compressedRecords = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder decompressedBytes = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+
+    /**
+     * @param maxDecompressedBytes The largest payload a record may decompress to; larger ones are rejected.
+     */
+    public PayloadDecompressor(int maxDecompressedBytes) {
+        this.maxDecompressedBytes = maxDecompressedBytes;
+    }
+
+    /**
+     * Decompresses the payload between the position and the limit of the buffer, which are left untouched.
+     *
+     * @return the buffer itself if the payload is not compressed; otherwise the decompressed payload,
+     *         valid until this thread decompresses another one.
+     * @throws IOException if the payload is corrupt or decompresses to more than the allowed size.
+     */
+    public ByteBuffer decompress(ByteBuffer data) throws IOException {
+        PayloadCodec codec = PayloadCodec.detect(data);
+        if (codec == PayloadCodec.NONE) {
+            return data;
+        }
+        long start = System.nanoTime();
+        Contexts context = contexts.get();
+        int length = codec == PayloadCodec.GZIP ? context.gunzip(data) : context.unzstd(data);
+
+        compressedRecords.increment();
+        compressedBytes.add(data.remaining());
+        decompressedBytes.add(length);
+        decodeNanos.add(System.nanoTime() - start);
+        context.view.clear();
+        context.view.limit(length);
+        return context.view;
+    }
+
+    public long getCompressedRecords() {
+        return compressedRecords.sum();
+    }
+
+    /**
+     * Summarizes the compressed payloads seen so far, for logging.
+     *
+     * @return a line such as {@code records=1200 ratio=4.21 decode=3.1us/record}, or an empty string
+     *         if no compressed payload was seen.
+     */
+    public String describeStats() {
+        long records = compressedRecords.sum();
+        if (records == 0) {
+            return "";
+        }
+        double ratio = (double) decompressedBytes.sum() / Math.max(1, compressedBytes.sum());
+        double micros = decodeNanos.sum() / 1000.0 / records;
+        return String.format("records=%d ratio=%.2f decode=%.1fus/record", records, ratio, micros);
+    }
+
+    /**
+     * Decompression state of one thread.
+     */
+    private final class Contexts {
+
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private ZstdDecompressCtx zstd;
+        private byte[] input = new byte[0];
+        private byte[] output = new byte[Math.min(INITIAL_OUTPUT_BYTES, maxDecompressedBytes)];
+        private ByteBuffer view = ByteBuffer.wrap(output);
+
+        /**
+         * @return the number of bytes inflated into the output buffer.
+         */
+        int gunzip(ByteBuffer data) throws IOException {
+            int start = data.position();
+            int end = data.limit();
+            if (end - start < GZIP_HEADER_BYTES + GZIP_TRAILER_BYTES || data.get(start + 2) != 8) {
+                throw new IOException("Not a deflate-compressed gzip payload");
+            }
+            int flags = data.get(start + 3) & 0xFF;
+            int position = start + GZIP_HEADER_BYTES;
+            if ((flags & FEXTRA) != 0) {
+                position += 2 + ((data.get(position) & 0xFF) | (data.get(position + 1) & 0xFF) << 8);
+            }
+            if ((flags & FNAME) != 0) {
+                position = skipZeroTerminated(data, position, end);
+            }
+            if ((flags & FCOMMENT) != 0) {
+                position = skipZeroTerminated(data, position, end);
+            }
+            if ((flags & FHCRC) != 0) {
+                position += 2;
+            }
+            int trailer = end - GZIP_TRAILER_BYTES;
+            if (position > trailer) {
+                throw new IOException("Truncated gzip header");
+            }
+
+            // ISIZE is the uncompressed length modulo 2^32; good enough to size the output up front
+            long expected = Integer.toUnsignedLong(Integer.reverseBytes(data.getInt(trailer + 4)));
+            ensureOutput((int) Math.min(expected, maxDecompressedBytes));
+
+            ByteBuffer deflated = data.duplicate();
+            deflated.limit(trailer).position(position);
+            inflater.reset();
+            inflater.setInput(deflated);
+            int length = 0;
+            try {
+                while (!inflater.finished()) {
+                    if (length == output.length) {
+                        growOutput(length);
+                    }
+                    int inflated = inflater.inflate(output, length, output.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated gzip payload");
+                    }
+                    length += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt gzip payload: " + e.getMessage(), e);
+            }
+
+            crc.reset();
+            crc.update(output, 0, length);
+            if ((int) crc.getValue() != Integer.reverseBytes(data.getInt(trailer))) {
+                throw new IOException("Gzip payload fails its CRC check");
+            }
+            return length;
+        }
+
+        /**
+         * @return the number of bytes decompressed into the output buffer.
+         */
+        int unzstd(ByteBuffer data) throws IOException {
+            if (zstd == null) {
+                zstd = new ZstdDecompressCtx();
+            }
+            byte[] source;
+            int offset;
+            int length = data.remaining();
+            if (data.hasArray()) {
+                source = data.array();
+                offset = data.arrayOffset() + data.position();
+            } else {
+                if (input.length < length) {
+                    input = new byte[Math.max(length, input.length * 2)];
+                }
+                data.duplicate().get(input, 0, length);
+                source = input;
+                offset = 0;
+            }
+
+            while (true) {
+                try {
+                    return zstd.decompressByteArray(output, 0, output.length, source, offset, length);
+                } catch (ZstdException e) {
+                    // Frames need not declare their size; retry with a larger buffer until the limit
+                    if (output.length >= maxDecompressedBytes) {
+                        throw new IOException("Corrupt zstd payload or larger than " + maxDecompressedBytes + " bytes: "
+                                + e.getMessage(), e);
+                    }
+                    growOutput(output.length);
+                }
+            }
+        }
+
+        private void growOutput(int needed) throws IOException {
+            if (needed >= maxDecompressedBytes) {
+                throw new IOException("Payload decompresses to more than " + maxDecompressedBytes + " bytes");
+            }
+            ensureOutput((int) Math.min((long) needed * 2, maxDecompressedBytes));
+        }
+
+        private void ensureOutput(int size) {
+            if (output.length < size) {
+                byte[] grown = new byte[size];
+                System.arraycopy(output, 0, grown, 0, output.length);
+                output = grown;
+                view = ByteBuffer.wrap(output);
+            }
+        }
+
+        private int skipZeroTerminated(ByteBuffer data, int position, int end) throws IOException {
+            while (position < end) {
+                if (data.get(position++) == 0) {
+                    return position;
+                }
+            }
+            throw new IOException("Truncated gzip header");
+        }
+    }
+}
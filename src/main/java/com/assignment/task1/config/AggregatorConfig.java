@@ -0,0 +1,65 @@
+package com.assignment.task1.config;
+
+import com.assignment.task1.aggregation.ApproximateLoginAggregator;
+import com.assignment.task1.aggregation.EpochAggregator;
+import com.assignment.task1.aggregation.EventTimeWindowAggregator;
+import com.assignment.task1.aggregation.ExactLoginAggregator;
+import com.assignment.task1.aggregation.HashedLoginAggregator;
+import com.assignment.task1.aggregation.HyperLogLog;
+import com.assignment.task1.aggregation.LoginAggregator;
+import com.assignment.task1.aggregation.SealableAggregator;
+import com.assignment.task1.aggregation.SingleWriterApproximateLoginAggregator;
+import com.assignment.task1.aggregation.SingleWriterExactLoginAggregator;
+import com.assignment.task1.aggregation.SingleWriterLoginAggregator;
+import com.assignment.task1.aggregation.ThreadLocalLoginAggregator;
+import com.assignment.task1.watermark.WatermarkTracker;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AggregatorConfig {
+
+    @Bean
+    public SealableAggregator loginAggregator(AppConfig appConfig) {
+        AppConfig.AggregationConfig aggregation = appConfig.getAggregation();
+        if (aggregation.isThreadLocal()) {
+            return new ThreadLocalLoginAggregator(() -> newThreadLocalAggregator(aggregation));
+        }
+        return new EpochAggregator(() -> newAggregator(aggregation));
+    }
+
+    // Only with event time; each window gets a thread-safe aggregator, as windows are shared by all shard threads
+    @Bean
+    @ConditionalOnProperty(prefix = "app.aggregation", name = "time-domain", havingValue = "event")
+    public EventTimeWindowAggregator eventTimeWindowAggregator(AppConfig appConfig, WatermarkTracker watermarkTracker) {
+        AppConfig.AggregationConfig aggregation = appConfig.getAggregation();
+        return new EventTimeWindowAggregator(aggregation.getWindowMs(), aggregation.getAllowedLatenessMs(),
+                aggregation.getMaxOpenWindows(), watermarkTracker, () -> newAggregator(aggregation));
+    }
+
+    // Written by one shard thread each, so plain structures suffice; they are merged in parallel at flush
+    private LoginAggregator newThreadLocalAggregator(AppConfig.AggregationConfig aggregation) {
+        switch (aggregation.getMode()) {
+            case HASHED:
+                return new SingleWriterLoginAggregator();
+            case APPROXIMATE:
+                return new SingleWriterApproximateLoginAggregator(HyperLogLog.precisionForError(aggregation.getRelativeError()));
+            case EXACT:
+            default:
+                return new SingleWriterExactLoginAggregator();
+        }
+    }
+
+    private LoginAggregator newAggregator(AppConfig.AggregationConfig aggregation) {
+        switch (aggregation.getMode()) {
+            case HASHED:
+                return new HashedLoginAggregator();
+            case APPROXIMATE:
+                return new ApproximateLoginAggregator(HyperLogLog.precisionForError(aggregation.getRelativeError()));
+            case EXACT:
+            default:
+                return new ExactLoginAggregator();
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package com.assignment.task1.config;
 
+import com.assignment.task1.aggregation.AggregationMode;
+import com.assignment.task1.checkpoint.CheckpointStoreType;
+import com.assignment.task1.compression.PayloadCodec;
+import com.assignment.task1.output.OutputFormat;
+import com.assignment.task1.decoder.PayloadFormat;
+import com.assignment.task1.lease.LeaseStoreType;
+import com.assignment.task1.worker.WorkerMode;
+import com.assignment.task1.deduplication.DeduplicationBackend;
+import com.assignment.task1.deduplication.TimeDomain;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import lombok.Data;
 
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
 @Component
 @ConfigurationProperties(prefix = "app")
 @Data
@@ -14,6 +26,15 @@ public class AppConfig {
     private OutputConfig output;
     private DedupConfig dedup;
     private S3Config s3;
+    private PayloadConfig payload;
+    private AggregationConfig aggregation;
+    private WatermarkConfig watermark = new WatermarkConfig();
+    private CheckpointConfig checkpoint;
+    private LeaseConfig lease;
+    private WorkerConfig worker = new WorkerConfig();
+    private PollConfig poll = new PollConfig();
+    private FanOutConfig fanOut = new FanOutConfig();
+    private ParallelConfig parallel = new ParallelConfig();
 
     @Data
     public static class AwsConfig {
@@ -21,27 +42,168 @@ public class AppConfig {
         private String secretKey;
         private String region;
         private String streamName;
+        private long shardDiscoveryIntervalMs = 60000;
+        // Every running shard worker keeps a getRecords call open, so this bounds the shards per node
+        private int maxConnections = 50;
     }
 
     @Data
     public static class BufferConfig {
         private int size;
         private int timeMs;
+        // Batches fetched ahead of processing per shard; 0 fetches and processes in turn
+        private int prefetchBatches;
     }
 
     @Data
     public static class OutputConfig {
         private long frequencyMs;
         private boolean enableCompression;
+        // Compression of the output files when enabled: gzip or zstd
+        private PayloadCodec codec = PayloadCodec.GZIP;
+        private String directory = "output";
+        // Intervals that may wait for the writer thread; further ones are carried over
+        private int queueCapacity = 4;
+        private long shutdownTimeoutMs = 10000;
+        private boolean ndjsonEnabled = true;
+        private ParquetConfig parquet = new ParquetConfig();
+    }
+
+    @Data
+    public static class ParquetConfig {
+        private boolean enabled;
+        // Kept apart from the NDJSON output so that every table directory holds a single format
+        private String directory = "output-parquet";
+        private PayloadCodec codec = PayloadCodec.ZSTD;
+        // A file is finished once it reaches this size or age, or once its hour is over
+        private long rollBytes = 128L * 1024 * 1024;
+        private long rollIntervalMs = 3600000;
+        // Rows buffered in memory before they are written out as a row group
+        private long rowGroupBytes = 8L * 1024 * 1024;
     }
 
     @Data
     public static class DedupConfig {
         private long windowMinutes;
+        private DeduplicationBackend backend = DeduplicationBackend.CAFFEINE;
+        private String directory = System.getProperty("java.io.tmpdir");
+        private long bucketCapacity = 1_000_000;
+        private TimeDomain timeDomain = TimeDomain.PROCESSING;
+        // Event time only: how far a shard may run ahead of the slowest one, which sizes the bucket ring
+        private long maxSkewMinutes = 60;
+        private DedupFilterConfig filter = new DedupFilterConfig();
+    }
+
+    @Data
+    public static class DedupFilterConfig {
+        private boolean enabled;
+        private long expectedPlayers = 1_000_000;
+        private double falsePositiveRate = 0.01;
     }
 
     @Data
     public static class S3Config {
+        private boolean enabled;
         private String bucketName;
+        // Prepended to the partitioned key layout of the spooled files
+        private String prefix = "";
+        // Empty for AWS; set to use an S3-compatible store such as MinIO or LocalStack
+        private String endpoint;
+        private boolean pathStyleAccess;
+        // Files are written here first and stay here while S3 is unavailable
+        private String spoolDirectory = "s3-spool";
+        private OutputFormat format = OutputFormat.PARQUET;
+        // S3 requires parts of at least 5 MiB, except for the last one
+        private int partSizeBytes = 8 * 1024 * 1024;
+        // Uploads running at once; each has one part in flight
+        private int maxInFlightParts = 4;
+        private int maxAttempts = 5;
+        private long backoffMs = 200;
+        private long maxBackoffMs = 10000;
+    }
+
+    @Data
+    public static class PayloadConfig {
+        private PayloadFormat format = PayloadFormat.JSON;
+        // Gzip and zstd payloads are detected by their magic bytes; this caps what one may expand to
+        private int maxDecompressedBytes = 8 * 1024 * 1024;
+    }
+
+    @Data
+    public static class AggregationConfig {
+        private AggregationMode mode = AggregationMode.EXACT;
+        // Relative standard error of the approximate mode
+        private double relativeError = 0.01;
+        private boolean threadLocal;
+        // processing counts per output interval; event counts per tumbling window of message time
+        private TimeDomain timeDomain = TimeDomain.PROCESSING;
+        private long windowMs = 60000;
+        // How far the watermark must pass the end of a window before it is closed and written
+        private long allowedLatenessMs = 10000;
+        // Open windows at once; should cover the event-time spread between the shards
+        private int maxOpenWindows = 1440;
+    }
+
+    @Data
+    public static class WatermarkConfig {
+        // A shard without an event time for this long stops holding the event-time watermark back; 0 waits for it
+        private long idleTimeoutMs = 60000;
+        // How often shards are checked for the idle timeout
+        private long idleCheckIntervalMs = 5000;
+    }
+
+    @Data
+    public static class CheckpointConfig {
+        private CheckpointStoreType store = CheckpointStoreType.NONE;
+        private String file;
+        private long intervalMs;
+        private int compactAfter = 10000;
+    }
+
+    @Data
+    public static class LeaseConfig {
+        private LeaseStoreType store = LeaseStoreType.MEMORY;
+        private String file;
+        // Unique per process unless set; pid@host plus a random suffix
+        private String workerId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        private long leaseDurationMs = 30000;
+        private long renewIntervalMs = 10000;
+    }
+
+    @Data
+    public static class WorkerConfig {
+        // VIRTUAL falls back to a platform thread per shard on Java 17, which the build targets
+        private WorkerMode mode = WorkerMode.POOL;
+        private long shutdownTimeoutMs = 10000;
+    }
+
+    @Data
+    public static class PollConfig {
+        // Records asked for per GetRecords call when caught up; raised up to 10000 while behind
+        private int limit = 1000;
+        private long idleMs = 1000;
+        private long lagThresholdMs = 10000;
+        private long maxBackoffMs = 5000;
+    }
+
+    @Data
+    public static class FanOutConfig {
+        private boolean enabled;
+        private String consumerName = "springboot-kinesis-consumer";
+        // Overrides the Kinesis endpoint, e.g. for a local stand-in
+        private String endpoint;
+        private int maxConcurrency = 100;
+        // Events received ahead of processing per shard
+        private int bufferedEvents = 4;
+    }
+
+    @Data
+    public static class ParallelConfig {
+        // Batches with at least this many records are split across the fork/join pool; 0 disables.
+        // A failure inside such a batch re-reads all of it, as it has no per-user-record checkpoint
+        private int threshold;
+        private int chunkSize = 500;
+        // Threads of the shared pool; 0 uses one per available processor
+        private int parallelism;
     }
 }
@@ -1,5 +1,7 @@
 package com.assignment.task1.config;
 
+import com.assignment.task1.worker.ShardWorkerExecutor;
+import com.assignment.task1.worker.WorkerMode;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -11,7 +13,14 @@ import java.util.concurrent.Executor;
 public class AsyncConfig implements AsyncConfigurer {
 
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(AppConfig appConfig) {
+        AppConfig.WorkerConfig worker = appConfig.getWorker();
+        if (worker.getMode() == WorkerMode.VIRTUAL) {
+            // Shut down with the context: workers are interrupted and joined
+            return new ShardWorkerExecutor(ShardWorkerExecutor.perTaskThreadFactory("kinesis-shard-"),
+                    worker.getShutdownTimeoutMs());
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(4);
         executor.setMaxPoolSize(10);
@@ -1,5 +1,6 @@
 package com.assignment.task1.config;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.kinesis.AmazonKinesis;
@@ -24,6 +25,8 @@ public class AwsClientConfig {
         return AmazonKinesisClientBuilder.standard()
                 .withRegion(appConfig.getAws().getRegion())
                 .withCredentials(new AWSStaticCredentialsProvider(awsCreds))
+                .withClientConfiguration(new ClientConfiguration()
+                        .withMaxConnections(appConfig.getAws().getMaxConnections()))
                 .build();
     }
 }
@@ -0,0 +1,51 @@
+package com.assignment.task1.config;
+
+import com.assignment.task1.checkpoint.CheckpointStore;
+import com.assignment.task1.checkpoint.CheckpointStoreType;
+import com.assignment.task1.checkpoint.FileCheckpointStore;
+import com.assignment.task1.checkpoint.ShardCheckpointer;
+import com.assignment.task1.lease.LeaseCheckpointStore;
+import com.assignment.task1.lease.LeaseStore;
+import com.assignment.task1.lease.LeaseStoreType;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class CheckpointConfig {
+
+    @Bean
+    public CheckpointStore checkpointStore(AppConfig appConfig, LeaseStore leaseStore) {
+        AppConfig.CheckpointConfig checkpoint = appConfig.getCheckpoint();
+        if (appConfig.getLease().getStore() == LeaseStoreType.FILE && checkpoint.getStore() != CheckpointStoreType.LEASE) {
+            // Each instance would resume a shard it takes over from its own checkpoints, not its previous owner's
+            throw new IllegalArgumentException("app.checkpoint.store must be lease when app.lease.store is file");
+        }
+        switch (checkpoint.getStore()) {
+            case FILE:
+                return new FileCheckpointStore(Path.of(checkpoint.getFile()), checkpoint.getCompactAfter());
+            case LEASE:
+                return new LeaseCheckpointStore(leaseStore, appConfig.getLease().getWorkerId());
+            case NONE:
+            default:
+                return new CheckpointStore() {
+                    @Override
+                    public Map<String, String> load() {
+                        return new HashMap<>();
+                    }
+
+                    @Override
+                    public void save(Map<String, String> checkpoints) {
+                    }
+                };
+        }
+    }
+
+    @Bean
+    public ShardCheckpointer shardCheckpointer(CheckpointStore checkpointStore) {
+        return new ShardCheckpointer(checkpointStore);
+    }
+}
@@ -0,0 +1,47 @@
+package com.assignment.task1.config;
+
+import com.assignment.task1.compression.PayloadDecompressor;
+import com.assignment.task1.decoder.JsonLoginEventDecoder;
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.decoder.LoginEventDecoder;
+import com.assignment.task1.decoder.ProtobufLoginEventDecoder;
+import com.assignment.task1.decoder.SchemaDecoder;
+import com.assignment.task1.decoder.SchemaDecoderRegistry;
+import com.assignment.task1.protobuf.LoginMessageV1;
+import com.assignment.task1.protobuf.LoginMessageV2;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class DecoderConfig {
+
+    // Register new message versions here; every SchemaDecoder bean is picked up by the registry
+    @Bean
+    public SchemaDecoder loginMessageV1Decoder() {
+        return new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV1.getDescriptor());
+    }
+
+    @Bean
+    public SchemaDecoder loginMessageV2Decoder() {
+        return new SchemaDecoder(LoginEvent.SCHEMA_V2, LoginMessageV2.getDescriptor());
+    }
+
+    @Bean
+    public SchemaDecoderRegistry schemaDecoderRegistry(List<SchemaDecoder> schemaDecoders) {
+        return new SchemaDecoderRegistry(schemaDecoders);
+    }
+
+    @Bean
+    public LoginEventDecoder loginEventDecoder(AppConfig appConfig,
+                                               JsonLoginEventDecoder jsonDecoder,
+                                               ProtobufLoginEventDecoder protobufDecoder) {
+        return new LoginEventDecoder(appConfig.getPayload().getFormat(), jsonDecoder, protobufDecoder);
+    }
+
+    @Bean
+    public PayloadDecompressor payloadDecompressor(AppConfig appConfig) {
+        return new PayloadDecompressor(appConfig.getPayload().getMaxDecompressedBytes());
+    }
+}
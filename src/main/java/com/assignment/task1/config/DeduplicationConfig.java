@@ -1,14 +1,79 @@
 package com.assignment.task1.config;
 
+import com.assignment.task1.deduplication.EventTimeDeduplication;
+import com.assignment.task1.deduplication.FilteredDeduplication;
+import com.assignment.task1.deduplication.FingerprintWindowDeduplication;
+import com.assignment.task1.deduplication.MappedWindowDeduplication;
+import com.assignment.task1.deduplication.PlayerDeduplication;
 import com.assignment.task1.deduplication.SlidingWindowDeduplication;
+import com.assignment.task1.deduplication.TimeDomain;
+import com.assignment.task1.util.BlockedBloomFilter;
+import com.assignment.task1.util.ConcurrentLongHashSet;
+import com.assignment.task1.util.LongSet;
+import com.assignment.task1.util.MappedLongHashSet;
+import com.assignment.task1.watermark.WatermarkTracker;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.function.Supplier;
+
 @Configuration
 public class DeduplicationConfig {
 
     @Bean
-    public SlidingWindowDeduplication slidingWindowDeduplication(AppConfig appConfig) {
-        return new SlidingWindowDeduplication(appConfig.getDedup().getWindowMinutes());
+    public PlayerDeduplication playerDeduplication(AppConfig appConfig, WatermarkTracker watermarkTracker) {
+        AppConfig.DedupConfig dedup = appConfig.getDedup();
+        PlayerDeduplication deduplication = backend(dedup, watermarkTracker);
+
+        AppConfig.DedupFilterConfig filter = dedup.getFilter();
+        if (filter.isEnabled()) {
+            return new FilteredDeduplication(deduplication,
+                    bucketFactory -> window(dedup, watermarkTracker, bucketFactory),
+                    filter.getExpectedPlayers(),
+                    filter.getFalsePositiveRate());
+        }
+        return deduplication;
+    }
+
+    private PlayerDeduplication backend(AppConfig.DedupConfig dedup, WatermarkTracker watermarkTracker) {
+        if (dedup.getTimeDomain() == TimeDomain.EVENT) {
+            // Event time always uses fingerprint buckets; only their storage follows the backend
+            return window(dedup, watermarkTracker, bucketFactory(dedup));
+        }
+        switch (dedup.getBackend()) {
+            case FINGERPRINT:
+            case BLOOM:
+                return window(dedup, watermarkTracker, bucketFactory(dedup));
+            case MAPPED:
+                return new MappedWindowDeduplication(dedup.getWindowMinutes(), Path.of(dedup.getDirectory()), dedup.getBucketCapacity());
+            case CAFFEINE:
+            default:
+                return new SlidingWindowDeduplication(dedup.getWindowMinutes());
+        }
+    }
+
+    private PlayerDeduplication window(AppConfig.DedupConfig dedup, WatermarkTracker watermarkTracker, Supplier<LongSet> bucketFactory) {
+        if (dedup.getTimeDomain() == TimeDomain.EVENT) {
+            return new EventTimeDeduplication(dedup.getWindowMinutes(), dedup.getMaxSkewMinutes(), watermarkTracker, bucketFactory);
+        }
+        return new FingerprintWindowDeduplication(dedup.getWindowMinutes(), Clock.systemUTC(), bucketFactory);
+    }
+
+    private Supplier<LongSet> bucketFactory(AppConfig.DedupConfig dedup) {
+        switch (dedup.getBackend()) {
+            case MAPPED:
+                Path directory = Path.of(dedup.getDirectory());
+                long bucketCapacity = dedup.getBucketCapacity();
+                return () -> new MappedLongHashSet(directory, bucketCapacity);
+            case BLOOM:
+                AppConfig.DedupFilterConfig filter = dedup.getFilter();
+                Supplier<BlockedBloomFilter> bloomBuckets = FilteredDeduplication.bloomBuckets(filter.getExpectedPlayers(),
+                        filter.getFalsePositiveRate());
+                return bloomBuckets::get;
+            default:
+                return ConcurrentLongHashSet::new;
+        }
     }
 }
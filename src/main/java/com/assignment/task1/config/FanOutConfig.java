@@ -0,0 +1,37 @@
+package com.assignment.task1.config;
+
+import com.assignment.task1.fanout.FanOutConsumer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.Protocol;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClientBuilder;
+
+import java.net.URI;
+
+@Configuration
+public class FanOutConfig {
+
+    @Bean
+    public FanOutConsumer fanOutConsumer(AppConfig appConfig) {
+        AppConfig.AwsConfig aws = appConfig.getAws();
+        AppConfig.FanOutConfig fanOut = appConfig.getFanOut();
+        return new FanOutConsumer(() -> {
+            KinesisAsyncClientBuilder builder = KinesisAsyncClient.builder()
+                    .region(Region.of(aws.getRegion()))
+                    .credentialsProvider(StaticCredentialsProvider.create(
+                            AwsBasicCredentials.create(aws.getAccessKey(), aws.getSecretKey())))
+                    .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                            .protocol(Protocol.HTTP2)
+                            .maxConcurrency(fanOut.getMaxConcurrency()));
+            if (fanOut.getEndpoint() != null && !fanOut.getEndpoint().isEmpty()) {
+                builder.endpointOverride(URI.create(fanOut.getEndpoint()));
+            }
+            return builder.build();
+        }, aws.getStreamName(), fanOut.getConsumerName());
+    }
+}
@@ -0,0 +1,36 @@
+package com.assignment.task1.config;
+
+import com.assignment.task1.checkpoint.ShardCheckpointer;
+import com.assignment.task1.lease.FileLeaseStore;
+import com.assignment.task1.lease.InMemoryLeaseStore;
+import com.assignment.task1.lease.LeaseCoordinator;
+import com.assignment.task1.lease.LeaseStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class LeaseConfig {
+
+    @Bean
+    public LeaseStore leaseStore(AppConfig appConfig) {
+        AppConfig.LeaseConfig lease = appConfig.getLease();
+        switch (lease.getStore()) {
+            case FILE:
+                return new FileLeaseStore(Path.of(lease.getFile()));
+            case MEMORY:
+            default:
+                return new InMemoryLeaseStore();
+        }
+    }
+
+    @Bean
+    public LeaseCoordinator leaseCoordinator(LeaseStore leaseStore, ShardCheckpointer shardCheckpointer, AppConfig appConfig) {
+        AppConfig.LeaseConfig lease = appConfig.getLease();
+        if (lease.getRenewIntervalMs() >= lease.getLeaseDurationMs()) {
+            throw new IllegalArgumentException("app.lease.renew-interval-ms must be shorter than app.lease.lease-duration-ms");
+        }
+        return new LeaseCoordinator(leaseStore, shardCheckpointer, lease.getWorkerId(), lease.getLeaseDurationMs());
+    }
+}
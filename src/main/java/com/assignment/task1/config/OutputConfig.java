@@ -0,0 +1,85 @@
+package com.assignment.task1.config;
+
+import com.assignment.task1.compression.PayloadCodec;
+import com.assignment.task1.output.AsyncOutputWriter;
+import com.assignment.task1.output.NdjsonFileSink;
+import com.assignment.task1.output.OutputFormat;
+import com.assignment.task1.output.OutputSink;
+import com.assignment.task1.output.ParquetFileSink;
+import com.assignment.task1.output.S3MultipartUploader;
+import com.assignment.task1.output.S3OutputSink;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class OutputConfig {
+
+    private static final int MIN_PART_SIZE_BYTES = 5 * 1024 * 1024;
+
+    // Every enabled sink receives each interval's results
+    @Bean
+    public AsyncOutputWriter asyncOutputWriter(AppConfig appConfig) {
+        AppConfig.OutputConfig output = appConfig.getOutput();
+        List<OutputSink> sinks = new ArrayList<>();
+        if (output.isNdjsonEnabled()) {
+            sinks.add(new NdjsonFileSink(Path.of(output.getDirectory()), ndjsonCodec(output)));
+        }
+        AppConfig.ParquetConfig parquet = output.getParquet();
+        if (parquet.isEnabled()) {
+            sinks.add(parquetSink(Path.of(parquet.getDirectory()), parquet));
+        }
+        AppConfig.S3Config s3 = appConfig.getS3();
+        if (s3 != null && s3.isEnabled()) {
+            sinks.add(s3Sink(appConfig.getAws(), s3, output));
+        }
+        if (sinks.isEmpty()) {
+            throw new IllegalArgumentException("app.output needs ndjson-enabled, parquet.enabled or app.s3.enabled");
+        }
+        return new AsyncOutputWriter(sinks, output.getQueueCapacity(), output.getShutdownTimeoutMs());
+    }
+
+    private static S3OutputSink s3Sink(AppConfig.AwsConfig aws, AppConfig.S3Config s3, AppConfig.OutputConfig output) {
+        if (s3.getPartSizeBytes() < MIN_PART_SIZE_BYTES) {
+            throw new IllegalArgumentException("app.s3.part-size-bytes must be at least " + MIN_PART_SIZE_BYTES);
+        }
+        Path spool = Path.of(s3.getSpoolDirectory());
+        OutputSink spoolSink = s3.getFormat() == OutputFormat.PARQUET
+                ? parquetSink(spool, output.getParquet())
+                : new NdjsonFileSink(spool, ndjsonCodec(output));
+        // The uploader retries with its own backoff, so the SDK's retries are turned off
+        S3MultipartUploader uploader = new S3MultipartUploader(() -> {
+            S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                    .region(Region.of(aws.getRegion()))
+                    .credentialsProvider(StaticCredentialsProvider.create(
+                            AwsBasicCredentials.create(aws.getAccessKey(), aws.getSecretKey())))
+                    .forcePathStyle(s3.isPathStyleAccess())
+                    .overrideConfiguration(o -> o.retryPolicy(RetryPolicy.none()));
+            if (s3.getEndpoint() != null && !s3.getEndpoint().isEmpty()) {
+                builder.endpointOverride(URI.create(s3.getEndpoint()));
+            }
+            return builder.build();
+        }, s3.getBucketName(), s3.getPartSizeBytes(), s3.getMaxAttempts(), s3.getBackoffMs(), s3.getMaxBackoffMs());
+        return new S3OutputSink(spoolSink, spool, s3.getPrefix(), uploader,
+                s3.getMaxInFlightParts(), output.getShutdownTimeoutMs());
+    }
+
+    private static ParquetFileSink parquetSink(Path directory, AppConfig.ParquetConfig parquet) {
+        return new ParquetFileSink(directory, parquet.getCodec(),
+                parquet.getRollBytes(), parquet.getRollIntervalMs(), parquet.getRowGroupBytes());
+    }
+
+    private static PayloadCodec ndjsonCodec(AppConfig.OutputConfig output) {
+        return output.isEnableCompression() ? output.getCodec() : PayloadCodec.NONE;
+    }
+}
@@ -10,7 +10,8 @@ public class SchedulerConfig {
     @Bean
     public ThreadPoolTaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(2);
+        // Lease renewal must not queue behind an output flush
+        scheduler.setPoolSize(4);
         scheduler.setThreadNamePrefix("scheduler-");
         scheduler.initialize();
         return scheduler;
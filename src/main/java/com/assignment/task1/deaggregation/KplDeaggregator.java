@@ -0,0 +1,229 @@
+package com.assignment.task1.deaggregation;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reads the user records packed into a KPL aggregated record without copying them.
+ * <p>
+ * An aggregate is the magic bytes {@code F3 89 9A C2}, a protobuf {@code AggregatedRecord} and the MD5
+ * digest of that protobuf. The user records are the {@code data} fields of its repeated
+ * {@code records}; they are handed out as views of the record's buffer, found by walking the protobuf
+ * wire format in place. A record with the magic bytes but a digest that does not match is not an
+ * aggregate, the same rule the KPL's own de-aggregation applies.
+ */
+public final class KplDeaggregator {
+
+    private static final byte[] MAGIC = {(byte) 0xF3, (byte) 0x89, (byte) 0x9A, (byte) 0xC2};
+    private static final int DIGEST_LENGTH = 16;
+
+    // AggregatedRecord.records and Record.data
+    private static final int RECORDS_FIELD = 3;
+    private static final int DATA_FIELD = 3;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private static final ThreadLocal<Md5> MD5 = ThreadLocal.withInitial(Md5::new);
+
+    /**
+     * Receives the user records of an aggregate in order.
+     */
+    @FunctionalInterface
+    public interface UserRecordConsumer {
+
+        /**
+         * @param subSequenceNumber The index of the user record inside the aggregate.
+         * @param data              A view of the user record; only valid during the call.
+         */
+        void accept(long subSequenceNumber, ByteBuffer data);
+    }
+
+    private KplDeaggregator() {
+    }
+
+    /**
+     * Checks the magic bytes and the MD5 digest of the bytes between the buffer's position and limit.
+     */
+    public static boolean isAggregated(ByteBuffer data) {
+        int start = data.position();
+        int length = data.remaining();
+        if (length < MAGIC.length + DIGEST_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data.get(start + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return MD5.get().matches(data, start + MAGIC.length, data.limit() - DIGEST_LENGTH);
+    }
+
+    /**
+     * Hands each user record of a verified aggregate to the consumer; the buffer's position is not changed.
+     *
+     * @return the number of user records.
+     * @throws IllegalArgumentException if the protobuf is malformed.
+     */
+    public static long forEachUserRecord(ByteBuffer data, UserRecordConsumer consumer) {
+        WireReader reader = new WireReader(data, data.position() + MAGIC.length, data.limit() - DIGEST_LENGTH);
+        ByteBuffer view = data.duplicate();
+        long subSequenceNumber = 0;
+        while (reader.hasMore()) {
+            long tag = reader.readVarint();
+            if ((int) (tag >>> 3) != RECORDS_FIELD || (int) (tag & 7) != WIRE_LENGTH_DELIMITED) {
+                reader.skip((int) (tag & 7));
+                continue;
+            }
+            int recordEnd = reader.readLengthDelimitedEnd();
+            int dataStart = -1;
+            int dataEnd = -1;
+            while (reader.position() < recordEnd) {
+                long recordTag = reader.readVarint();
+                if ((int) (recordTag >>> 3) == DATA_FIELD && (int) (recordTag & 7) == WIRE_LENGTH_DELIMITED) {
+                    dataEnd = reader.readLengthDelimitedEnd();
+                    dataStart = reader.position();
+                    reader.seek(dataEnd);
+                } else {
+                    reader.skip((int) (recordTag & 7));
+                }
+            }
+            if (reader.position() != recordEnd || dataStart < 0) {
+                throw new IllegalArgumentException("Malformed user record " + subSequenceNumber + " in KPL aggregate");
+            }
+            view.limit(dataEnd).position(dataStart);
+            consumer.accept(subSequenceNumber++, view);
+            view.clear();
+        }
+        return subSequenceNumber;
+    }
+
+    /**
+     * Walks protobuf wire format between two absolute indices of a buffer.
+     */
+    private static final class WireReader {
+
+        private final ByteBuffer buffer;
+        private final int end;
+        private int position;
+
+        WireReader(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.position = start;
+            this.end = end;
+        }
+
+        boolean hasMore() {
+            return position < end;
+        }
+
+        int position() {
+            return position;
+        }
+
+        void seek(int newPosition) {
+            position = newPosition;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                if (position >= end) {
+                    throw new IllegalArgumentException("Truncated varint in KPL aggregate");
+                }
+                byte b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in KPL aggregate");
+        }
+
+        /**
+         * Reads the length of a length-delimited field.
+         *
+         * @return the absolute index after the field; the reader is left at its first byte.
+         */
+        int readLengthDelimitedEnd() {
+            long length = readVarint();
+            if (length < 0 || length > end - position) {
+                throw new IllegalArgumentException("Field of " + length + " bytes overruns KPL aggregate");
+            }
+            return position + (int) length;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case WIRE_VARINT:
+                    readVarint();
+                    break;
+                case WIRE_FIXED64:
+                    advance(Long.BYTES);
+                    break;
+                case WIRE_LENGTH_DELIMITED:
+                    seek(readLengthDelimitedEnd());
+                    break;
+                case WIRE_FIXED32:
+                    advance(Integer.BYTES);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported wire type " + wireType + " in KPL aggregate");
+            }
+        }
+
+        private void advance(int bytes) {
+            if (bytes > end - position) {
+                throw new IllegalArgumentException("Truncated field in KPL aggregate");
+            }
+            position += bytes;
+        }
+    }
+
+    /**
+     * Per-thread digest state, so checking an aggregate allocates nothing.
+     */
+    private static final class Md5 {
+
+        private final MessageDigest digest;
+        private final byte[] result = new byte[DIGEST_LENGTH];
+
+        Md5() {
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform is required to provide MD5
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * @return true if the MD5 of the bytes in [start, digestStart) equals the 16 bytes at digestStart.
+         */
+        boolean matches(ByteBuffer data, int start, int digestStart) {
+            digest.reset();
+            if (data.hasArray()) {
+                digest.update(data.array(), data.arrayOffset() + start, digestStart - start);
+            } else {
+                ByteBuffer body = data.duplicate();
+                body.limit(digestStart).position(start);
+                digest.update(body);
+            }
+            try {
+                digest.digest(result, 0, DIGEST_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < DIGEST_LENGTH; i++) {
+                if (data.get(digestStart + i) != result[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,558 @@
+package com.assignment.task1.decoder;
+
+import com.assignment.task1.util.StringInterner;
+import com.assignment.task1.util.Utf8;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming decoder for JSON encoded login messages.
+ * <p>
+ * Scans the UTF-8 payload once, picks out {@code player_id}, {@code country} and {@code timestamp},
+ * and skips everything else while still checking that it is well-formed. As with Jackson's
+ * {@code FAIL_ON_TRAILING_TOKENS}, nothing but whitespace may follow the root value. The fields seen
+ * on the way are handed to the {@link SchemaDecoderRegistry}, which detects the schema version in the
+ * same pass. Field names are accepted both in proto form ({@code player_id}) and in the lowerCamelCase
+ * form produced by {@code JsonFormat} ({@code playerId}).
+ * <p>
+ * Field names are matched and values extracted as byte slices of the record, so a record whose
+ * strings carry no escapes is decoded without allocating: the player ID goes to the event as bytes,
+ * the country through a {@link StringInterner}, and the timestamp is parsed in place. All scanning
+ * state is kept per thread.
+ */
+@Component
+public class JsonLoginEventDecoder {
+
+    // Same nesting limit as Jackson's default StreamReadConstraints
+    private static final int MAX_DEPTH = 1000;
+
+    private final SchemaDecoderRegistry registry;
+    private final StringInterner countries = new StringInterner(1024);
+    private final ThreadLocal<Scanner> scanners = ThreadLocal.withInitial(Scanner::new);
+
+    public JsonLoginEventDecoder(SchemaDecoderRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Decodes a JSON payload held in a byte array.
+     *
+     * @param data   The buffer holding the UTF-8 encoded payload.
+     * @param offset The offset of the payload in the buffer.
+     * @param length The length of the payload.
+     * @param target The event to fill; it is reset before decoding.
+     * @return true if a login event with a player ID was decoded; false otherwise.
+     * @throws IOException if the payload is not well-formed JSON.
+     */
+    public boolean decode(byte[] data, int offset, int length, LoginEvent target) throws IOException {
+        Scanner scanner = scanners.get();
+        scanner.reset(data, offset, length);
+        try {
+            return decode(scanner, target);
+        } catch (IOException e) {
+            registry.recordUndetected();
+            throw e;
+        } finally {
+            // Do not keep the record reachable from the thread
+            scanner.data = null;
+            scanner.value = null;
+        }
+    }
+
+    /**
+     * Decodes a JSON payload held in a String.
+     *
+     * @param json   The JSON payload.
+     * @param target The event to fill; it is reset before decoding.
+     * @return true if a login event with a player ID was decoded; false otherwise.
+     * @throws IOException if the payload is not well-formed JSON.
+     */
+    public boolean decode(String json, LoginEvent target) throws IOException {
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
+        return decode(data, 0, data.length, target);
+    }
+
+    private boolean decode(Scanner scanner, LoginEvent target) throws IOException {
+        target.reset();
+        scanner.skipWhitespace();
+        if (scanner.pos == scanner.end) {
+            registry.recordUndetected();
+            return false;
+        }
+        if (scanner.data[scanner.pos] != '{') {
+            // Well-formed JSON, but not a login message
+            scanner.skipValue(0);
+            scanner.expectEnd();
+            registry.recordUndetected();
+            return false;
+        }
+
+        long presentFields = readObject(scanner, target);
+        scanner.expectEnd();
+        return registry.complete(presentFields, target);
+    }
+
+    /**
+     * Reads the root object, which starts at the current position, up to and including its closing brace.
+     *
+     * @return the presence bits of the known fields that were seen.
+     */
+    private long readObject(Scanner scanner, LoginEvent target) throws IOException {
+        scanner.pos++;
+        long presentFields = 0;
+        scanner.skipWhitespace();
+        if (scanner.peek() == '}') {
+            scanner.pos++;
+            return presentFields;
+        }
+
+        while (true) {
+            scanner.skipWhitespace();
+            if (scanner.peek() != '"') {
+                throw scanner.unexpected("field name");
+            }
+            scanner.readString();
+            SchemaDecoderRegistry.FieldRef field = registry.fieldForJsonName(scanner.value, scanner.valueOffset, scanner.valueLength);
+            scanner.skipWhitespace();
+            scanner.expect(':');
+            scanner.skipWhitespace();
+
+            if (field == null) {
+                scanner.skipValue(1);
+            } else {
+                presentFields |= field.presenceBit;
+                readField(scanner, field.role, target);
+            }
+
+            scanner.skipWhitespace();
+            int next = scanner.peek();
+            if (next == '}') {
+                scanner.pos++;
+                return presentFields;
+            }
+            if (next != ',') {
+                throw scanner.unexpected("',' or '}'");
+            }
+            scanner.pos++;
+        }
+    }
+
+    private void readField(Scanner scanner, int role, LoginEvent target) throws IOException {
+        switch (role) {
+            case SchemaDecoderRegistry.ROLE_PLAYER_ID:
+                if (scanner.readText()) {
+                    target.setPlayerIdUtf8(scanner.value, scanner.valueOffset, scanner.valueLength);
+                } else {
+                    target.setPlayerId(null);
+                }
+                break;
+            case SchemaDecoderRegistry.ROLE_COUNTRY:
+                target.setCountry(scanner.readText()
+                        ? countries.intern(scanner.value, scanner.valueOffset, scanner.valueLength)
+                        : null);
+                break;
+            case SchemaDecoderRegistry.ROLE_TIMESTAMP:
+                if (scanner.peek() == '"') {
+                    scanner.readString();
+                    target.setTimestampMillis(Rfc3339Timestamps.parseMillis(scanner.value, scanner.valueOffset, scanner.valueLength));
+                } else {
+                    scanner.skipValue(1);
+                }
+                break;
+            default:
+                scanner.skipValue(1);
+                break;
+        }
+    }
+
+    /**
+     * Cursor over one payload plus the scratch space for unescaping strings; reused by its thread.
+     * A string or scalar that was just read is exposed as the slice {@code value[valueOffset, +valueLength)},
+     * which points either into the payload or, if the string had escapes, into the scratch buffer.
+     */
+    private static final class Scanner {
+
+        byte[] data;
+        int pos;
+        int end;
+
+        byte[] value;
+        int valueOffset;
+        int valueLength;
+
+        private byte[] scratch = new byte[256];
+
+        void reset(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        int peek() {
+            return pos < end ? data[pos] & 0xFF : -1;
+        }
+
+        void expect(char c) throws IOException {
+            if (peek() != c) {
+                throw unexpected("'" + c + "'");
+            }
+            pos++;
+        }
+
+        /**
+         * Checks that nothing but whitespace follows the root value.
+         */
+        void expectEnd() throws IOException {
+            skipWhitespace();
+            if (pos != end) {
+                throw unexpected("end of input");
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < end) {
+                byte b = data[pos];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        /**
+         * Reads a value as text the way Jackson's {@code getValueAsString} does: strings are unescaped,
+         * numbers and booleans are taken verbatim.
+         *
+         * @return true if the value has a text form; false for null, objects and arrays, which are skipped.
+         */
+        boolean readText() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                readString();
+                if (!Utf8.isValid(value, valueOffset, valueLength)) {
+                    throw new IOException("Invalid UTF-8 in string ending at offset " + pos);
+                }
+                return true;
+            }
+            int start = pos;
+            skipValue(1);
+            if (c == 'n' || c == '{' || c == '[') {
+                return false;
+            }
+            value = data;
+            valueOffset = start;
+            valueLength = pos - start;
+            return true;
+        }
+
+        /**
+         * Reads the string starting at the current position, which must be a quote.
+         */
+        void readString() throws IOException {
+            int start = ++pos;
+            while (pos < end) {
+                byte b = data[pos];
+                if (b == '"') {
+                    value = data;
+                    valueOffset = start;
+                    valueLength = pos - start;
+                    pos++;
+                    return;
+                }
+                if (b == '\\') {
+                    unescape(start);
+                    return;
+                }
+                if (b >= 0 && b < 0x20) {
+                    throw unexpected("string character");
+                }
+                pos++;
+            }
+            throw unexpectedEnd();
+        }
+
+        // Escapes never expand, so the rest of the payload bounds the unescaped length
+        private void unescape(int start) throws IOException {
+            if (scratch.length < end - start) {
+                scratch = new byte[Math.max(end - start, scratch.length * 2)];
+            }
+            int out = pos - start;
+            System.arraycopy(data, start, scratch, 0, out);
+
+            while (pos < end) {
+                byte b = data[pos++];
+                if (b == '"') {
+                    value = scratch;
+                    valueOffset = 0;
+                    valueLength = out;
+                    return;
+                }
+                if (b >= 0 && b < 0x20) {
+                    pos--;
+                    throw unexpected("string character");
+                }
+                if (b != '\\') {
+                    scratch[out++] = b;
+                    continue;
+                }
+                if (pos == end) {
+                    throw unexpectedEnd();
+                }
+                byte escaped = data[pos++];
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        scratch[out++] = escaped;
+                        break;
+                    case 'b':
+                        scratch[out++] = '\b';
+                        break;
+                    case 'f':
+                        scratch[out++] = '\f';
+                        break;
+                    case 'n':
+                        scratch[out++] = '\n';
+                        break;
+                    case 'r':
+                        scratch[out++] = '\r';
+                        break;
+                    case 't':
+                        scratch[out++] = '\t';
+                        break;
+                    case 'u':
+                        out = appendCodePoint(readUnicodeEscape(), out);
+                        break;
+                    default:
+                        pos--;
+                        throw unexpected("escape character");
+                }
+            }
+            throw unexpectedEnd();
+        }
+
+        private int readUnicodeEscape() throws IOException {
+            int c = readHex4();
+            if (Character.isHighSurrogate((char) c) && end - pos >= 6 && data[pos] == '\\' && data[pos + 1] == 'u') {
+                int mark = pos;
+                pos += 2;
+                int low = readHex4();
+                if (Character.isLowSurrogate((char) low)) {
+                    return Character.toCodePoint((char) c, (char) low);
+                }
+                pos = mark;
+            }
+            // Unpaired surrogates become '?', as String.getBytes would encode them
+            return Character.isSurrogate((char) c) ? '?' : c;
+        }
+
+        private int readHex4() throws IOException {
+            if (end - pos < 4) {
+                throw unexpectedEnd();
+            }
+            int c = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(data[pos], 16);
+                if (digit < 0) {
+                    throw unexpected("hex digit");
+                }
+                c = (c << 4) | digit;
+                pos++;
+            }
+            return c;
+        }
+
+        private int appendCodePoint(int codePoint, int out) {
+            if (codePoint < 0x80) {
+                scratch[out++] = (byte) codePoint;
+            } else if (codePoint < 0x800) {
+                scratch[out++] = (byte) (0xC0 | (codePoint >> 6));
+                scratch[out++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                scratch[out++] = (byte) (0xE0 | (codePoint >> 12));
+                scratch[out++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                scratch[out++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                scratch[out++] = (byte) (0xF0 | (codePoint >> 18));
+                scratch[out++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                scratch[out++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                scratch[out++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            return out;
+        }
+
+        /**
+         * Skips one value of any type, checking that it is well-formed.
+         *
+         * @param depth The number of objects and arrays the value is nested in.
+         */
+        void skipValue(int depth) throws IOException {
+            switch (peek()) {
+                case '{':
+                    skipContainer('}', true, depth);
+                    break;
+                case '[':
+                    skipContainer(']', false, depth);
+                    break;
+                case '"':
+                    skipString();
+                    break;
+                case 't':
+                    skipLiteral("true");
+                    break;
+                case 'f':
+                    skipLiteral("false");
+                    break;
+                case 'n':
+                    skipLiteral("null");
+                    break;
+                case -1:
+                    throw unexpectedEnd();
+                default:
+                    skipNumber();
+                    break;
+            }
+        }
+
+        private void skipContainer(char close, boolean object, int depth) throws IOException {
+            // Counted like Jackson, which includes the container being opened
+            if (depth >= MAX_DEPTH) {
+                throw new IOException("JSON nesting deeper than " + MAX_DEPTH + " at offset " + pos);
+            }
+            pos++;
+            skipWhitespace();
+            if (peek() == close) {
+                pos++;
+                return;
+            }
+            while (true) {
+                skipWhitespace();
+                if (object) {
+                    if (peek() != '"') {
+                        throw unexpected("field name");
+                    }
+                    skipString();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                }
+                skipValue(depth + 1);
+                skipWhitespace();
+                int next = peek();
+                if (next == close) {
+                    pos++;
+                    return;
+                }
+                if (next != ',') {
+                    throw unexpected("',' or '" + close + "'");
+                }
+                pos++;
+            }
+        }
+
+        private void skipString() throws IOException {
+            pos++;
+            while (pos < end) {
+                byte b = data[pos];
+                if (b == '"') {
+                    pos++;
+                    return;
+                }
+                if (b >= 0 && b < 0x20) {
+                    throw unexpected("string character");
+                }
+                if (b == '\\') {
+                    if (++pos == end) {
+                        throw unexpectedEnd();
+                    }
+                    switch (data[pos]) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                        case 'b':
+                        case 'f':
+                        case 'n':
+                        case 'r':
+                        case 't':
+                            break;
+                        case 'u':
+                            pos++;
+                            readHex4();
+                            continue;
+                        default:
+                            throw unexpected("escape character");
+                    }
+                }
+                pos++;
+            }
+            throw unexpectedEnd();
+        }
+
+        private void skipLiteral(String literal) throws IOException {
+            int length = literal.length();
+            if (end - pos < length) {
+                throw unexpected("'" + literal + "'");
+            }
+            for (int i = 0; i < length; i++) {
+                if (data[pos + i] != literal.charAt(i)) {
+                    throw unexpected("'" + literal + "'");
+                }
+            }
+            pos += length;
+        }
+
+        // -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+        private void skipNumber() throws IOException {
+            if (peek() == '-') {
+                pos++;
+            }
+            int c = peek();
+            if (c == '0') {
+                pos++;
+            } else if (c >= '1' && c <= '9') {
+                skipDigits();
+            } else {
+                throw unexpected("value");
+            }
+            if (peek() == '.') {
+                pos++;
+                if (skipDigits() == 0) {
+                    throw unexpected("digit");
+                }
+            }
+            c = peek();
+            if (c == 'e' || c == 'E') {
+                pos++;
+                c = peek();
+                if (c == '+' || c == '-') {
+                    pos++;
+                }
+                if (skipDigits() == 0) {
+                    throw unexpected("digit");
+                }
+            }
+        }
+
+        private int skipDigits() {
+            int start = pos;
+            while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+                pos++;
+            }
+            return pos - start;
+        }
+
+        IOException unexpected(String expected) {
+            if (pos >= end) {
+                return unexpectedEnd();
+            }
+            return new IOException("Unexpected character '" + (char) (data[pos] & 0xFF) + "' at offset " + pos
+                    + ", expected " + expected);
+        }
+
+        IOException unexpectedEnd() {
+            return new IOException("Unexpected end of JSON input at offset " + pos);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.assignment.task1.decoder;
+
+import com.assignment.task1.util.XxHash64;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The subset of a login message that the consumer actually aggregates on.
+ * Instances are mutable and meant to be reused by a single thread across records.
+ * <p>
+ * Decoders hand over the player ID as UTF-8 bytes, which are copied into a buffer owned by the
+ * event and fingerprinted right away. The player ID String is only built when something asks for
+ * it, so fingerprint-based deduplication and aggregation never allocate one.
+ */
+@Data
+public class LoginEvent {
+
+    // Versions of the built-in LoginMessageV1 and LoginMessageV2 schemas
+    public static final int SCHEMA_V1 = 1;
+    public static final int SCHEMA_V2 = 2;
+
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final int NO_PLAYER_ID_BYTES = -1;
+
+    private int schemaVersion;
+    private String playerId;
+    private String country;
+    private long timestampMillis = NO_TIMESTAMP;
+
+    @Setter(AccessLevel.NONE)
+    private long playerFingerprint;
+    @Setter(AccessLevel.NONE)
+    private boolean fingerprinted;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] playerIdUtf8 = new byte[32];
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int playerIdLength = NO_PLAYER_ID_BYTES;
+
+    /**
+     * Clears all fields so the instance can hold the next decoded record.
+     */
+    public void reset() {
+        schemaVersion = 0;
+        playerId = null;
+        playerIdLength = NO_PLAYER_ID_BYTES;
+        country = null;
+        timestampMillis = NO_TIMESTAMP;
+        fingerprinted = false;
+    }
+
+    public void setPlayerId(String playerId) {
+        this.playerId = playerId;
+        this.playerIdLength = NO_PLAYER_ID_BYTES;
+        this.fingerprinted = false;
+    }
+
+    /**
+     * Sets the player ID from its UTF-8 encoding without creating a String.
+     *
+     * @param data   The buffer holding the player ID; the bytes are copied.
+     * @param offset The offset of the player ID in the buffer.
+     * @param length The length of the player ID in bytes.
+     */
+    public void setPlayerIdUtf8(byte[] data, int offset, int length) {
+        if (playerIdUtf8.length < length) {
+            playerIdUtf8 = new byte[Math.max(length, playerIdUtf8.length * 2)];
+        }
+        System.arraycopy(data, offset, playerIdUtf8, 0, length);
+        playerIdLength = length;
+        playerId = null;
+        playerFingerprint = XxHash64.hash(playerIdUtf8, 0, length);
+        fingerprinted = true;
+    }
+
+    /**
+     * @return the player ID, decoded from the bytes set by {@link #setPlayerIdUtf8} on first use.
+     */
+    public String getPlayerId() {
+        if (playerId == null && playerIdLength != NO_PLAYER_ID_BYTES) {
+            playerId = new String(playerIdUtf8, 0, playerIdLength, StandardCharsets.UTF_8);
+        }
+        return playerId;
+    }
+
+    /**
+     * @return true if the event carries a non-empty player ID; never builds the String.
+     */
+    public boolean hasPlayerId() {
+        return playerIdLength != NO_PLAYER_ID_BYTES ? playerIdLength > 0 : playerId != null && !playerId.isEmpty();
+    }
+
+    /**
+     * @return the 64-bit XXH64 fingerprint of the player ID, computed on first use.
+     */
+    public long getPlayerFingerprint() {
+        if (!fingerprinted) {
+            playerFingerprint = XxHash64.hashUtf8(playerId);
+            fingerprinted = true;
+        }
+        return playerFingerprint;
+    }
+
+    public boolean hasTimestamp() {
+        return timestampMillis != NO_TIMESTAMP;
+    }
+}
@@ -0,0 +1,122 @@
+package com.assignment.task1.decoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Entry point for decoding record payloads into {@link LoginEvent}s.
+ * <p>
+ * Routes each payload to the JSON or the binary protobuf decoder according to the configured
+ * {@link PayloadFormat}. In {@link PayloadFormat#AUTO} mode the format is detected per record,
+ * so a stream that mixes both encodings can be consumed during a producer migration.
+ */
+public class LoginEventDecoder {
+
+    private final PayloadFormat payloadFormat;
+    private final JsonLoginEventDecoder jsonDecoder;
+    private final ProtobufLoginEventDecoder protobufDecoder;
+    private final ThreadLocal<byte[]> directScratch = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    public LoginEventDecoder(PayloadFormat payloadFormat,
+                             JsonLoginEventDecoder jsonDecoder,
+                             ProtobufLoginEventDecoder protobufDecoder) {
+        this.payloadFormat = payloadFormat;
+        this.jsonDecoder = jsonDecoder;
+        this.protobufDecoder = protobufDecoder;
+    }
+
+    /**
+     * Decodes the payload between the position and the limit of the buffer.
+     * The position and limit of the buffer are left untouched.
+     *
+     * @param data   The record payload.
+     * @param target The event to fill; it is reset before decoding.
+     * @return true if a login event with a player ID was decoded; false otherwise.
+     * @throws IOException if the payload cannot be decoded in the selected format.
+     */
+    public boolean decode(ByteBuffer data, LoginEvent target) throws IOException {
+        PayloadFormat format = payloadFormat == PayloadFormat.AUTO ? detectFormat(data) : payloadFormat;
+        if (format == PayloadFormat.PROTOBUF) {
+            return protobufDecoder.decode(data, target);
+        }
+        if (payloadFormat == PayloadFormat.AUTO && data.hasRemaining() && data.get(data.position()) == '\n') {
+            // A line feed is also the protobuf tag of event_type, so a binary message can pass for indented JSON
+            try {
+                return decodeJson(data, target);
+            } catch (IOException e) {
+                try {
+                    return protobufDecoder.decode(data, target);
+                } catch (IOException protobufError) {
+                    e.addSuppressed(protobufError);
+                    throw e;
+                }
+            }
+        }
+        return decodeJson(data, target);
+    }
+
+    private boolean decodeJson(ByteBuffer data, LoginEvent target) throws IOException {
+        if (data.hasArray()) {
+            return jsonDecoder.decode(data.array(), data.arrayOffset() + data.position(), data.remaining(), target);
+        }
+        // Direct buffers are copied once into a per-thread scratch array
+        int length = data.remaining();
+        byte[] copy = directScratch.get();
+        if (copy.length < length) {
+            copy = new byte[Math.max(length, copy.length * 2)];
+            directScratch.set(copy);
+        }
+        data.get(data.position(), copy, 0, length);
+        return jsonDecoder.decode(copy, 0, length, target);
+    }
+
+    /**
+     * Decodes a JSON payload that has already been converted to a String.
+     *
+     * @param json   The JSON payload.
+     * @param target The event to fill; it is reset before decoding.
+     * @return true if a login event with a player ID was decoded; false otherwise.
+     * @throws IOException if the payload is not well-formed JSON.
+     */
+    public boolean decode(String json, LoginEvent target) throws IOException {
+        return jsonDecoder.decode(json, target);
+    }
+
+    /**
+     * Tells a JSON payload from a binary protobuf one by its first byte other than JSON whitespace.
+     * <p>
+     * A JSON login message is an object, so after any leading whitespace it starts with '{'. Neither
+     * '{' (0x7B), a start-group on field 15, nor a space (0x20), '\t' or '\r' is a valid first tag of a
+     * login message. A line feed (0x0A) is however the regular tag of {@code event_type}, so a binary
+     * message whose tag and length bytes happen to read as whitespace followed by '{' is detected as
+     * JSON; {@link #decode(ByteBuffer, LoginEvent)} falls back to protobuf for those when they are not
+     * valid JSON.
+     *
+     * @param data The record payload.
+     * @return {@link PayloadFormat#JSON} or {@link PayloadFormat#PROTOBUF}.
+     */
+    public static PayloadFormat detectFormat(ByteBuffer data) {
+        int pos = data.position();
+        int limit = data.limit();
+        while (pos < limit) {
+            switch (data.get(pos)) {
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                    pos++;
+                    break;
+                case '{':
+                    return PayloadFormat.JSON;
+                default:
+                    return PayloadFormat.PROTOBUF;
+            }
+        }
+        // Empty or blank: nothing to decode either way
+        return PayloadFormat.JSON;
+    }
+
+    public PayloadFormat getPayloadFormat() {
+        return payloadFormat;
+    }
+}
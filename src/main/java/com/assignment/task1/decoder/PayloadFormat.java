@@ -0,0 +1,13 @@
+package com.assignment.task1.decoder;
+
+/**
+ * Wire format of the Kinesis record payloads.
+ */
+public enum PayloadFormat {
+    /** Protobuf JSON mapping, as produced by {@code JsonFormat}. */
+    JSON,
+    /** Binary protobuf encoding of the login message. */
+    PROTOBUF,
+    /** Detect the format per record; used while producers migrate from JSON to binary. */
+    AUTO
+}
@@ -0,0 +1,287 @@
+package com.assignment.task1.decoder;
+
+import com.assignment.task1.util.StringInterner;
+import com.assignment.task1.util.Utf8;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decoder for binary protobuf encoded login messages.
+ * <p>
+ * Walks the wire format directly over the record bytes and only extracts {@code player_id},
+ * {@code country} and {@code timestamp}; every other field is skipped without being decoded. As with
+ * the JSON decoder, the field numbers seen on the way are handed to the {@link SchemaDecoderRegistry}
+ * to detect the schema version.
+ * <p>
+ * The player ID is handed to the event as a byte slice and the country goes through a
+ * {@link StringInterner}, so decoding a record allocates nothing. Validation matches
+ * {@code CodedInputStream}: malformed varints, truncated fields, invalid tags and wire types,
+ * unbalanced groups and invalid UTF-8 in the extracted strings are all rejected.
+ */
+@Component
+public class ProtobufLoginEventDecoder {
+
+    private static final int WIRETYPE_VARINT = 0;
+    private static final int WIRETYPE_FIXED64 = 1;
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRETYPE_START_GROUP = 3;
+    private static final int WIRETYPE_END_GROUP = 4;
+    private static final int WIRETYPE_FIXED32 = 5;
+
+    private static final int SECONDS_TAG = 1 << 3 | WIRETYPE_VARINT;
+    private static final int NANOS_TAG = 2 << 3 | WIRETYPE_VARINT;
+
+    // Same limit as CodedInputStream's default recursion limit
+    private static final int MAX_GROUP_DEPTH = 100;
+
+    private final SchemaDecoderRegistry registry;
+    private final StringInterner countries = new StringInterner(1024);
+    private final ThreadLocal<WireReader> readers = ThreadLocal.withInitial(WireReader::new);
+
+    public ProtobufLoginEventDecoder(SchemaDecoderRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Decodes a binary protobuf payload. The position and limit of the buffer are left untouched.
+     *
+     * @param data   The buffer holding the payload between its position and limit.
+     * @param target The event to fill; it is reset before decoding.
+     * @return true if a login event with a player ID was decoded; false otherwise.
+     * @throws IOException if the payload is not a valid protobuf message.
+     */
+    public boolean decode(ByteBuffer data, LoginEvent target) throws IOException {
+        if (data.hasArray()) {
+            return decode(data.array(), data.arrayOffset() + data.position(), data.remaining(), target);
+        }
+        // Direct buffers are copied once into the reader's scratch space
+        WireReader reader = readers.get();
+        byte[] copy = reader.scratch(data.remaining());
+        data.get(data.position(), copy, 0, data.remaining());
+        return decode(copy, 0, data.remaining(), target);
+    }
+
+    /**
+     * Decodes a binary protobuf payload held in a byte array.
+     *
+     * @param data   The buffer holding the payload.
+     * @param offset The offset of the payload in the buffer.
+     * @param length The length of the payload.
+     * @param target The event to fill; it is reset before decoding.
+     * @return true if a login event with a player ID was decoded; false otherwise.
+     * @throws IOException if the payload is not a valid protobuf message.
+     */
+    public boolean decode(byte[] data, int offset, int length, LoginEvent target) throws IOException {
+        WireReader reader = readers.get();
+        reader.reset(data, offset, length);
+        try {
+            return decode(reader, target);
+        } catch (IOException e) {
+            registry.recordUndetected();
+            throw e;
+        } finally {
+            // Do not keep the record reachable from the thread
+            reader.data = null;
+        }
+    }
+
+    private boolean decode(WireReader input, LoginEvent target) throws IOException {
+        target.reset();
+        long presentFields = 0;
+
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            int fieldNumber = tag >>> 3;
+            presentFields |= registry.presenceBit(fieldNumber);
+
+            int role = (tag & 7) == WIRETYPE_LENGTH_DELIMITED
+                    ? registry.roleOf(fieldNumber)
+                    : SchemaDecoderRegistry.ROLE_NONE;
+            switch (role) {
+                case SchemaDecoderRegistry.ROLE_PLAYER_ID: {
+                    int length = input.readUtf8Length();
+                    target.setPlayerIdUtf8(input.data, input.pos, length);
+                    input.pos += length;
+                    break;
+                }
+                case SchemaDecoderRegistry.ROLE_COUNTRY: {
+                    int length = input.readUtf8Length();
+                    target.setCountry(countries.intern(input.data, input.pos, length));
+                    input.pos += length;
+                    break;
+                }
+                case SchemaDecoderRegistry.ROLE_TIMESTAMP:
+                    target.setTimestampMillis(readTimestamp(input));
+                    break;
+                default:
+                    if (!input.skipField(tag, 0)) {
+                        return registry.complete(presentFields, target);
+                    }
+                    break;
+            }
+        }
+        return registry.complete(presentFields, target);
+    }
+
+    private long readTimestamp(WireReader input) throws IOException {
+        int length = input.readLength();
+        int oldEnd = input.end;
+        int messageEnd = input.pos + length;
+        input.end = messageEnd;
+        long seconds = 0;
+        int nanos = 0;
+
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag == SECONDS_TAG) {
+                seconds = input.readVarint64();
+            } else if (tag == NANOS_TAG) {
+                nanos = (int) input.readVarint64();
+            } else if (!input.skipField(tag, 0)) {
+                break;
+            }
+        }
+
+        input.pos = messageEnd;
+        input.end = oldEnd;
+        return seconds * 1000 + nanos / 1_000_000;
+    }
+
+    /**
+     * Cursor over one payload; reused by its thread.
+     */
+    private static final class WireReader {
+
+        byte[] data;
+        int pos;
+        int end;
+
+        private byte[] scratch = new byte[256];
+
+        void reset(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        byte[] scratch(int length) {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            return scratch;
+        }
+
+        /**
+         * @return the next tag, or 0 at the end of the input.
+         */
+        int readTag() throws IOException {
+            if (pos == end) {
+                return 0;
+            }
+            int tag = (int) readVarint64();
+            if (tag >>> 3 == 0) {
+                throw new IOException("Protocol message contained an invalid tag (zero)");
+            }
+            return tag;
+        }
+
+        long readVarint64() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos == end) {
+                    throw truncated();
+                }
+                byte b = data[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Protocol message contained a malformed varint");
+        }
+
+        int readLength() throws IOException {
+            int length = (int) readVarint64();
+            if (length < 0) {
+                throw new IOException("Protocol message contained a field with negative size");
+            }
+            if (length > end - pos) {
+                throw truncated();
+            }
+            return length;
+        }
+
+        /**
+         * Reads the length of a string field and checks that its bytes are valid UTF-8; the bytes
+         * start at the current position, which is left in front of them.
+         */
+        int readUtf8Length() throws IOException {
+            int length = readLength();
+            if (!Utf8.isValid(data, pos, length)) {
+                throw new IOException("Protocol message had invalid UTF-8");
+            }
+            return length;
+        }
+
+        /**
+         * Skips the value of a field.
+         *
+         * @return false if the tag ends a group, which ends the enclosing message; true otherwise.
+         */
+        boolean skipField(int tag, int depth) throws IOException {
+            switch (tag & 7) {
+                case WIRETYPE_VARINT:
+                    readVarint64();
+                    return true;
+                case WIRETYPE_FIXED64:
+                    skip(8);
+                    return true;
+                case WIRETYPE_LENGTH_DELIMITED: {
+                    // Not "pos += readLength()": that would add to the position from before the length
+                    int length = readLength();
+                    pos += length;
+                    return true;
+                }
+                case WIRETYPE_START_GROUP:
+                    skipGroup(tag, depth + 1);
+                    return true;
+                case WIRETYPE_END_GROUP:
+                    return false;
+                case WIRETYPE_FIXED32:
+                    skip(4);
+                    return true;
+                default:
+                    throw new IOException("Protocol message tag had invalid wire type");
+            }
+        }
+
+        private void skipGroup(int startTag, int depth) throws IOException {
+            if (depth > MAX_GROUP_DEPTH) {
+                throw new IOException("Protocol message had too many levels of nesting");
+            }
+            int tag;
+            while ((tag = readTag()) != 0) {
+                if (!skipField(tag, depth)) {
+                    if (tag != ((startTag & ~7) | WIRETYPE_END_GROUP)) {
+                        break;
+                    }
+                    return;
+                }
+            }
+            throw new IOException("Protocol message end-group tag did not match expected tag");
+        }
+
+        private void skip(int count) throws IOException {
+            if (count > end - pos) {
+                throw truncated();
+            }
+            pos += count;
+        }
+
+        private IOException truncated() {
+            return new IOException("While parsing a protocol message, the input ended unexpectedly in the middle of a field");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.assignment.task1.decoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser for RFC 3339 timestamps held as UTF-8 bytes, as written by {@code JsonFormat} for
+ * {@code google.protobuf.Timestamp} fields.
+ * <p>
+ * Accepts the same shapes as {@code Timestamps.parse}: {@code yyyy-MM-ddTHH:mm:ss}, an optional
+ * fraction of one to nine digits, and either {@code Z} or a {@code +hh:mm}/{@code -hh:mm} offset,
+ * for years 0001 to 9999. Unlike {@code Timestamps.parse} it works on the record bytes directly and
+ * allocates nothing unless the value is invalid.
+ */
+final class Rfc3339Timestamps {
+
+    private static final long MIN_SECONDS = -62_135_596_800L;
+    private static final long MAX_SECONDS = 253_402_300_799L;
+
+    private Rfc3339Timestamps() {
+    }
+
+    /**
+     * @return the timestamp in epoch milliseconds, truncated like {@code Timestamps.toMillis}.
+     * @throws IOException if the value is not a valid timestamp.
+     */
+    static long parseMillis(byte[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        // Shortest valid value: yyyy-MM-ddTHH:mm:ssZ
+        if (length < 20
+                || data[offset + 4] != '-' || data[offset + 7] != '-' || data[offset + 10] != 'T'
+                || data[offset + 13] != ':' || data[offset + 16] != ':') {
+            throw invalid(data, offset, length);
+        }
+        int year = digits(data, offset, 4);
+        int month = digits(data, offset + 5, 2);
+        int day = digits(data, offset + 8, 2);
+        int hour = digits(data, offset + 11, 2);
+        int minute = digits(data, offset + 14, 2);
+        int second = digits(data, offset + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0
+                || year < 1 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            throw invalid(data, offset, length);
+        }
+
+        int i = offset + 19;
+        int nanos = 0;
+        if (data[i] == '.') {
+            int fractionStart = ++i;
+            while (i < end && isDigit(data[i])) {
+                nanos = nanos * 10 + (data[i++] - '0');
+            }
+            int fractionDigits = i - fractionStart;
+            if (fractionDigits == 0 || fractionDigits > 9) {
+                throw invalid(data, offset, length);
+            }
+            for (int d = fractionDigits; d < 9; d++) {
+                nanos *= 10;
+            }
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second;
+        if (i == end - 1 && data[i] == 'Z') {
+            // UTC
+        } else if (i == end - 6 && (data[i] == '+' || data[i] == '-') && data[i + 3] == ':') {
+            int offsetHours = digits(data, i + 1, 2);
+            int offsetMinutes = digits(data, i + 4, 2);
+            if ((offsetHours | offsetMinutes) < 0 || offsetHours > 23 || offsetMinutes > 59) {
+                throw invalid(data, offset, length);
+            }
+            long offsetSeconds = offsetHours * 3_600L + offsetMinutes * 60L;
+            seconds += data[i] == '+' ? -offsetSeconds : offsetSeconds;
+        } else {
+            throw invalid(data, offset, length);
+        }
+
+        if (seconds < MIN_SECONDS || seconds > MAX_SECONDS) {
+            throw invalid(data, offset, length);
+        }
+        return seconds * 1000 + nanos / 1_000_000;
+    }
+
+    // Returns -1 if any of the bytes is not a digit
+    private static int digits(byte[] data, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            if (!isDigit(data[i])) {
+                return -1;
+            }
+            value = value * 10 + (data[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date (H. Hinnant's days_from_civil)
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+
+    private static IOException invalid(byte[] data, int offset, int length) {
+        return new IOException("Invalid timestamp '" + new String(data, offset, length, StandardCharsets.UTF_8) + "'");
+    }
+}
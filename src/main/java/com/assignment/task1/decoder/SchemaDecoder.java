@@ -0,0 +1,95 @@
+package com.assignment.task1.decoder;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Timestamp;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decoding metadata for one version of the login message schema.
+ * <p>
+ * Built once from the protobuf {@link Descriptor} of the generated message class, it holds the
+ * field numbers of the fields the consumer reads, the set of fields the version declares (used to
+ * probe which version a record was written with) and the decode statistics of that version.
+ * Instances are immutable apart from their counters and are shared by all decoding threads.
+ */
+public class SchemaDecoder {
+
+    static final String PLAYER_ID_FIELD = "player_id";
+    static final String COUNTRY_FIELD = "country";
+    static final String TIMESTAMP_FIELD = "timestamp";
+
+    private final int version;
+    private final Descriptor descriptor;
+    private final long fieldMask;
+
+    private final LongAdder decodedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    /**
+     * @param version    The schema version; detection prefers lower versions.
+     * @param descriptor The descriptor of the protobuf message for this version.
+     */
+    public SchemaDecoder(int version, Descriptor descriptor) {
+        if (descriptor.findFieldByName(PLAYER_ID_FIELD) == null) {
+            throw new IllegalArgumentException("Schema " + descriptor.getFullName() + " has no " + PLAYER_ID_FIELD + " field");
+        }
+        FieldDescriptor timestamp = descriptor.findFieldByName(TIMESTAMP_FIELD);
+        if (timestamp != null && (timestamp.getType() != FieldDescriptor.Type.MESSAGE
+                || !timestamp.getMessageType().getFullName().equals(Timestamp.getDescriptor().getFullName()))) {
+            throw new IllegalArgumentException("Field " + TIMESTAMP_FIELD + " of " + descriptor.getFullName()
+                    + " must be a google.protobuf.Timestamp");
+        }
+
+        long mask = 0;
+        for (FieldDescriptor field : descriptor.getFields()) {
+            // Only the first 63 field numbers take part in version detection
+            if (field.getNumber() < Long.SIZE) {
+                mask |= 1L << field.getNumber();
+            }
+        }
+
+        this.version = version;
+        this.descriptor = descriptor;
+        this.fieldMask = mask;
+    }
+
+    /**
+     * Checks whether a record carrying the given fields can have been written with this version.
+     *
+     * @param presentFields Bit mask of the field numbers seen in the record.
+     * @return true if this version declares every field seen in the record; false otherwise.
+     */
+    public boolean matches(long presentFields) {
+        return (presentFields & ~fieldMask) == 0;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public Descriptor getDescriptor() {
+        return descriptor;
+    }
+
+    public long getFieldMask() {
+        return fieldMask;
+    }
+
+    public long getDecodedCount() {
+        return decodedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    void recordDecoded() {
+        decodedCount.increment();
+    }
+
+    void recordFailed() {
+        failedCount.increment();
+    }
+}
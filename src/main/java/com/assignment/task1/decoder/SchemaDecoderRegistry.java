@@ -0,0 +1,255 @@
+package com.assignment.task1.decoder;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the known login message schema versions, keyed by version.
+ * <p>
+ * The format decoders read a record once, note which field numbers it carries and hand the result
+ * to {@link #resolve(long)}, which picks the lowest registered version that declares all of those
+ * fields. No parse is ever retried against another version, so an unknown or older layout costs
+ * nothing more than a known one.
+ * <p>
+ * Adding a version only requires a new {@code .proto} message and a {@link SchemaDecoder} bean for
+ * it; field numbers must stay stable across versions, which is also what protobuf compatibility
+ * requires.
+ */
+public class SchemaDecoderRegistry {
+
+    static final int ROLE_NONE = 0;
+    static final int ROLE_PLAYER_ID = 1;
+    static final int ROLE_COUNTRY = 2;
+    static final int ROLE_TIMESTAMP = 3;
+
+    private static final int MAX_FIELD_NUMBER = 1 << 16;
+
+    private final SchemaDecoder[] decoders;
+    private final Map<Integer, SchemaDecoder> decodersByVersion;
+    private final byte[] rolesByFieldNumber;
+    private final long knownFieldMask;
+    private final Map<String, FieldRef> fieldsByJsonName;
+    private final JsonName[] jsonNameTable;
+    private final int jsonNameMask;
+
+    private final LongAdder undetectedCount = new LongAdder();
+
+    public SchemaDecoderRegistry(List<SchemaDecoder> schemaDecoders) {
+        if (schemaDecoders.isEmpty()) {
+            throw new IllegalArgumentException("At least one schema decoder must be registered");
+        }
+        List<SchemaDecoder> sorted = new ArrayList<>(schemaDecoders);
+        sorted.sort(Comparator.comparingInt(SchemaDecoder::getVersion));
+
+        Map<Integer, SchemaDecoder> byVersion = new LinkedHashMap<>();
+        Map<Integer, String> namesByNumber = new HashMap<>();
+        Map<String, FieldRef> byJsonName = new HashMap<>();
+        int maxFieldNumber = 0;
+
+        for (SchemaDecoder decoder : sorted) {
+            if (byVersion.putIfAbsent(decoder.getVersion(), decoder) != null) {
+                throw new IllegalArgumentException("Duplicate schema version " + decoder.getVersion());
+            }
+            for (FieldDescriptor field : decoder.getDescriptor().getFields()) {
+                int number = field.getNumber();
+                if (number >= MAX_FIELD_NUMBER) {
+                    throw new IllegalArgumentException("Field " + field.getFullName() + " has a number above " + MAX_FIELD_NUMBER);
+                }
+                String previousName = namesByNumber.putIfAbsent(number, field.getName());
+                if (previousName != null && !previousName.equals(field.getName())) {
+                    throw new IllegalArgumentException("Field number " + number + " is '" + previousName
+                            + "' in an earlier version but '" + field.getName() + "' in version " + decoder.getVersion());
+                }
+                FieldRef ref = new FieldRef(number, roleOf(field.getName()));
+                for (String name : new String[] {field.getName(), field.getJsonName()}) {
+                    FieldRef previous = byJsonName.putIfAbsent(name, ref);
+                    if (previous != null && previous.number != number) {
+                        throw new IllegalArgumentException("Field name '" + name + "' maps to numbers "
+                                + previous.number + " and " + number);
+                    }
+                }
+                maxFieldNumber = Math.max(maxFieldNumber, number);
+            }
+        }
+
+        byte[] roles = new byte[maxFieldNumber + 1];
+        for (FieldRef ref : byJsonName.values()) {
+            roles[ref.number] = (byte) ref.role;
+        }
+
+        this.decoders = sorted.toArray(new SchemaDecoder[0]);
+        this.decodersByVersion = Collections.unmodifiableMap(byVersion);
+        this.rolesByFieldNumber = roles;
+        this.knownFieldMask = sorted.stream().mapToLong(SchemaDecoder::getFieldMask).reduce(0L, (a, b) -> a | b);
+        this.fieldsByJsonName = byJsonName;
+
+        // Open-addressing table so the JSON decoder can look up a field name straight from the record bytes
+        int tableSize = Integer.highestOneBit(Math.max(byJsonName.size(), 1) * 4 - 1) << 1;
+        this.jsonNameTable = new JsonName[tableSize];
+        this.jsonNameMask = tableSize - 1;
+        byJsonName.forEach((name, ref) -> {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int index = hashName(bytes, 0, bytes.length) & jsonNameMask;
+            while (jsonNameTable[index] != null) {
+                index = (index + 1) & jsonNameMask;
+            }
+            jsonNameTable[index] = new JsonName(bytes, ref);
+        });
+    }
+
+    /**
+     * Picks the schema version a record was written with.
+     *
+     * @param presentFields Bit mask of the field numbers seen in the record.
+     * @return the lowest version declaring every field seen, or null if no version does.
+     */
+    public SchemaDecoder resolve(long presentFields) {
+        for (SchemaDecoder decoder : decoders) {
+            if (decoder.matches(presentFields)) {
+                return decoder;
+            }
+        }
+        return null;
+    }
+
+    public SchemaDecoder getDecoder(int version) {
+        return decodersByVersion.get(version);
+    }
+
+    public Map<Integer, SchemaDecoder> getDecoders() {
+        return decodersByVersion;
+    }
+
+    /**
+     * @return the number of records that failed before their schema version could be determined.
+     */
+    public long getUndetectedCount() {
+        return undetectedCount.sum();
+    }
+
+    /**
+     * Summarizes the decode statistics of every registered version, for logging.
+     *
+     * @return a line such as {@code v1=120/0 v2=3400/2 undetected=1} (decoded/failed per version).
+     */
+    public String describeStats() {
+        StringBuilder sb = new StringBuilder();
+        for (SchemaDecoder decoder : decoders) {
+            sb.append('v').append(decoder.getVersion()).append('=')
+                    .append(decoder.getDecodedCount()).append('/').append(decoder.getFailedCount()).append(' ');
+        }
+        return sb.append("undetected=").append(getUndetectedCount()).toString();
+    }
+
+    /**
+     * Resolves the version of a record whose fields have been read into the event and updates the
+     * statistics of that version.
+     *
+     * @param presentFields Bit mask of the field numbers seen in the record.
+     * @param target        The event filled by the format decoder.
+     * @return true if the version was detected and the record carries a player ID; false otherwise.
+     */
+    boolean complete(long presentFields, LoginEvent target) {
+        SchemaDecoder schema = resolve(presentFields);
+        if (schema == null) {
+            recordUndetected();
+            return false;
+        }
+        target.setSchemaVersion(schema.getVersion());
+        if (!target.hasPlayerId()) {
+            schema.recordFailed();
+            return false;
+        }
+        schema.recordDecoded();
+        return true;
+    }
+
+    void recordUndetected() {
+        undetectedCount.increment();
+    }
+
+    /**
+     * Fields that no registered version declares are ignored by detection, so producers may add
+     * fields ahead of the consumer.
+     */
+    long presenceBit(int fieldNumber) {
+        return fieldNumber < Long.SIZE ? (1L << fieldNumber) & knownFieldMask : 0L;
+    }
+
+    int roleOf(int fieldNumber) {
+        return fieldNumber < rolesByFieldNumber.length ? rolesByFieldNumber[fieldNumber] : ROLE_NONE;
+    }
+
+    FieldRef fieldForJsonName(String name) {
+        return fieldsByJsonName.get(name);
+    }
+
+    /**
+     * Looks up a field by the UTF-8 bytes of its JSON name, without decoding them.
+     */
+    FieldRef fieldForJsonName(byte[] data, int offset, int length) {
+        int index = hashName(data, offset, length) & jsonNameMask;
+        JsonName entry;
+        while ((entry = jsonNameTable[index]) != null) {
+            if (Arrays.equals(entry.bytes, 0, entry.bytes.length, data, offset, offset + length)) {
+                return entry.ref;
+            }
+            index = (index + 1) & jsonNameMask;
+        }
+        return null;
+    }
+
+    // FNV-1a; field names are short, so a cheap byte-wise hash beats anything wider
+    private static int hashName(byte[] data, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ (data[i] & 0xFF)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int roleOf(String fieldName) {
+        switch (fieldName) {
+            case SchemaDecoder.PLAYER_ID_FIELD:
+                return ROLE_PLAYER_ID;
+            case SchemaDecoder.COUNTRY_FIELD:
+                return ROLE_COUNTRY;
+            case SchemaDecoder.TIMESTAMP_FIELD:
+                return ROLE_TIMESTAMP;
+            default:
+                return ROLE_NONE;
+        }
+    }
+
+    static final class FieldRef {
+        final int number;
+        final int role;
+        final long presenceBit;
+
+        FieldRef(int number, int role) {
+            this.number = number;
+            this.role = role;
+            this.presenceBit = number < Long.SIZE ? 1L << number : 0L;
+        }
+    }
+
+    private static final class JsonName {
+        final byte[] bytes;
+        final FieldRef ref;
+
+        JsonName(byte[] bytes, FieldRef ref) {
+            this.bytes = bytes;
+            this.ref = ref;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.util.ActiveWriters;
+import com.assignment.task1.util.LongSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Empties the fingerprint sets of retired buckets in the background and hands them out again.
+ * <p>
+ * Emptying a large mapped table takes a while, so a rotation only swaps in a spare set and passes
+ * the retired one on. A background thread waits until the writers that entered the retired bucket
+ * before it was retired have left, {@link LongSet#recycle() recycles} its set and keeps it as the
+ * next spare. While no spare is ready, for instance on the first rotations, a new set is created.
+ */
+final class BucketRecycler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BucketRecycler.class);
+
+    private final Supplier<LongSet> factory;
+    private final Queue<LongSet> spares = new ConcurrentLinkedQueue<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "dedup-recycler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param factory Creates a set while no recycled one is ready.
+     */
+    BucketRecycler(Supplier<LongSet> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @return an empty set, recycled if one is ready.
+     */
+    LongSet take() {
+        LongSet spare = spares.poll();
+        return spare != null ? spare : factory.get();
+    }
+
+    /**
+     * Recycles the set of a retired bucket once its writers have left; sets that cannot be recycled
+     * are left to the garbage collector.
+     *
+     * @param fingerprints The set of the retired bucket.
+     * @param writers      The writers of the retired bucket; no new ones may enter it.
+     */
+    void recycle(LongSet fingerprints, ActiveWriters writers) {
+        try {
+            executor.execute(() -> {
+                while (writers.hasWriters()) {
+                    LockSupport.parkNanos(10_000);
+                }
+                if (fingerprints.recycle()) {
+                    spares.add(fingerprints);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Recycler is shut down; dropping a retired bucket set");
+        }
+    }
+
+    /**
+     * @return the recycled sets ready to be taken.
+     */
+    int getSpareCount() {
+        return spares.size();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        spares.clear();
+    }
+}
@@ -0,0 +1,15 @@
+package com.assignment.task1.deduplication;
+
+/**
+ * Storage used to remember the players seen within the deduplication window.
+ */
+public enum DeduplicationBackend {
+    /** Caffeine cache of player ID Strings. */
+    CAFFEINE,
+    /** Time-bucketed primitive sets of 64-bit player ID fingerprints. */
+    FINGERPRINT,
+    /** Time-bucketed off-heap hash tables of fingerprints in memory-mapped files. */
+    MAPPED,
+    /** Time-bucketed Bloom filters of fingerprints; approximate, sized by the filter settings. */
+    BLOOM
+}
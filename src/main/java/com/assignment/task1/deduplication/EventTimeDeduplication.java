@@ -0,0 +1,231 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.ActiveWriters;
+import com.assignment.task1.util.LongSet;
+import com.assignment.task1.util.XxHash64;
+import com.assignment.task1.watermark.WatermarkTracker;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Deduplication over player ID fingerprints whose window runs on the event time of the messages.
+ * <p>
+ * A fingerprint is recorded in the bucket of its message timestamp; two logins of a player are
+ * duplicates when their timestamps are less than a window apart, in whatever order they arrive.
+ * Buckets sit in a ring and are retired when they fall more than a window behind the stream
+ * watermark, so a backlog replayed from the start of the stream is deduplicated as it originally
+ * happened instead of being squeezed into one wall-clock window. A retired bucket is simply
+ * replaced when its ring slot is next needed; nothing is expired per entry. Its set is
+ * {@link LongSet#recycle() recycled} in the background, where the set supports that, and stands in
+ * for a later bucket, so a rotation never waits for a table to be emptied.
+ * <p>
+ * The watermark is the event time of the slowest shard, so while shards catch up at different
+ * speeds the fastest ones record events ahead of it. The ring is sized for the maximum skew between
+ * shards on top of the window behind the watermark: events may run up to that far ahead before they
+ * push out buckets that are still live. Events older than the retained buckets are still checked
+ * against them but not remembered. Messages without a timestamp are placed at the watermark, or at
+ * the current time while there is none.
+ */
+public class EventTimeDeduplication implements PlayerDeduplication {
+
+    static final int BUCKETS_PER_WINDOW = 4;
+
+    private final WatermarkTracker watermarkTracker;
+    private final Clock clock;
+    private final long bucketMillis;
+    private final BucketRecycler recycler;
+    private final AtomicReferenceArray<Bucket> ring;
+    private final LongAdder lateEvents = new LongAdder();
+
+    /**
+     * @param windowSizeInMinutes The size of the event-time window in minutes.
+     * @param maxSkewMinutes      How far in minutes a shard may run ahead of the slowest one before
+     *                            its events push out buckets that are still live.
+     * @param watermarkTracker    The source of the stream watermark.
+     * @param bucketFactory       Creates the fingerprint set of a new bucket while no recycled set is ready.
+     */
+    public EventTimeDeduplication(long windowSizeInMinutes, long maxSkewMinutes, WatermarkTracker watermarkTracker,
+                                  Supplier<LongSet> bucketFactory) {
+        this(windowSizeInMinutes, maxSkewMinutes, watermarkTracker, bucketFactory, Clock.systemUTC());
+    }
+
+    public EventTimeDeduplication(long windowSizeInMinutes, long maxSkewMinutes, WatermarkTracker watermarkTracker,
+                                  Supplier<LongSet> bucketFactory, Clock clock) {
+        if (maxSkewMinutes < 0) {
+            throw new IllegalArgumentException("The maximum event-time skew must not be negative");
+        }
+        long windowMillis = TimeUnit.MINUTES.toMillis(windowSizeInMinutes);
+        this.bucketMillis = Math.max(1, (windowMillis + BUCKETS_PER_WINDOW - 1) / BUCKETS_PER_WINDOW);
+        // The window behind the watermark, the skew ahead of it and the buckets both are rounded into
+        long skewBuckets = (TimeUnit.MINUTES.toMillis(maxSkewMinutes) + bucketMillis - 1) / bucketMillis;
+        this.ring = new AtomicReferenceArray<>(Math.toIntExact(BUCKETS_PER_WINDOW + skewBuckets + 2));
+        this.watermarkTracker = watermarkTracker;
+        this.recycler = new BucketRecycler(bucketFactory);
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean isUniquePlayer(String playerId) {
+        return isUniquePlayer(XxHash64.hashUtf8(playerId), defaultEventTime());
+    }
+
+    @Override
+    public boolean isUniquePlayer(LoginEvent event) {
+        long eventTime = event.hasTimestamp() ? event.getTimestampMillis() : defaultEventTime();
+        return isUniquePlayer(event.getPlayerFingerprint(), eventTime);
+    }
+
+    /**
+     * Adds the fingerprint to the bucket of its event time without looking at neighbouring ones.
+     */
+    @Override
+    public boolean recordUniquePlayer(LoginEvent event) {
+        long eventTime = event.hasTimestamp() ? event.getTimestampMillis() : defaultEventTime();
+        long epoch = Math.floorDiv(eventTime, bucketMillis);
+        long oldestLive = oldestLiveEpoch();
+        if (epoch < oldestLive) {
+            lateEvents.increment();
+            return true;
+        }
+        Bucket bucket = enter(epoch, oldestLive);
+        if (bucket == null) {
+            return true;
+        }
+        try {
+            return bucket.fingerprints.add(event.getPlayerFingerprint());
+        } finally {
+            bucket.writers.exit();
+        }
+    }
+
+    /**
+     * Checks if no login of the player lies within one window of the given event time, and records it.
+     *
+     * @param fingerprint     The 64-bit fingerprint of the player ID.
+     * @param eventTimeMillis The event time of the login in epoch milliseconds.
+     * @return true if the fingerprint is unique; false otherwise.
+     */
+    public boolean isUniquePlayer(long fingerprint, long eventTimeMillis) {
+        long epoch = Math.floorDiv(eventTimeMillis, bucketMillis);
+        long oldestLive = oldestLiveEpoch();
+
+        Bucket current = epoch >= oldestLive ? enter(epoch, oldestLive) : null;
+        if (current == null) {
+            // Its bucket has been retired already: compare with what is left, but do not remember it
+            lateEvents.increment();
+        }
+
+        try {
+            // Only the buckets within a window of the event can hold a duplicate
+            for (long neighbour = epoch - BUCKETS_PER_WINDOW; neighbour <= epoch + BUCKETS_PER_WINDOW; neighbour++) {
+                Bucket bucket = ring.get(slotOf(neighbour));
+                if (bucket != null && bucket != current && bucket.epoch == neighbour && neighbour >= oldestLive
+                        && bucket.fingerprints.contains(fingerprint)) {
+                    return false;
+                }
+            }
+            return current == null || current.fingerprints.add(fingerprint);
+        } finally {
+            if (current != null) {
+                current.writers.exit();
+            }
+        }
+    }
+
+    /**
+     * @return the number of events that arrived after their bucket had been retired.
+     */
+    public long getLateEventCount() {
+        return lateEvents.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+        recycler.shutdown();
+    }
+
+    /**
+     * @return the epoch of the oldest bucket that is not retired yet.
+     */
+    private long oldestLiveEpoch() {
+        long watermark = watermarkTracker.getWatermark();
+        return watermark == WatermarkTracker.NO_WATERMARK
+                ? Long.MIN_VALUE
+                : Math.floorDiv(watermark, bucketMillis) - BUCKETS_PER_WINDOW;
+    }
+
+    private long defaultEventTime() {
+        long watermark = watermarkTracker.getWatermark();
+        return watermark != WatermarkTracker.NO_WATERMARK ? watermark : clock.millis();
+    }
+
+    /**
+     * Finds or opens the bucket of the epoch and enters it, so that its set is not recycled under the caller.
+     *
+     * @return the bucket, entered by the calling thread; or null if its slot already holds a later epoch.
+     */
+    private Bucket enter(long epoch, long oldestLive) {
+        while (true) {
+            Bucket bucket = bucketFor(epoch, oldestLive);
+            if (bucket == null) {
+                return null;
+            }
+            bucket.writers.enter();
+            // Re-check after announcing ourselves: once the flag is set, the recycler may already have seen no writers
+            if (!bucket.retired) {
+                return bucket;
+            }
+            bucket.writers.exit();
+        }
+    }
+
+    /**
+     * @return the bucket of the epoch, or null if its slot already holds a later epoch.
+     */
+    private Bucket bucketFor(long epoch, long oldestLive) {
+        int slot = slotOf(epoch);
+        Bucket bucket = ring.get(slot);
+        if (bucket != null && bucket.epoch >= epoch) {
+            return bucket.epoch == epoch ? bucket : null;
+        }
+        // Rotations are rare; one at a time, so that a replaced set is handed on exactly once
+        synchronized (ring) {
+            bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch >= epoch) {
+                return bucket.epoch == epoch ? bucket : null;
+            }
+            // Writers that still reach the replaced bucket find it retired and count as late
+            Bucket fresh = new Bucket(epoch, recycler.take());
+            ring.set(slot, fresh);
+            if (bucket != null) {
+                bucket.retired = true;
+                recycler.recycle(bucket.fingerprints, bucket.writers);
+            }
+            return fresh;
+        }
+    }
+
+    private int slotOf(long epoch) {
+        return (int) Math.floorMod(epoch, (long) ring.length());
+    }
+
+    private static final class Bucket {
+        final long epoch;
+        final LongSet fingerprints;
+        final ActiveWriters writers = new ActiveWriters();
+        volatile boolean retired;
+
+        Bucket(long epoch, LongSet fingerprints) {
+            this.epoch = epoch;
+            this.fingerprints = fingerprints;
+        }
+    }
+}
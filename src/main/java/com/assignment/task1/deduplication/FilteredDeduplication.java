@@ -0,0 +1,110 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.BlockedBloomFilter;
+import com.assignment.task1.util.LongSet;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier deduplication: a time-rotated Bloom filter in front of an exact backend.
+ * <p>
+ * The filter runs the same bucketed window as the fingerprint backends, with a
+ * {@link BlockedBloomFilter} per bucket. A player the filter has definitely not seen is only
+ * recorded in the exact backend, which skips the lookups the backend needs for a possibly known
+ * player; only probable hits get the full exact check. Filter buckets live at least as long as
+ * the exact backend keeps an entry, so "definitely new" never misses a duplicate the exact
+ * backend would have caught.
+ */
+public class FilteredDeduplication implements PlayerDeduplication {
+
+    private final PlayerDeduplication exact;
+    private final PlayerDeduplication filter;
+    private final double falsePositiveRate;
+    private volatile BlockedBloomFilter newestFilter;
+
+    private final LongAdder definitelyNew = new LongAdder();
+    private final LongAdder probableHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param exact             The backend that answers probable hits.
+     * @param filterWindow      Builds the filter window from a factory of per-bucket filters.
+     * @param expectedPlayers   The number of distinct players per window the filter is sized for.
+     * @param falsePositiveRate The target rate at which the filter reports an unseen player as seen.
+     */
+    public FilteredDeduplication(PlayerDeduplication exact,
+                                 Function<Supplier<LongSet>, PlayerDeduplication> filterWindow,
+                                 long expectedPlayers,
+                                 double falsePositiveRate) {
+        Supplier<BlockedBloomFilter> bloomBuckets = bloomBuckets(expectedPlayers, falsePositiveRate);
+        this.exact = exact;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = filterWindow.apply(() -> {
+            BlockedBloomFilter bloomFilter = bloomBuckets.get();
+            newestFilter = bloomFilter;
+            return bloomFilter;
+        });
+    }
+
+    /**
+     * Creates bucket filters sized so that a lookup over a whole window stays within the given rate.
+     *
+     * @param expectedPlayers   The number of distinct players per window.
+     * @param falsePositiveRate The target rate for a lookup over all live buckets.
+     */
+    public static Supplier<BlockedBloomFilter> bloomBuckets(long expectedPlayers, double falsePositiveRate) {
+        // A lookup consults every live bucket, so each one gets a share of the error budget. Each is
+        // sized for a whole window: after a lag spike most players of a window land in one bucket
+        double bucketRate = falsePositiveRate / (FingerprintWindowDeduplication.BUCKETS_PER_WINDOW + 1);
+        return () -> new BlockedBloomFilter(expectedPlayers, bucketRate);
+    }
+
+    @Override
+    public boolean isUniquePlayer(String playerId) {
+        LoginEvent event = new LoginEvent();
+        event.setPlayerId(playerId);
+        return isUniquePlayer(event);
+    }
+
+    @Override
+    public boolean isUniquePlayer(LoginEvent event) {
+        if (filter.isUniquePlayer(event)) {
+            definitelyNew.increment();
+            return exact.recordUniquePlayer(event);
+        }
+        probableHits.increment();
+        if (exact.isUniquePlayer(event)) {
+            falsePositives.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the share of new players that the filter reported as possibly seen.
+     */
+    public double getObservedFalsePositiveRate() {
+        long misses = falsePositives.sum();
+        long total = definitelyNew.sum() + misses;
+        return total == 0 ? 0 : misses / (double) total;
+    }
+
+    @Override
+    public String describeStats() {
+        BlockedBloomFilter bloomFilter = newestFilter;
+        return String.format("filter definitely-new=%d probable-hits=%d false-positives=%d observed-fpr=%.4f target-fpr=%.4f"
+                        + " newest-bucket-fpr=%.4f newest-bucket-bytes=%d",
+                definitelyNew.sum(), probableHits.sum(), falsePositives.sum(), getObservedFalsePositiveRate(), falsePositiveRate,
+                bloomFilter != null ? bloomFilter.expectedFalsePositiveRate() : 0.0,
+                bloomFilter != null ? bloomFilter.sizeInBytes() : 0L);
+    }
+
+    @Override
+    public void shutdown() {
+        filter.shutdown();
+        exact.shutdown();
+    }
+}
@@ -0,0 +1,182 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.ActiveWriters;
+import com.assignment.task1.util.ConcurrentLongHashSet;
+import com.assignment.task1.util.LongSet;
+import com.assignment.task1.util.XxHash64;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Deduplication over 64-bit player ID fingerprints kept in time-bucketed primitive sets.
+ * <p>
+ * The window is split into {@value #BUCKETS_PER_WINDOW} buckets. A fingerprint is recorded in the
+ * bucket of the current time and stays visible until that bucket is older than the window, at which
+ * point the whole bucket is dropped at once; entries therefore live between one window and one
+ * window plus one bucket. There is no per-entry expiry bookkeeping and no per-record allocation.
+ * A rotation only swaps a spare set into the slot. The set of the dropped bucket is
+ * {@link LongSet#recycle() recycled} in the background once the writers still inside it have left,
+ * where the set supports that, and becomes the spare of a later rotation; so such sets are only
+ * created for the first {@value #BUCKETS_PER_WINDOW} + 2 buckets.
+ */
+public class FingerprintWindowDeduplication implements PlayerDeduplication {
+
+    static final int BUCKETS_PER_WINDOW = 4;
+
+    private final Clock clock;
+    private final long bucketMillis;
+    private final BucketRecycler recycler;
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(BUCKETS_PER_WINDOW + 1);
+
+    /**
+     * @param windowSizeInMinutes The size of the sliding window in minutes.
+     */
+    public FingerprintWindowDeduplication(long windowSizeInMinutes) {
+        this(windowSizeInMinutes, Clock.systemUTC());
+    }
+
+    public FingerprintWindowDeduplication(long windowSizeInMinutes, Clock clock) {
+        this(windowSizeInMinutes, clock, ConcurrentLongHashSet::new);
+    }
+
+    /**
+     * @param bucketFactory Creates the fingerprint set of a new bucket while no recycled set is ready.
+     */
+    public FingerprintWindowDeduplication(long windowSizeInMinutes, Clock clock, Supplier<LongSet> bucketFactory) {
+        long windowMillis = TimeUnit.MINUTES.toMillis(windowSizeInMinutes);
+        this.bucketMillis = Math.max(1, (windowMillis + BUCKETS_PER_WINDOW - 1) / BUCKETS_PER_WINDOW);
+        this.clock = clock;
+        this.recycler = new BucketRecycler(bucketFactory);
+    }
+
+    @Override
+    public boolean isUniquePlayer(String playerId) {
+        return isUniquePlayer(XxHash64.hashUtf8(playerId));
+    }
+
+    @Override
+    public boolean isUniquePlayer(LoginEvent event) {
+        return isUniquePlayer(event.getPlayerFingerprint());
+    }
+
+    /**
+     * Adds the fingerprint to the current bucket without looking at older ones.
+     */
+    @Override
+    public boolean recordUniquePlayer(LoginEvent event) {
+        long epoch = clock.millis() / bucketMillis;
+        Bucket current = enter(epoch, slot(epoch));
+        try {
+            return current.fingerprints.add(event.getPlayerFingerprint());
+        } finally {
+            current.writers.exit();
+        }
+    }
+
+    /**
+     * Checks if the fingerprint is unique within the deduplication window and records it.
+     *
+     * @param fingerprint The 64-bit fingerprint of the player ID.
+     * @return true if the fingerprint is unique; false otherwise.
+     */
+    public boolean isUniquePlayer(long fingerprint) {
+        long epoch = clock.millis() / bucketMillis;
+        int currentSlot = slot(epoch);
+        Bucket current = enter(epoch, currentSlot);
+        try {
+            for (int i = 0; i < ring.length(); i++) {
+                if (i == currentSlot) {
+                    continue;
+                }
+                Bucket bucket = ring.get(i);
+                if (bucket != null && bucket.epoch >= epoch - BUCKETS_PER_WINDOW && bucket.fingerprints.contains(fingerprint)) {
+                    return false;
+                }
+            }
+            return current.fingerprints.add(fingerprint);
+        } finally {
+            current.writers.exit();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+        recycler.shutdown();
+    }
+
+    /**
+     * @return the recycled sets ready for the next rotations.
+     */
+    int getSpareCount() {
+        return recycler.getSpareCount();
+    }
+
+    /**
+     * Finds or opens the bucket of the epoch and enters it, so that its set is not recycled under the caller.
+     */
+    private Bucket enter(long epoch, int slot) {
+        while (true) {
+            Bucket bucket = bucketFor(epoch, slot);
+            bucket.writers.enter();
+            // Re-check after announcing ourselves: once the flag is set, the recycler may already have seen no writers
+            if (!bucket.retired) {
+                return bucket;
+            }
+            bucket.writers.exit();
+        }
+    }
+
+    private Bucket bucketFor(long epoch, int slot) {
+        Bucket bucket = ring.get(slot);
+        if (bucket != null && bucket.epoch >= epoch) {
+            return bucket;
+        }
+        // Rotations are rare; one at a time, so that an expired set is handed on exactly once
+        synchronized (ring) {
+            bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch >= epoch) {
+                return bucket;
+            }
+            // The slot still holds a bucket that has left the window; replace it as a whole. A reader
+            // racing the rotation is at the window edge, where either answer is right
+            Bucket fresh = new Bucket(epoch, recycler.take());
+            ring.set(slot, fresh);
+            if (bucket != null) {
+                bucket.retired = true;
+                onBucketExpired(bucket.fingerprints);
+                recycler.recycle(bucket.fingerprints, bucket.writers);
+            }
+            return fresh;
+        }
+    }
+
+    /**
+     * Called once for every bucket that is dropped because it left the window, before its set is
+     * handed to the recycler.
+     */
+    protected void onBucketExpired(LongSet fingerprints) {
+    }
+
+    private int slot(long epoch) {
+        return (int) Math.floorMod(epoch, (long) ring.length());
+    }
+
+    private static final class Bucket {
+        final long epoch;
+        final LongSet fingerprints;
+        final ActiveWriters writers = new ActiveWriters();
+        volatile boolean retired;
+
+        Bucket(long epoch, LongSet fingerprints) {
+            this.epoch = epoch;
+            this.fingerprints = fingerprints;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.util.LongSet;
+import com.assignment.task1.util.MappedLongHashSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Clock;
+
+/**
+ * Fingerprint deduplication whose time buckets are memory-mapped hash tables.
+ * <p>
+ * Each bucket is a {@link MappedLongHashSet} sized for {@code bucketCapacity} distinct players, so the
+ * seen-set lives outside the Java heap and does not add to GC work however many players there are.
+ * An expired bucket is dropped as a whole; its table is zeroed in the background and reused for a
+ * later bucket, so the deduplication maps {@value #BUCKETS_PER_WINDOW} + 2 tables however long it runs.
+ */
+public class MappedWindowDeduplication extends FingerprintWindowDeduplication {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedWindowDeduplication.class);
+
+    /**
+     * @param windowSizeInMinutes The size of the sliding window in minutes.
+     * @param directory           The directory for the bucket files.
+     * @param bucketCapacity      The number of distinct players one bucket must hold.
+     */
+    public MappedWindowDeduplication(long windowSizeInMinutes, Path directory, long bucketCapacity) {
+        this(windowSizeInMinutes, directory, bucketCapacity, Clock.systemUTC());
+    }
+
+    public MappedWindowDeduplication(long windowSizeInMinutes, Path directory, long bucketCapacity, Clock clock) {
+        super(windowSizeInMinutes, clock, () -> new MappedLongHashSet(directory, bucketCapacity));
+    }
+
+    @Override
+    protected void onBucketExpired(LongSet fingerprints) {
+        long rejected = ((MappedLongHashSet) fingerprints).getRejectedCount();
+        if (rejected > 0) {
+            logger.warn("Deduplication bucket was full: {} players were not remembered, raise dedup.bucket-capacity", rejected);
+        }
+    }
+}
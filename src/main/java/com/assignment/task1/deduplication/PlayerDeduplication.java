@@ -0,0 +1,52 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.decoder.LoginEvent;
+
+/**
+ * Decides whether a player login has already been seen within the deduplication window.
+ */
+public interface PlayerDeduplication {
+
+    /**
+     * Checks if the player ID is unique within the deduplication window and records it.
+     *
+     * @param playerId The player ID to check.
+     * @return true if the player ID is unique; false otherwise.
+     */
+    boolean isUniquePlayer(String playerId);
+
+    /**
+     * Checks if the player of a decoded event is unique within the deduplication window.
+     * Backends that work on fingerprints override this to skip the player ID String.
+     *
+     * @param event The decoded login event.
+     * @return true if the player is unique; false otherwise.
+     */
+    default boolean isUniquePlayer(LoginEvent event) {
+        return isUniquePlayer(event.getPlayerId());
+    }
+
+    /**
+     * Records a player that a filter in front of this backend found to be new.
+     * Backends override this to skip lookups that only an unknown player needs; the default
+     * performs the full check.
+     *
+     * @param event The decoded login event.
+     * @return true if the player was recorded; false if it was recorded concurrently by another caller.
+     */
+    default boolean recordUniquePlayer(LoginEvent event) {
+        return isUniquePlayer(event);
+    }
+
+    /**
+     * @return a one-line summary of the backend's counters, or an empty string if it keeps none.
+     */
+    default String describeStats() {
+        return "";
+    }
+
+    /**
+     * Releases the state held by the backend.
+     */
+    void shutdown();
+}
@@ -8,7 +8,7 @@ import java.util.concurrent.TimeUnit;
 /**
  * Deduplication mechanism using Caffeine Cache for sliding window deduplication.
  */
-public class SlidingWindowDeduplication {
+public class SlidingWindowDeduplication implements PlayerDeduplication {
 
     private Cache<String, Boolean> seenIds;
 
@@ -30,6 +30,7 @@ public class SlidingWindowDeduplication {
      * @param playerId The player ID to check.
      * @return true if the player ID is unique; false otherwise.
      */
+    @Override
     public boolean isUniquePlayer(String playerId) {
         return seenIds.asMap().putIfAbsent(playerId, Boolean.TRUE) == null;
     }
@@ -37,6 +38,7 @@ public class SlidingWindowDeduplication {
     /**
      * Clears the deduplication cache.
      */
+    @Override
     public void shutdown() {
         seenIds.invalidateAll();
     }
@@ -0,0 +1,11 @@
+package com.assignment.task1.deduplication;
+
+/**
+ * The clock that drives expiry of the deduplication window, or the output windows of the aggregation.
+ */
+public enum TimeDomain {
+    /** Wall-clock time at which a record is processed. */
+    PROCESSING,
+    /** The timestamp carried in the login message, advanced by per-shard watermarks. */
+    EVENT
+}
@@ -8,5 +8,5 @@ public class TotalUniquePlayerLogins {
     private String hour;
     private String minute;
     private String metricName;
-    private int loginCount;
+    private long loginCount;
 }
\ No newline at end of file
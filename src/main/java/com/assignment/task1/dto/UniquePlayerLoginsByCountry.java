@@ -9,5 +9,5 @@ public class UniquePlayerLoginsByCountry {
     private String minute;
     private String metricName;
     private String country;
-    private int loginCount;
+    private long loginCount;
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.assignment.task1.fanout;
+
+import com.assignment.task1.service.RecordBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.ConsumerDescription;
+import software.amazon.awssdk.services.kinesis.model.ConsumerStatus;
+import software.amazon.awssdk.services.kinesis.model.DescribeStreamConsumerRequest;
+import software.amazon.awssdk.services.kinesis.model.DescribeStreamSummaryRequest;
+import software.amazon.awssdk.services.kinesis.model.RegisterStreamConsumerRequest;
+import software.amazon.awssdk.services.kinesis.model.ResourceInUseException;
+import software.amazon.awssdk.services.kinesis.model.ResourceNotFoundException;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Enhanced fan-out consumer of the stream: records are pushed over HTTP/2 by {@code SubscribeToShard}
+ * instead of being polled with GetRecords.
+ * <p>
+ * The stream consumer is registered under the configured name on first use and reused afterwards,
+ * so instances sharing the name share its dedicated read throughput. The async client is created
+ * lazily, so nothing is opened while fan-out is disabled.
+ */
+public class FanOutConsumer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FanOutConsumer.class);
+
+    private static final long ACTIVE_POLL_MS = 1000;
+    private static final int ACTIVE_MAX_POLLS = 120;
+
+    private final Supplier<KinesisAsyncClient> clientFactory;
+    private final String streamName;
+    private final String consumerName;
+
+    private KinesisAsyncClient client;
+    private String consumerArn;
+
+    /**
+     * @param clientFactory Creates the async client on first use.
+     * @param consumerName  The name the stream consumer is registered under.
+     */
+    public FanOutConsumer(Supplier<KinesisAsyncClient> clientFactory, String streamName, String consumerName) {
+        this.clientFactory = clientFactory;
+        this.streamName = streamName;
+        this.consumerName = consumerName;
+    }
+
+    /**
+     * Starts pushing the records of a shard into the queue.
+     *
+     * @param checkpoint The checkpoint to continue from, or null to start at the oldest record.
+     * @param batches    Receives the records; must hold at least two batches, one slot is kept for the final batch.
+     */
+    public ShardSubscription subscribe(String shardId, String checkpoint, BlockingQueue<RecordBatch> batches)
+            throws InterruptedException {
+        if (batches.remainingCapacity() < 2) {
+            throw new IllegalArgumentException("Subscription queue must hold at least two batches");
+        }
+        ShardSubscription subscription = new ShardSubscription(client(), consumerArn(), shardId, checkpoint, batches);
+        subscription.start();
+        return subscription;
+    }
+
+    /**
+     * @return the ARN of the stream consumer, registering it and waiting until it is active if needed.
+     */
+    synchronized String consumerArn() throws InterruptedException {
+        if (consumerArn != null) {
+            return consumerArn;
+        }
+        KinesisAsyncClient kinesis = client();
+        String streamArn = kinesis.describeStreamSummary(DescribeStreamSummaryRequest.builder().streamName(streamName).build())
+                .join().streamDescriptionSummary().streamARN();
+
+        ConsumerDescription description = describe(kinesis, streamArn);
+        if (description == null) {
+            logger.info("Registering stream consumer '{}' for stream '{}'", consumerName, streamName);
+            try {
+                kinesis.registerStreamConsumer(RegisterStreamConsumerRequest.builder()
+                        .streamARN(streamArn).consumerName(consumerName).build()).join();
+            } catch (CompletionException e) {
+                // Another instance registered it first
+                if (!(e.getCause() instanceof ResourceInUseException)) {
+                    throw e;
+                }
+            }
+            description = describe(kinesis, streamArn);
+        }
+
+        for (int polls = 0; description == null || description.consumerStatus() != ConsumerStatus.ACTIVE; polls++) {
+            if (polls >= ACTIVE_MAX_POLLS) {
+                throw new IllegalStateException("Stream consumer '" + consumerName + "' did not become active");
+            }
+            TimeUnit.MILLISECONDS.sleep(ACTIVE_POLL_MS);
+            description = describe(kinesis, streamArn);
+        }
+        consumerArn = description.consumerARN();
+        return consumerArn;
+    }
+
+    @PreDestroy
+    @Override
+    public synchronized void close() {
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+    }
+
+    private synchronized KinesisAsyncClient client() {
+        if (client == null) {
+            client = clientFactory.get();
+        }
+        return client;
+    }
+
+    private ConsumerDescription describe(KinesisAsyncClient kinesis, String streamArn) {
+        try {
+            return kinesis.describeStreamConsumer(DescribeStreamConsumerRequest.builder()
+                    .streamARN(streamArn).consumerName(consumerName).build()).join().consumerDescription();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ResourceNotFoundException) {
+                return null;
+            }
+            throw e;
+        }
+    }
+}
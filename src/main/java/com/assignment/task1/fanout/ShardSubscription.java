@@ -0,0 +1,200 @@
+package com.assignment.task1.fanout;
+
+import com.amazonaws.services.kinesis.model.Record;
+import com.assignment.task1.checkpoint.ExtendedSequenceNumber;
+import com.assignment.task1.service.RecordBatch;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.ShardIteratorType;
+import software.amazon.awssdk.services.kinesis.model.StartingPosition;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardEvent;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardEventStream;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardRequest;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardResponseHandler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes the records of one shard into a queue of {@link RecordBatch}es.
+ * <p>
+ * Kinesis ends every subscription after five minutes; it is then renewed from the last continuation
+ * sequence number, so the queue sees one uninterrupted stream of records. Events are requested one
+ * at a time and only while the queue has room, so a slow processor holds back delivery rather than
+ * piling up records. A failed subscription is handed over as an error batch and not renewed.
+ */
+public class ShardSubscription implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardSubscription.class);
+
+    private final KinesisAsyncClient client;
+    private final String consumerArn;
+    private final String shardId;
+    private final BlockingQueue<RecordBatch> batches;
+
+    private volatile String continuation;
+    private volatile boolean shardEnd;
+    private volatile boolean closed;
+    private volatile EventSubscriber current;
+
+    ShardSubscription(KinesisAsyncClient client, String consumerArn, String shardId, String afterSequence,
+                      BlockingQueue<RecordBatch> batches) {
+        this.client = client;
+        this.consumerArn = consumerArn;
+        this.shardId = shardId;
+        this.continuation = afterSequence;
+        this.batches = batches;
+    }
+
+    void start() {
+        if (closed) {
+            return;
+        }
+        ExtendedSequenceNumber start = ExtendedSequenceNumber.parse(continuation);
+        StartingPosition position;
+        if (start == null) {
+            position = StartingPosition.builder().type(ShardIteratorType.TRIM_HORIZON).build();
+        } else {
+            // A partly processed aggregate is read again; the processor skips its processed user records
+            ShardIteratorType type = start.isPartial() ? ShardIteratorType.AT_SEQUENCE_NUMBER : ShardIteratorType.AFTER_SEQUENCE_NUMBER;
+            position = StartingPosition.builder().type(type).sequenceNumber(start.getSequenceNumber()).build();
+        }
+        SubscribeToShardRequest request = SubscribeToShardRequest.builder()
+                .consumerARN(consumerArn)
+                .shardId(shardId)
+                .startingPosition(position)
+                .build();
+
+        EventSubscriber subscriber = new EventSubscriber();
+        current = subscriber;
+        SubscribeToShardResponseHandler handler = SubscribeToShardResponseHandler.builder()
+                .subscriber(() -> subscriber)
+                .build();
+        client.subscribeToShard(request, handler).whenComplete((ignored, error) -> onSubscriptionEnded(error));
+    }
+
+    /**
+     * Called by the processing thread after it took a batch from the queue, to request more events.
+     */
+    public void onBatchTaken() {
+        EventSubscriber subscriber = current;
+        if (subscriber != null) {
+            subscriber.requestIfRoom();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        EventSubscriber subscriber = current;
+        if (subscriber != null) {
+            subscriber.cancel();
+        }
+    }
+
+    EventSubscriber currentSubscriber() {
+        return current;
+    }
+
+    private void onSubscriptionEnded(Throwable error) {
+        if (closed || shardEnd) {
+            return;
+        }
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            logger.warn("Subscription to shard '{}' failed: {}", shardId, cause.getMessage());
+            Exception exception = cause instanceof Exception ? (Exception) cause : new IllegalStateException(cause);
+            // The slot kept free by requestIfRoom guarantees this fits
+            batches.offer(RecordBatch.failed(exception));
+            return;
+        }
+        logger.debug("Subscription to shard '{}' expired. Resubscribing after '{}'.", shardId, continuation);
+        start();
+    }
+
+    private static Record toRecord(software.amazon.awssdk.services.kinesis.model.Record record) {
+        return new Record()
+                .withSequenceNumber(record.sequenceNumber())
+                .withPartitionKey(record.partitionKey())
+                .withApproximateArrivalTimestamp(record.approximateArrivalTimestamp() != null
+                        ? Date.from(record.approximateArrivalTimestamp()) : null)
+                // Wraps the received bytes without copying; the decoders read heap buffers in place
+                .withData(ByteBuffer.wrap(record.data().asByteArrayUnsafe()));
+    }
+
+    /**
+     * Receives the events of one subscription and converts them into batches.
+     */
+    final class EventSubscriber implements Subscriber<SubscribeToShardEventStream> {
+
+        private final AtomicBoolean requested = new AtomicBoolean();
+        private volatile Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            requestIfRoom();
+        }
+
+        @Override
+        public void onNext(SubscribeToShardEventStream item) {
+            requested.set(false);
+            if (item instanceof SubscribeToShardEvent) {
+                onEvent((SubscribeToShardEvent) item);
+            }
+            if (!shardEnd) {
+                requestIfRoom();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Reported through the completion of the subscribe call
+        }
+
+        @Override
+        public void onComplete() {
+            // Reported through the completion of the subscribe call
+        }
+
+        void requestIfRoom() {
+            Subscription s = subscription;
+            // One slot stays free for a final error batch
+            if (s != null && !closed && !shardEnd && batches.remainingCapacity() > 1 && requested.compareAndSet(false, true)) {
+                s.request(1);
+            }
+        }
+
+        void cancel() {
+            Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+
+        private void onEvent(SubscribeToShardEvent event) {
+            List<Record> records = new ArrayList<>(event.records().size());
+            for (software.amazon.awssdk.services.kinesis.model.Record record : event.records()) {
+                records.add(toRecord(record));
+            }
+            // A closed shard sends a last event without a continuation
+            boolean last = event.continuationSequenceNumber() == null;
+            if (!last) {
+                continuation = event.continuationSequenceNumber();
+            } else {
+                shardEnd = true;
+            }
+            if (!records.isEmpty() || last) {
+                batches.offer(RecordBatch.of(records, last));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.assignment.task1.lease;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Lease store kept in a file that several consumer processes on one host share.
+ * <p>
+ * The file holds one {@code shardId<TAB>owner<TAB>counter<TAB>checkpoint} line per shard. A write
+ * takes an OS lock on a sibling {@code .lock} file, re-reads the table, applies the conditional
+ * change and atomically moves a new file into place, so readers never see a half-written table.
+ * Meant for local testing of scale-out; a deployment across hosts needs a store every host can reach.
+ */
+public class FileLeaseStore implements LeaseStore {
+
+    private static final char SEPARATOR = '\t';
+
+    private final Path file;
+    private final Path lockFile;
+
+    /**
+     * @param file The lease table; created with its parent directories if missing.
+     */
+    public FileLeaseStore(Path file) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+    }
+
+    @Override
+    public List<Lease> listLeases() throws IOException {
+        return read().list();
+    }
+
+    @Override
+    public boolean createLeaseIfAbsent(String shardId) throws IOException {
+        return update(table -> table.create(shardId));
+    }
+
+    @Override
+    public boolean renewLease(String shardId, String workerId) throws IOException {
+        return update(table -> table.renew(shardId, workerId));
+    }
+
+    @Override
+    public boolean takeLease(String shardId, String workerId, long expectedCounter) throws IOException {
+        return update(table -> table.take(shardId, workerId, expectedCounter));
+    }
+
+    @Override
+    public boolean releaseLease(String shardId, String workerId) throws IOException {
+        return update(table -> table.release(shardId, workerId));
+    }
+
+    @Override
+    public boolean updateCheckpoint(String shardId, String workerId, String checkpoint) throws IOException {
+        return update(table -> table.updateCheckpoint(shardId, workerId, checkpoint));
+    }
+
+    // The OS lock is held per process, so threads of this JVM also queue on the monitor
+    private synchronized boolean update(Predicate<LeaseTable> change) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.lock()) {
+            LeaseTable table = read();
+            if (!change.test(table)) {
+                return false;
+            }
+            write(table);
+            return true;
+        }
+    }
+
+    private LeaseTable read() throws IOException {
+        LeaseTable table = new LeaseTable();
+        if (!Files.exists(file)) {
+            return table;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+            if (fields.length != 4 || fields[0].isEmpty()) {
+                continue;
+            }
+            table.put(new Lease(fields[0], emptyToNull(fields[1]), Long.parseLong(fields[2]), emptyToNull(fields[3])));
+        }
+        return table;
+    }
+
+    private void write(LeaseTable table) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (Lease lease : table.list()) {
+            content.append(lease.getShardId()).append(SEPARATOR)
+                    .append(nullToEmpty(lease.getOwner())).append(SEPARATOR)
+                    .append(lease.getCounter()).append(SEPARATOR)
+                    .append(nullToEmpty(lease.getCheckpoint())).append('\n');
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(content.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
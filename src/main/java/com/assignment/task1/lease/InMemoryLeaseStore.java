@@ -0,0 +1,41 @@
+package com.assignment.task1.lease;
+
+import java.util.List;
+
+/**
+ * Lease store local to this JVM; with a single worker it simply hands every lease to that worker.
+ */
+public class InMemoryLeaseStore implements LeaseStore {
+
+    private final LeaseTable table = new LeaseTable();
+
+    @Override
+    public synchronized List<Lease> listLeases() {
+        return table.list();
+    }
+
+    @Override
+    public synchronized boolean createLeaseIfAbsent(String shardId) {
+        return table.create(shardId);
+    }
+
+    @Override
+    public synchronized boolean renewLease(String shardId, String workerId) {
+        return table.renew(shardId, workerId);
+    }
+
+    @Override
+    public synchronized boolean takeLease(String shardId, String workerId, long expectedCounter) {
+        return table.take(shardId, workerId, expectedCounter);
+    }
+
+    @Override
+    public synchronized boolean releaseLease(String shardId, String workerId) {
+        return table.release(shardId, workerId);
+    }
+
+    @Override
+    public synchronized boolean updateCheckpoint(String shardId, String workerId, String checkpoint) {
+        return table.updateCheckpoint(shardId, workerId, checkpoint);
+    }
+}
@@ -0,0 +1,73 @@
+package com.assignment.task1.lease;
+
+import java.util.Objects;
+
+/**
+ * Snapshot of the lease of one shard as read from a {@link LeaseStore}.
+ * <p>
+ * The counter is raised by every write to the lease. Other instances never compare clocks with the
+ * owner; they treat a lease as expired once its counter has not moved for a lease duration.
+ */
+public final class Lease {
+
+    private final String shardId;
+    private final String owner;
+    private final long counter;
+    private final String checkpoint;
+
+    /**
+     * @param owner      The worker holding the lease, or null if nobody does.
+     * @param checkpoint The last processed sequence number written through the lease, or null.
+     */
+    public Lease(String shardId, String owner, long counter, String checkpoint) {
+        this.shardId = shardId;
+        this.owner = owner;
+        this.counter = counter;
+        this.checkpoint = checkpoint;
+    }
+
+    public String getShardId() {
+        return shardId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getCounter() {
+        return counter;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    public boolean isOwnedBy(String workerId) {
+        return workerId.equals(owner);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Lease)) {
+            return false;
+        }
+        Lease lease = (Lease) o;
+        return counter == lease.counter
+                && shardId.equals(lease.shardId)
+                && Objects.equals(owner, lease.owner)
+                && Objects.equals(checkpoint, lease.checkpoint);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shardId, owner, counter, checkpoint);
+    }
+
+    @Override
+    public String toString() {
+        return "Lease{shardId=" + shardId + ", owner=" + owner + ", counter=" + counter + ", checkpoint=" + checkpoint + "}";
+    }
+}
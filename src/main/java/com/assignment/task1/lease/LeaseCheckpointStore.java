@@ -0,0 +1,49 @@
+package com.assignment.task1.lease;
+
+import com.assignment.task1.checkpoint.CheckpointStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checkpoint store that writes each shard's checkpoint into the shard's lease.
+ * <p>
+ * The instance that takes a lease over resumes from the checkpoint written by the previous owner.
+ * A checkpoint for a lease this worker has lost is dropped: the new owner has resumed from the
+ * lease's own checkpoint, and overwriting it would move that owner backwards or forwards.
+ */
+public class LeaseCheckpointStore implements CheckpointStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaseCheckpointStore.class);
+
+    private final LeaseStore leaseStore;
+    private final String workerId;
+
+    public LeaseCheckpointStore(LeaseStore leaseStore, String workerId) {
+        this.leaseStore = leaseStore;
+        this.workerId = workerId;
+    }
+
+    @Override
+    public Map<String, String> load() throws IOException {
+        Map<String, String> checkpoints = new HashMap<>();
+        for (Lease lease : leaseStore.listLeases()) {
+            if (lease.getCheckpoint() != null) {
+                checkpoints.put(lease.getShardId(), lease.getCheckpoint());
+            }
+        }
+        return checkpoints;
+    }
+
+    @Override
+    public void save(Map<String, String> checkpoints) throws IOException {
+        for (Map.Entry<String, String> entry : checkpoints.entrySet()) {
+            if (!leaseStore.updateCheckpoint(entry.getKey(), workerId, entry.getValue())) {
+                logger.warn("Lease of shard '{}' is held by another worker; dropped checkpoint {}", entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
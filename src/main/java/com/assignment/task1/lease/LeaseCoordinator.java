@@ -0,0 +1,260 @@
+package com.assignment.task1.lease;
+
+import com.assignment.task1.checkpoint.ShardCheckpointer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spreads the shard leases of a {@link LeaseStore} over the consumer instances sharing it.
+ * <p>
+ * Each {@link #refresh()} renews the leases this worker holds, then takes leases until it holds its
+ * fair share: {@code ceil(leases / live workers)}. Unowned and expired leases are taken first; if
+ * none are left, one lease is stolen from the most loaded worker per refresh, so a new instance
+ * picks up its share gradually instead of all at once. A lease expires for this worker once its
+ * counter has not changed for a lease duration as measured on this worker's own clock, which is how
+ * the shards of a crashed instance fail over.
+ * <p>
+ * A lease that could not be renewed for a lease duration is no longer reported as held, so a worker
+ * cut off from the store stops consuming before another worker may take its shards.
+ */
+public class LeaseCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaseCoordinator.class);
+
+    private final LeaseStore store;
+    private final ShardCheckpointer checkpointer;
+    private final String workerId;
+    private final long leaseDurationMillis;
+    private final Clock clock;
+
+    // Time of the last successful renewal by shard ID
+    private final ConcurrentMap<String, Long> heldLeases = new ConcurrentHashMap<>();
+    // Counter of every lease as last read, with the time it was first read at that value
+    private final Map<String, Observation> observations = new HashMap<>();
+    private final Set<String> registeredShards = new HashSet<>();
+
+    public LeaseCoordinator(LeaseStore store, ShardCheckpointer checkpointer, String workerId, long leaseDurationMillis) {
+        this(store, checkpointer, workerId, leaseDurationMillis, Clock.systemUTC());
+    }
+
+    public LeaseCoordinator(LeaseStore store, ShardCheckpointer checkpointer, String workerId, long leaseDurationMillis,
+                            Clock clock) {
+        this.store = store;
+        this.checkpointer = checkpointer;
+        this.workerId = workerId;
+        this.leaseDurationMillis = leaseDurationMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates an unowned lease for every shard that has none yet.
+     */
+    public synchronized void registerShards(Collection<String> shardIds) {
+        for (String shardId : shardIds) {
+            if (registeredShards.contains(shardId)) {
+                continue;
+            }
+            try {
+                store.createLeaseIfAbsent(shardId);
+                registeredShards.add(shardId);
+            } catch (IOException e) {
+                logger.error("Failed to create lease for shard '{}': {}", shardId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return true if this worker may consume the shard.
+     */
+    public boolean holdsLease(String shardId) {
+        Long renewedAt = heldLeases.get(shardId);
+        return renewedAt != null && clock.millis() - renewedAt < leaseDurationMillis;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Renews the held leases and takes or steals leases up to this worker's share.
+     */
+    public synchronized void refresh() {
+        renewLeases();
+
+        List<Lease> leases;
+        try {
+            leases = store.listLeases();
+        } catch (IOException e) {
+            logger.error("Failed to list leases: {}", e.getMessage(), e);
+            return;
+        }
+
+        long now = clock.millis();
+        int activeLeases = 0;
+        List<Lease> available = new ArrayList<>();
+        Map<String, List<Lease>> leasesByWorker = new HashMap<>();
+        leasesByWorker.put(workerId, new ArrayList<>());
+
+        for (Lease lease : leases) {
+            observe(lease, now);
+            boolean mine = lease.isOwnedBy(workerId);
+            if (!mine && lease.getCheckpoint() != null) {
+                // Resume from the previous owner's progress if this worker takes the shard over
+                checkpointer.adopt(lease.getShardId(), lease.getCheckpoint());
+            }
+            if (ShardCheckpointer.SHARD_END.equals(lease.getCheckpoint())) {
+                // Drained shards need no consumer and do not count towards anyone's share
+                if (mine) {
+                    release(lease.getShardId());
+                }
+                continue;
+            }
+
+            activeLeases++;
+            if (mine && heldLeases.containsKey(lease.getShardId())) {
+                leasesByWorker.get(workerId).add(lease);
+            } else if (mine || lease.getOwner() == null || isExpired(lease, now)) {
+                // A lease left under this worker's ID by an earlier run is taken like an expired one
+                available.add(lease);
+            } else {
+                leasesByWorker.computeIfAbsent(lease.getOwner(), owner -> new ArrayList<>()).add(lease);
+            }
+        }
+
+        int target = (activeLeases + leasesByWorker.size() - 1) / leasesByWorker.size();
+        int toTake = target - leasesByWorker.get(workerId).size();
+        if (toTake <= 0) {
+            return;
+        }
+
+        // Instances that start together should not all race for the same shards
+        Collections.shuffle(available);
+        for (Lease lease : available) {
+            if (toTake == 0) {
+                return;
+            }
+            if (take(lease, now)) {
+                toTake--;
+            }
+        }
+
+        List<Lease> mostLoaded = Collections.emptyList();
+        for (Map.Entry<String, List<Lease>> entry : leasesByWorker.entrySet()) {
+            if (!entry.getKey().equals(workerId) && entry.getValue().size() > mostLoaded.size()) {
+                mostLoaded = entry.getValue();
+            }
+        }
+        if (mostLoaded.size() > target) {
+            Lease victim = mostLoaded.get(ThreadLocalRandom.current().nextInt(mostLoaded.size()));
+            if (take(victim, now)) {
+                logger.info("Stole lease of shard '{}' from worker '{}' to balance load", victim.getShardId(), victim.getOwner());
+            }
+        }
+    }
+
+    /**
+     * Gives up the lease of a shard this instance cannot consume, after saving its checkpoints, so
+     * another instance can take the shard over right away. If none does, this instance may take it
+     * again on a later refresh.
+     */
+    public synchronized void releaseLease(String shardId) {
+        if (heldLeases.containsKey(shardId)) {
+            checkpointer.flush();
+            release(shardId);
+        }
+    }
+
+    /**
+     * Gives up all held leases after saving their checkpoints, so other instances can take the shards
+     * over right away.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        checkpointer.flush();
+        for (String shardId : new ArrayList<>(heldLeases.keySet())) {
+            release(shardId);
+        }
+        try {
+            store.close();
+        } catch (IOException e) {
+            logger.error("Failed to close lease store: {}", e.getMessage(), e);
+        }
+    }
+
+    private void renewLeases() {
+        for (String shardId : heldLeases.keySet()) {
+            try {
+                if (store.renewLease(shardId, workerId)) {
+                    heldLeases.put(shardId, clock.millis());
+                } else {
+                    heldLeases.remove(shardId);
+                    logger.warn("Lost lease of shard '{}' to another worker", shardId);
+                }
+            } catch (IOException e) {
+                // Keep the last renewal time; the lease stops counting as held once it is a lease duration old
+                logger.error("Failed to renew lease of shard '{}': {}", shardId, e.getMessage(), e);
+            }
+        }
+    }
+
+    private boolean take(Lease lease, long now) {
+        try {
+            if (!store.takeLease(lease.getShardId(), workerId, lease.getCounter())) {
+                return false;
+            }
+        } catch (IOException e) {
+            logger.error("Failed to take lease of shard '{}': {}", lease.getShardId(), e.getMessage(), e);
+            return false;
+        }
+        heldLeases.put(lease.getShardId(), now);
+        observations.put(lease.getShardId(), new Observation(lease.getCounter() + 1, now));
+        logger.info("Took lease of shard '{}'", lease.getShardId());
+        return true;
+    }
+
+    private void release(String shardId) {
+        heldLeases.remove(shardId);
+        try {
+            store.releaseLease(shardId, workerId);
+        } catch (IOException e) {
+            logger.error("Failed to release lease of shard '{}': {}", shardId, e.getMessage(), e);
+        }
+    }
+
+    private void observe(Lease lease, long now) {
+        Observation previous = observations.get(lease.getShardId());
+        if (previous == null || previous.counter != lease.getCounter()) {
+            observations.put(lease.getShardId(), new Observation(lease.getCounter(), now));
+        }
+    }
+
+    private boolean isExpired(Lease lease, long now) {
+        Observation observation = observations.get(lease.getShardId());
+        return now - observation.since >= leaseDurationMillis;
+    }
+
+    private static final class Observation {
+        final long counter;
+        final long since;
+
+        Observation(long counter, long since) {
+            this.counter = counter;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.assignment.task1.lease;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Shared table of shard leases that every consumer instance reads and writes.
+ * <p>
+ * Every write is conditional and applied atomically by the store, so instances can race on the same
+ * lease without a coordinator of their own. Each successful write raises the lease counter by one.
+ */
+public interface LeaseStore {
+
+    List<Lease> listLeases() throws IOException;
+
+    /**
+     * Adds an unowned lease for the shard unless one exists.
+     *
+     * @return true if the lease was created.
+     */
+    boolean createLeaseIfAbsent(String shardId) throws IOException;
+
+    /**
+     * Raises the counter if the worker still owns the lease.
+     *
+     * @return true if the lease was renewed; false if it is owned by someone else or gone.
+     */
+    boolean renewLease(String shardId, String workerId) throws IOException;
+
+    /**
+     * Makes the worker the owner if the lease has not been written since it was read.
+     *
+     * @param expectedCounter The counter of the lease as read by the worker.
+     * @return true if the lease was taken.
+     */
+    boolean takeLease(String shardId, String workerId, long expectedCounter) throws IOException;
+
+    /**
+     * Gives the lease up so another instance can take it without waiting for it to expire.
+     *
+     * @return true if the worker owned the lease.
+     */
+    boolean releaseLease(String shardId, String workerId) throws IOException;
+
+    /**
+     * Stores the checkpoint with the lease if the worker still owns it.
+     *
+     * @return true if the checkpoint was stored.
+     */
+    boolean updateCheckpoint(String shardId, String workerId, String checkpoint) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
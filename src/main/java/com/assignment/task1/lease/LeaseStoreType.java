@@ -0,0 +1,11 @@
+package com.assignment.task1.lease;
+
+/**
+ * Where shard leases are kept.
+ */
+public enum LeaseStoreType {
+    /** In this JVM only; a single instance holds every lease. */
+    MEMORY,
+    /** A file shared by the instances on one host, for local multi-instance runs. */
+    FILE
+}
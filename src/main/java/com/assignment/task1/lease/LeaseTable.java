@@ -0,0 +1,66 @@
+package com.assignment.task1.lease;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The conditional lease writes shared by the stores; not thread-safe, callers hold their own lock.
+ */
+final class LeaseTable {
+
+    private final Map<String, Lease> leases = new LinkedHashMap<>();
+
+    List<Lease> list() {
+        return new ArrayList<>(leases.values());
+    }
+
+    void put(Lease lease) {
+        leases.put(lease.getShardId(), lease);
+    }
+
+    boolean create(String shardId) {
+        if (leases.containsKey(shardId)) {
+            return false;
+        }
+        put(new Lease(shardId, null, 0, null));
+        return true;
+    }
+
+    boolean renew(String shardId, String workerId) {
+        Lease lease = leases.get(shardId);
+        if (lease == null || !lease.isOwnedBy(workerId)) {
+            return false;
+        }
+        put(new Lease(shardId, workerId, lease.getCounter() + 1, lease.getCheckpoint()));
+        return true;
+    }
+
+    boolean take(String shardId, String workerId, long expectedCounter) {
+        Lease lease = leases.get(shardId);
+        if (lease == null || lease.getCounter() != expectedCounter) {
+            return false;
+        }
+        put(new Lease(shardId, workerId, lease.getCounter() + 1, lease.getCheckpoint()));
+        return true;
+    }
+
+    boolean release(String shardId, String workerId) {
+        Lease lease = leases.get(shardId);
+        if (lease == null || !lease.isOwnedBy(workerId)) {
+            return false;
+        }
+        put(new Lease(shardId, null, lease.getCounter() + 1, lease.getCheckpoint()));
+        return true;
+    }
+
+    boolean updateCheckpoint(String shardId, String workerId, String checkpoint) {
+        Lease lease = leases.get(shardId);
+        if (lease == null || !lease.isOwnedBy(workerId)) {
+            return false;
+        }
+        put(new Lease(shardId, workerId, lease.getCounter() + 1, checkpoint));
+        return true;
+    }
+}
@@ -0,0 +1,211 @@
+package com.assignment.task1.output;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes output snapshots to the sinks on a dedicated thread, so the scheduler never waits on disk.
+ * <p>
+ * Snapshots wait in a bounded queue and are written in the order they were submitted.
+ * {@link #submit(OutputSnapshot)} never blocks: when the queue is full it refuses the snapshot, and
+ * the caller can carry the interval over instead of falling behind. {@link #afterWritten(Runnable)}
+ * queues an action, such as committing checkpoints, behind the snapshots submitted so far; it runs
+ * once every sink has stored them for good, which for a sink that rolls files may be several
+ * snapshots later. On shutdown the queued snapshots and actions still run, as long as that takes
+ * less than the shutdown timeout.
+ */
+public class AsyncOutputWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncOutputWriter.class);
+
+    private final List<OutputSink> sinks;
+    private final ThreadPoolExecutor executor;
+    private final long shutdownTimeoutMillis;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    // Only touched on the writer thread, and by shutdown once it has ended
+    private boolean failedSinceAction;
+    private long writes;
+    private final Deque<WaitingAction> waitingActions = new ArrayDeque<>();
+
+    /**
+     * @param sinks                 The sinks every snapshot is written to, in order.
+     * @param queueCapacity         The snapshots that may wait while another one is being written.
+     * @param shutdownTimeoutMillis How long shutdown waits for the queued snapshots to be written.
+     */
+    public AsyncOutputWriter(List<OutputSink> sinks, int queueCapacity, long shutdownTimeoutMillis) {
+        this.sinks = List.copyOf(sinks);
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> new Thread(task, "output-writer"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a snapshot to be written.
+     *
+     * @return false if the queue is full or the writer is shut down; the snapshot is not written.
+     */
+    public boolean submit(OutputSnapshot snapshot) {
+        try {
+            executor.execute(() -> write(snapshot));
+            return true;
+        } catch (RejectedExecutionException e) {
+            refused.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Queues an action to run on the writer thread once every snapshot submitted before it has been
+     * written and every sink counts it as {@link OutputSink#durableCount(long) durable}. If one of
+     * them failed to be written to a sink, the action is skipped instead, so it never confirms
+     * results that were lost. So are actions still waiting when a later write fails, as a failing
+     * sink may drop what it buffered.
+     *
+     * @return false if the queue is full or the writer is shut down; the action does not run.
+     */
+    public boolean afterWritten(Runnable action) {
+        try {
+            executor.execute(() -> runAfterWritten(action));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void runAfterWritten(Runnable action) {
+        if (failedSinceAction) {
+            failedSinceAction = false;
+            logger.warn("Skipping an action queued behind snapshots that failed to be written");
+            return;
+        }
+        waitingActions.add(new WaitingAction(writes, action));
+        runDurableActions();
+    }
+
+    private void runDurableActions() {
+        long durable = writes;
+        for (OutputSink sink : sinks) {
+            durable = Math.min(durable, sink.durableCount(writes));
+        }
+        while (!waitingActions.isEmpty() && waitingActions.peek().writes <= durable) {
+            try {
+                waitingActions.poll().action.run();
+            } catch (Exception e) {
+                logger.error("Failed to run an action after the written snapshots: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void skipWaitingActions() {
+        if (!waitingActions.isEmpty()) {
+            logger.warn("Skipping {} action(s) waiting for snapshots a failed sink may have dropped", waitingActions.size());
+            waitingActions.clear();
+        }
+    }
+
+    private void write(OutputSnapshot snapshot) {
+        long start = System.nanoTime();
+        writes++;
+        boolean complete = true;
+        for (OutputSink sink : sinks) {
+            try {
+                sink.write(snapshot);
+            } catch (Exception e) {
+                complete = false;
+                logger.error("Failed to write the results of {} to {}: {}", snapshot.getTime(),
+                        sink.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+        writeNanos.add(System.nanoTime() - start);
+        if (complete) {
+            written.increment();
+            logger.info("Aggregated results of {} written to output files.", snapshot.getTime());
+        } else {
+            failed.increment();
+            failedSinceAction = true;
+            skipWaitingActions();
+            return;
+        }
+        runDurableActions();
+    }
+
+    /**
+     * Summarizes the snapshots handled so far, for logging.
+     *
+     * @return a line such as {@code written=12 failed=0 refused=1 queued=0 write=4.2ms/snapshot}.
+     */
+    public String describeStats() {
+        long handled = written.sum() + failed.sum();
+        double millis = handled == 0 ? 0 : writeNanos.sum() / 1_000_000.0 / handled;
+        return String.format("written=%d failed=%d refused=%d queued=%d write=%.1fms/snapshot",
+                written.sum(), failed.sum(), refused.sum(), executor.getQueue().size(), millis);
+    }
+
+    /**
+     * Stops taking snapshots, writes the queued ones, closes the sinks and runs the actions that
+     * waited for what the sinks held until then. Only the first call does anything, so the consumer
+     * can drain the writer before its checkpoints are saved.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                int dropped = executor.shutdownNow().size();
+                logger.warn("Output writer did not finish within {} ms; {} snapshot(s) not written",
+                        shutdownTimeoutMillis, dropped);
+                // The writer thread may still be inside a sink, which must not be closed under it
+                return;
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        boolean closed = true;
+        for (OutputSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                closed = false;
+                logger.error("Failed to close {}: {}", sink.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+        // The writer thread has ended, so its actions can run here; closing finished what the sinks held
+        if (closed) {
+            runDurableActions();
+        } else {
+            skipWaitingActions();
+        }
+    }
+
+    private static final class WaitingAction {
+        // The snapshots written before the action was queued
+        final long writes;
+        final Runnable action;
+
+        WaitingAction(long writes, Runnable action) {
+            this.writes = writes;
+            this.action = action;
+        }
+    }
+}
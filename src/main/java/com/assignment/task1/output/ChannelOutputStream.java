@@ -0,0 +1,86 @@
+package com.assignment.task1.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffered output stream over a file channel.
+ * <p>
+ * Bytes are collected in the given buffer, which is best a reused direct buffer, and written to
+ * the channel whenever it fills up. Closing the stream writes what is left but leaves the channel
+ * open, so the caller can still force it to disk before closing it.
+ */
+class ChannelOutputStream extends OutputStream {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long written;
+
+    /**
+     * @param channel The channel to write to, at its current position.
+     * @param buffer  The buffer to collect bytes in; it is cleared first.
+     */
+    ChannelOutputStream(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.clear();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.put(data, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Writes the buffered bytes; the channel stays open.
+     */
+    @Override
+    public void close() throws IOException {
+        drain();
+    }
+
+    /**
+     * @return the number of bytes written to the channel so far.
+     */
+    long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return the number of bytes written to the stream so far, including the buffered ones.
+     */
+    long position() {
+        return written + buffer.position();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,167 @@
+package com.assignment.task1.output;
+
+import com.assignment.task1.compression.PayloadCodec;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the results of an interval as newline-delimited JSON files, one compact object per line,
+ * optionally compressed with gzip or zstd.
+ * <p>
+ * Files are partitioned by metric name, date and hour as before:
+ * {@code metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14/total_unique_player_logins_<timestamp>.ndjson}.
+ * The JSON is streamed by a {@link JsonGenerator} through the compressor into a buffered
+ * {@link FileChannel}, without building DTOs or Strings. Each file is written to a hidden temporary
+ * file next to it, forced to disk and atomically renamed, so readers never see a partial file.
+ */
+public class NdjsonFileSink implements OutputSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonFileSink.class);
+
+    static final String TOTAL_METRIC = "TotalUniquePlayerLogins";
+    static final String BY_COUNTRY_METRIC = "UniquePlayerLoginsByCountry";
+    private static final String UNKNOWN_COUNTRY = "N/A";
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+
+    private final Path baseDirectory;
+    private final PayloadCodec codec;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    // Only the writer thread calls write(), so one buffer serves every file
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    /**
+     * @param baseDirectory The directory the metric partitions are created in.
+     * @param codec         The compression of the files; {@link PayloadCodec#NONE} writes plain NDJSON.
+     */
+    public NdjsonFileSink(Path baseDirectory, PayloadCodec codec) {
+        this.baseDirectory = baseDirectory;
+        this.codec = codec;
+    }
+
+    @Override
+    public void write(OutputSnapshot snapshot) throws IOException {
+        LocalDateTime time = snapshot.getTime();
+        String date = time.format(DateTimeFormatter.ISO_DATE);
+        String hour = String.format("%02d", time.getHour());
+        String minute = String.format("%02d", time.getMinute());
+        String suffix = time.format(FILE_TIMESTAMP) + "_" + UUID.randomUUID() + extension();
+
+        Path totalFile = partition(TOTAL_METRIC, date, hour).resolve("total_unique_player_logins_" + suffix);
+        writeFile(totalFile, generator -> {
+            writeMetric(generator, TOTAL_METRIC, date, hour, minute);
+            generator.writeNumberField("loginCount", snapshot.getTotalCount());
+            endLine(generator);
+        });
+
+        Path byCountryFile = partition(BY_COUNTRY_METRIC, date, hour).resolve("unique_player_logins_by_country_" + suffix);
+        writeFile(byCountryFile, generator -> {
+            for (Map.Entry<String, Long> entry : snapshot.getCountsByCountry().entrySet()) {
+                String country = entry.getKey();
+                // missing or unknown country
+                if (country == null || country.isEmpty()) {
+                    country = UNKNOWN_COUNTRY;
+                }
+                writeMetric(generator, BY_COUNTRY_METRIC, date, hour, minute);
+                generator.writeStringField("country", country);
+                generator.writeNumberField("loginCount", entry.getValue());
+                endLine(generator);
+            }
+        });
+    }
+
+    /**
+     * @return the file name extension for the configured codec.
+     */
+    String extension() {
+        switch (codec) {
+            case GZIP:
+                return ".ndjson.gz";
+            case ZSTD:
+                return ".ndjson.zst";
+            case NONE:
+            default:
+                return ".ndjson";
+        }
+    }
+
+    private Path partition(String metricName, String date, String hour) {
+        return baseDirectory.resolve("metric_name=" + metricName).resolve("date=" + date).resolve("hour=" + hour);
+    }
+
+    private void writeFile(Path file, Lines lines) throws IOException {
+        Files.createDirectories(file.getParent());
+        // Dot-prefixed so that readers listing the partition skip it until it is renamed
+        Path temp = file.resolveSibling("." + file.getFileName() + ".tmp");
+        long bytes;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelOutputStream channelStream = new ChannelOutputStream(channel, buffer);
+            // Closing the generator finishes the compressed stream and writes out the buffer
+            try (JsonGenerator generator = jsonFactory.createGenerator(compress(channelStream), JsonEncoding.UTF8)) {
+                // Lines are ended explicitly instead of separated by the default root value separator
+                generator.setRootValueSeparator(null);
+                lines.write(generator);
+            }
+            channel.force(false);
+            bytes = channelStream.getWritten();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        logger.debug("Wrote {} bytes to '{}'", bytes, file);
+    }
+
+    private OutputStream compress(OutputStream out) throws IOException {
+        switch (codec) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_BYTES);
+            case ZSTD:
+                return new ZstdOutputStream(out);
+            case NONE:
+            default:
+                return out;
+        }
+    }
+
+    private static void writeMetric(JsonGenerator generator, String metricName, String date, String hour, String minute)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("date", date);
+        generator.writeStringField("hour", hour);
+        generator.writeStringField("minute", minute);
+        generator.writeStringField("metricName", metricName);
+    }
+
+    private static void endLine(JsonGenerator generator) throws IOException {
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Writes the lines of one file.
+     */
+    private interface Lines {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
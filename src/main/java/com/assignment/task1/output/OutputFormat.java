@@ -0,0 +1,11 @@
+package com.assignment.task1.output;
+
+/**
+ * File format of an output, e.g. of the files spooled for S3.
+ */
+public enum OutputFormat {
+    // Compact NDJSON, compressed as app.output configures; two files per interval
+    NDJSON,
+    // Rolled Parquet files as app.output.parquet configures
+    PARQUET
+}
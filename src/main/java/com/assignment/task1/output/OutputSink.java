@@ -0,0 +1,40 @@
+package com.assignment.task1.output;
+
+import java.io.IOException;
+
+/**
+ * Destination of the aggregated results of an output interval.
+ * <p>
+ * Sinks are only called from the {@link AsyncOutputWriter}'s thread, one snapshot at a time, so an
+ * implementation may keep and reuse buffers without synchronization.
+ */
+public interface OutputSink {
+
+    /**
+     * Writes the results of one interval; a snapshot is either written completely or not at all.
+     *
+     * @throws IOException if the results could not be written.
+     */
+    void write(OutputSnapshot snapshot) throws IOException;
+
+    /**
+     * Tells how many of the snapshots written so far would survive the process dying now. Snapshots
+     * that a sink only holds in memory or in unfinished files do not count. Sinks that store every
+     * snapshot before {@link #write(OutputSnapshot)} returns need not override this.
+     *
+     * @param written The number of snapshots passed to {@link #write(OutputSnapshot)} so far,
+     *                including the ones that failed.
+     * @return how many of them, counted from the first, are stored for good.
+     */
+    default long durableCount(long written) {
+        return written;
+    }
+
+    /**
+     * Completes whatever the sink still holds; called once on shutdown, after the last write.
+     *
+     * @throws IOException if held results could not be written.
+     */
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,52 @@
+package com.assignment.task1.output;
+
+import com.assignment.task1.aggregation.LoginAggregator;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The counts of one sealed output interval, handed from the scheduler to the output writer.
+ * <p>
+ * Snapshots are immutable and hold no reference to the aggregator they were read from, so the
+ * aggregator can be recycled as soon as the snapshot is taken.
+ */
+public final class OutputSnapshot {
+
+    private final LocalDateTime time;
+    private final long totalCount;
+    private final Map<String, Long> countsByCountry;
+
+    /**
+     * @param time            The time the interval was sealed, or the start of its event-time window;
+     *                        it names and partitions the output.
+     * @param totalCount      The unique players of the interval.
+     * @param countsByCountry The unique players of the interval per country; the key may be null or
+     *                        empty for logins without a country.
+     */
+    public OutputSnapshot(LocalDateTime time, long totalCount, Map<String, Long> countsByCountry) {
+        this.time = time;
+        this.totalCount = totalCount;
+        this.countsByCountry = Collections.unmodifiableMap(countsByCountry);
+    }
+
+    /**
+     * Reads the counts of a sealed aggregator.
+     */
+    public static OutputSnapshot of(LocalDateTime time, LoginAggregator sealed) {
+        return new OutputSnapshot(time, sealed.getTotalCount(), sealed.getCountsByCountry());
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public Map<String, Long> getCountsByCountry() {
+        return countsByCountry;
+    }
+}
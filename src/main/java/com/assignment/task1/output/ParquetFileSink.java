@@ -0,0 +1,256 @@
+package com.assignment.task1.output;
+
+import com.assignment.task1.compression.PayloadCodec;
+import com.assignment.task1.output.ParquetFileWriter.Column;
+import com.assignment.task1.output.ParquetFileWriter.ColumnType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes the results of many intervals into rolled Parquet files, one open file per metric
+ * partition, in the same {@code metric_name=.../date=.../hour=...} layout as the NDJSON output.
+ * <p>
+ * Each interval appends its rows to the open file of its partition instead of creating files of
+ * its own. A file is finished and atomically renamed into place once it reaches the roll size or
+ * age, or when the first interval of a later hour arrives, so a partition gets one file per roll
+ * rather than two per minute. Until then it is a hidden temporary file that readers skip. The
+ * partition values are in the path, so the files only hold {@code minute}, {@code loginCount} and,
+ * for the country metric, the dictionary-encoded {@code country}.
+ * <p>
+ * Rows not finished into a file when the process dies are lost; {@link #close()} finishes all
+ * open files on shutdown. {@link #durableCount(long)} only counts the intervals whose rows are all
+ * in finished files, so the checkpoints of buffered intervals are not saved before their files are.
+ */
+public class ParquetFileSink implements OutputSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParquetFileSink.class);
+
+    private static final List<Column> TOTAL_COLUMNS = List.of(
+            new Column("minute", ColumnType.STRING),
+            new Column("loginCount", ColumnType.INT64));
+    private static final List<Column> BY_COUNTRY_COLUMNS = List.of(
+            new Column("minute", ColumnType.STRING),
+            new Column("country", ColumnType.STRING),
+            new Column("loginCount", ColumnType.INT64));
+    private static final String UNKNOWN_COUNTRY = "N/A";
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+
+    private final Path baseDirectory;
+    private final PayloadCodec codec;
+    private final long rollBytes;
+    private final Duration rollInterval;
+    private final long rowGroupBytes;
+    // Open files by partition directory
+    private final Map<Path, RollingFile> openFiles = new LinkedHashMap<>();
+    // Calls of write(); numbers the intervals whose rows go into the open files
+    private long writes;
+
+    /**
+     * @param baseDirectory      The directory the metric partitions are created in.
+     * @param codec              The page compression.
+     * @param rollBytes          The file size at which a file is finished.
+     * @param rollIntervalMillis The age at which a file is finished, measured in interval time.
+     * @param rowGroupBytes      The buffered bytes at which rows are written out as a row group.
+     */
+    public ParquetFileSink(Path baseDirectory, PayloadCodec codec, long rollBytes, long rollIntervalMillis, long rowGroupBytes) {
+        this.baseDirectory = baseDirectory;
+        this.codec = codec;
+        this.rollBytes = rollBytes;
+        this.rollInterval = Duration.ofMillis(rollIntervalMillis);
+        this.rowGroupBytes = rowGroupBytes;
+    }
+
+    @Override
+    public void write(OutputSnapshot snapshot) throws IOException {
+        writes++;
+        LocalDateTime time = snapshot.getTime();
+        String date = time.format(DateTimeFormatter.ISO_DATE);
+        String hour = String.format("%02d", time.getHour());
+        String minute = String.format("%02d", time.getMinute());
+
+        try {
+            rollExpired(time);
+
+            ParquetFileWriter total = open(NdjsonFileSink.TOTAL_METRIC, "total_unique_player_logins_", TOTAL_COLUMNS, date, hour, time);
+            total.add(0, minute);
+            total.add(1, snapshot.getTotalCount());
+            total.endRow();
+
+            if (!snapshot.getCountsByCountry().isEmpty()) {
+                ParquetFileWriter byCountry = open(NdjsonFileSink.BY_COUNTRY_METRIC, "unique_player_logins_by_country_",
+                        BY_COUNTRY_COLUMNS, date, hour, time);
+                for (Map.Entry<String, Long> entry : snapshot.getCountsByCountry().entrySet()) {
+                    String country = entry.getKey();
+                    // missing or unknown country
+                    if (country == null || country.isEmpty()) {
+                        country = UNKNOWN_COUNTRY;
+                    }
+                    byCountry.add(0, minute);
+                    byCountry.add(1, country);
+                    byCountry.add(2, entry.getValue());
+                    byCountry.endRow();
+                }
+            }
+
+            rollFull();
+        } catch (IOException | RuntimeException e) {
+            // A file that failed half-way cannot be finished; start over with fresh files
+            abandonAll();
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the intervals written before the first one whose rows are in a file not finished yet.
+     */
+    @Override
+    public long durableCount(long written) {
+        long firstOpen = Long.MAX_VALUE;
+        for (RollingFile file : openFiles.values()) {
+            firstOpen = Math.min(firstOpen, file.firstWrite);
+        }
+        return firstOpen == Long.MAX_VALUE ? written : Math.min(written, firstOpen - 1);
+    }
+
+    /**
+     * Finishes all open files.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Iterator<RollingFile> files = openFiles.values().iterator(); files.hasNext(); ) {
+            RollingFile file = files.next();
+            files.remove();
+            try {
+                file.finish();
+            } catch (IOException e) {
+                file.abandon();
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private ParquetFileWriter open(String metricName, String filePrefix, List<Column> columns,
+                                   String date, String hour, LocalDateTime time) throws IOException {
+        Path partition = baseDirectory.resolve("metric_name=" + metricName).resolve("date=" + date).resolve("hour=" + hour);
+        RollingFile file = openFiles.get(partition);
+        if (file == null) {
+            Files.createDirectories(partition);
+            String name = filePrefix + time.format(FILE_TIMESTAMP) + "_" + UUID.randomUUID() + ".parquet";
+            file = new RollingFile(partition.resolve(name), columns, time);
+            openFiles.put(partition, file);
+        }
+        return file.writer;
+    }
+
+    // Intervals only move forward, so a file of an earlier hour gets no more rows
+    private void rollExpired(LocalDateTime time) throws IOException {
+        LocalDateTime hourStart = time.truncatedTo(ChronoUnit.HOURS);
+        List<RollingFile> expired = new ArrayList<>();
+        for (RollingFile file : openFiles.values()) {
+            if (!file.opened.truncatedTo(ChronoUnit.HOURS).equals(hourStart)
+                    || Duration.between(file.opened, time).compareTo(rollInterval) >= 0) {
+                expired.add(file);
+            }
+        }
+        finish(expired);
+    }
+
+    private void rollFull() throws IOException {
+        List<RollingFile> full = new ArrayList<>();
+        for (RollingFile file : openFiles.values()) {
+            if (file.writer.estimatedSize() >= rollBytes) {
+                full.add(file);
+            }
+        }
+        finish(full);
+    }
+
+    private void finish(List<RollingFile> files) throws IOException {
+        for (RollingFile file : files) {
+            openFiles.values().remove(file);
+            file.finish();
+        }
+    }
+
+    private void abandonAll() {
+        for (RollingFile file : openFiles.values()) {
+            file.abandon();
+        }
+        openFiles.clear();
+    }
+
+    /**
+     * A Parquet file being written to its temporary path.
+     */
+    private final class RollingFile {
+        final Path file;
+        final Path temp;
+        final LocalDateTime opened;
+        // The interval that opened the file, the first one with rows in it
+        final long firstWrite = writes;
+        final FileChannel channel;
+        final ParquetFileWriter writer;
+
+        RollingFile(Path file, List<Column> columns, LocalDateTime opened) throws IOException {
+            this.file = file;
+            // Dot-prefixed so that readers listing the partition skip it until it is renamed
+            this.temp = file.resolveSibling("." + file.getFileName() + ".tmp");
+            this.opened = opened;
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                ChannelOutputStream out = new ChannelOutputStream(channel, ByteBuffer.allocateDirect(BUFFER_BYTES));
+                this.writer = new ParquetFileWriter(out, columns, codec, rowGroupBytes);
+            } catch (IOException e) {
+                abandon();
+                throw e;
+            }
+        }
+
+        void finish() throws IOException {
+            try {
+                writer.finish();
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                abandon();
+                throw e;
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Finished '{}' with {} rows", file, writer.getRows());
+        }
+
+        void abandon() {
+            try {
+                channel.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                logger.warn("Failed to remove '{}': {}", temp, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.assignment.task1.output;
+
+import com.assignment.task1.compression.PayloadCodec;
+import com.github.luben.zstd.Zstd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams rows of a flat schema of required columns into one Parquet file.
+ * <p>
+ * Rows are buffered per column until they take about {@code rowGroupBytes}, then written out as a
+ * row group with one page per column, so memory stays bounded however many rows the file gets;
+ * only the footer metadata of the written row groups is kept. String columns are dictionary
+ * encoded: each row group stores the distinct values once in a dictionary page and the rows as
+ * RLE/bit-packed indices into it, which suits low-cardinality values like countries. Long columns
+ * are stored plain. Pages are compressed with gzip or zstd.
+ * <p>
+ * The format is written directly, with the Thrift compact protocol for headers and footer, so no
+ * Hadoop libraries are needed. Not thread-safe.
+ */
+final class ParquetFileWriter {
+
+    enum ColumnType {
+        STRING,
+        INT64
+    }
+
+    /**
+     * A required column of the schema.
+     */
+    static final class Column {
+        final String name;
+        final ColumnType type;
+
+        Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final String CREATED_BY = "springboot-kinesis-consumer";
+
+    // Values of the parquet.thrift enums
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_BYTE_ARRAY = 6;
+    private static final int REPETITION_REQUIRED = 0;
+    private static final int CONVERTED_TYPE_UTF8 = 0;
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_PLAIN_DICTIONARY = 2;
+    private static final int ENCODING_RLE = 3;
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+    private static final int CODEC_UNCOMPRESSED = 0;
+    private static final int CODEC_GZIP = 2;
+    private static final int CODEC_ZSTD = 6;
+
+    // parquet-mr's limit of 63 groups of 8 values per bit-packed run
+    private static final int MAX_BIT_PACKED_VALUES = 63 * 8;
+
+    private final ChannelOutputStream out;
+    private final List<Column> columns;
+    private final PayloadCodec codec;
+    private final long rowGroupBytes;
+
+    private final ColumnBuffer[] buffers;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private final ThriftCompactWriter thrift = new ThriftCompactWriter();
+    private final PageBuilder page = new PageBuilder();
+    private int bufferedRows;
+    private long rows;
+
+    /**
+     * Starts the file by writing its magic number.
+     *
+     * @param out           The stream of the new file.
+     * @param columns       The schema.
+     * @param codec         The page compression; {@link PayloadCodec#NONE} leaves pages uncompressed.
+     * @param rowGroupBytes The buffered bytes at which a row group is written.
+     */
+    ParquetFileWriter(ChannelOutputStream out, List<Column> columns, PayloadCodec codec, long rowGroupBytes) throws IOException {
+        this.out = out;
+        this.columns = List.copyOf(columns);
+        this.codec = codec;
+        this.rowGroupBytes = rowGroupBytes;
+        this.buffers = new ColumnBuffer[columns.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new ColumnBuffer(columns.get(i).type);
+        }
+        out.write(MAGIC);
+    }
+
+    void add(int column, String value) {
+        buffers[column].add(value);
+    }
+
+    void add(int column, long value) {
+        buffers[column].add(value);
+    }
+
+    /**
+     * Completes a row, which must have had a value added to every column.
+     */
+    void endRow() throws IOException {
+        bufferedRows++;
+        rows++;
+        if (bufferedBytes() >= rowGroupBytes) {
+            writeRowGroup();
+        }
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the size the file would have if it was finished now, roughly.
+     */
+    long estimatedSize() {
+        return out.position() + bufferedBytes();
+    }
+
+    /**
+     * Writes the buffered rows and the footer; the stream is flushed but the channel left open.
+     */
+    void finish() throws IOException {
+        writeRowGroup();
+        long footerStart = out.position();
+        writeFooter();
+        int footerLength = (int) (out.position() - footerStart);
+        out.write(footerLength);
+        out.write(footerLength >>> 8);
+        out.write(footerLength >>> 16);
+        out.write(footerLength >>> 24);
+        out.write(MAGIC);
+        out.close();
+    }
+
+    private long bufferedBytes() {
+        long bytes = 0;
+        for (ColumnBuffer buffer : buffers) {
+            bytes += buffer.bytes();
+        }
+        return bytes;
+    }
+
+    private void writeRowGroup() throws IOException {
+        if (bufferedRows == 0) {
+            return;
+        }
+        RowGroup rowGroup = new RowGroup(bufferedRows);
+        for (ColumnBuffer buffer : buffers) {
+            rowGroup.chunks.add(writeChunk(buffer));
+            buffer.clear();
+        }
+        rowGroups.add(rowGroup);
+        bufferedRows = 0;
+    }
+
+    private ChunkMetadata writeChunk(ColumnBuffer buffer) throws IOException {
+        ChunkMetadata chunk = new ChunkMetadata(buffer.count);
+        if (buffer.type == ColumnType.STRING) {
+            page.reset();
+            for (String value : buffer.dictionaryValues) {
+                page.plainBinary(value.getBytes(StandardCharsets.UTF_8));
+            }
+            chunk.dictionaryPageOffset = out.position();
+            writePage(PAGE_DICTIONARY, buffer.dictionaryValues.size(), ENCODING_PLAIN, chunk);
+
+            page.reset();
+            page.dictionaryIndices(buffer.indices, buffer.count, buffer.dictionaryValues.size());
+            chunk.dataPageOffset = out.position();
+            writePage(PAGE_DATA, buffer.count, ENCODING_PLAIN_DICTIONARY, chunk);
+        } else {
+            page.reset();
+            for (int i = 0; i < buffer.count; i++) {
+                page.plainInt64(buffer.longs[i]);
+            }
+            chunk.dataPageOffset = out.position();
+            writePage(PAGE_DATA, buffer.count, ENCODING_PLAIN, chunk);
+        }
+        return chunk;
+    }
+
+    private void writePage(int pageType, int valueCount, int encoding, ChunkMetadata chunk) throws IOException {
+        byte[] body = page.bytes;
+        int length = page.size;
+        byte[] compressed = compress(body, length);
+        int compressedLength = compressed != null ? compressed.length : length;
+
+        thrift.reset();
+        thrift.writeI32(1, pageType);
+        thrift.writeI32(2, length);
+        thrift.writeI32(3, compressedLength);
+        if (pageType == PAGE_DATA) {
+            thrift.beginStruct(5);
+            thrift.writeI32(1, valueCount);
+            thrift.writeI32(2, encoding);
+            // Required columns have no levels; the level encodings are mandatory fields all the same
+            thrift.writeI32(3, ENCODING_RLE);
+            thrift.writeI32(4, ENCODING_RLE);
+            thrift.endStruct();
+        } else {
+            thrift.beginStruct(7);
+            thrift.writeI32(1, valueCount);
+            thrift.writeI32(2, encoding);
+            thrift.endStruct();
+        }
+        thrift.end();
+
+        out.write(thrift.array(), 0, thrift.size());
+        if (compressed != null) {
+            out.write(compressed);
+        } else {
+            out.write(body, 0, length);
+        }
+        chunk.uncompressedSize += thrift.size() + length;
+        chunk.compressedSize += thrift.size() + compressedLength;
+    }
+
+    /**
+     * @return the compressed bytes, or null if pages are not compressed.
+     */
+    private byte[] compress(byte[] data, int length) throws IOException {
+        switch (codec) {
+            case GZIP: {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(data, 0, length);
+                }
+                return compressed.toByteArray();
+            }
+            case ZSTD:
+                return Zstd.compress(Arrays.copyOf(data, length));
+            case NONE:
+            default:
+                return null;
+        }
+    }
+
+    private int codecId() {
+        switch (codec) {
+            case GZIP:
+                return CODEC_GZIP;
+            case ZSTD:
+                return CODEC_ZSTD;
+            case NONE:
+            default:
+                return CODEC_UNCOMPRESSED;
+        }
+    }
+
+    private void writeFooter() throws IOException {
+        thrift.reset();
+        thrift.writeI32(1, 1);
+
+        thrift.beginList(2, ThriftCompactWriter.TYPE_STRUCT, columns.size() + 1);
+        thrift.beginStructElement();
+        thrift.writeString(4, "schema");
+        thrift.writeI32(5, columns.size());
+        thrift.endStruct();
+        for (Column column : columns) {
+            thrift.beginStructElement();
+            thrift.writeI32(1, column.type == ColumnType.STRING ? TYPE_BYTE_ARRAY : TYPE_INT64);
+            thrift.writeI32(3, REPETITION_REQUIRED);
+            thrift.writeString(4, column.name);
+            if (column.type == ColumnType.STRING) {
+                thrift.writeI32(6, CONVERTED_TYPE_UTF8);
+                // LogicalType union holding an empty StringType
+                thrift.beginStruct(10);
+                thrift.beginStruct(1);
+                thrift.endStruct();
+                thrift.endStruct();
+            }
+            thrift.endStruct();
+        }
+
+        thrift.writeI64(3, rows);
+
+        thrift.beginList(4, ThriftCompactWriter.TYPE_STRUCT, rowGroups.size());
+        for (RowGroup rowGroup : rowGroups) {
+            thrift.beginStructElement();
+            thrift.beginList(1, ThriftCompactWriter.TYPE_STRUCT, rowGroup.chunks.size());
+            long totalBytes = 0;
+            for (int i = 0; i < columns.size(); i++) {
+                ChunkMetadata chunk = rowGroup.chunks.get(i);
+                writeColumnChunk(columns.get(i), chunk);
+                totalBytes += chunk.uncompressedSize;
+            }
+            thrift.writeI64(2, totalBytes);
+            thrift.writeI64(3, rowGroup.rows);
+            thrift.endStruct();
+        }
+
+        thrift.writeString(6, CREATED_BY);
+        thrift.end();
+        out.write(thrift.array(), 0, thrift.size());
+    }
+
+    private void writeColumnChunk(Column column, ChunkMetadata chunk) {
+        boolean dictionary = column.type == ColumnType.STRING;
+        thrift.beginStructElement();
+        thrift.writeI64(2, dictionary ? chunk.dictionaryPageOffset : chunk.dataPageOffset);
+        thrift.beginStruct(3);
+        thrift.writeI32(1, dictionary ? TYPE_BYTE_ARRAY : TYPE_INT64);
+        if (dictionary) {
+            thrift.beginList(2, ThriftCompactWriter.TYPE_I32, 2);
+            thrift.i32Element(ENCODING_PLAIN);
+            thrift.i32Element(ENCODING_PLAIN_DICTIONARY);
+        } else {
+            thrift.beginList(2, ThriftCompactWriter.TYPE_I32, 1);
+            thrift.i32Element(ENCODING_PLAIN);
+        }
+        thrift.beginList(3, ThriftCompactWriter.TYPE_BINARY, 1);
+        thrift.stringElement(column.name);
+        thrift.writeI32(4, codecId());
+        thrift.writeI64(5, chunk.values);
+        thrift.writeI64(6, chunk.uncompressedSize);
+        thrift.writeI64(7, chunk.compressedSize);
+        thrift.writeI64(9, chunk.dataPageOffset);
+        if (dictionary) {
+            thrift.writeI64(11, chunk.dictionaryPageOffset);
+        }
+        thrift.endStruct();
+        thrift.endStruct();
+    }
+
+    /**
+     * The values of one column in the current row group.
+     */
+    private static final class ColumnBuffer {
+        final ColumnType type;
+        final Map<String, Integer> dictionary = new HashMap<>();
+        final List<String> dictionaryValues = new ArrayList<>();
+        long dictionaryBytes;
+        int[] indices = new int[0];
+        long[] longs = new long[0];
+        int count;
+
+        ColumnBuffer(ColumnType type) {
+            this.type = type;
+            if (type == ColumnType.STRING) {
+                indices = new int[64];
+            } else {
+                longs = new long[64];
+            }
+        }
+
+        void add(String value) {
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = dictionaryValues.size();
+                dictionary.put(value, index);
+                dictionaryValues.add(value);
+                dictionaryBytes += 4 + value.length();
+            }
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, count * 2);
+            }
+            indices[count++] = index;
+        }
+
+        void add(long value) {
+            if (count == longs.length) {
+                longs = Arrays.copyOf(longs, count * 2);
+            }
+            longs[count++] = value;
+        }
+
+        long bytes() {
+            return type == ColumnType.STRING ? dictionaryBytes + 4L * count : 8L * count;
+        }
+
+        void clear() {
+            dictionary.clear();
+            dictionaryValues.clear();
+            dictionaryBytes = 0;
+            count = 0;
+        }
+    }
+
+    /**
+     * Encodes the body of one page.
+     */
+    private static final class PageBuilder {
+        byte[] bytes = new byte[4096];
+        int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        void plainBinary(byte[] value) {
+            int32(value.length);
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        void plainInt64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                bytes[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        /**
+         * Writes the bit width followed by the indices in the RLE/bit-packed hybrid encoding: runs
+         * of at least eight equal indices become RLE runs, everything else is bit-packed.
+         */
+        void dictionaryIndices(int[] indices, int count, int dictionarySize) {
+            // Width 0 is legal for a single-value dictionary, but not every reader copes with it
+            int bitWidth = Math.max(1, 32 - Integer.numberOfLeadingZeros(dictionarySize - 1));
+            put(bitWidth);
+
+            int packedStart = 0;
+            int i = 0;
+            while (i < count) {
+                int value = indices[i];
+                int run = 1;
+                while (i + run < count && indices[i + run] == value) {
+                    run++;
+                }
+                // A bit-packed run must hold a multiple of eight values unless it ends the page,
+                // so the pending values are topped up from this run before an RLE run can start
+                int pending = i - packedStart;
+                int fill = (8 - pending % 8) % 8;
+                if (run - fill >= 8) {
+                    bitPacked(indices, packedStart, i + fill, bitWidth);
+                    rle(value, run - fill, bitWidth);
+                    packedStart = i + run;
+                }
+                i += run;
+            }
+            bitPacked(indices, packedStart, count, bitWidth);
+        }
+
+        private void rle(int value, int count, int bitWidth) {
+            varint(count << 1);
+            for (int b = 0; b < bitWidth; b += 8) {
+                put(value >>> b);
+            }
+        }
+
+        private void bitPacked(int[] values, int from, int to, int bitWidth) {
+            while (from < to) {
+                int count = Math.min(MAX_BIT_PACKED_VALUES, to - from);
+                int groups = (count + 7) / 8;
+                varint(groups << 1 | 1);
+                long buffer = 0;
+                int bits = 0;
+                // The last group is padded with zeros; readers stop at the page's value count
+                for (int j = 0; j < groups * 8; j++) {
+                    long value = j < count ? values[from + j] & 0xFFFFFFFFL : 0;
+                    buffer |= value << bits;
+                    bits += bitWidth;
+                    while (bits >= 8) {
+                        put((int) buffer);
+                        buffer >>>= 8;
+                        bits -= 8;
+                    }
+                }
+                from += count;
+            }
+        }
+
+        private void int32(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                bytes[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        private void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                put((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            put(value);
+        }
+
+        private void put(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        private void ensure(int count) {
+            if (size + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + count, bytes.length * 2));
+            }
+        }
+    }
+
+    private static final class RowGroup {
+        final long rows;
+        final List<ChunkMetadata> chunks = new ArrayList<>();
+
+        RowGroup(long rows) {
+            this.rows = rows;
+        }
+    }
+
+    private static final class ChunkMetadata {
+        final long values;
+        long dictionaryPageOffset;
+        long dataPageOffset;
+        long uncompressedSize;
+        long compressedSize;
+
+        ChunkMetadata(long values) {
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.assignment.task1.output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Uploads files to S3 with asynchronous multipart uploads.
+ * <p>
+ * The parts of a file are read and sent one after the other, so an upload holds at most one part
+ * in memory and has one request in flight; callers bound the in-flight parts by bounding the
+ * uploads they start. Every request is retried on failure after an exponential backoff with full
+ * jitter, scheduled without blocking a thread. An upload that still fails is aborted, so S3 does
+ * not keep its parts, and its future completes exceptionally. The client is created lazily, so
+ * nothing is opened while the S3 output is disabled.
+ */
+public class S3MultipartUploader implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3MultipartUploader.class);
+
+    private final Supplier<S3AsyncClient> clientFactory;
+    private final String bucket;
+    private final int partSizeBytes;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long maxBackoffMillis;
+
+    private S3AsyncClient client;
+
+    /**
+     * @param clientFactory     Creates the async client on first use.
+     * @param bucket            The bucket uploaded to.
+     * @param partSizeBytes     The size of every part but the last; S3 requires at least 5 MiB.
+     * @param maxAttempts       The attempts of every request, including the first.
+     * @param backoffBaseMillis The upper bound of the backoff after the first failure; it doubles with every further failure.
+     * @param maxBackoffMillis  The upper bound of any backoff.
+     */
+    public S3MultipartUploader(Supplier<S3AsyncClient> clientFactory, String bucket, int partSizeBytes, int maxAttempts,
+                               long backoffBaseMillis, long maxBackoffMillis) {
+        this.clientFactory = clientFactory;
+        this.bucket = bucket;
+        this.partSizeBytes = partSizeBytes;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Starts uploading a file; the file must not change until the returned future completes.
+     *
+     * @return a future completed once the object is in place, or exceptionally if the upload failed.
+     */
+    public CompletableFuture<Void> upload(Path file, String key) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return withRetries(() -> client().createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(key).build()))
+                .thenCompose(created -> {
+                    String uploadId = created.uploadId();
+                    return uploadParts(file, key, uploadId, size, 1, new ArrayList<>())
+                            .thenCompose(parts -> withRetries(() -> client().completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                                    .bucket(bucket).key(key).uploadId(uploadId)
+                                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                                    .build())))
+                            .handle((completed, error) -> {
+                                if (error != null) {
+                                    abort(key, uploadId);
+                                    throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                                }
+                                return (Void) null;
+                            });
+                });
+    }
+
+    @Override
+    public synchronized void close() {
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+    }
+
+    private CompletableFuture<List<CompletedPart>> uploadParts(Path file, String key, String uploadId, long size,
+                                                               int partNumber, List<CompletedPart> parts) {
+        long offset = (long) (partNumber - 1) * partSizeBytes;
+        // An empty file is still uploaded as one empty part
+        if (offset >= size && partNumber > 1) {
+            return CompletableFuture.completedFuture(parts);
+        }
+        byte[] bytes;
+        try {
+            bytes = readPart(file, offset, (int) Math.min(partSizeBytes, size - offset));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return withRetries(() -> client().uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket).key(key).uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) bytes.length)
+                        .build(), AsyncRequestBody.fromBytes(bytes)))
+                .thenCompose(response -> {
+                    parts.add(CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build());
+                    return uploadParts(file, key, uploadId, size, partNumber + 1, parts);
+                });
+    }
+
+    private static byte[] readPart(Path file, long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("File '" + file + "' shrank during its upload");
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            client().abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                            .bucket(bucket).key(key).uploadId(uploadId).build())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            // A bucket lifecycle rule for incomplete uploads cleans up what is left
+                            logger.warn("Failed to abort the upload of '{}': {}", key, error.getMessage());
+                        }
+                    });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to abort the upload of '{}': {}", key, e.getMessage());
+        }
+    }
+
+    private <T> CompletableFuture<T> withRetries(Supplier<CompletableFuture<T>> request) {
+        return attempt(request, 1);
+    }
+
+    private <T> CompletableFuture<T> attempt(Supplier<CompletableFuture<T>> request, int attempt) {
+        CompletableFuture<T> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.<CompletableFuture<T>>handle((value, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(value);
+            }
+            if (attempt >= maxAttempts) {
+                return CompletableFuture.<T>failedFuture(error);
+            }
+            long backoffMillis = backoffMillis(attempt);
+            logger.debug("S3 request failed ({}); attempt {} in {} ms", error.getMessage(), attempt + 1, backoffMillis);
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(backoffMillis, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> attempt(request, attempt + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    private long backoffMillis(int failures) {
+        long ceiling = Math.min(maxBackoffMillis, backoffBaseMillis << Math.min(failures - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private synchronized S3AsyncClient client() {
+        if (client == null) {
+            client = clientFactory.get();
+        }
+        return client;
+    }
+}
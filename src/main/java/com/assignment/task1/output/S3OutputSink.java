@@ -0,0 +1,195 @@
+package com.assignment.task1.output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sends the output to S3 through a local spool directory.
+ * <p>
+ * Results are first written to the spool by a file sink, so they keep its format, compression,
+ * rolling and {@code metric_name=.../date=.../hour=...} layout; the layout below the spool directory
+ * becomes the object key below the prefix. Every finished file in the spool is then uploaded with
+ * a {@link S3MultipartUploader} and deleted once the object is in place. Uploads run in the
+ * background, so a slow or unavailable S3 never holds up the writer thread, let alone aggregation.
+ * At most {@code maxInFlightUploads} uploads run at once, each with one part in flight.
+ * <p>
+ * A file whose upload fails stays in the spool and is tried again on the next write, so during an
+ * outage the results collect on local disk and are sent once S3 is back. Files left by an earlier
+ * run are picked up the same way.
+ */
+public class S3OutputSink implements OutputSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3OutputSink.class);
+
+    private final OutputSink spoolSink;
+    private final Path spoolDirectory;
+    private final String keyPrefix;
+    private final S3MultipartUploader uploader;
+    private final int maxInFlightUploads;
+    private final long shutdownTimeoutMillis;
+
+    private final Map<Path, CompletableFuture<Void>> uploads = new ConcurrentHashMap<>();
+    private final LongAdder uploaded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * @param spoolSink             Writes the files to upload into the spool directory.
+     * @param spoolDirectory        The base directory of the spool sink.
+     * @param keyPrefix             Prepended to the object keys; may be empty.
+     * @param uploader              Uploads the spooled files.
+     * @param maxInFlightUploads    The uploads that may run at once.
+     * @param shutdownTimeoutMillis How long closing waits for running uploads.
+     */
+    public S3OutputSink(OutputSink spoolSink, Path spoolDirectory, String keyPrefix, S3MultipartUploader uploader,
+                        int maxInFlightUploads, long shutdownTimeoutMillis) {
+        this.spoolSink = spoolSink;
+        this.spoolDirectory = spoolDirectory;
+        this.keyPrefix = keyPrefix.isEmpty() || keyPrefix.endsWith("/") ? keyPrefix : keyPrefix + "/";
+        this.uploader = uploader;
+        this.maxInFlightUploads = maxInFlightUploads;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    @Override
+    public void write(OutputSnapshot snapshot) throws IOException {
+        try {
+            spoolSink.write(snapshot);
+        } finally {
+            uploadSpooled();
+        }
+    }
+
+    /**
+     * A snapshot counts once its file is finished in the spool, from where it is uploaded even after
+     * a restart.
+     */
+    @Override
+    public long durableCount(long written) {
+        return spoolSink.durableCount(written);
+    }
+
+    /**
+     * Finishes the spooled files and waits for their uploads; what is not uploaded by then stays
+     * in the spool for the next run.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            spoolSink.close();
+        } finally {
+            uploadSpooled();
+            try {
+                CompletableFuture.allOf(uploads.values().toArray(new CompletableFuture[0]))
+                        .get(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                logger.warn("{} upload(s) did not finish; their files stay in '{}'", uploads.size(), spoolDirectory);
+            }
+            uploader.close();
+        }
+    }
+
+    /**
+     * @return the objects uploaded and the failed upload attempts so far, e.g. {@code uploaded=12 failed=1 running=2}.
+     */
+    public String describeStats() {
+        return String.format("uploaded=%d failed=%d running=%d", uploaded.sum(), failed.sum(), uploads.size());
+    }
+
+    /**
+     * Starts uploads of finished spool files, oldest first, while fewer than the allowed number run.
+     * Also called when an upload succeeds, so a backlog drains without waiting for the next write.
+     */
+    synchronized void uploadSpooled() {
+        if (uploads.size() >= maxInFlightUploads) {
+            return;
+        }
+        List<Path> files;
+        try {
+            files = spooledFiles();
+        } catch (IOException e) {
+            logger.warn("Failed to list spool directory '{}': {}", spoolDirectory, e.getMessage());
+            return;
+        }
+        for (Path file : files) {
+            if (uploads.size() >= maxInFlightUploads) {
+                break;
+            }
+            if (uploads.containsKey(file)) {
+                continue;
+            }
+            String key = keyOf(file);
+            CompletableFuture<Void> upload = new CompletableFuture<>();
+            uploads.put(file, upload);
+            uploader.upload(file, key).whenComplete((result, error) -> {
+                boolean done = error == null;
+                if (done) {
+                    uploaded.increment();
+                    logger.debug("Uploaded '{}'", key);
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // Uploaded again on a later scan, which overwrites the object with the same content
+                        logger.warn("Failed to delete uploaded spool file '{}': {}", file, e.getMessage());
+                    }
+                } else {
+                    failed.increment();
+                    logger.warn("Failed to upload '{}'; kept in the spool for a later attempt: {}", key, error.getMessage());
+                }
+                uploads.remove(file);
+                upload.complete(null);
+                if (done) {
+                    uploadSpooled();
+                }
+            });
+        }
+    }
+
+    String keyOf(Path file) {
+        return keyPrefix + spoolDirectory.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    // Hidden files are still being written
+    private List<Path> spooledFiles() throws IOException {
+        if (!Files.isDirectory(spoolDirectory)) {
+            return List.of();
+        }
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(spoolDirectory)) {
+            for (Path file : walk.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith("."))
+                    .collect(Collectors.toList())) {
+                files.add(file);
+            }
+        }
+        files.sort(Comparator.comparingLong(S3OutputSink::lastModified));
+        return files;
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            // Deleted since it was listed; the upload attempt will fail and be forgotten
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.assignment.task1.output;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes Thrift structs with the compact protocol into a growable byte array, as needed for the
+ * Parquet page headers and file footer.
+ * <p>
+ * Only the types those structures use are supported. Fields must be written in ascending id order
+ * within a struct, and every {@link #beginStruct} or {@link #beginStructElement} must be closed with
+ * {@link #endStruct()}.
+ */
+final class ThriftCompactWriter {
+
+    static final int TYPE_I32 = 5;
+    static final int TYPE_I64 = 6;
+    static final int TYPE_BINARY = 8;
+    static final int TYPE_LIST = 9;
+    static final int TYPE_STRUCT = 12;
+
+    private static final int MAX_DEPTH = 16;
+
+    private byte[] bytes = new byte[256];
+    private int size;
+    // Id of the last field written in each open struct, as field ids are delta-encoded
+    private final short[] lastFieldIds = new short[MAX_DEPTH];
+    private int depth;
+
+    void reset() {
+        size = 0;
+        depth = 0;
+        lastFieldIds[0] = 0;
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void writeI32(int fieldId, int value) {
+        fieldHeader(fieldId, TYPE_I32);
+        varint(zigzag(value));
+    }
+
+    void writeI64(int fieldId, long value) {
+        fieldHeader(fieldId, TYPE_I64);
+        varint(zigzag(value));
+    }
+
+    void writeString(int fieldId, String value) {
+        fieldHeader(fieldId, TYPE_BINARY);
+        string(value);
+    }
+
+    /**
+     * Starts a struct-valued field; end it with {@link #endStruct()}.
+     */
+    void beginStruct(int fieldId) {
+        fieldHeader(fieldId, TYPE_STRUCT);
+        push();
+    }
+
+    /**
+     * Starts a list-valued field; the elements follow with the element methods below.
+     */
+    void beginList(int fieldId, int elementType, int count) {
+        fieldHeader(fieldId, TYPE_LIST);
+        if (count < 15) {
+            put(count << 4 | elementType);
+        } else {
+            put(0xF0 | elementType);
+            varint(count);
+        }
+    }
+
+    void i32Element(int value) {
+        varint(zigzag(value));
+    }
+
+    void stringElement(String value) {
+        string(value);
+    }
+
+    /**
+     * Starts a struct element of a list; end it with {@link #endStruct()}.
+     */
+    void beginStructElement() {
+        push();
+    }
+
+    void endStruct() {
+        put(0);
+        depth--;
+    }
+
+    /**
+     * Ends the top-level struct; {@link #reset()} before encoding the next one.
+     */
+    void end() {
+        put(0);
+    }
+
+    private void push() {
+        if (++depth == MAX_DEPTH) {
+            throw new IllegalStateException("Thrift structs nested too deeply");
+        }
+        lastFieldIds[depth] = 0;
+    }
+
+    private void fieldHeader(int fieldId, int type) {
+        int delta = fieldId - lastFieldIds[depth];
+        if (delta > 0 && delta <= 15) {
+            put(delta << 4 | type);
+        } else {
+            put(type);
+            varint(zigzag(fieldId));
+        }
+        lastFieldIds[depth] = (short) fieldId;
+    }
+
+    private void string(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        varint(utf8.length);
+        ensure(utf8.length);
+        System.arraycopy(utf8, 0, bytes, size, utf8.length);
+        size += utf8.length;
+    }
+
+    private void varint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    private void put(int b) {
+        ensure(1);
+        bytes[size++] = (byte) b;
+    }
+
+    private void ensure(int count) {
+        if (size + count > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(size + count, bytes.length * 2));
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,101 @@
+package com.assignment.task1.polling;
+
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.Record;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the GetRecords calls of one shard by how far the consumer is behind the tip of the stream.
+ * <p>
+ * From {@code MillisBehindLatest} of each result it picks the delay before the next call and the
+ * record limit to ask for: at or beyond the lag threshold it polls as fast as the shard limits allow
+ * with the largest batches; closer to the tip delay and limit move linearly towards the idle delay
+ * and the base limit, which are used once a call comes back empty. A throttled call is retried after
+ * an exponential backoff with full jitter, and halves the limit down to the base limit. Every call also goes through the
+ * shard's {@link ShardRateLimiter}. Not thread-safe; one poller serves one shard reader.
+ */
+public class AdaptivePoller {
+
+    /** Largest limit GetRecords accepts. */
+    public static final int MAX_LIMIT = 10000;
+
+    private static final long BACKOFF_BASE_MILLIS = 200;
+
+    private final int baseLimit;
+    private final long idleDelayMillis;
+    private final long lagThresholdMillis;
+    private final long maxBackoffMillis;
+    private final ShardRateLimiter rateLimiter;
+
+    private int limit;
+    private long nextPollNanos;
+    private int consecutiveThrottles;
+
+    /**
+     * @param baseLimit          The record limit when caught up.
+     * @param idleDelayMillis    The delay after an empty result when caught up.
+     * @param lagThresholdMillis The lag at and beyond which the shard is read at full speed.
+     * @param maxBackoffMillis   The upper bound of the backoff after throttling.
+     */
+    public AdaptivePoller(int baseLimit, long idleDelayMillis, long lagThresholdMillis, long maxBackoffMillis,
+                          ShardRateLimiter rateLimiter, long nowNanos) {
+        this.baseLimit = Math.max(1, Math.min(MAX_LIMIT, baseLimit));
+        this.idleDelayMillis = idleDelayMillis;
+        this.lagThresholdMillis = Math.max(1, lagThresholdMillis);
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.rateLimiter = rateLimiter;
+        this.limit = this.baseLimit;
+        this.nextPollNanos = nowNanos;
+    }
+
+    /**
+     * @return the nanoseconds to wait before the next call; 0 if it may be made now.
+     */
+    public long delayNanos(long nowNanos) {
+        return Math.max(Math.max(0, nextPollNanos - nowNanos), rateLimiter.delayNanos(nowNanos));
+    }
+
+    /**
+     * @return the record limit for the next call.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public void onResult(GetRecordsResult result, long nowNanos) {
+        long bytes = 0;
+        for (Record record : result.getRecords()) {
+            bytes += record.getData().remaining();
+        }
+        rateLimiter.onCall(nowNanos, bytes);
+        consecutiveThrottles = 0;
+
+        Long millisBehind = result.getMillisBehindLatest();
+        double lag = millisBehind == null ? 0 : Math.min(1.0, millisBehind / (double) lagThresholdMillis);
+        if (result.getRecords().isEmpty() && lag < 1.0) {
+            // Caught up: nothing to gain from polling faster than the idle delay
+            limit = baseLimit;
+            nextPollNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(idleDelayMillis);
+            return;
+        }
+        limit = (int) Math.round(baseLimit + (MAX_LIMIT - baseLimit) * lag);
+        nextPollNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(Math.round(idleDelayMillis * (1 - lag)));
+    }
+
+    /**
+     * Records a call rejected with {@code ProvisionedThroughputExceededException}.
+     *
+     * @return the backoff in milliseconds before the next call.
+     */
+    public long onThrottled(long nowNanos) {
+        rateLimiter.onCall(nowNanos, 0);
+        consecutiveThrottles++;
+        long ceiling = Math.min(maxBackoffMillis, BACKOFF_BASE_MILLIS << Math.min(consecutiveThrottles - 1, 20));
+        long backoffMillis = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        limit = Math.max(baseLimit, limit / 2);
+        nextPollNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+        return backoffMillis;
+    }
+}
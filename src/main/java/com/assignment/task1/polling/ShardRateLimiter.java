@@ -0,0 +1,63 @@
+package com.assignment.task1.polling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets for the per-shard GetRecords limits of Kinesis: 5 calls and 2 MiB per second.
+ * <p>
+ * A call takes one call token up front. The bytes a call returns are only known afterwards, so they
+ * are charged after it and may drive the byte balance below zero; the next call then waits until the
+ * balance has refilled to zero. Both buckets hold at most one second of tokens, which allows the same
+ * short bursts as the service. Time is passed in as {@link System#nanoTime()} readings.
+ */
+public class ShardRateLimiter {
+
+    public static final double CALLS_PER_SECOND = 5;
+    public static final double BYTES_PER_SECOND = 2 * 1024 * 1024;
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double callsPerSecond;
+    private final double bytesPerSecond;
+    private double calls;
+    private double bytes;
+    private long lastRefillNanos;
+
+    public ShardRateLimiter(long nowNanos) {
+        this(CALLS_PER_SECOND, BYTES_PER_SECOND, nowNanos);
+    }
+
+    public ShardRateLimiter(double callsPerSecond, double bytesPerSecond, long nowNanos) {
+        this.callsPerSecond = callsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.calls = callsPerSecond;
+        this.bytes = bytesPerSecond;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * @return the nanoseconds to wait before the next call keeps within both limits; 0 if it may be made now.
+     */
+    public synchronized long delayNanos(long nowNanos) {
+        refill(nowNanos);
+        double callWait = calls >= 1 ? 0 : (1 - calls) / callsPerSecond;
+        double byteWait = bytes >= 0 ? 0 : -bytes / bytesPerSecond;
+        return (long) Math.ceil(Math.max(callWait, byteWait) * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Charges a call that returned the given number of bytes.
+     */
+    public synchronized void onCall(long nowNanos, long bytesRead) {
+        refill(nowNanos);
+        calls -= 1;
+        bytes -= bytesRead;
+    }
+
+    private void refill(long nowNanos) {
+        double elapsedSeconds = Math.max(0, nowNanos - lastRefillNanos) / NANOS_PER_SECOND;
+        lastRefillNanos = nowNanos;
+        calls = Math.min(callsPerSecond, calls + elapsedSeconds * callsPerSecond);
+        bytes = Math.min(bytesPerSecond, bytes + elapsedSeconds * bytesPerSecond);
+    }
+}
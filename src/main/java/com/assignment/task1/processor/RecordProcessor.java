@@ -1,11 +1,8 @@
 package com.assignment.task1.processor;
 
-import com.assignment.task1.deduplication.SlidingWindowDeduplication;
-import com.assignment.task1.protobuf.LoginMessageV1;
-import com.assignment.task1.protobuf.LoginMessageV2;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.protobuf.util.JsonFormat;
+import com.assignment.task1.decoder.JsonLoginEventDecoder;
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.deduplication.PlayerDeduplication;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -19,39 +16,37 @@ public class RecordProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(RecordProcessor.class);
 
-    private final SlidingWindowDeduplication deduplication;
+    private final PlayerDeduplication deduplication;
+    private final JsonLoginEventDecoder decoder;
 
-    public RecordProcessor(SlidingWindowDeduplication deduplication) {
+    private final ThreadLocal<LoginEvent> reusableEvent = ThreadLocal.withInitial(LoginEvent::new);
+
+    public RecordProcessor(PlayerDeduplication deduplication, JsonLoginEventDecoder decoder) {
         this.deduplication = deduplication;
+        this.decoder = decoder;
     }
 
     public void processRecord(String jsonString, Set<String> uniquePlayerLogins,
                               ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry) {
+        LoginEvent event = reusableEvent.get();
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(jsonString);
-
-            if (jsonNode.has("country")) {
-                // Parse as V2
-                LoginMessageV2.Builder builderV2 = LoginMessageV2.newBuilder();
-                JsonFormat.parser().merge(jsonString, builderV2);
-                LoginMessageV2 messageV2 = builderV2.build();
-
-                handleMessageV2(messageV2, uniquePlayerLogins, uniquePlayerLoginsByCountry);
-            } else {
-                // Parse as V1
-                LoginMessageV1.Builder builderV1 = LoginMessageV1.newBuilder();
-                JsonFormat.parser().merge(jsonString, builderV1);
-                LoginMessageV1 messageV1 = builderV1.build();
-
-                handleMessageV1(messageV1, uniquePlayerLogins);
+            if (!decoder.decode(jsonString, event)) {
+                logger.error("Failed to parse message: no player ID found");
+                return;
             }
         } catch (Exception e) {
             logger.error("Failed to parse message: {}", e.getMessage());
+            return;
+        }
+
+        if (event.getCountry() != null) {
+            handleMessageV2(event, uniquePlayerLogins, uniquePlayerLoginsByCountry);
+        } else {
+            handleMessageV1(event, uniquePlayerLogins);
         }
     }
 
-    private void handleMessageV1(LoginMessageV1 message, Set<String> uniquePlayerLogins) {
+    private void handleMessageV1(LoginEvent message, Set<String> uniquePlayerLogins) {
         String playerId = message.getPlayerId();
         if (deduplication.isUniquePlayer(playerId)) {
             uniquePlayerLogins.add(playerId);
@@ -61,7 +56,7 @@ public class RecordProcessor {
         }
     }
 
-    private void handleMessageV2(LoginMessageV2 message, Set<String> uniquePlayerLogins,
+    private void handleMessageV2(LoginEvent message, Set<String> uniquePlayerLogins,
                              ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry) {
         String playerId = message.getPlayerId();
         String country = message.getCountry();
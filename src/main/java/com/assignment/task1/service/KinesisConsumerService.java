@@ -1,17 +1,20 @@
 package com.assignment.task1.service;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,15 +24,21 @@ import com.amazonaws.services.kinesis.AmazonKinesis;
 import com.amazonaws.services.kinesis.model.ListShardsRequest;
 import com.amazonaws.services.kinesis.model.ListShardsResult;
 import com.amazonaws.services.kinesis.model.Shard;
+import com.assignment.task1.aggregation.SealableAggregator;
+import com.assignment.task1.aggregation.LoginAggregator;
+import com.assignment.task1.aggregation.EventTimeWindowAggregator;
+import com.assignment.task1.checkpoint.ShardCheckpointer;
+import com.assignment.task1.compression.PayloadDecompressor;
 import com.assignment.task1.config.AppConfig;
-import com.assignment.task1.dto.TotalUniquePlayerLogins;
-import com.assignment.task1.dto.UniquePlayerLoginsByCountry;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.assignment.task1.decoder.SchemaDecoderRegistry;
+import com.assignment.task1.lease.LeaseCoordinator;
+import com.assignment.task1.output.AsyncOutputWriter;
+import com.assignment.task1.output.OutputSnapshot;
 
 import org.springframework.scheduling.annotation.Scheduled;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class KinesisConsumerService {
@@ -40,17 +49,38 @@ public class KinesisConsumerService {
     private final AppConfig appConfig;
     private RecordProcessingService recordProcessingService;
     private ShardProcessingService shardProcessingService;
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SchemaDecoderRegistry schemaDecoderRegistry;
+    private final ShardCheckpointer checkpointer;
+    private final LeaseCoordinator leaseCoordinator;
+    private final PayloadDecompressor payloadDecompressor;
+    private final AsyncOutputWriter outputWriter;
+
+    // Shards with a running consumer, or drained for good
+    private final Set<String> startedShards = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, Shard> listedShards = Map.of();
+    // Kept apart from the output lock so a slow listing does not delay a flush
+    private final Object discoveryLock = new Object();
+    // With event time, captured checkpoints wait for every window their logins are in; guarded by the output lock
+    private final Deque<WindowCheckpoints> windowCheckpoints = new ArrayDeque<>();
 
     public KinesisConsumerService(AmazonKinesis kinesisClient,
                                   AppConfig appConfig,
                                   RecordProcessingService recordProcessingService,
-                                  ShardProcessingService shardProcessingService) {
+                                  ShardProcessingService shardProcessingService,
+                                  SchemaDecoderRegistry schemaDecoderRegistry,
+                                  ShardCheckpointer checkpointer,
+                                  LeaseCoordinator leaseCoordinator,
+                                  PayloadDecompressor payloadDecompressor,
+                                  AsyncOutputWriter outputWriter) {
         this.kinesisClient = kinesisClient;
         this.appConfig = appConfig;
         this.recordProcessingService = recordProcessingService;
         this.shardProcessingService = shardProcessingService;
+        this.schemaDecoderRegistry = schemaDecoderRegistry;
+        this.checkpointer = checkpointer;
+        this.leaseCoordinator = leaseCoordinator;
+        this.payloadDecompressor = payloadDecompressor;
+        this.outputWriter = outputWriter;
     }
 
     @PostConstruct
@@ -61,17 +91,92 @@ public class KinesisConsumerService {
 
     public void startConsuming() {
         logger.info("Starting Kinesis Consumer Service");
+        discoverShards();
+    }
 
-        List<Shard> shards = getStreamShards();
-        processShardsAsynchronously(shards);
+    /**
+     * Lists the stream's shards, creates their leases and starts consumers for the leased shards.
+     */
+    @Scheduled(fixedDelayString = "${app.aws.shard-discovery-interval-ms}",
+            initialDelayString = "${app.aws.shard-discovery-interval-ms}")
+    public void discoverShards() {
+        synchronized (discoveryLock) {
+            List<Shard> shards;
+            try {
+                shards = getStreamShards();
+            } catch (Exception e) {
+                if (startedShards.isEmpty()) {
+                    throw e;
+                }
+                // Keep consuming the known shards and try again on the next refresh
+                return;
+            }
+
+            listedShards = shards.stream()
+                    .collect(Collectors.toMap(Shard::getShardId, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+            leaseCoordinator.registerShards(listedShards.keySet());
+            assignShards();
+        }
+    }
+
+    /**
+     * Renews and rebalances the shard leases between discoveries, starting consumers for leases taken over.
+     */
+    @Scheduled(fixedDelayString = "${app.lease.renew-interval-ms}",
+            initialDelayString = "${app.lease.renew-interval-ms}")
+    public void balanceLeases() {
+        synchronized (discoveryLock) {
+            assignShards();
+        }
+    }
+
+    /**
+     * Starts a consumer for every listed shard that this instance holds the lease of and that is not consumed yet.
+     * <p>
+     * A shard created by a split or merge is only started once each of its parents has been read to its
+     * end, so records of a key are processed in order across a resharding. Parents that are no longer
+     * listed have aged out of the stream and do not hold their children back.
+     */
+    private void assignShards() {
+        leaseCoordinator.refresh();
+        Map<String, Shard> shardsById = listedShards;
+        List<Shard> readyShards = new ArrayList<>();
+        for (Shard shard : shardsById.values()) {
+            String shardId = shard.getShardId();
+            if (!startedShards.contains(shardId) && leaseCoordinator.holdsLease(shardId) && parentsDrained(shard, shardsById)) {
+                readyShards.add(shard);
+            }
+        }
+        if (!readyShards.isEmpty()) {
+            processShardsAsynchronously(readyShards);
+        }
+    }
+
+    private boolean parentsDrained(Shard shard, Map<String, Shard> shardsById) {
+        return parentDrained(shard.getParentShardId(), shardsById)
+                && parentDrained(shard.getAdjacentParentShardId(), shardsById);
+    }
+
+    private boolean parentDrained(String parentShardId, Map<String, Shard> shardsById) {
+        return parentShardId == null
+                || !shardsById.containsKey(parentShardId)
+                || checkpointer.isShardEnd(parentShardId);
     }
 
     private List<Shard> getStreamShards() {
         try {
+            List<Shard> shards = new ArrayList<>();
             ListShardsRequest request = new ListShardsRequest()
                     .withStreamName(appConfig.getAws().getStreamName());
-            ListShardsResult result = kinesisClient.listShards(request);
-            List<Shard> shards = result.getShards();
+            while (true) {
+                ListShardsResult result = kinesisClient.listShards(request);
+                shards.addAll(result.getShards());
+                if (result.getNextToken() == null) {
+                    break;
+                }
+                // Follow-up pages are addressed by the token alone; the stream name must not be repeated
+                request = new ListShardsRequest().withNextToken(result.getNextToken());
+            }
             logger.info("Retrieved {} shard(s) from the stream", shards.size());
             return shards;
         } catch (Exception e) {
@@ -83,116 +188,173 @@ public class KinesisConsumerService {
     private void processShardsAsynchronously(List<Shard> shards) {
         logger.info("Processing shards: " + shards.size());
         for (Shard shard : shards) {
-            shardProcessingService.processShard(shard);
+            String shardId = shard.getShardId();
+            startedShards.add(shardId);
+            CompletableFuture<Void> consumer = shardProcessingService.processShard(shard);
+            consumer.whenComplete((result, error) -> {
+                if (error != null) {
+                    logger.error("Consumer of shard '{}' failed; releasing its lease: {}", shardId, error.getMessage(), error);
+                    // Another instance may take the shard over; otherwise this one takes it again on a later refresh
+                    leaseCoordinator.releaseLease(shardId);
+                }
+                // A consumer that gave up before the shard end is started again on the next refresh
+                if (!checkpointer.isShardEnd(shardId)) {
+                    startedShards.remove(shardId);
+                }
+            });
         }
     }
 
+    /**
+     * Seals the interval and hands its counts to the output writer; the files are written on the
+     * writer's thread, so this never waits on disk. With event time, hands on the windows the
+     * watermark has closed instead.
+     */
     @Scheduled(fixedRateString = "${app.output.frequency-ms}")
     public void outputResults() {
         synchronized (this) {
-                Set<String> uniquePlayerLogins = recordProcessingService.getUniquePlayerLogins();
-                ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry = recordProcessingService.getUniquePlayerLoginsByCountry();
-                logger.debug("Total unique player logins: {}", uniquePlayerLogins.size());
-                logger.debug("Unique player logins by country: {}", uniquePlayerLoginsByCountry);
-    
-                // Generate timestamp for file naming with milliseconds and UUID
-                LocalDateTime currentDateTime = LocalDateTime.now();
-                String dateString = currentDateTime.format(DateTimeFormatter.ISO_DATE);
-                String hourString = String.format("%02d", currentDateTime.getHour());
-                String minuteString = String.format("%02d", currentDateTime.getMinute());
-
-                String timestamp = currentDateTime.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS")) + "_" + UUID.randomUUID().toString();
-
-                logger.debug("Generated unique timestamp for filenames: {}", timestamp);
-
-                // Define base output directory
-                String baseOutputDir = "output";
-
-                // Output directory structure
-                String totalLoginsDir = String.format("%s/metric_name=TotalUniquePlayerLogins/date=%s/hour=%s", baseOutputDir, dateString, hourString);
-                String loginsByCountryDir = String.format("%s/metric_name=UniquePlayerLoginsByCountry/date=%s/hour=%s", baseOutputDir, dateString, hourString);
-
-                try {
-                    // Create directories if they don't exist
-                    Files.createDirectories(Paths.get(totalLoginsDir));
-                    Files.createDirectories(Paths.get(loginsByCountryDir));
-                } catch (IOException e) {
-                    logger.error("Failed to create output directories: {}", e.getMessage(), e);
-                    return;
-                }
+            EventTimeWindowAggregator windowAggregator = recordProcessingService.getWindowAggregator();
+            if (windowAggregator != null) {
+                outputClosedWindows(windowAggregator, false);
+            } else {
+                outputInterval();
+            }
 
-                // Prepare data for TotalUniquePlayerLogins DTO
-                TotalUniquePlayerLogins totalLogins = new TotalUniquePlayerLogins();
-                totalLogins.setDate(dateString);
-                totalLogins.setHour(hourString);
-                totalLogins.setMinute(minuteString);
-                totalLogins.setMetricName("TotalUniquePlayerLogins");
-                totalLogins.setLoginCount(uniquePlayerLogins.size());
-
-                // Log and invoke writeJsonToFile for TotalUniquePlayerLogins
-                String totalLoginsFilename = String.format("%s/total_unique_player_logins_%s.json", totalLoginsDir, timestamp);
-                logger.debug("Invoking writeJsonToFile for TotalUniquePlayerLogins with filename '{}'", totalLoginsFilename);
-                writeJsonToFile(totalLoginsFilename, totalLogins, false);
-
-                // Prepare data for UniquePlayerLoginsByCountry DTO
-                List<UniquePlayerLoginsByCountry> loginsByCountryList = new ArrayList<>();
-                for (Map.Entry<String, Set<String>> entry : uniquePlayerLoginsByCountry.entrySet()) {
-                    String country = entry.getKey();
-                    int count = entry.getValue().size();
-
-                    // missing or unknown country
-                    if (country == null || country.isEmpty()) {
-                        country = "N/A";
-                    }
-
-                    UniquePlayerLoginsByCountry countryData = new UniquePlayerLoginsByCountry();
-                    countryData.setDate(dateString);
-                    countryData.setHour(hourString);
-                    countryData.setMinute(minuteString);
-                    countryData.setMetricName("UniquePlayerLoginsByCountry");
-                    countryData.setCountry(country);
-                    countryData.setLoginCount(count);
-
-                    loginsByCountryList.add(countryData);
-                }
+            logger.info("Output: {}", outputWriter.describeStats());
+            logger.info("Decoded/failed records per schema version: {}", schemaDecoderRegistry.describeStats());
+            String deduplicationStats = recordProcessingService.getDeduplication().describeStats();
+            if (!deduplicationStats.isEmpty()) {
+                logger.info("Deduplication: {}", deduplicationStats);
+            }
+            String compressionStats = payloadDecompressor.describeStats();
+            if (!compressionStats.isEmpty()) {
+                logger.info("Compressed payloads: {}", compressionStats);
+            }
+        }
+    }
 
-                // Log and invoke writeJsonToFile for UniquePlayerLoginsByCountry
-                logger.debug("Preparing to write {} unique_player_logins_by_country entries.", loginsByCountryList.size());
-                for (UniquePlayerLoginsByCountry dto : loginsByCountryList) {
-                    logger.debug("Country: {}, Login Count: {}", dto.getCountry(), dto.getLoginCount());
-                }
+    /**
+     * Hands on the logins that were not output yet, the current interval or with event time every
+     * window still open, and waits for the writer, so the checkpoints they cover are saved before
+     * the checkpointer shuts down. Runs before the writer and the checkpointer are destroyed, as this
+     * service depends on both.
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            EventTimeWindowAggregator windowAggregator = recordProcessingService.getWindowAggregator();
+            if (windowAggregator != null) {
+                outputClosedWindows(windowAggregator, true);
+            } else {
+                outputInterval();
+            }
+        }
+        // Runs the queued checkpoint commits, which must happen before the last save
+        outputWriter.shutdown();
+        checkpointer.flush();
+    }
 
-                String loginsByCountryFilename = String.format("%s/unique_player_logins_by_country_%s.json", loginsByCountryDir, timestamp);
-                logger.debug("Invoking writeJsonToFile for UniquePlayerLoginsByCountry with filename '{}'", loginsByCountryFilename);
-                writeJsonToFile(loginsByCountryFilename, loginsByCountryList, true);
+    /**
+     * Seals the interval and hands it to the output writer. The checkpoints it covers are committed
+     * once every sink has stored it for good, which for rolled Parquet files is when its file is
+     * finished; if it is carried over, they wait for the next interval.
+     */
+    private void outputInterval() {
+        SealableAggregator intervalAggregator = recordProcessingService.getAggregator();
+        // Captured before the seal, so the logins of every captured checkpoint are in the sealed epoch
+        Map<String, String> checkpoints = checkpointer.capture();
+        // Shard threads carry on in a fresh epoch while the sealed one is read
+        LoginAggregator aggregator = intervalAggregator.seal();
+        OutputSnapshot snapshot = OutputSnapshot.of(LocalDateTime.now(), aggregator);
+        logger.debug("Total unique player logins: {}", snapshot.getTotalCount());
+        logger.debug("Unique player logins by country: {}", snapshot.getCountsByCountry());
+
+        if (!outputWriter.submit(snapshot)) {
+            // The writer is still busy with earlier intervals; carry this one's players over to the next flush
+            logger.warn("Output writer is behind; carrying the results of {} over to the next interval", snapshot.getTime());
+            intervalAggregator.merge(aggregator);
+            checkpointer.restore(checkpoints);
+        } else if (!outputWriter.afterWritten(() -> checkpointer.commit(checkpoints))) {
+            // Committed behind a later interval instead, which is written after this one
+            checkpointer.restore(checkpoints);
+        }
 
-                logger.info("Aggregated results written to output files.");
+        // Recycle the sealed aggregator for a later interval
+        intervalAggregator.release(aggregator);
+        logger.debug("Aggregated data cleared.");
+    }
 
-                // Clear aggregated results for the next interval
-                uniquePlayerLogins.clear();
-                uniquePlayerLoginsByCountry.clear();
-                logger.debug("Clearing aggregated data...");
-                recordProcessingService.clearAggregations();
-                logger.debug("Aggregated data cleared.");
+    /**
+     * Hands every closed window to the output writer in window order, each named by its start.
+     * A window the writer has no room for stays queued for the next flush, so none is written twice
+     * or skipped.
+     * <p>
+     * The checkpoints captured here cover logins up to the latest window opened by now. They are
+     * committed once every window up to that one has been closed and handed on, behind those windows.
+     *
+     * @param all Whether to close every open window rather than the ones the watermark has passed.
+     */
+    private void outputClosedWindows(EventTimeWindowAggregator windowAggregator, boolean all) {
+        Map<String, String> checkpoints = checkpointer.capture();
+        if (!checkpoints.isEmpty()) {
+            windowCheckpoints.add(new WindowCheckpoints(windowAggregator.getLatestWindowEndMillis(), checkpoints));
+        }
+        if (all) {
+            windowAggregator.closeAllWindows();
+        } else {
+            windowAggregator.closeWindows();
+        }
+        long closedEnd = windowAggregator.getClosedEndMillis();
+
+        boolean handedOn = true;
+        EventTimeWindowAggregator.ClosedWindow window;
+        while ((window = windowAggregator.peekClosed()) != null) {
+            LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(window.getStartMillis()), ZoneId.systemDefault());
+            OutputSnapshot snapshot = OutputSnapshot.of(start, window.getAggregator());
+            if (!outputWriter.submit(snapshot)) {
+                logger.warn("Output writer is behind; the window of {} waits for the next flush", start);
+                handedOn = false;
+                break;
             }
+            windowAggregator.pollClosed();
+            logger.debug("Window of {}: {} unique player logins", start, snapshot.getTotalCount());
+        }
+        if (handedOn) {
+            commitWindowCheckpoints(closedEnd);
+        }
+        logger.info("Windows: {}", windowAggregator.describeStats());
     }
-    
-    private void writeJsonToFile(String filename, Object data, boolean isList) {
-        try {
-            ObjectWriter writer = objectMapper.writerWithDefaultPrettyPrinter();
-            String jsonContent;
 
-            if (isList && data instanceof List) {
-                jsonContent = writer.writeValueAsString(data);
-            } else {
-                jsonContent = writer.writeValueAsString(data);
+    /**
+     * Commits, behind the windows handed on so far, the captured checkpoints whose logins are all in
+     * windows that end at or before the given time.
+     */
+    private void commitWindowCheckpoints(long closedEndMillis) {
+        Map<String, String> covered = new HashMap<>();
+        int count = 0;
+        for (WindowCheckpoints captured : windowCheckpoints) {
+            if (captured.windowEndMillis > closedEndMillis) {
+                break;
+            }
+            // Later captures hold later sequence numbers
+            covered.putAll(captured.checkpoints);
+            count++;
+        }
+        if (count > 0 && outputWriter.afterWritten(() -> checkpointer.commit(covered))) {
+            for (int i = 0; i < count; i++) {
+                windowCheckpoints.poll();
             }
-
-            Files.write(Paths.get(filename), jsonContent.getBytes(StandardCharsets.UTF_8));
-            logger.debug("Successfully wrote JSON data to file: {}", filename);
-        } catch (IOException e) {
-            logger.error("Failed to write JSON data to file '{}': {}", filename, e.getMessage(), e);
         }
     }
 
+    private static final class WindowCheckpoints {
+        // The end of the latest window opened when the checkpoints were captured
+        final long windowEndMillis;
+        final Map<String, String> checkpoints;
+
+        WindowCheckpoints(long windowEndMillis, Map<String, String> checkpoints) {
+            this.windowEndMillis = windowEndMillis;
+            this.checkpoints = checkpoints;
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package com.assignment.task1.service;
+
+import com.amazonaws.services.kinesis.model.Record;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records of one shard handed from the thread or subscription reading them to the shard's processing thread.
+ * A batch either carries records, possibly as the last batch of a closed shard, or the error that
+ * stopped the reader.
+ */
+public final class RecordBatch {
+
+    private final List<Record> records;
+    private final boolean shardEnd;
+    private final Exception error;
+
+    private RecordBatch(List<Record> records, boolean shardEnd, Exception error) {
+        this.records = records;
+        this.shardEnd = shardEnd;
+        this.error = error;
+    }
+
+    /**
+     * @param shardEnd true if the shard is closed and these are its last records.
+     */
+    public static RecordBatch of(List<Record> records, boolean shardEnd) {
+        return new RecordBatch(records, shardEnd, null);
+    }
+
+    public static RecordBatch failed(Exception error) {
+        return new RecordBatch(Collections.emptyList(), false, error);
+    }
+
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    public boolean isShardEnd() {
+        return shardEnd;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+}
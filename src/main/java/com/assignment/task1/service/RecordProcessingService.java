@@ -1,93 +1,138 @@
 package com.assignment.task1.service;
 
-import com.assignment.task1.deduplication.SlidingWindowDeduplication;
-import com.assignment.task1.protobuf.LoginMessageV1;
-import com.assignment.task1.protobuf.LoginMessageV2;
-import com.google.protobuf.InvalidProtocolBufferException;
-import com.google.protobuf.util.JsonFormat;
+import com.assignment.task1.aggregation.EventTimeWindowAggregator;
+import com.assignment.task1.aggregation.LoginRecorder;
+import com.assignment.task1.aggregation.SealableAggregator;
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.decoder.LoginEventDecoder;
+import com.assignment.task1.deduplication.PlayerDeduplication;
+import com.assignment.task1.watermark.WatermarkTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
 
 @Service
 public class RecordProcessingService {
 
     private static final Logger logger = LoggerFactory.getLogger(RecordProcessingService.class);
 
-    private final SlidingWindowDeduplication deduplication;
+    // Messages without a country (such as V1) are counted under this key and reported as N/A
+    private static final String UNKNOWN_COUNTRY = "";
 
-    private final Set<String> uniquePlayerLogins = ConcurrentHashMap.newKeySet();
-    private final ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry = new ConcurrentHashMap<>();
+    private final PlayerDeduplication deduplication;
+    private final LoginEventDecoder decoder;
+    private final SealableAggregator aggregator;
+    private final WatermarkTracker watermarkTracker;
+    // Set with event time; unique logins then go to the window of their timestamp instead of the interval
+    private final EventTimeWindowAggregator windowAggregator;
+    private final LoginRecorder target;
 
-    public RecordProcessingService(SlidingWindowDeduplication deduplication) {
-        this.deduplication = deduplication;
-    }
-
-    public void processRecord(String jsonString) {
-        try {
-            logger.debug("Processing record: {}", jsonString);
-            // Attempting to parse with V2 schema
-            LoginMessageV2.Builder builderV2 = LoginMessageV2.newBuilder();
-            JsonFormat.parser().ignoringUnknownFields().merge(jsonString, builderV2);
-            LoginMessageV2 messageV2 = builderV2.build();
+    private final ThreadLocal<LoginEvent> reusableEvent = ThreadLocal.withInitial(LoginEvent::new);
 
-            handleMessageV2(messageV2);
+    public RecordProcessingService(PlayerDeduplication deduplication,
+                                   LoginEventDecoder decoder,
+                                   SealableAggregator aggregator,
+                                   WatermarkTracker watermarkTracker) {
+        this(deduplication, decoder, aggregator, watermarkTracker, Optional.empty());
+    }
 
-        } catch (InvalidProtocolBufferException e1) {
-            try {
-                // Fallback to V1 schema
-                LoginMessageV1.Builder builderV1 = LoginMessageV1.newBuilder();
-                JsonFormat.parser().ignoringUnknownFields().merge(jsonString, builderV1);
-                LoginMessageV1 messageV1 = builderV1.build();
+    @Autowired
+    public RecordProcessingService(PlayerDeduplication deduplication,
+                                   LoginEventDecoder decoder,
+                                   SealableAggregator aggregator,
+                                   WatermarkTracker watermarkTracker,
+                                   Optional<EventTimeWindowAggregator> windowAggregator) {
+        this.deduplication = deduplication;
+        this.decoder = decoder;
+        this.aggregator = aggregator;
+        this.watermarkTracker = watermarkTracker;
+        this.windowAggregator = windowAggregator.orElse(null);
+        this.target = this.windowAggregator != null ? this.windowAggregator : aggregator;
+    }
 
-                handleMessageV1(messageV1);
+    public void processRecord(ByteBuffer data) {
+        processRecord(null, data);
+    }
 
-            } catch (InvalidProtocolBufferException e2) {
-                logger.error("Failed to parse message: {}", e2.getMessage());
+    /**
+     * Processes a record read from a shard; its event time advances the shard's watermark.
+     */
+    public void processRecord(String shardId, ByteBuffer data) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Processing record of {} bytes", data.remaining());
+        }
+        LoginEvent event = reusableEvent.get();
+        try {
+            if (!decoder.decode(data, event)) {
+                logger.error("Failed to parse message: no player ID found");
+                return;
             }
+        } catch (IOException e) {
+            logger.error("Failed to parse message: {}", e.getMessage());
+            return;
+        }
+        if (shardId != null && event.hasTimestamp()) {
+            watermarkTracker.advance(shardId, event.getTimestampMillis());
         }
+        handleEvent(event);
     }
 
-    private void handleMessageV1(LoginMessageV1 message) {
-        String playerId = message.getPlayerId();
-        logger.debug("Processing V1 message for player ID: {}", playerId);
-        if (deduplication.isUniquePlayer(playerId)) {
-            uniquePlayerLogins.add(playerId);
-            logger.debug("Added player ID to unique logins: {}. Total unique logins: {}", playerId, uniquePlayerLogins.size());
-        } else {
-            logger.debug("Duplicate V1 player ID ignored: {}", playerId);
+    public void processRecord(String jsonString) {
+        logger.debug("Processing record: {}", jsonString);
+        LoginEvent event = reusableEvent.get();
+        try {
+            if (!decoder.decode(jsonString, event)) {
+                logger.error("Failed to parse message: no player ID found");
+                return;
+            }
+        } catch (IOException e) {
+            logger.error("Failed to parse message: {}", e.getMessage());
+            return;
         }
+        handleEvent(event);
     }
 
-    private void handleMessageV2(LoginMessageV2 message) {
-        String playerId = message.getPlayerId();
-        String country = message.getCountry();
-        logger.debug("Processing V2 message for player ID: {}, country: {}", playerId, country);
-        if (deduplication.isUniquePlayer(playerId)) {
-            uniquePlayerLogins.add(playerId);
-            uniquePlayerLoginsByCountry.computeIfAbsent(country, k -> ConcurrentHashMap.newKeySet())
-                    .add(playerId);
-            logger.debug("Added player ID to unique logins: {}. Total unique logins: {}", playerId, uniquePlayerLogins.size());
-            logger.debug("Added player ID: {} to country: {}. Total logins for country: {}", playerId, country, uniquePlayerLoginsByCountry.get(country).size());
-        } else {
-            logger.debug("Duplicate V2 player ID ignored: {}", playerId);
+    /**
+     * Works on the fingerprint the decoder took from the record bytes; the player ID String is only
+     * built for debug logging or for backends that key on it.
+     */
+    private void handleEvent(LoginEvent event) {
+        String country = event.getCountry() != null ? event.getCountry() : UNKNOWN_COUNTRY;
+        boolean debug = logger.isDebugEnabled();
+        if (debug) {
+            logger.debug("Processing V{} message for player ID: {}, country: {}", event.getSchemaVersion(), event.getPlayerId(), country);
         }
+        if (deduplication.isUniquePlayer(event)) {
+            target.add(event, country);
+            if (debug) {
+                logger.debug("Added player ID: {} to unique logins for country: {}", event.getPlayerId(), country);
+            }
+        } else if (debug) {
+            logger.debug("Duplicate V{} player ID ignored: {}", event.getSchemaVersion(), event.getPlayerId());
+        }
+    }
+
+    public PlayerDeduplication getDeduplication() {
+        return deduplication;
     }
 
-    public Set<String> getUniquePlayerLogins() {
-        return uniquePlayerLogins;
+    public SealableAggregator getAggregator() {
+        return aggregator;
     }
 
-    public ConcurrentMap<String, Set<String>> getUniquePlayerLoginsByCountry() {
-        return uniquePlayerLoginsByCountry;
+    /**
+     * @return the event-time windows, or null when logins are counted per output interval.
+     */
+    public EventTimeWindowAggregator getWindowAggregator() {
+        return windowAggregator;
     }
 
     public void clearAggregations() {
-        uniquePlayerLogins.clear();
-        uniquePlayerLoginsByCountry.clear();
+        aggregator.clear();
     }
 }
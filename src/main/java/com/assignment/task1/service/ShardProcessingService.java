@@ -12,18 +12,40 @@ import com.amazonaws.services.kinesis.model.GetRecordsResult;
 import com.amazonaws.services.kinesis.model.GetShardIteratorRequest;
 import com.amazonaws.services.kinesis.model.GetShardIteratorResult;
 import com.amazonaws.services.kinesis.model.InvalidArgumentException;
+import com.amazonaws.services.kinesis.model.ProvisionedThroughputExceededException;
 import com.amazonaws.services.kinesis.model.ResourceNotFoundException;
 import com.amazonaws.services.kinesis.model.Shard;
 import com.amazonaws.services.kinesis.model.ShardIteratorType;
+import com.assignment.task1.checkpoint.ExtendedSequenceNumber;
+import com.assignment.task1.compression.PayloadDecompressor;
+import com.assignment.task1.checkpoint.ShardCheckpointer;
 import com.assignment.task1.config.AppConfig;
+import com.assignment.task1.deaggregation.KplDeaggregator;
+import com.assignment.task1.fanout.FanOutConsumer;
+import com.assignment.task1.fanout.ShardSubscription;
+import com.assignment.task1.lease.LeaseCoordinator;
+import com.assignment.task1.polling.AdaptivePoller;
+import com.assignment.task1.polling.ShardRateLimiter;
+import com.assignment.task1.watermark.WatermarkTracker;
+import com.assignment.task1.worker.ShardWorkerExecutor;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.nio.charset.StandardCharsets;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 
@@ -37,6 +59,12 @@ public class ShardProcessingService {
 
     private int bufferSize;
     private int bufferTimeMs;
+    private int prefetchBatches;
+    private ThreadFactory fetcherThreads;
+    private AppConfig.PollConfig pollConfig;
+    private AppConfig.FanOutConfig fanOutConfig;
+    private AppConfig.ParallelConfig parallelConfig;
+    private ForkJoinPool processingPool;
 
     @Autowired
     private AppConfig appConfig;
@@ -47,36 +75,115 @@ public class ShardProcessingService {
     @Autowired
     private AmazonKinesis kinesisClient;
 
+    @Autowired
+    private WatermarkTracker watermarkTracker;
+
+    @Autowired
+    private ShardCheckpointer checkpointer;
+
+    @Autowired
+    private LeaseCoordinator leaseCoordinator;
+
+    @Autowired
+    private FanOutConsumer fanOutConsumer;
+
+    @Autowired
+    private PayloadDecompressor payloadDecompressor;
+
     @PostConstruct
     public void init() {
         this.bufferSize = appConfig.getBuffer().getSize();
         this.bufferTimeMs = appConfig.getBuffer().getTimeMs();
+        this.prefetchBatches = appConfig.getBuffer().getPrefetchBatches();
+        this.pollConfig = appConfig.getPoll();
+        this.fanOutConfig = appConfig.getFanOut();
+        if (prefetchBatches > 0) {
+            this.fetcherThreads = ShardWorkerExecutor.perTaskThreadFactory("kinesis-fetch-");
+        }
+        this.parallelConfig = appConfig.getParallel();
+        if (parallelConfig.getThreshold() > 0) {
+            int parallelism = parallelConfig.getParallelism() > 0
+                    ? parallelConfig.getParallelism() : Runtime.getRuntime().availableProcessors();
+            // Shared by all shards, so a burst on one shard can use the cores the others leave idle
+            this.processingPool = new ForkJoinPool(parallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("kinesis-process-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (processingPool != null) {
+            processingPool.shutdownNow();
+        }
     }
 
+    /**
+     * Consumes the shard from its checkpoint, retrying failed attempts.
+     *
+     * @return a future that completes once the shard has been read to its end or its lease is lost,
+     *         and completes exceptionally with the last error once its retries run out.
+     */
     @Async("taskExecutor")
     public CompletableFuture<Void> processShard(Shard shard) {
+        String shardId = shard.getShardId();
+        if (checkpointer.isShardEnd(shardId)) {
+            logger.info("Shard '{}' has already been read to its end. Skipping shard.", shardId);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // The stream watermark cannot pass this shard while it is being consumed. It is only released at
+        // the shard end: a shard that gives up or loses its lease holds it until it is read again or goes idle
+        watermarkTracker.register(shardId);
+        return consumeShard(shard);
+    }
+
+    private CompletableFuture<Void> consumeShard(Shard shard) {
         String shardId = shard.getShardId();
         int retryCount = 0;
 
+        // Shared by all attempts so a retry does not reset the shard's rate limits
+        long now = System.nanoTime();
+        AdaptivePoller poller = new AdaptivePoller(pollConfig.getLimit(), pollConfig.getIdleMs(), pollConfig.getLagThresholdMs(),
+                pollConfig.getMaxBackoffMs(), new ShardRateLimiter(now), now);
+
         while (retryCount <= MAX_RETRIES) {
             try {
                 logger.info("Processing shard '{}', attempt {}/{}", shardId, retryCount + 1, MAX_RETRIES + 1);
 
+                if (fanOutConfig.isEnabled()) {
+                    if (readShardFanOut(shardId)) {
+                        markShardEnd(shardId);
+                    }
+                    return CompletableFuture.completedFuture(null);
+                }
+
                 String shardIterator = getShardIterator(shard);
                 if (shardIterator == null) {
                     logger.warn("Shard iterator is null for shard '{}'. Skipping shard.", shardId);
                     return CompletableFuture.completedFuture(null);
                 }
 
+                if (prefetchBatches > 0) {
+                    if (readShardPipelined(shardId, shardIterator, poller)) {
+                        markShardEnd(shardId);
+                    }
+                    return CompletableFuture.completedFuture(null);
+                }
+
                 List<Record> buffer = new ArrayList<>();
                 long lastBufferTime = System.currentTimeMillis();
 
                 while (shardIterator != null) {
+                    if (!leaseCoordinator.holdsLease(shardId)) {
+                        // The new owner resumes from the last checkpoint, so unprocessed records are left to it
+                        logger.info("Lease of shard '{}' is no longer held. Stopping shard.", shardId);
+                        return CompletableFuture.completedFuture(null);
+                    }
                     try {
-                        GetRecordsRequest recordsRequest = new GetRecordsRequest()
-                                .withShardIterator(shardIterator)
-                                .withLimit(1000);
-                        GetRecordsResult recordsResult = kinesisClient.getRecords(recordsRequest);
+                        GetRecordsResult recordsResult = fetchRecords(shardId, shardIterator, poller);
                         List<Record> records = recordsResult.getRecords();
 
                         logger.info("Fetched {} records from shard '{}'", records.size(), shardId);
@@ -90,16 +197,11 @@ public class ShardProcessingService {
                         // Check if buffer conditions are met
                         if (buffer.size() >= bufferSize || (System.currentTimeMillis() - lastBufferTime) >= bufferTimeMs) {
                             logger.debug("Processing {} records from shard '{}'", buffer.size(), shardId);
-                            processRecords(buffer);
+                            processRecords(shardId, buffer);
                             buffer.clear();
                             lastBufferTime = System.currentTimeMillis();
                         }
 
-                        // Sleep if no records are fetched to prevent tight looping
-                        if (records.isEmpty()) {
-                            Thread.sleep(1000);
-                        }
-
                     } catch (InterruptedException e) {
                         logger.error("Shard processing thread interrupted for shard '{}': {}", shardId, e.getMessage(), e);
                         Thread.currentThread().interrupt();
@@ -113,11 +215,11 @@ public class ShardProcessingService {
                 // Process any remaining records in the buffer
                 if (!buffer.isEmpty()) {
                     logger.info("Processing remaining {} records from shard '{}'", buffer.size(), shardId);
-                    processRecords(buffer);
+                    processRecords(shardId, buffer);
                     buffer.clear();
                 }
 
-                logger.info("Completed processing shard '{}'", shardId);
+                markShardEnd(shardId);
                 return CompletableFuture.completedFuture(null);
             } catch (InterruptedException e) {
                 logger.error("Shard processing interrupted for shard '{}': {}", shardId, e.getMessage(), e);
@@ -126,8 +228,9 @@ public class ShardProcessingService {
             } catch (Exception e) {
                 retryCount++;
                 if (retryCount > MAX_RETRIES) {
-                    logger.error("Max retries reached for shard '{}'. Skipping shard.", shardId);
-                    break;
+                    logger.error("Max retries reached for shard '{}'. Giving the shard back.", shardId);
+                    // KinesisConsumerService sees the failure and hands the shard on
+                    return CompletableFuture.failedFuture(e);
                 } else {
                     logger.warn("Error processing shard '{}'. Retrying attempt {}/{} after delay.", shardId, retryCount, MAX_RETRIES, e);
                     try {
@@ -144,12 +247,173 @@ public class ShardProcessingService {
         return CompletableFuture.completedFuture(null);
     }
 
+    /**
+     * Reads the shard with fetching and processing overlapped: a fetcher thread keeps up to
+     * {@code prefetchBatches} batches of records queued while this thread processes the batch before.
+     * The fetcher blocks once the queue is full, so a slow processor is not outrun.
+     *
+     * @return true if the shard was read to its end; false if its lease was lost.
+     */
+    private boolean readShardPipelined(String shardId, String shardIterator, AdaptivePoller poller) throws Exception {
+        BlockingQueue<RecordBatch> prefetched = new ArrayBlockingQueue<>(prefetchBatches);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Thread fetcher = fetcherThreads.newThread(() -> prefetch(shardId, shardIterator, poller, prefetched, stopped));
+        fetcher.start();
+        try {
+            return drainBatches(shardId, prefetched, false, () -> { });
+        } finally {
+            stopped.set(true);
+            fetcher.interrupt();
+        }
+    }
+
+    /**
+     * Reads the shard through an enhanced fan-out subscription that continues after the last checkpoint.
+     * Records are processed as soon as they are pushed instead of waiting for the buffer to fill.
+     *
+     * @return true if the shard was read to its end; false if its lease was lost.
+     */
+    private boolean readShardFanOut(String shardId) throws Exception {
+        String checkpoint = checkpointer.getCheckpoint(shardId);
+        // One slot beyond the buffered events is kept for the batch that ends the subscription
+        BlockingQueue<RecordBatch> pushed = new ArrayBlockingQueue<>(Math.max(1, fanOutConfig.getBufferedEvents()) + 1);
+        try (ShardSubscription subscription = fanOutConsumer.subscribe(shardId, checkpoint, pushed)) {
+            return drainBatches(shardId, pushed, true, subscription::onBatchTaken);
+        }
+    }
+
+    /**
+     * Processes queued batches in order until the shard end, buffering their records like the sequential reader.
+     *
+     * @param flushEachBatch Process every batch as soon as it arrives instead of filling the buffer first.
+     * @param onBatchTaken   Called after each batch has been taken from the queue.
+     * @return true if the shard was read to its end; false if its lease was lost.
+     */
+    private boolean drainBatches(String shardId, BlockingQueue<RecordBatch> batches, boolean flushEachBatch,
+                                 Runnable onBatchTaken) throws Exception {
+        List<Record> buffer = new ArrayList<>();
+        long lastBufferTime = System.currentTimeMillis();
+        while (true) {
+            if (!leaseCoordinator.holdsLease(shardId)) {
+                logger.info("Lease of shard '{}' is no longer held. Stopping shard.", shardId);
+                return false;
+            }
+
+            // Wake up at the buffer deadline even when nothing arrives
+            long waitMs = Math.max(0, lastBufferTime + bufferTimeMs - System.currentTimeMillis());
+            RecordBatch batch = batches.poll(waitMs, TimeUnit.MILLISECONDS);
+            if (batch != null) {
+                onBatchTaken.run();
+                if (batch.getError() != null) {
+                    throw batch.getError();
+                }
+                buffer.addAll(batch.getRecords());
+            }
+
+            boolean shardEnd = batch != null && batch.isShardEnd();
+            if (shardEnd || (flushEachBatch && batch != null) || buffer.size() >= bufferSize
+                    || (System.currentTimeMillis() - lastBufferTime) >= bufferTimeMs) {
+                if (!buffer.isEmpty()) {
+                    logger.debug("Processing {} records from shard '{}'", buffer.size(), shardId);
+                    processRecords(shardId, buffer);
+                    buffer.clear();
+                }
+                lastBufferTime = System.currentTimeMillis();
+            }
+            if (shardEnd) {
+                return true;
+            }
+        }
+    }
+
+    private void prefetch(String shardId, String shardIterator, AdaptivePoller poller, BlockingQueue<RecordBatch> prefetched,
+                          AtomicBoolean stopped) {
+        String iterator = shardIterator;
+        try {
+            while (iterator != null && !stopped.get()) {
+                GetRecordsResult recordsResult = fetchRecords(shardId, iterator, poller);
+                List<Record> records = recordsResult.getRecords();
+                iterator = recordsResult.getNextShardIterator();
+
+                logger.info("Fetched {} records from shard '{}'", records.size(), shardId);
+
+                if (!records.isEmpty() || iterator == null) {
+                    handOver(prefetched, RecordBatch.of(records, iterator == null), stopped);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped by the processor
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Error fetching records for shard '{}': {}", shardId, e.getMessage(), e);
+            try {
+                handOver(prefetched, RecordBatch.failed(e), stopped);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Calls GetRecords once the poller allows it, retrying throttled calls after the poller's backoff.
+     */
+    private GetRecordsResult fetchRecords(String shardId, String shardIterator, AdaptivePoller poller) throws InterruptedException {
+        while (true) {
+            long delayNanos = poller.delayNanos(System.nanoTime());
+            if (delayNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            }
+            GetRecordsRequest recordsRequest = new GetRecordsRequest()
+                    .withShardIterator(shardIterator)
+                    .withLimit(poller.getLimit());
+            try {
+                GetRecordsResult recordsResult = kinesisClient.getRecords(recordsRequest);
+                poller.onResult(recordsResult, System.nanoTime());
+                return recordsResult;
+            } catch (ProvisionedThroughputExceededException e) {
+                long backoffMillis = poller.onThrottled(System.nanoTime());
+                logger.warn("GetRecords throttled for shard '{}'. Retrying in {} ms.", shardId, backoffMillis);
+            }
+        }
+    }
+
+    /**
+     * Queues the batch, waiting while the queue is full unless the processor has stopped.
+     */
+    private static void handOver(BlockingQueue<RecordBatch> prefetched, RecordBatch batch, AtomicBoolean stopped)
+            throws InterruptedException {
+        while (!stopped.get()) {
+            if (prefetched.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    private void markShardEnd(String shardId) {
+        // A null iterator means the shard is closed and drained; its children may start
+        checkpointer.checkpoint(shardId, ShardCheckpointer.SHARD_END);
+        watermarkTracker.release(shardId);
+        logger.info("Completed processing shard '{}'", shardId);
+    }
+
     private String getShardIterator(Shard shard) {
         try {
             GetShardIteratorRequest iteratorRequest = new GetShardIteratorRequest()
                     .withStreamName(appConfig.getAws().getStreamName())
-                    .withShardId(shard.getShardId())
-                    .withShardIteratorType(ShardIteratorType.TRIM_HORIZON);
+                    .withShardId(shard.getShardId());
+            ExtendedSequenceNumber checkpoint = ExtendedSequenceNumber.parse(checkpointer.getCheckpoint(shard.getShardId()));
+            if (checkpoint != null && checkpoint.isPartial()) {
+                // The aggregate was processed partway; read it again and skip what was processed
+                logger.info("Resuming shard '{}' inside aggregate {}", shard.getShardId(), checkpoint);
+                iteratorRequest.withShardIteratorType(ShardIteratorType.AT_SEQUENCE_NUMBER)
+                        .withStartingSequenceNumber(checkpoint.getSequenceNumber());
+            } else if (checkpoint != null) {
+                logger.info("Resuming shard '{}' after sequence number {}", shard.getShardId(), checkpoint);
+                iteratorRequest.withShardIteratorType(ShardIteratorType.AFTER_SEQUENCE_NUMBER)
+                        .withStartingSequenceNumber(checkpoint.getSequenceNumber());
+            } else {
+                iteratorRequest.withShardIteratorType(ShardIteratorType.TRIM_HORIZON);
+            }
             GetShardIteratorResult iteratorResult = kinesisClient.getShardIterator(iteratorRequest);
             return iteratorResult.getShardIterator();
         } catch (ResourceNotFoundException e) {
@@ -164,11 +428,143 @@ public class ShardProcessingService {
         }
     }
 
-    private void processRecords(List<Record> records) {
-        for (Record record : records) {
-            logger.debug("Processing {} records", records.size());
-            String jsonString = new String(record.getData().array(), StandardCharsets.UTF_8);
-            recordProcessingService.processRecord(jsonString);
+    /**
+     * Feeds every user record to the decoder; KPL aggregates are split into their user records in place
+     * and compressed payloads are decompressed. The checkpoint covers what was processed, down to the
+     * user record inside an aggregate if a record fails midway.
+     */
+    private void processRecords(String shardId, List<Record> records) {
+        logger.debug("Processing {} records", records.size());
+        // Set when the last attempt stopped inside an aggregate; its processed user records are skipped
+        ExtendedSequenceNumber resume = ExtendedSequenceNumber.parse(checkpointer.getCheckpoint(shardId));
+        if (processingPool != null && records.size() >= parallelConfig.getThreshold()) {
+            processRecordsInParallel(shardId, records, resume);
+            return;
+        }
+
+        UserRecordProgress progress = new UserRecordProgress();
+        try {
+            for (Record record : records) {
+                progress.sequenceNumber = record.getSequenceNumber();
+                progress.subSequenceNumber = -1;
+                processRecord(shardId, record, resume, progress);
+                if (record.getSequenceNumber() != null) {
+                    progress.completed = record.getSequenceNumber();
+                }
+            }
+        } finally {
+            progress.checkpoint(shardId);
+        }
+    }
+
+    /**
+     * Splits a large batch into chunks that the shared fork/join pool decodes and aggregates side by
+     * side; unique counting does not depend on the order of records. The checkpoint only moves once
+     * every chunk has completed, so a failure leaves the whole batch to be read again.
+     */
+    private void processRecordsInParallel(String shardId, List<Record> records, ExtendedSequenceNumber resume) {
+        processingPool.invoke(new RecordChunk(shardId, records, 0, records.size(), resume));
+
+        for (int i = records.size() - 1; i >= 0; i--) {
+            String sequenceNumber = records.get(i).getSequenceNumber();
+            if (sequenceNumber != null) {
+                checkpointer.checkpoint(shardId, sequenceNumber);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param progress Tracks the user record reached inside an aggregate; null if only whole batches are checkpointed.
+     */
+    private void processRecord(String shardId, Record record, ExtendedSequenceNumber resume, UserRecordProgress progress) {
+        ByteBuffer data = record.getData();
+        if (KplDeaggregator.isAggregated(data)) {
+            long skipThrough = resume != null && resume.isPartial()
+                    && resume.getSequenceNumber().equals(record.getSequenceNumber()) ? resume.getSubSequenceNumber() : -1;
+            processAggregate(shardId, record, skipThrough, progress);
+        } else {
+            processUserRecord(shardId, data);
+        }
+    }
+
+    private void processAggregate(String shardId, Record record, long skipThrough, UserRecordProgress progress) {
+        try {
+            KplDeaggregator.forEachUserRecord(record.getData(), (subSequenceNumber, userData) -> {
+                if (subSequenceNumber > skipThrough) {
+                    processUserRecord(shardId, userData);
+                }
+                if (progress != null) {
+                    progress.subSequenceNumber = subSequenceNumber;
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            // Retrying cannot fix a malformed aggregate, so it is skipped like an undecodable message
+            logger.error("Failed to de-aggregate record {} of shard '{}': {}", record.getSequenceNumber(), shardId, e.getMessage());
+        }
+    }
+
+    /**
+     * Decompresses a gzip or zstd payload before it is decoded; uncompressed payloads go straight through.
+     */
+    private void processUserRecord(String shardId, ByteBuffer data) {
+        ByteBuffer payload;
+        try {
+            payload = payloadDecompressor.decompress(data);
+        } catch (IOException e) {
+            // Skipped like a payload the decoder cannot parse
+            logger.error("Failed to decompress record of shard '{}': {}", shardId, e.getMessage());
+            return;
+        }
+        recordProcessingService.processRecord(shardId, payload);
+    }
+
+    /**
+     * A range of a batch's records; halved until it is no larger than the configured chunk size.
+     */
+    private final class RecordChunk extends RecursiveAction {
+        private final String shardId;
+        private final List<Record> records;
+        private final int from;
+        private final int to;
+        private final ExtendedSequenceNumber resume;
+
+        RecordChunk(String shardId, List<Record> records, int from, int to, ExtendedSequenceNumber resume) {
+            this.shardId = shardId;
+            this.records = records;
+            this.from = from;
+            this.to = to;
+            this.resume = resume;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= Math.max(1, parallelConfig.getChunkSize())) {
+                for (int i = from; i < to; i++) {
+                    processRecord(shardId, records.get(i), resume, null);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RecordChunk(shardId, records, from, middle, resume),
+                    new RecordChunk(shardId, records, middle, to, resume));
+        }
+    }
+
+    /**
+     * Last fully processed record of a batch, and how far the record after it got.
+     */
+    private final class UserRecordProgress {
+        String completed;
+        String sequenceNumber;
+        long subSequenceNumber = -1;
+
+        void checkpoint(String shardId) {
+            if (sequenceNumber != null && !sequenceNumber.equals(completed) && subSequenceNumber >= 0) {
+                checkpointer.checkpoint(shardId, ExtendedSequenceNumber.format(sequenceNumber, subSequenceNumber));
+            } else if (completed != null) {
+                checkpointer.checkpoint(shardId, completed);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.assignment.task1.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the writer threads inside a piece of shared state, so that whoever retires the state
+ * can wait until the writers that got in before it was retired have left.
+ * <p>
+ * The count is striped by thread so that shard threads do not contend on one counter. A thread
+ * always uses the same stripe, so no stripe ever reads below zero.
+ */
+public final class ActiveWriters {
+
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+    // Longs between two stripes, so that each sits on its own cache line
+    private static final int STRIPE_PADDING = 8;
+
+    private final AtomicLongArray writers = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+
+    public void enter() {
+        writers.getAndIncrement(stripe());
+    }
+
+    public void exit() {
+        writers.getAndDecrement(stripe());
+    }
+
+    public boolean hasWriters() {
+        for (int i = 0; i < writers.length(); i += STRIPE_PADDING) {
+            if (writers.get(i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32 & (STRIPES - 1)) * STRIPE_PADDING;
+    }
+}
@@ -0,0 +1,156 @@
+package com.assignment.task1.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free Bloom filter over 64-bit hashes, blocked to a single {@code long} per value.
+ * <p>
+ * All probe bits of a value fall into one 64-bit word, so a lookup is one memory access and an
+ * insert is one atomic OR. Because the OR is atomic, {@link #add(long)} returns true to exactly one
+ * of several threads adding the same value, which lets callers treat it as a "definitely new" test.
+ * Blocking this tightly costs memory: about 12 bits per value at a 1% false-positive rate where a
+ * classic Bloom filter needs 9.6. The size and probe count are derived from the expected number of
+ * values and the target rate.
+ */
+public class BlockedBloomFilter implements LongSet {
+
+    private static final int MAX_PROBES = 10;
+    private static final long PROBE_MIX = 0x9E3779B97F4A7C15L;
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words;
+    private final int probes;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * @param expectedInsertions The number of distinct values the filter is sized for.
+     * @param falsePositiveRate  The target false-positive rate at that many values.
+     */
+    public BlockedBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1");
+        }
+        long n = Math.max(expectedInsertions, 1);
+
+        // Smallest size (in whole bits per value) that reaches the target, with its best probe count
+        double bitsPerValue = 1;
+        int bestProbes = 1;
+        while (true) {
+            double valuesPerWord = Long.SIZE / bitsPerValue;
+            bestProbes = bestProbeCount(valuesPerWord);
+            if (falsePositiveRate(valuesPerWord, bestProbes) <= falsePositiveRate || bitsPerValue >= 64) {
+                break;
+            }
+            bitsPerValue += 0.5;
+        }
+
+        long wordCount = (long) Math.ceil(n * bitsPerValue / Long.SIZE);
+        if (wordCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Filter for " + expectedInsertions + " values is too large");
+        }
+        this.words = new long[(int) Math.max(1, wordCount)];
+        this.probes = bestProbes;
+    }
+
+    /**
+     * @return true if the value was definitely not in the filter before; false if it may have been.
+     */
+    @Override
+    public boolean add(long value) {
+        long mask = mask(value);
+        long previous = (long) WORDS.getAndBitwiseOr(words, index(value), mask);
+        if ((previous & mask) != mask) {
+            insertions.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return false if the value is definitely not in the filter; true if it may be.
+     */
+    @Override
+    public boolean contains(long value) {
+        long mask = mask(value);
+        return ((long) WORDS.getAcquire(words, index(value)) & mask) == mask;
+    }
+
+    /**
+     * @return the number of values added, not counting the ones taken for false positives.
+     */
+    @Override
+    public long size() {
+        return insertions.sum();
+    }
+
+    public int getProbeCount() {
+        return probes;
+    }
+
+    public long sizeInBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    /**
+     * Estimates the current false-positive rate from the bits actually set; walks the whole filter.
+     */
+    public double expectedFalsePositiveRate() {
+        double sum = 0;
+        for (int i = 0; i < words.length; i++) {
+            double fill = Long.bitCount((long) WORDS.getAcquire(words, i)) / (double) Long.SIZE;
+            sum += Math.pow(fill, probes);
+        }
+        return sum / words.length;
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length; i++) {
+            WORDS.setVolatile(words, i, 0L);
+        }
+        insertions.reset();
+    }
+
+    private int index(long value) {
+        // Range reduction of the high half, avoids a power-of-two table
+        return (int) (((value >>> 32) * words.length) >>> 32);
+    }
+
+    private long mask(long value) {
+        long bits = value * PROBE_MIX;
+        long mask = 0;
+        for (int i = 0; i < probes; i++) {
+            mask |= 1L << (bits & 63);
+            bits >>>= 6;
+        }
+        return mask;
+    }
+
+    /**
+     * False-positive rate with a Poisson-distributed number of values per word.
+     */
+    static double falsePositiveRate(double valuesPerWord, int probes) {
+        double rate = 0;
+        double poisson = Math.exp(-valuesPerWord);
+        for (int j = 0; j < 10 * Math.max(valuesPerWord, 1) + 20; j++) {
+            if (j > 0) {
+                poisson *= valuesPerWord / j;
+            }
+            double bitSet = 1 - Math.pow(1 - 1.0 / Long.SIZE, (double) j * probes);
+            rate += poisson * Math.pow(bitSet, probes);
+        }
+        return rate;
+    }
+
+    private static int bestProbeCount(double valuesPerWord) {
+        int best = 1;
+        for (int k = 2; k <= MAX_PROBES; k++) {
+            if (falsePositiveRate(valuesPerWord, k) < falsePositiveRate(valuesPerWord, best)) {
+                best = k;
+            }
+        }
+        return best;
+    }
+}
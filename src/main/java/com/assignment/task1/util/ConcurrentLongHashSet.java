@@ -0,0 +1,105 @@
+package com.assignment.task1.util;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Thread-safe set of primitive {@code long}s made of independently locked {@link LongHashSet} segments.
+ * <p>
+ * A value's segment is picked from its high bits, its slot inside the segment from its low bits.
+ * Each segment grows on its own, so a resize only blocks the writers of one segment. Values are
+ * expected to be well-mixed hashes, such as {@link XxHash64} fingerprints.
+ */
+public class ConcurrentLongHashSet implements LongSet {
+
+    private static final int DEFAULT_SEGMENTS = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 8 - 1) << 1;
+
+    private final LongHashSet[] segments;
+    private final int segmentShift;
+
+    public ConcurrentLongHashSet() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param segmentCount The number of segments; rounded up to a power of two.
+     */
+    public ConcurrentLongHashSet(int segmentCount) {
+        int count = Math.max(2, Integer.highestOneBit(Math.max(segmentCount, 2) - 1) << 1);
+        this.segments = new LongHashSet[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new LongHashSet();
+        }
+        this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(count);
+    }
+
+    @Override
+    public boolean add(long value) {
+        LongHashSet segment = segmentFor(value);
+        synchronized (segment) {
+            return segment.add(value);
+        }
+    }
+
+    @Override
+    public boolean contains(long value) {
+        LongHashSet segment = segmentFor(value);
+        synchronized (segment) {
+            return segment.contains(value);
+        }
+    }
+
+    /**
+     * Visits every value; each segment is locked while it is being visited.
+     */
+    public void forEach(LongConsumer action) {
+        for (LongHashSet segment : segments) {
+            synchronized (segment) {
+                segment.forEach(action);
+            }
+        }
+    }
+
+    public void addAll(ConcurrentLongHashSet other) {
+        other.forEach(this::add);
+    }
+
+    public void addAll(LongHashSet other) {
+        other.forEach(this::add);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (LongHashSet segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (LongHashSet segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes held by the segment tables.
+     */
+    public long tableBytes() {
+        long bytes = 0;
+        for (LongHashSet segment : segments) {
+            synchronized (segment) {
+                bytes += segment.tableBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private LongHashSet segmentFor(long value) {
+        return segments[(int) (value >>> segmentShift)];
+    }
+}
@@ -0,0 +1,156 @@
+package com.assignment.task1.util;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing hash set of primitive {@code long}s with linear probing.
+ * <p>
+ * Stores values inline in a {@code long[]}, so an entry costs 8 bytes divided by the load factor
+ * instead of a boxed key plus a map node. Not thread-safe; see {@link ConcurrentLongHashSet}.
+ */
+public class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final int MIN_CAPACITY = 16;
+
+    // Zero marks an empty slot, so the value zero is tracked on the side
+    private long[] table;
+    private int mask;
+    private int resizeThreshold;
+    private int size;
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of values the set should hold without resizing.
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return true if the value was not in the set yet; false otherwise.
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        long[] t = table;
+        int index = slot(value, mask);
+        while (true) {
+            long current = t[index];
+            if (current == 0) {
+                t[index] = value;
+                if (++size > resizeThreshold) {
+                    rehash(t.length << 1);
+                }
+                return true;
+            }
+            if (current == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+
+        long[] t = table;
+        int index = slot(value, mask);
+        while (true) {
+            long current = t[index];
+            if (current == value) {
+                return true;
+            }
+            if (current == 0) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public void addAll(LongHashSet other) {
+        other.forEach(this::add);
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(0L);
+        }
+        for (long value : table) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values and shrinks the table back to its minimum capacity.
+     */
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+        containsZero = false;
+    }
+
+    /**
+     * @return the number of bytes held by the backing table.
+     */
+    public long tableBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = table;
+        allocate(newCapacity);
+        for (long value : old) {
+            if (value != 0) {
+                int index = slot(value, mask);
+                while (table[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR) + 1;
+        long capacity = Long.highestOneBit(needed - 1) << 1;
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Expected size " + expectedSize + " is too large");
+        }
+        return (int) Math.max(MIN_CAPACITY, capacity);
+    }
+
+    static int slot(long value, int mask) {
+        long mixed = value * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
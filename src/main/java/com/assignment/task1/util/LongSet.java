@@ -0,0 +1,26 @@
+package com.assignment.task1.util;
+
+/**
+ * Thread-safe set of primitive {@code long}s.
+ */
+public interface LongSet {
+
+    /**
+     * @return true if the value was not in the set yet; false otherwise.
+     */
+    boolean add(long value);
+
+    boolean contains(long value);
+
+    long size();
+
+    /**
+     * Empties the set in place so that it can stand in for a new one. Must not run concurrently
+     * with {@link #add(long)}.
+     *
+     * @return true if the set was emptied; false if it cannot be reused and a new set is needed.
+     */
+    default boolean recycle() {
+        return false;
+    }
+}
@@ -0,0 +1,183 @@
+package com.assignment.task1.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-capacity, thread-safe set of primitive {@code long}s stored off-heap in a memory-mapped file.
+ * <p>
+ * The table is laid out like {@link LongHashSet} (open addressing, linear probing, zero marks an empty
+ * slot) but lives in one or more mapped segments of at most 1 GiB each, and slots are claimed with a
+ * CAS, so readers and writers never lock. The backing file is deleted right after it is mapped; the
+ * pages stay valid until the set becomes unreachable and the mapping is released, and only pages that
+ * were written to take up memory or disk. The mapping is only released by the garbage collector, so a
+ * set that is replaced regularly should be {@link #recycle() recycled} rather than dropped.
+ * <p>
+ * The table does not grow. Once a segment reaches its load limit further new values are not stored:
+ * {@link #add(long)} still reports them as new and counts them in {@link #getRejectedCount()}.
+ */
+public class MappedLongHashSet implements LongSet {
+
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final int MIN_SEGMENT_SLOTS = 1024;
+    private static final int MAX_SEGMENT_SLOTS = 1 << 27;
+
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final MappedByteBuffer[] segments;
+    private final AtomicIntegerArray segmentSizes;
+    private final int segmentMask;
+    private final int segmentShift;
+    private final int segmentLoadLimit;
+    private final AtomicBoolean containsZero = new AtomicBoolean();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param directory    The directory to create the backing file in.
+     * @param expectedSize The number of values the set must be able to hold.
+     */
+    public MappedLongHashSet(Path directory, long expectedSize) {
+        long totalSlots = Math.max(MIN_SEGMENT_SLOTS, Long.highestOneBit((long) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR) * 2 - 1));
+        int segmentCount = (int) Math.max(1, totalSlots / MAX_SEGMENT_SLOTS);
+        int segmentSlots = (int) (totalSlots / segmentCount);
+
+        this.segments = new MappedByteBuffer[segmentCount];
+        this.segmentSizes = new AtomicIntegerArray(segmentCount);
+        this.segmentMask = segmentSlots - 1;
+        this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        this.segmentLoadLimit = (int) (segmentSlots * LOAD_FACTOR);
+        map(directory, segmentSlots);
+    }
+
+    @Override
+    public boolean add(long value) {
+        if (value == 0) {
+            return containsZero.compareAndSet(false, true);
+        }
+
+        int segmentIndex = segmentIndex(value);
+        ByteBuffer segment = segments[segmentIndex];
+        int index = LongHashSet.slot(value, segmentMask);
+        while (true) {
+            int offset = index << 3;
+            long current = (long) SLOTS.getAcquire(segment, offset);
+            if (current == value) {
+                return false;
+            }
+            if (current == 0) {
+                if (segmentSizes.get(segmentIndex) >= segmentLoadLimit) {
+                    rejected.increment();
+                    return true;
+                }
+                current = (long) SLOTS.compareAndExchange(segment, offset, 0L, value);
+                if (current == 0) {
+                    segmentSizes.incrementAndGet(segmentIndex);
+                    return true;
+                }
+                if (current == value) {
+                    return false;
+                }
+            }
+            index = (index + 1) & segmentMask;
+        }
+    }
+
+    @Override
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero.get();
+        }
+
+        ByteBuffer segment = segments[segmentIndex(value)];
+        int index = LongHashSet.slot(value, segmentMask);
+        while (true) {
+            long current = (long) SLOTS.getAcquire(segment, index << 3);
+            if (current == value) {
+                return true;
+            }
+            if (current == 0) {
+                return false;
+            }
+            index = (index + 1) & segmentMask;
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = containsZero.get() ? 1 : 0;
+        for (int i = 0; i < segmentSizes.length(); i++) {
+            size += segmentSizes.get(i);
+        }
+        return size;
+    }
+
+    /**
+     * Zeroes the table, keeping its mapping. Only slots that hold a value are written, so pages that
+     * were never touched stay unbacked. This walks the whole table, so callers should run it off the
+     * hot path, and only once no writer can still reach the set.
+     */
+    @Override
+    public boolean recycle() {
+        int segmentBytes = (segmentMask + 1) * Long.BYTES;
+        for (int i = 0; i < segments.length; i++) {
+            MappedByteBuffer segment = segments[i];
+            for (int offset = 0; offset < segmentBytes; offset += Long.BYTES) {
+                if ((long) SLOTS.get(segment, offset) != 0) {
+                    SLOTS.set(segment, offset, 0L);
+                }
+            }
+            segmentSizes.set(i, 0);
+        }
+        containsZero.set(false);
+        rejected.reset();
+        return true;
+    }
+
+    /**
+     * @return the number of new values that were not stored because their segment was full.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of bytes mapped for the table.
+     */
+    public long tableBytes() {
+        return (long) segments.length * (segmentMask + 1) * Long.BYTES;
+    }
+
+    private int segmentIndex(long value) {
+        return segmentShift == Long.SIZE ? 0 : (int) (value >>> segmentShift);
+    }
+
+    private void map(Path directory, int segmentSlots) {
+        long segmentBytes = (long) segmentSlots * Long.BYTES;
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "dedup-", ".table");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int i = 0; i < segments.length; i++) {
+                    segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+                }
+            } finally {
+                // The mapping keeps the pages alive; nothing else needs the file
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map deduplication table in " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.assignment.task1.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Fixed-size cache that maps short UTF-8 byte slices to shared Strings.
+ * <p>
+ * Meant for low-cardinality values such as country codes, which would otherwise be decoded into a
+ * new String for every record. A slot holds the last value hashed to it; a collision simply replaces
+ * the entry, so the cache never grows and a lookup never locks. Entries are immutable and published
+ * through a final field, so a racy read sees either a complete entry or none.
+ */
+public class StringInterner {
+
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private final Entry[] table;
+    private final int mask;
+
+    /**
+     * @param capacity The number of slots; rounded up to a power of two.
+     */
+    public StringInterner(int capacity) {
+        int size = Math.max(2, Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1);
+        this.table = new Entry[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return a String equal to the UTF-8 decoding of the slice; the same instance on repeated calls
+     *         unless the slot was taken over by another value in between.
+     */
+    public String intern(byte[] data, int offset, int length) {
+        if (length > MAX_INTERNED_LENGTH) {
+            return new String(data, offset, length, StandardCharsets.UTF_8);
+        }
+        long hash = XxHash64.hash(data, offset, length);
+        int index = (int) (hash ^ (hash >>> 32)) & mask;
+
+        Entry entry = table[index];
+        if (entry != null && entry.hash == hash
+                && Arrays.equals(entry.bytes, 0, entry.bytes.length, data, offset, offset + length)) {
+            return entry.value;
+        }
+        entry = new Entry(hash, Arrays.copyOfRange(data, offset, offset + length),
+                new String(data, offset, length, StandardCharsets.UTF_8));
+        table[index] = entry;
+        return entry.value;
+    }
+
+    private static final class Entry {
+        final long hash;
+        final byte[] bytes;
+        final String value;
+
+        Entry(long hash, byte[] bytes, String value) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.assignment.task1.util;
+
+/**
+ * Validation of UTF-8 byte sequences without decoding them into chars.
+ * <p>
+ * Applies the same rules as {@code String} decoding in strict mode: overlong encodings, surrogate
+ * code points and code points above U+10FFFF are rejected.
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    public static boolean isValid(byte[] data, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+
+        // Skip the ASCII prefix, which is all there is in most identifiers
+        while (i < end && data[i] >= 0) {
+            i++;
+        }
+
+        while (i < end) {
+            int b = data[i++];
+            if (b >= 0) {
+                continue;
+            }
+            if (b < (byte) 0xE0) {
+                // Two bytes; C0 and C1 would be overlong encodings of ASCII
+                if (b < (byte) 0xC2 || i >= end || !isContinuation(data[i++])) {
+                    return false;
+                }
+            } else if (b < (byte) 0xF0) {
+                // Three bytes; excludes overlong encodings and the surrogate range
+                if (end - i < 2) {
+                    return false;
+                }
+                int b2 = data[i++];
+                if (!isContinuation((byte) b2)
+                        || (b == (byte) 0xE0 && b2 < (byte) 0xA0)
+                        || (b == (byte) 0xED && b2 >= (byte) 0xA0)
+                        || !isContinuation(data[i++])) {
+                    return false;
+                }
+            } else {
+                // Four bytes; excludes overlong encodings and code points above U+10FFFF
+                if (end - i < 3) {
+                    return false;
+                }
+                int b2 = data[i++];
+                if (b > (byte) 0xF4
+                        || !isContinuation((byte) b2)
+                        || (b == (byte) 0xF0 && b2 < (byte) 0x90)
+                        || (b == (byte) 0xF4 && b2 >= (byte) 0x90)
+                        || !isContinuation(data[i++])
+                        || !isContinuation(data[i++])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return b < (byte) 0xC0;
+    }
+}
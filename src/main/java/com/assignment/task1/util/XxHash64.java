@@ -0,0 +1,198 @@
+package com.assignment.task1.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * XXH64 (seed 0) over UTF-8 bytes.
+ * <p>
+ * Used to turn player IDs into 64-bit fingerprints. A String and the UTF-8 bytes it was decoded
+ * from hash to the same value, so fingerprints taken straight from a record buffer and from a
+ * materialized String are interchangeable.
+ */
+public final class XxHash64 {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle ARRAY_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle ARRAY_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final ThreadLocal<byte[]> UTF8_SCRATCH = ThreadLocal.withInitial(() -> new byte[128]);
+
+    private XxHash64() {
+    }
+
+    public static long hash(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        long h;
+
+        if (length >= 32) {
+            long v1 = P1 + P2;
+            long v2 = P2;
+            long v3 = 0;
+            long v4 = -P1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, (long) ARRAY_LONG.get(data, i));
+                v2 = round(v2, (long) ARRAY_LONG.get(data, i + 8));
+                v3 = round(v3, (long) ARRAY_LONG.get(data, i + 16));
+                v4 = round(v4, (long) ARRAY_LONG.get(data, i + 24));
+                i += 32;
+            } while (i <= limit);
+            h = mergeLanes(v1, v2, v3, v4);
+        } else {
+            h = P5;
+        }
+
+        h += length;
+        for (; i + 8 <= end; i += 8) {
+            h = mixLong(h, (long) ARRAY_LONG.get(data, i));
+        }
+        if (i + 4 <= end) {
+            h = mixInt(h, (int) ARRAY_INT.get(data, i));
+            i += 4;
+        }
+        for (; i < end; i++) {
+            h = mixByte(h, data[i]);
+        }
+        return avalanche(h);
+    }
+
+    /**
+     * Hashes the bytes of a buffer between two absolute indices; the buffer position is not used.
+     */
+    public static long hash(ByteBuffer data, int offset, int length) {
+        if (data.hasArray()) {
+            return hash(data.array(), data.arrayOffset() + offset, length);
+        }
+
+        int end = offset + length;
+        int i = offset;
+        long h;
+
+        if (length >= 32) {
+            long v1 = P1 + P2;
+            long v2 = P2;
+            long v3 = 0;
+            long v4 = -P1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, (long) BUFFER_LONG.get(data, i));
+                v2 = round(v2, (long) BUFFER_LONG.get(data, i + 8));
+                v3 = round(v3, (long) BUFFER_LONG.get(data, i + 16));
+                v4 = round(v4, (long) BUFFER_LONG.get(data, i + 24));
+                i += 32;
+            } while (i <= limit);
+            h = mergeLanes(v1, v2, v3, v4);
+        } else {
+            h = P5;
+        }
+
+        h += length;
+        for (; i + 8 <= end; i += 8) {
+            h = mixLong(h, (long) BUFFER_LONG.get(data, i));
+        }
+        if (i + 4 <= end) {
+            h = mixInt(h, (int) BUFFER_INT.get(data, i));
+            i += 4;
+        }
+        for (; i < end; i++) {
+            h = mixByte(h, data.get(i));
+        }
+        return avalanche(h);
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of a String without allocating; the encoding goes to a per-thread
+     * scratch buffer.
+     */
+    public static long hashUtf8(String value) {
+        byte[] scratch = UTF8_SCRATCH.get();
+        int maxLength = value.length() * 3;
+        if (scratch.length < maxLength) {
+            scratch = new byte[Math.max(maxLength, scratch.length * 2)];
+            UTF8_SCRATCH.set(scratch);
+        }
+        return hash(scratch, 0, encodeUtf8(value, scratch));
+    }
+
+    private static int encodeUtf8(String value, byte[] out) {
+        int length = value.length();
+        int pos = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, encoded as '?' like String.getBytes does
+                out[pos++] = (byte) '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * P1 + P4;
+    }
+
+    private static long mergeLanes(long v1, long v2, long v3, long v4) {
+        long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        h = mergeRound(h, v1);
+        h = mergeRound(h, v2);
+        h = mergeRound(h, v3);
+        return mergeRound(h, v4);
+    }
+
+    private static long mixLong(long h, long input) {
+        h ^= round(0, input);
+        return Long.rotateLeft(h, 27) * P1 + P4;
+    }
+
+    private static long mixInt(long h, int input) {
+        h ^= (input & 0xFFFFFFFFL) * P1;
+        return Long.rotateLeft(h, 23) * P2 + P3;
+    }
+
+    private static long mixByte(long h, byte input) {
+        h ^= (input & 0xFFL) * P5;
+        return Long.rotateLeft(h, 11) * P1;
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+}
@@ -0,0 +1,167 @@
+package com.assignment.task1.watermark;
+
+import com.assignment.task1.config.AppConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks event-time progress of the stream.
+ * <p>
+ * Each shard's watermark is the latest event time read from it. The stream watermark is the lowest
+ * watermark of all registered shards, i.e. the event time every shard has reached, so a shard that is
+ * still catching up holds it back instead of having its records treated as late. A shard counts as
+ * soon as it is registered, even before its first event, and stops counting once it is released.
+ * <p>
+ * The stream watermark never goes back: windows and buckets behind it may already be closed. A
+ * shard registered once there is a watermark, such as the child of a split, starts at it and holds
+ * it there until its first event; an event behind the watermark does not lower it and is late.
+ * <p>
+ * With an idle timeout, a shard that has not produced an event time for that long stops counting
+ * until its next one, so a shard without traffic does not hold the watermark back forever. Idle
+ * shards are looked for by {@link #checkIdle()} on a schedule, so they are noticed also while no
+ * shard has records. While every shard is idle, the watermark is the highest event time read.
+ */
+@Component
+public class WatermarkTracker {
+
+    public static final long NO_WATERMARK = Long.MIN_VALUE;
+
+    private final long idleTimeoutMillis;
+    private final Clock clock;
+
+    private final ConcurrentMap<String, Shard> shards = new ConcurrentHashMap<>();
+    // Copy of the map values that recompute() scans without allocating an iterator per record
+    private volatile Shard[] shardArray = new Shard[0];
+    private volatile long watermark = NO_WATERMARK;
+
+    /**
+     * Creates a tracker that waits for every registered shard however long it is quiet.
+     */
+    public WatermarkTracker() {
+        this(0, Clock.systemUTC());
+    }
+
+    @Autowired
+    public WatermarkTracker(AppConfig appConfig) {
+        this(appConfig.getWatermark().getIdleTimeoutMs(), Clock.systemUTC());
+    }
+
+    /**
+     * @param idleTimeoutMillis How long a shard may go without an event time before it stops holding
+     *                          the watermark back; 0 waits for it indefinitely.
+     * @param clock             The clock the idle time is measured on.
+     */
+    public WatermarkTracker(long idleTimeoutMillis, Clock clock) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts counting a shard from the current watermark; a shard that is still registered, for
+     * instance one that is started again after a failure, keeps its event time.
+     */
+    public void register(String shardId) {
+        shards.putIfAbsent(shardId, new Shard(clock.millis(), watermark));
+        refreshShards();
+    }
+
+    /**
+     * Stops counting a shard. Only release a shard that has been read to its end: a shard that is
+     * retried or handed over must keep holding the watermark at the event time it has reached.
+     */
+    public void release(String shardId) {
+        shards.remove(shardId);
+        refreshShards();
+    }
+
+    /**
+     * Records the event time of a record read from a shard; registers the shard if needed.
+     */
+    public void advance(String shardId, long eventTimeMillis) {
+        Shard shard = shards.get(shardId);
+        if (shard == null) {
+            // Starts at this event; recompute() keeps the watermark from going back
+            shard = shards.computeIfAbsent(shardId, id -> new Shard(clock.millis(), NO_WATERMARK));
+            refreshShards();
+        }
+        long previous = shard.eventTime.getAndAccumulate(eventTimeMillis, Math::max);
+        // Only the shard that held the minimum can move the stream watermark
+        boolean moved = eventTimeMillis > previous && previous <= watermark;
+        if (idleTimeoutMillis > 0) {
+            long now = clock.millis();
+            if (shard.lastEventMillis != now) {
+                shard.lastEventMillis = now;
+            }
+            // An idle shard counts again from its next event
+            moved |= shard.idle;
+        }
+        if (moved) {
+            recompute();
+        }
+    }
+
+    /**
+     * @return the stream watermark in epoch milliseconds, or {@link #NO_WATERMARK} while any
+     *         registered, active shard has not produced an event time yet.
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public long getShardWatermark(String shardId) {
+        Shard shard = shards.get(shardId);
+        return shard != null ? shard.eventTime.get() : NO_WATERMARK;
+    }
+
+    /**
+     * Stops counting the shards that have been quiet for the idle timeout.
+     */
+    @Scheduled(fixedDelayString = "${app.watermark.idle-check-interval-ms}")
+    public void checkIdle() {
+        if (idleTimeoutMillis > 0) {
+            recompute();
+        }
+    }
+
+    private synchronized void refreshShards() {
+        shardArray = shards.values().toArray(new Shard[0]);
+        recompute();
+    }
+
+    private synchronized void recompute() {
+        long now = idleTimeoutMillis > 0 ? clock.millis() : 0;
+        long lowest = Long.MAX_VALUE;
+        long highest = NO_WATERMARK;
+        for (Shard shard : shardArray) {
+            long shardWatermark = shard.eventTime.get();
+            shard.idle = idleTimeoutMillis > 0 && now - shard.lastEventMillis >= idleTimeoutMillis;
+            if (shard.idle) {
+                highest = Math.max(highest, shardWatermark);
+            } else {
+                lowest = Math.min(lowest, shardWatermark);
+            }
+        }
+        long candidate = lowest != Long.MAX_VALUE ? lowest : highest;
+        if (candidate > watermark) {
+            watermark = candidate;
+        }
+    }
+
+    private static final class Shard {
+        final AtomicLong eventTime;
+        // Registration counts as activity, so a shard that never has traffic goes idle as well
+        volatile long lastEventMillis;
+        volatile boolean idle;
+
+        Shard(long registeredMillis, long startEventTime) {
+            this.eventTime = new AtomicLong(startEventTime);
+            this.lastEventMillis = registeredMillis;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.assignment.task1.worker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor that starts a new thread for every task and owns those threads until they end.
+ * <p>
+ * Shard workers block for their whole life in {@code getRecords} and sleeps, so they are given a
+ * thread each instead of competing for a pool: no shard waits in a queue for another to finish. On
+ * Java 21 and later the threads are virtual, so a blocked worker does not hold a platform thread and
+ * a node can run hundreds of shards; on older runtimes they are ordinary platform threads.
+ * <p>
+ * The executor acts as the scope of its workers: a task that fails is logged and counted, and
+ * {@link #shutdown()} rejects new tasks, interrupts the running ones and waits for them to end, so no
+ * worker outlives the application context. A shard consumer that gives up reports it through the
+ * future it returns, which its caller watches; only errors outside that future end up here.
+ */
+public class ShardWorkerExecutor implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardWorkerExecutor.class);
+
+    private final ThreadFactory threadFactory;
+    private final long shutdownTimeoutMillis;
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    // Makes the shutdown check and the registration of a worker one step, so shutdown() sees every worker it lets start
+    private final Object lifecycleLock = new Object();
+    private boolean shutdown;
+
+    /**
+     * @param threadFactory         Creates the thread of each task; see {@link #perTaskThreadFactory(String)}.
+     * @param shutdownTimeoutMillis How long {@link #shutdown()} waits for interrupted workers to end.
+     */
+    public ShardWorkerExecutor(ThreadFactory threadFactory, long shutdownTimeoutMillis) {
+        this.threadFactory = threadFactory;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (lifecycleLock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Shard worker executor has been shut down");
+            }
+            Thread worker = threadFactory.newThread(() -> run(task));
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            failedCount.incrementAndGet();
+            logger.error("Shard worker '{}' failed: {}", Thread.currentThread().getName(), t.getMessage(), t);
+        } finally {
+            workers.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * @return the number of workers currently running.
+     */
+    public int getActiveCount() {
+        return workers.size();
+    }
+
+    /**
+     * @return the number of tasks that ended with an exception.
+     */
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Stops accepting tasks, interrupts the running workers and waits for them to end.
+     *
+     * @return true if every worker ended within the shutdown timeout.
+     */
+    public boolean shutdown() {
+        List<Thread> running;
+        synchronized (lifecycleLock) {
+            shutdown = true;
+            running = new ArrayList<>(workers);
+        }
+        running.forEach(Thread::interrupt);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMillis);
+        for (Thread worker : running) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            try {
+                if (remainingMillis > 0) {
+                    worker.join(remainingMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        int stillRunning = workers.size();
+        if (stillRunning > 0) {
+            logger.warn("{} shard worker(s) did not stop within {} ms", stillRunning, shutdownTimeoutMillis);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return a factory of virtual threads when the runtime has them, otherwise of platform threads;
+     *         threads are named with the prefix and a sequence number.
+     */
+    public static ThreadFactory perTaskThreadFactory(String namePrefix) {
+        ThreadFactory virtual = virtualThreadFactory(namePrefix);
+        if (virtual != null) {
+            return virtual;
+        }
+        logger.info("Virtual threads are not available on Java {}; shard workers use platform threads",
+                Runtime.version().feature());
+        AtomicInteger sequence = new AtomicInteger();
+        return task -> new Thread(task, namePrefix + sequence.getAndIncrement());
+    }
+
+    // Looked up at runtime so the project still builds for Java 17
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> virtualBuilderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilderClass));
+            MethodHandle name = lookup.findVirtual(virtualBuilderClass, "name",
+                    MethodType.methodType(virtualBuilderClass, String.class, long.class));
+            MethodHandle factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            Object builder = name.invoke(ofVirtual.invoke(), namePrefix, 0L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return null;
+        } catch (Throwable t) {
+            logger.warn("Failed to create a virtual thread factory: {}", t.getMessage(), t);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.assignment.task1.worker;
+
+/**
+ * How shard workers get their threads.
+ */
+public enum WorkerMode {
+    /** A bounded thread pool; shards beyond its threads wait in the queue. */
+    POOL,
+    /**
+     * A thread of its own for every shard: a virtual thread on Java 21 and later, a platform thread
+     * on older runtimes.
+     */
+    VIRTUAL
+}
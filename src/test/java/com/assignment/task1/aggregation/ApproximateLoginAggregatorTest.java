@@ -0,0 +1,54 @@
+package com.assignment.task1.aggregation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ApproximateLoginAggregatorTest {
+
+    private ApproximateLoginAggregator aggregator;
+
+    @BeforeEach
+    public void setUp() {
+        aggregator = new ApproximateLoginAggregator(HyperLogLog.precisionForError(0.01));
+    }
+
+    @Test
+    public void testAdd_CountsTotalAndByCountry() {
+        for (int i = 0; i < 30000; i++) {
+            aggregator.add("player" + i, i % 3 == 0 ? "US" : "CA");
+        }
+
+        Map<String, Long> byCountry = aggregator.getCountsByCountry();
+        assertEquals(30000, aggregator.getTotalCount(), 30000 * 0.03);
+        assertEquals(10000, byCountry.get("US"), 10000 * 0.03);
+        assertEquals(20000, byCountry.get("CA"), 20000 * 0.03);
+    }
+
+    @Test
+    public void testMerge_AcrossShards() {
+        ApproximateLoginAggregator other = new ApproximateLoginAggregator(HyperLogLog.precisionForError(0.01));
+        aggregator.add("player1", "US");
+        aggregator.add("player2", "US");
+        other.add("player2", "US");
+        other.add("player3", "DE");
+
+        aggregator.merge(other);
+
+        assertEquals(3, aggregator.getTotalCount());
+        assertEquals(2, aggregator.getCountsByCountry().get("US"));
+        assertEquals(1, aggregator.getCountsByCountry().get("DE"));
+    }
+
+    @Test
+    public void testClear() {
+        aggregator.add("player1", "US");
+        aggregator.clear();
+
+        assertEquals(0, aggregator.getTotalCount());
+        assertTrue(aggregator.getCountsByCountry().isEmpty());
+    }
+}
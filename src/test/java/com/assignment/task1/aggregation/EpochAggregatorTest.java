@@ -0,0 +1,87 @@
+package com.assignment.task1.aggregation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpochAggregatorTest {
+
+    private EpochAggregator aggregator;
+
+    @BeforeEach
+    public void setUp() {
+        aggregator = new EpochAggregator(HashedLoginAggregator::new);
+    }
+
+    @Test
+    public void testSeal_StartsFreshEpoch() {
+        aggregator.add("player1", "US");
+        aggregator.add("player2", "DE");
+
+        LoginAggregator sealed = aggregator.seal();
+        aggregator.add("player3", "US");
+
+        assertEquals(2, sealed.getTotalCount(), "Sealed epoch should keep the players added before the seal");
+        assertEquals(1, aggregator.getTotalCount(), "New epoch should only see later players");
+    }
+
+    @Test
+    public void testRelease_ReusesClearedAggregator() {
+        aggregator.add("player1", "US");
+        LoginAggregator sealed = aggregator.seal();
+        aggregator.release(sealed);
+
+        LoginAggregator next = aggregator.seal();
+
+        assertSame(sealed, aggregator.current(), "Released aggregator should become the next epoch");
+        assertNotSame(sealed, next);
+        assertEquals(0, sealed.getTotalCount(), "Released aggregator should be cleared");
+    }
+
+    @Test
+    public void testConcurrentSeal_NoLostLogins() throws Exception {
+        int writers = 4;
+        int playersPerWriter = 100000;
+        AtomicInteger finished = new AtomicInteger();
+        HashedLoginAggregator total = new HashedLoginAggregator();
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < playersPerWriter; i++) {
+                        aggregator.add("player" + writer + "-" + i, "US");
+                    }
+                    finished.incrementAndGet();
+                }));
+            }
+
+            // Flush repeatedly while the writers are running
+            while (finished.get() < writers) {
+                LoginAggregator sealed = aggregator.seal();
+                total.merge(sealed);
+                aggregator.release(sealed);
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        total.merge(aggregator.seal());
+
+        assertEquals((long) writers * playersPerWriter, total.getTotalCount(), "Every login must end up in exactly one epoch");
+    }
+}
@@ -0,0 +1,249 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.watermark.WatermarkTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventTimeWindowAggregatorTest {
+
+    // A whole minute, so that windows start at START
+    private static final long START = 1_700_000_040_000L;
+    private static final long MINUTE = 60_000L;
+
+    private WatermarkTracker watermarkTracker;
+    private EventTimeWindowAggregator windows;
+
+    @BeforeEach
+    public void setUp() {
+        watermarkTracker = new WatermarkTracker();
+        windows = aggregator(10_000, 16);
+    }
+
+    @Test
+    public void testAdd_AssignsLoginsToWindowOfTimestamp() {
+        // A backlog read at once still lands in the minutes it happened in
+        add("player-1", "US", START + 5_000);
+        add("player-2", "DE", START + 50_000);
+        add("player-1", "US", START + MINUTE + 1_000);
+        add("player-3", "US", START + 2 * MINUTE + 1_000);
+
+        watermarkTracker.advance("shard-1", START + 3 * MINUTE + 10_000);
+        assertEquals(3, windows.closeWindows());
+
+        List<EventTimeWindowAggregator.ClosedWindow> closed = drain();
+        assertEquals(List.of(START, START + MINUTE, START + 2 * MINUTE),
+                List.of(closed.get(0).getStartMillis(), closed.get(1).getStartMillis(), closed.get(2).getStartMillis()),
+                "Windows should be queued in window order");
+        assertEquals(START + MINUTE, closed.get(0).getEndMillis());
+        assertEquals(Map.of("US", 1L, "DE", 1L), closed.get(0).getAggregator().getCountsByCountry());
+        assertEquals(1, closed.get(1).getAggregator().getTotalCount());
+        assertEquals(1, closed.get(2).getAggregator().getTotalCount());
+    }
+
+    @Test
+    public void testCloseWindows_WaitsForAllowedLatenessAndSlowestShard() {
+        watermarkTracker.register("shard-2");
+        add("player-1", "US", START + 1_000);
+        watermarkTracker.advance("shard-1", START + 5 * MINUTE);
+        assertEquals(0, windows.closeWindows(), "A shard without events should hold every window open");
+
+        watermarkTracker.advance("shard-2", START + MINUTE + 9_999);
+        assertEquals(0, windows.closeWindows(), "The window should stay open for the allowed lateness");
+
+        add("player-2", "US", START + 30_000);
+        watermarkTracker.advance("shard-2", START + MINUTE + 10_000);
+        assertEquals(1, windows.closeWindows());
+        assertEquals(2, windows.pollClosed().getAggregator().getTotalCount(), "A login within the lateness should still count");
+        assertNull(windows.pollClosed());
+    }
+
+    @Test
+    public void testCloseWindows_IdleShardStopsHoldingWindowsOpen() {
+        MutableClock clock = new MutableClock();
+        watermarkTracker = new WatermarkTracker(30_000, clock);
+        windows = aggregator(10_000, 16);
+        watermarkTracker.register("shard-2");
+        add("player-1", "US", START + 1_000);
+        watermarkTracker.advance("shard-1", START + 2 * MINUTE);
+        assertEquals(0, windows.closeWindows(), "A shard without events should hold windows open until it is idle");
+
+        clock.advance(30_000);
+        watermarkTracker.advance("shard-1", START + 2 * MINUTE + 1_000);
+        watermarkTracker.checkIdle();
+        assertEquals(1, windows.closeWindows(), "An idle shard should no longer hold windows open");
+        assertEquals(1, windows.pollClosed().getAggregator().getTotalCount());
+    }
+
+    @Test
+    public void testCloseWindows_EmitsEachWindowOnce() {
+        add("player-1", "US", START + 1_000);
+        watermarkTracker.advance("shard-1", START + 2 * MINUTE);
+
+        assertEquals(1, windows.closeWindows());
+        assertEquals(0, windows.closeWindows(), "A closed window should not be queued again");
+        assertNotNull(windows.peekClosed());
+        assertSame(windows.peekClosed(), windows.pollClosed(), "Peeking should leave the window queued");
+        assertNull(windows.peekClosed());
+
+        add("player-2", "US", START + 2_000);
+        assertEquals(0, windows.closeWindows());
+        assertNull(windows.peekClosed(), "A late login should not reopen its window");
+        assertEquals(1, windows.getLateEventCount());
+        assertTrue(windows.describeStats().startsWith("open=0 closed=1 forced=0 queued=0 late=1"), windows.describeStats());
+    }
+
+    @Test
+    public void testCloseAllWindows_QueuesOpenWindowsRegardlessOfWatermark() {
+        assertEquals(Long.MIN_VALUE, windows.getLatestWindowEndMillis());
+        assertEquals(Long.MIN_VALUE, windows.getClosedEndMillis());
+        add("player-1", "US", START + 1_000);
+        add("player-2", "US", START + 2 * MINUTE + 1_000);
+        add("player-3", "US", START + MINUTE + 1_000);
+        assertEquals(START + 3 * MINUTE, windows.getLatestWindowEndMillis(), "The latest window opened should be reported");
+
+        watermarkTracker.advance("shard-1", START + MINUTE + 10_000);
+        assertEquals(1, windows.closeWindows());
+        assertEquals(START + MINUTE, windows.getClosedEndMillis());
+
+        assertEquals(2, windows.closeAllWindows());
+        assertEquals(START + 3 * MINUTE, windows.getClosedEndMillis(), "Every window opened should be closed");
+        assertEquals(List.of(START, START + MINUTE, START + 2 * MINUTE),
+                drain().stream().map(EventTimeWindowAggregator.ClosedWindow::getStartMillis).collect(Collectors.toList()));
+        add("player-4", "US", START + 2 * MINUTE + 2_000);
+        assertEquals(1, windows.getLateEventCount(), "A login after closing all windows should be late");
+    }
+
+    @Test
+    public void testAdd_EventWithoutTimestampUsesWatermark() {
+        watermarkTracker.advance("shard-1", START + 3 * MINUTE + 5_000);
+        LoginEvent event = new LoginEvent();
+        event.setPlayerId("player-1");
+        windows.add(event, "US");
+
+        watermarkTracker.advance("shard-1", START + 5 * MINUTE);
+        assertEquals(1, windows.closeWindows());
+        assertEquals(START + 3 * MINUTE, windows.pollClosed().getStartMillis(),
+                "An event without a timestamp should be placed at the watermark");
+    }
+
+    @Test
+    public void testAdd_FullRingClosesOldestWindowsEarly() {
+        windows = aggregator(0, 4);
+        add("player-1", "US", START);
+        add("player-2", "US", START + MINUTE);
+        add("player-3", "US", START + 4 * MINUTE);
+
+        EventTimeWindowAggregator.ClosedWindow forced = windows.pollClosed();
+        assertNotNull(forced, "A window pushed out of the ring should be closed early");
+        assertEquals(START, forced.getStartMillis());
+        assertNull(windows.pollClosed(), "Only the window pushed out should be closed");
+
+        add("player-4", "US", START + 30_000);
+        assertEquals(1, windows.getLateEventCount(), "The early closed window should not reopen");
+        assertTrue(windows.describeStats().startsWith("open=2 closed=1 forced=1"), windows.describeStats());
+    }
+
+    @Test
+    public void testConcurrentAddsAreNotLostAcrossClose() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(4);
+        long[] added = new long[4];
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                started.countDown();
+                LoginEvent event = new LoginEvent();
+                long i = 0;
+                while (running.get()) {
+                    event.reset();
+                    event.setPlayerId("player-" + thread + "-" + i++);
+                    event.setTimestampMillis(START + (i % 2) * MINUTE);
+                    windows.add(event, "US");
+                    added[thread]++;
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        watermarkTracker.advance("shard-1", START + 3 * MINUTE);
+        windows.closeWindows();
+        running.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        long counted = 0;
+        EventTimeWindowAggregator.ClosedWindow window;
+        while ((window = windows.pollClosed()) != null) {
+            counted += window.getAggregator().getTotalCount();
+        }
+        long total = added[0] + added[1] + added[2] + added[3];
+        assertEquals(total, counted + windows.getLateEventCount(), "Every login should be counted or reported late");
+    }
+
+    private EventTimeWindowAggregator aggregator(long allowedLatenessMillis, int maxOpenWindows) {
+        return new EventTimeWindowAggregator(MINUTE, allowedLatenessMillis, maxOpenWindows, watermarkTracker,
+                ExactLoginAggregator::new, Clock.fixed(Instant.ofEpochMilli(START), ZoneOffset.UTC));
+    }
+
+    private void add(String playerId, String country, long timestampMillis) {
+        LoginEvent event = new LoginEvent();
+        event.setPlayerId(playerId);
+        event.setTimestampMillis(timestampMillis);
+        windows.add(event, country);
+    }
+
+    private List<EventTimeWindowAggregator.ClosedWindow> drain() {
+        List<EventTimeWindowAggregator.ClosedWindow> closed = new ArrayList<>();
+        EventTimeWindowAggregator.ClosedWindow window;
+        while ((window = windows.pollClosed()) != null) {
+            closed.add(window);
+        }
+        return closed;
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
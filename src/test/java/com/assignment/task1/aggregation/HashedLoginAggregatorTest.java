@@ -0,0 +1,57 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.decoder.LoginEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedLoginAggregatorTest {
+
+    private HashedLoginAggregator aggregator;
+
+    @BeforeEach
+    public void setUp() {
+        aggregator = new HashedLoginAggregator();
+    }
+
+    @Test
+    public void testAdd_ExactCounts() {
+        for (int i = 0; i < 50000; i++) {
+            aggregator.add("player" + i, i % 5 == 0 ? "US" : "CA");
+            aggregator.add("player" + i, i % 5 == 0 ? "US" : "CA");
+        }
+
+        Map<String, Long> byCountry = aggregator.getCountsByCountry();
+        assertEquals(50000, aggregator.getTotalCount());
+        assertEquals(10000, byCountry.get("US"));
+        assertEquals(40000, byCountry.get("CA"));
+    }
+
+    @Test
+    public void testAdd_EventAndStringAgree() {
+        LoginEvent event = new LoginEvent();
+        event.setPlayerId("player1");
+
+        aggregator.add(event, "US");
+        aggregator.add("player1", "US");
+
+        assertEquals(1, aggregator.getTotalCount());
+    }
+
+    @Test
+    public void testMerge() {
+        HashedLoginAggregator other = new HashedLoginAggregator();
+        aggregator.add("player1", "US");
+        other.add("player1", "US");
+        other.add("player2", "DE");
+
+        aggregator.merge(other);
+
+        assertEquals(2, aggregator.getTotalCount());
+        assertEquals(1, aggregator.getCountsByCountry().get("US"));
+        assertEquals(1, aggregator.getCountsByCountry().get("DE"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.assignment.task1.aggregation;
+
+import com.assignment.task1.util.XxHash64;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void testEstimate_WithinErrorBound() {
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.precisionForError(0.01));
+        int players = 200000;
+        for (int i = 0; i < players; i++) {
+            sketch.offer(XxHash64.hashUtf8("player" + i));
+            // Duplicates must not change the estimate
+            sketch.offer(XxHash64.hashUtf8("player" + i));
+        }
+
+        assertEquals(players, sketch.estimate(), players * 0.03, "Estimate should be within 3 standard errors");
+    }
+
+    @Test
+    public void testEstimate_SmallCardinality() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        assertEquals(0, sketch.estimate(), "Empty sketch should estimate zero");
+
+        for (int i = 0; i < 10; i++) {
+            sketch.offer(XxHash64.hashUtf8("player" + i));
+        }
+        assertEquals(10, sketch.estimate());
+    }
+
+    @Test
+    public void testMerge_EstimatesUnion() {
+        HyperLogLog shard1 = new HyperLogLog(14);
+        HyperLogLog shard2 = new HyperLogLog(14);
+        for (int i = 0; i < 60000; i++) {
+            shard1.offer(XxHash64.hashUtf8("player" + i));
+        }
+        for (int i = 40000; i < 100000; i++) {
+            shard2.offer(XxHash64.hashUtf8("player" + i));
+        }
+
+        shard1.merge(shard2);
+
+        assertEquals(100000, shard1.estimate(), 100000 * 0.03, "Merged sketch should estimate the union");
+    }
+
+    @Test
+    public void testMerge_RejectsDifferentPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(14)));
+    }
+
+    @Test
+    public void testSerialization_RoundTrip() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int i = 0; i < 5000; i++) {
+            sketch.offer(XxHash64.hashUtf8("player" + i));
+        }
+
+        HyperLogLog copy = HyperLogLog.fromByteArray(sketch.toByteArray());
+
+        assertEquals(sketch.getPrecision(), copy.getPrecision());
+        assertEquals(sketch.estimate(), copy.estimate());
+    }
+
+    @Test
+    public void testPrecisionForError() {
+        assertEquals(14, HyperLogLog.precisionForError(0.01));
+        assertEquals(HyperLogLog.MAX_PRECISION, HyperLogLog.precisionForError(0.0001));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.precisionForError(0));
+    }
+}
@@ -0,0 +1,44 @@
+package com.assignment.task1.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleWriterApproximateLoginAggregatorTest {
+
+    private static final int PRECISION = HyperLogLog.precisionForError(0.01);
+
+    @Test
+    public void testAdd_CountsTotalAndByCountry() {
+        SingleWriterApproximateLoginAggregator aggregator = new SingleWriterApproximateLoginAggregator(PRECISION);
+        for (int i = 0; i < 30000; i++) {
+            aggregator.add("player" + i, i % 3 == 0 ? "US" : "CA");
+        }
+
+        Map<String, Long> byCountry = aggregator.getCountsByCountry();
+        assertEquals(30000, aggregator.getTotalCount(), 30000 * 0.03);
+        assertEquals(10000, byCountry.get("US"), 10000 * 0.03);
+        assertEquals(20000, byCountry.get("CA"), 20000 * 0.03);
+    }
+
+    @Test
+    public void testMergeAll_UnionsOverlappingAggregators() {
+        SingleWriterApproximateLoginAggregator first = new SingleWriterApproximateLoginAggregator(PRECISION);
+        SingleWriterApproximateLoginAggregator second = new SingleWriterApproximateLoginAggregator(PRECISION);
+        for (int i = 0; i < 30000; i++) {
+            first.add("player" + i, "US");
+            second.add("player" + (i + 10000), i % 2 == 0 ? "US" : "DE");
+        }
+
+        SingleWriterApproximateLoginAggregator merged = new SingleWriterApproximateLoginAggregator(PRECISION);
+        merged.mergeAll(List.of(first, second));
+
+        assertEquals(40000, merged.getTotalCount(), 40000 * 0.03, "Total should count every player once");
+        assertEquals(35000, merged.getCountsByCountry().get("US"), 35000 * 0.03);
+        assertEquals(15000, merged.getCountsByCountry().get("DE"), 15000 * 0.03);
+        assertEquals(30000, first.getTotalCount(), 30000 * 0.03, "Sources should be left unchanged");
+    }
+}
@@ -0,0 +1,43 @@
+package com.assignment.task1.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleWriterExactLoginAggregatorTest {
+
+    @Test
+    public void testAdd_ExactCounts() {
+        SingleWriterExactLoginAggregator aggregator = new SingleWriterExactLoginAggregator();
+        aggregator.add("player1", "US");
+        aggregator.add("player1", "US");
+        aggregator.add("player2", "");
+
+        assertEquals(2, aggregator.getTotalCount());
+        assertEquals(Map.of("US", 1L, "", 1L), aggregator.getCountsByCountry());
+    }
+
+    @Test
+    public void testMergeAll_UnionsOverlappingAggregators() {
+        SingleWriterExactLoginAggregator first = new SingleWriterExactLoginAggregator();
+        SingleWriterExactLoginAggregator second = new SingleWriterExactLoginAggregator();
+        SingleWriterExactLoginAggregator third = new SingleWriterExactLoginAggregator();
+        for (int i = 0; i < 30000; i++) {
+            // Players overlap across aggregators, as when a player logs in on several shards
+            first.add("player" + i, "US");
+            second.add("player" + (i + 10000), "US");
+            third.add("player" + (i + 20000), "FR");
+        }
+
+        SingleWriterExactLoginAggregator merged = new SingleWriterExactLoginAggregator();
+        merged.mergeAll(List.of(first, second, third));
+
+        assertEquals(50000, merged.getTotalCount(), "Total should count every player once");
+        assertEquals(40000, merged.getCountsByCountry().get("US"));
+        assertEquals(30000, merged.getCountsByCountry().get("FR"));
+        assertEquals(30000, first.getTotalCount(), "Sources should be left unchanged");
+    }
+}
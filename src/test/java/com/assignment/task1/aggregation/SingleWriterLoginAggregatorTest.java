@@ -0,0 +1,44 @@
+package com.assignment.task1.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleWriterLoginAggregatorTest {
+
+    @Test
+    public void testAdd_ExactCounts() {
+        SingleWriterLoginAggregator aggregator = new SingleWriterLoginAggregator();
+        aggregator.add("player1", "US");
+        aggregator.add("player1", "US");
+        aggregator.add("player2", "");
+
+        assertEquals(2, aggregator.getTotalCount());
+        assertEquals(Map.of("US", 1L, "", 1L), aggregator.getCountsByCountry());
+    }
+
+    @Test
+    public void testMergeAll_UnionsOverlappingAggregators() {
+        SingleWriterLoginAggregator first = new SingleWriterLoginAggregator();
+        SingleWriterLoginAggregator second = new SingleWriterLoginAggregator();
+        SingleWriterLoginAggregator third = new SingleWriterLoginAggregator();
+        for (int i = 0; i < 30000; i++) {
+            // Players overlap across aggregators, as when a player logs in on several shards
+            first.add("player" + i, i % 2 == 0 ? "US" : "DE");
+            second.add("player" + (i + 10000), i % 2 == 0 ? "US" : "DE");
+            third.add("player" + (i + 20000), "FR");
+        }
+
+        SingleWriterLoginAggregator merged = new SingleWriterLoginAggregator();
+        merged.mergeAll(List.of(first, second, third));
+
+        assertEquals(50000, merged.getTotalCount(), "Total should count every player once");
+        assertEquals(20000, merged.getCountsByCountry().get("US"));
+        assertEquals(20000, merged.getCountsByCountry().get("DE"));
+        assertEquals(30000, merged.getCountsByCountry().get("FR"));
+        assertEquals(30000, first.getTotalCount(), "Sources should be left unchanged");
+    }
+}
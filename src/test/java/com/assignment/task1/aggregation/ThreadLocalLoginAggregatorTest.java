@@ -0,0 +1,115 @@
+package com.assignment.task1.aggregation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThreadLocalLoginAggregatorTest {
+
+    private ThreadLocalLoginAggregator aggregator;
+
+    @BeforeEach
+    public void setUp() {
+        aggregator = new ThreadLocalLoginAggregator(SingleWriterLoginAggregator::new);
+    }
+
+    @Test
+    public void testSeal_MergesAllThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                futures.add(executor.submit(() -> {
+                    // Every thread sees the same players
+                    for (int i = 0; i < 1000; i++) {
+                        aggregator.add("player" + i, i < 100 ? "US" : "DE");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        LoginAggregator sealed = aggregator.seal();
+
+        assertEquals(1000, sealed.getTotalCount(), "Players seen by several threads should be counted once");
+        assertEquals(100, sealed.getCountsByCountry().get("US"));
+        assertEquals(0, aggregator.seal().getTotalCount(), "Next interval should start empty");
+    }
+
+    @Test
+    public void testConcurrentSeal_NoLostLogins() throws Exception {
+        int writers = 4;
+        int playersPerWriter = 100000;
+        AtomicInteger finished = new AtomicInteger();
+        SingleWriterLoginAggregator total = new SingleWriterLoginAggregator();
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < playersPerWriter; i++) {
+                        aggregator.add("player" + writer + "-" + i, "US");
+                    }
+                    finished.incrementAndGet();
+                }));
+            }
+            while (finished.get() < writers) {
+                total.merge(aggregator.seal());
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        total.merge(aggregator.seal());
+
+        assertEquals((long) writers * playersPerWriter, total.getTotalCount(), "Every login must end up in exactly one interval");
+    }
+
+    @Test
+    public void testSeal_DropsThreadsThatEnded() throws Exception {
+        for (int w = 0; w < 3; w++) {
+            int writer = w;
+            // A per-task worker thread, as each shard gets in the per-task worker mode
+            Thread thread = new Thread(() -> aggregator.add("player" + writer, "US"));
+            thread.start();
+            thread.join();
+        }
+        assertEquals(3, aggregator.getWriterCount());
+
+        assertEquals(3, aggregator.seal().getTotalCount(), "An ended thread's players should still be counted");
+        assertEquals(0, aggregator.getWriterCount(), "Ended threads should be dropped once merged");
+    }
+
+    @Test
+    public void testMerge_CarriesPlayersOverToNextSeal() {
+        SingleWriterLoginAggregator refused = new SingleWriterLoginAggregator();
+        refused.add("player1", "US");
+        refused.add("player2", "DE");
+
+        aggregator.merge(refused);
+
+        assertEquals(0, aggregator.getWriterCount(), "Merging should not register the calling thread as a writer");
+        LoginAggregator sealed = aggregator.seal();
+        assertEquals(2, sealed.getTotalCount(), "Merged players should be in the next interval");
+        assertEquals(1, sealed.getCountsByCountry().get("DE"));
+        assertEquals(0, aggregator.seal().getTotalCount(), "Carried players should only be counted once");
+    }
+}
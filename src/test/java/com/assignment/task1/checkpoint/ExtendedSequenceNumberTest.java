@@ -0,0 +1,33 @@
+package com.assignment.task1.checkpoint;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExtendedSequenceNumberTest {
+
+    @Test
+    public void testPlainSequenceNumberCoversWholeRecord() {
+        ExtendedSequenceNumber position = ExtendedSequenceNumber.parse("49590338271490256608559692538361571095921575989136588898");
+
+        assertFalse(position.isPartial(), "A plain sequence number should cover the whole record");
+        assertEquals("49590338271490256608559692538361571095921575989136588898", position.getSequenceNumber());
+        assertEquals(-1, position.getSubSequenceNumber());
+    }
+
+    @Test
+    public void testSubSequenceNumberRoundTrips() {
+        String checkpoint = ExtendedSequenceNumber.format("4959", 7);
+        ExtendedSequenceNumber position = ExtendedSequenceNumber.parse(checkpoint);
+
+        assertTrue(position.isPartial(), "A sub-sequence number should mark a partly processed aggregate");
+        assertEquals("4959", position.getSequenceNumber());
+        assertEquals(7, position.getSubSequenceNumber());
+        assertEquals(checkpoint, position.toString());
+    }
+
+    @Test
+    public void testNoCheckpoint() {
+        assertNull(ExtendedSequenceNumber.parse(null), "A missing checkpoint should stay missing");
+    }
+}
@@ -0,0 +1,56 @@
+package com.assignment.task1.checkpoint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileCheckpointStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSaveAndLoad_LastCheckpointWins() throws Exception {
+        Path file = directory.resolve("checkpoints/shards.log");
+        FileCheckpointStore store = new FileCheckpointStore(file, 1000);
+        store.save(Map.of("shard-1", "100", "shard-2", "200"));
+        store.save(Map.of("shard-1", "150"));
+
+        Map<String, String> loaded = new FileCheckpointStore(file, 1000).load();
+
+        assertEquals(Map.of("shard-1", "150", "shard-2", "200"), loaded);
+    }
+
+    @Test
+    public void testLoad_DropsTornLastLine() throws Exception {
+        Path file = directory.resolve("shards.log");
+        Files.writeString(file, "shard-1\t100\nshard-1\t15", StandardCharsets.UTF_8);
+
+        FileCheckpointStore store = new FileCheckpointStore(file, 1000);
+        assertEquals(Map.of("shard-1", "100"), store.load(), "A line cut short by a crash must not be used");
+
+        store.save(Map.of("shard-2", "200"));
+        assertEquals(Map.of("shard-1", "100", "shard-2", "200"), new FileCheckpointStore(file, 1000).load(),
+                "Appends after a torn line should start on a fresh line");
+    }
+
+    @Test
+    public void testSave_CompactsLog() throws Exception {
+        Path file = directory.resolve("shards.log");
+        FileCheckpointStore store = new FileCheckpointStore(file, 10);
+        for (int i = 0; i < 25; i++) {
+            store.save(Map.of("shard-1", String.valueOf(i), "shard-2", String.valueOf(i * 2)));
+        }
+
+        long lines = Files.readAllLines(file, StandardCharsets.UTF_8).size();
+        assertTrue(lines < 10, "Log should have been compacted, but has " + lines + " lines");
+        assertEquals(Map.of("shard-1", "24", "shard-2", "48"), new FileCheckpointStore(file, 10).load());
+    }
+}
@@ -0,0 +1,107 @@
+package com.assignment.task1.checkpoint;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class ShardCheckpointerTest {
+
+    @Test
+    public void testCheckpoint_SavedOnceCommitted() throws Exception {
+        CheckpointStore store = mock(CheckpointStore.class);
+        when(store.load()).thenReturn(Map.of("shard-1", "100"));
+        ShardCheckpointer checkpointer = new ShardCheckpointer(store);
+
+        assertEquals("100", checkpointer.getCheckpoint("shard-1"), "Loaded checkpoint should be used");
+
+        checkpointer.checkpoint("shard-1", "150");
+        checkpointer.checkpoint("shard-1", "160");
+        checkpointer.checkpoint("shard-2", "200");
+        verify(store, never()).save(anyMap());
+        assertEquals("160", checkpointer.getCheckpoint("shard-1"), "Retries should resume from the latest position");
+
+        checkpointer.flush();
+        verify(store, never()).save(anyMap());
+
+        Map<String, String> captured = checkpointer.capture();
+        assertEquals(Map.of("shard-1", "160", "shard-2", "200"), captured);
+        checkpointer.checkpoint("shard-1", "170");
+        checkpointer.flush();
+        verify(store, never()).save(anyMap());
+
+        checkpointer.commit(captured);
+        checkpointer.flush();
+        checkpointer.flush();
+
+        verify(store, times(1)).save(Map.of("shard-1", "160", "shard-2", "200"));
+        assertEquals("170", checkpointer.getCheckpoint("shard-1"), "Saving should not move a retry back");
+        assertEquals(Map.of("shard-1", "170"), checkpointer.capture(), "Later progress should wait for the next capture");
+    }
+
+    @Test
+    public void testRestore_CapturedAgainUnlessShardMovedOn() throws Exception {
+        CheckpointStore store = mock(CheckpointStore.class);
+        when(store.load()).thenReturn(Map.of());
+        ShardCheckpointer checkpointer = new ShardCheckpointer(store);
+
+        checkpointer.checkpoint("shard-1", "150");
+        checkpointer.checkpoint("shard-2", "250");
+        Map<String, String> captured = checkpointer.capture();
+        assertEquals(Map.of(), checkpointer.capture(), "A capture should take each checkpoint once");
+
+        checkpointer.checkpoint("shard-2", "260");
+        checkpointer.restore(captured);
+
+        assertEquals(Map.of("shard-1", "150", "shard-2", "260"), checkpointer.capture());
+    }
+
+    @Test
+    public void testAdopt_DropsLocalCheckpointsNotSavedYet() throws Exception {
+        CheckpointStore store = mock(CheckpointStore.class);
+        when(store.load()).thenReturn(Map.of());
+        ShardCheckpointer checkpointer = new ShardCheckpointer(store);
+
+        checkpointer.checkpoint("shard-1", "150");
+        checkpointer.checkpoint("shard-2", "250");
+        Map<String, String> captured = checkpointer.capture();
+        checkpointer.adopt("shard-1", "300");
+        checkpointer.commit(captured);
+        checkpointer.flush();
+
+        verify(store).save(Map.of("shard-2", "250"));
+        assertEquals("300", checkpointer.getCheckpoint("shard-1"), "The adopted checkpoint should be used");
+    }
+
+    @Test
+    public void testFlush_RetriesAfterFailure() throws Exception {
+        CheckpointStore store = mock(CheckpointStore.class);
+        when(store.load()).thenReturn(Map.of());
+        doThrow(new IOException("disk full")).doNothing().when(store).save(anyMap());
+        ShardCheckpointer checkpointer = new ShardCheckpointer(store);
+
+        checkpointer.checkpoint("shard-1", "150");
+        checkpointer.commit(checkpointer.capture());
+        checkpointer.flush();
+        checkpointer.flush();
+
+        verify(store, times(2)).save(Map.of("shard-1", "150"));
+    }
+
+    @Test
+    public void testIsShardEnd() throws Exception {
+        CheckpointStore store = mock(CheckpointStore.class);
+        when(store.load()).thenReturn(Map.of("shard-1", ShardCheckpointer.SHARD_END));
+        ShardCheckpointer checkpointer = new ShardCheckpointer(store);
+
+        assertTrue(checkpointer.isShardEnd("shard-1"), "A loaded shard end should be reported");
+        assertFalse(checkpointer.isShardEnd("shard-2"), "A shard without checkpoint is not at its end");
+
+        checkpointer.checkpoint("shard-2", ShardCheckpointer.SHARD_END);
+        assertTrue(checkpointer.isShardEnd("shard-2"), "A pending shard end should be reported");
+    }
+}
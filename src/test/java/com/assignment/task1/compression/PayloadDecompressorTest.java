@@ -0,0 +1,100 @@
+package com.assignment.task1.compression;
+
+import com.github.luben.zstd.Zstd;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PayloadDecompressorTest {
+
+    private static final String PAYLOAD = "{\"playerId\":\"player-1\",\"country\":\"NL\",\"timestamp\":\"2024-01-01T00:00:00Z\"}";
+
+    private final PayloadDecompressor decompressor = new PayloadDecompressor(1 << 20);
+
+    @Test
+    public void testPlainPayloadIsPassedThrough() throws IOException {
+        ByteBuffer plain = ByteBuffer.wrap(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+
+        assertSame(plain, decompressor.decompress(plain), "An uncompressed payload should not be touched");
+        assertEquals("", decompressor.describeStats(), "No stats should be reported without compressed payloads");
+    }
+
+    @Test
+    public void testGzipPayload() throws IOException {
+        ByteBuffer compressed = ByteBuffer.wrap(gzip(PAYLOAD));
+
+        assertEquals(PayloadCodec.GZIP, PayloadCodec.detect(compressed));
+        assertEquals(PAYLOAD, text(decompressor.decompress(compressed)));
+        assertEquals(0, compressed.position(), "The record's buffer should be left untouched");
+    }
+
+    @Test
+    public void testZstdPayload() throws IOException {
+        ByteBuffer compressed = ByteBuffer.wrap(Zstd.compress(PAYLOAD.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(PayloadCodec.ZSTD, PayloadCodec.detect(compressed));
+        assertEquals(PAYLOAD, text(decompressor.decompress(compressed)));
+    }
+
+    @Test
+    public void testOutputBufferIsReused() throws IOException {
+        ByteBuffer first = decompressor.decompress(ByteBuffer.wrap(gzip(PAYLOAD)));
+        ByteBuffer second = decompressor.decompress(ByteBuffer.wrap(gzip("{\"playerId\":\"player-2\"}")));
+
+        assertSame(first, second, "Each thread should decompress into the same buffer");
+        assertEquals("{\"playerId\":\"player-2\"}", text(second));
+    }
+
+    @Test
+    public void testPayloadLargerThanInitialBuffer() throws IOException {
+        String large = PAYLOAD.repeat(2000);
+
+        assertEquals(large, text(decompressor.decompress(ByteBuffer.wrap(gzip(large)))));
+    }
+
+    @Test
+    public void testCorruptGzipIsRejected() throws IOException {
+        byte[] compressed = gzip(PAYLOAD);
+        // Flip a bit of the stored CRC
+        compressed[compressed.length - 8] ^= 1;
+
+        assertThrows(IOException.class, () -> decompressor.decompress(ByteBuffer.wrap(compressed)));
+    }
+
+    @Test
+    public void testOversizedPayloadIsRejected() throws IOException {
+        PayloadDecompressor small = new PayloadDecompressor(1024);
+
+        assertThrows(IOException.class, () -> small.decompress(ByteBuffer.wrap(gzip(PAYLOAD.repeat(100)))));
+    }
+
+    @Test
+    public void testStatsReportCompressionRatio() throws IOException {
+        String large = PAYLOAD.repeat(100);
+        decompressor.decompress(ByteBuffer.wrap(gzip(large)));
+
+        String stats = decompressor.describeStats();
+        assertEquals(1, decompressor.getCompressedRecords());
+        assertTrue(stats.startsWith("records=1 ratio="), "Stats should count the record: " + stats);
+        double ratio = Double.parseDouble(stats.substring(stats.indexOf("ratio=") + 6, stats.indexOf(' ', stats.indexOf("ratio="))));
+        assertTrue(ratio > 10, "A repetitive payload should compress well: " + stats);
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String text(ByteBuffer data) {
+        return StandardCharsets.UTF_8.decode(data.duplicate()).toString();
+    }
+}
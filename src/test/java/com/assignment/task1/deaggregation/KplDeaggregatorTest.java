@@ -0,0 +1,121 @@
+package com.assignment.task1.deaggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KplDeaggregatorTest {
+
+    @Test
+    public void testIteratesUserRecordsInOrder() {
+        ByteBuffer aggregate = ByteBuffer.wrap(aggregate("{\"playerId\":\"a\"}", "{\"playerId\":\"b\"}", "{\"playerId\":\"c\"}"));
+        List<String> payloads = new ArrayList<>();
+        List<Long> subSequenceNumbers = new ArrayList<>();
+
+        assertTrue(KplDeaggregator.isAggregated(aggregate), "A record with magic bytes and a valid digest should be an aggregate");
+        long count = KplDeaggregator.forEachUserRecord(aggregate, (subSequenceNumber, data) -> {
+            subSequenceNumbers.add(subSequenceNumber);
+            payloads.add(StandardCharsets.UTF_8.decode(data).toString());
+        });
+
+        assertEquals(3, count);
+        assertEquals(List.of("{\"playerId\":\"a\"}", "{\"playerId\":\"b\"}", "{\"playerId\":\"c\"}"), payloads);
+        assertEquals(List.of(0L, 1L, 2L), subSequenceNumbers);
+        assertEquals(0, aggregate.position(), "The record's buffer should be left untouched");
+    }
+
+    @Test
+    public void testUserRecordsAreViewsOfTheRecord() {
+        byte[] bytes = aggregate("payload");
+        ByteBuffer aggregate = ByteBuffer.wrap(bytes);
+
+        KplDeaggregator.forEachUserRecord(aggregate, (subSequenceNumber, data) ->
+                assertSame(bytes, data.array(), "User records should not be copied"));
+    }
+
+    @Test
+    public void testPlainRecordIsNotAggregated() {
+        ByteBuffer plain = ByteBuffer.wrap("{\"playerId\":\"a\",\"country\":\"NL\"}".getBytes(StandardCharsets.UTF_8));
+        assertFalse(KplDeaggregator.isAggregated(plain), "A JSON record should not be taken for an aggregate");
+        assertFalse(KplDeaggregator.isAggregated(ByteBuffer.allocate(0)), "An empty record should not be taken for an aggregate");
+    }
+
+    @Test
+    public void testDigestMismatchIsNotAggregated() {
+        byte[] bytes = aggregate("payload");
+        bytes[bytes.length - 1] ^= 1;
+        assertFalse(KplDeaggregator.isAggregated(ByteBuffer.wrap(bytes)), "A corrupted digest should make it a plain record");
+    }
+
+    @Test
+    public void testAggregateInsideLargerBuffer() {
+        byte[] bytes = aggregate("payload");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 8);
+        buffer.position(4);
+        buffer.put(bytes);
+        buffer.flip().position(4);
+        List<String> payloads = new ArrayList<>();
+
+        assertTrue(KplDeaggregator.isAggregated(buffer), "An aggregate between position and limit should be found");
+        KplDeaggregator.forEachUserRecord(buffer, (subSequenceNumber, data) -> payloads.add(StandardCharsets.UTF_8.decode(data).toString()));
+
+        assertEquals(List.of("payload"), payloads);
+    }
+
+    @Test
+    public void testTruncatedAggregateIsRejected() {
+        byte[] body = new byte[]{0x1A, 0x10, 0x1A, 0x02};
+        ByteBuffer aggregate = ByteBuffer.wrap(frame(body));
+
+        assertTrue(KplDeaggregator.isAggregated(aggregate), "The digest covers the malformed body");
+        assertThrows(IllegalArgumentException.class, () -> KplDeaggregator.forEachUserRecord(aggregate, (subSequenceNumber, data) -> { }));
+    }
+
+    /**
+     * Encodes an aggregated record the way the KPL does, with one partition key shared by all user records.
+     */
+    public static byte[] aggregate(String... payloads) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeLengthDelimited(body, 1, "player".getBytes(StandardCharsets.UTF_8));
+        for (String payload : payloads) {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            writeVarint(record, 1 << 3);
+            writeVarint(record, 0);
+            writeLengthDelimited(record, 3, payload.getBytes(StandardCharsets.UTF_8));
+            writeLengthDelimited(body, 3, record.toByteArray());
+        }
+        return frame(body.toByteArray());
+    }
+
+    private static byte[] frame(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(body);
+            ByteBuffer framed = ByteBuffer.allocate(4 + body.length + digest.length);
+            framed.put(new byte[]{(byte) 0xF3, (byte) 0x89, (byte) 0x9A, (byte) 0xC2}).put(body).put(digest);
+            return framed.array();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeLengthDelimited(ByteArrayOutputStream out, int field, byte[] value) {
+        writeVarint(out, (field << 3) | 2);
+        writeVarint(out, value.length);
+        out.writeBytes(value);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,215 @@
+package com.assignment.task1.decoder;
+
+import com.assignment.task1.protobuf.LoginMessageV1;
+import com.assignment.task1.protobuf.LoginMessageV2;
+import com.assignment.task1.util.XxHash64;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonLoginEventDecoderTest {
+
+    private SchemaDecoderRegistry registry;
+    private JsonLoginEventDecoder decoder;
+    private LoginEvent event;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SchemaDecoderRegistry(List.of(
+                new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV1.getDescriptor()),
+                new SchemaDecoder(LoginEvent.SCHEMA_V2, LoginMessageV2.getDescriptor())));
+        decoder = new JsonLoginEventDecoder(registry);
+        event = new LoginEvent();
+    }
+
+    @Test
+    public void testDecode_V1Message() throws Exception {
+        String json = "{\"event_type\":\"login\",\"player_id\":\"player1\",\"platform\":\"ios\",\"client_version\":3}";
+
+        assertTrue(decoder.decode(json, event), "V1 message should be decoded");
+        assertEquals(LoginEvent.SCHEMA_V1, event.getSchemaVersion());
+        assertEquals("player1", event.getPlayerId());
+        assertNull(event.getCountry(), "V1 message should not carry a country");
+        assertFalse(event.hasTimestamp());
+    }
+
+    @Test
+    public void testDecode_V2MessageFromBytes() throws Exception {
+        byte[] data = "xx{\"playerId\":\"player2\",\"country\":\"US\",\"timestamp\":\"2024-09-30T14:30:00.250Z\"}yy"
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(decoder.decode(data, 2, data.length - 4, event), "V2 message should be decoded");
+        assertEquals(LoginEvent.SCHEMA_V2, event.getSchemaVersion());
+        assertEquals("player2", event.getPlayerId());
+        assertEquals("US", event.getCountry());
+        assertEquals(1727706600250L, event.getTimestampMillis());
+    }
+
+    @Test
+    public void testDecode_SkipsNestedUnknownFields() throws Exception {
+        String json = "{\"extra\":{\"a\":[1,2,{\"player_id\":\"nested\"}]},\"player_id\":\"player3\"}";
+
+        assertTrue(decoder.decode(json, event));
+        assertEquals("player3", event.getPlayerId(), "Nested fields must not be picked up");
+    }
+
+    @Test
+    public void testDecode_MissingPlayerId() throws Exception {
+        assertFalse(decoder.decode("{\"invalidField\":\"invalidValue\"}", event));
+    }
+
+    @Test
+    public void testDecode_ResetsReusedEvent() throws Exception {
+        decoder.decode("{\"player_id\":\"player1\",\"country\":\"DE\"}", event);
+        decoder.decode("{\"player_id\":\"player2\"}", event);
+
+        assertEquals("player2", event.getPlayerId());
+        assertNull(event.getCountry(), "Country from the previous record must not leak");
+        assertEquals(LoginEvent.SCHEMA_V1, event.getSchemaVersion());
+    }
+
+    @Test
+    public void testDecode_MalformedJson() {
+        assertThrows(IOException.class, () -> decoder.decode("{\"player_id\":", event));
+        assertThrows(IOException.class, () -> decoder.decode("{\"player_id\":\"p\",\"timestamp\":\"yesterday\"}", event));
+    }
+
+    @Test
+    public void testDecode_UnescapesStrings() throws Exception {
+        String json = "{\"player_\\u0069d\":\"pl\\\"ay\\u00e9r\\ud83d\\ude00\",\"country\":\"\\u0055S\"}";
+
+        assertTrue(decoder.decode(json, event));
+        assertEquals("pl\"ay\u00e9r\ud83d\ude00", event.getPlayerId());
+        assertEquals("US", event.getCountry());
+        assertEquals(XxHash64.hashUtf8("pl\"ay\u00e9r\ud83d\ude00"), event.getPlayerFingerprint(),
+                "Fingerprint taken from the bytes must match the one of the String");
+    }
+
+    @Test
+    public void testDecode_ScalarValuesAsText() throws Exception {
+        assertTrue(decoder.decode("{\"player_id\":12345,\"client_version\":-1.5e3}", event));
+        assertEquals("12345", event.getPlayerId(), "Numeric player IDs should be taken verbatim");
+
+        assertFalse(decoder.decode("{\"player_id\":null}", event));
+        assertNull(event.getPlayerId());
+    }
+
+    @Test
+    public void testDecode_TimestampWithOffset() throws Exception {
+        assertTrue(decoder.decode("{\"player_id\":\"p\",\"country\":\"US\",\"timestamp\":\"2024-09-30T16:30:00.25+02:00\"}", event));
+        assertEquals(1727706600250L, event.getTimestampMillis());
+    }
+
+    @Test
+    public void testDecode_NotAnObject() throws Exception {
+        assertFalse(decoder.decode("[\"player_id\"]", event));
+        assertFalse(decoder.decode("  ", event));
+        assertThrows(IOException.class, () -> decoder.decode("{\"player_id\":\"p\",}", event));
+        assertThrows(IOException.class, () -> decoder.decode("{\"player_id\":01}", event));
+        assertThrows(IOException.class, () -> decoder.decode("{\"player_id\":\"p\" \"country\":\"US\"}", event));
+        assertEquals(5, registry.getUndetectedCount());
+    }
+
+    @Test
+    public void testDecode_RejectsTrailingContent() throws Exception {
+        assertThrows(IOException.class, () -> decoder.decode("{\"player_id\":\"p\"}x", event));
+        assertThrows(IOException.class, () -> decoder.decode("{\"player_id\":\"p\"}{\"player_id\":\"q\"}", event));
+        assertThrows(IOException.class, () -> decoder.decode("{\"player_id\":\"p\"}}", event));
+        assertThrows(IOException.class, () -> decoder.decode("[1] 2", event));
+        assertEquals(4, registry.getUndetectedCount(), "A rejected record must not count towards its schema version");
+
+        assertTrue(decoder.decode(" {\"player_id\":\"p\"} \r\n\t", event), "Whitespace around the root value is allowed");
+        assertEquals("p", event.getPlayerId());
+    }
+
+    @Test
+    public void testDecode_AgreesWithJackson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        List<String> payloads = new ArrayList<>(List.of(
+                // Escapes
+                "{\"player_id\":\"\\/\\b\\f\\n\\r\\t\\u00e9\\u20AC\"}",
+                "{\"player_id\":\"a\\qb\"}",
+                "{\"player_id\":\"a\\u12\"}",
+                "{\"player_id\":\"a\\u12G4\"}",
+                "{\"player_id\":\"a\\\"}",
+                "{\"player_id\":\"tab\tinside\"}",
+                "{\"extra\":\"a\\x\",\"player_id\":\"p\"}",
+                // Surrogates, paired and unpaired
+                "{\"player_id\":\"\\ud83d\\ude00\"}",
+                "{\"player_id\":\"\ud83d\ude00\"}",
+                "{\"player_id\":\"\\ud83d\"}",
+                "{\"player_id\":\"\\ude00\\ud83d\"}",
+                "{\"player_id\":\"\\ud83dx\"}",
+                "{\"player_id\":\"\\ud83d\\u0041\"}",
+                // Numbers
+                "{\"player_id\":-0}",
+                "{\"player_id\":1.5E-3}",
+                "{\"player_id\":12345678901234567890123}",
+                "{\"player_id\":01}",
+                "{\"player_id\":-01}",
+                "{\"player_id\":1.}",
+                "{\"player_id\":.5}",
+                "{\"player_id\":1e}",
+                "{\"player_id\":1e+}",
+                "{\"player_id\":-}",
+                "{\"player_id\":+1}",
+                "{\"player_id\":0x1F}",
+                "{\"player_id\":NaN}",
+                // Structure
+                "{\"player_id\":\"p\"} {}",
+                "{\"player_id\":\"p\"]",
+                "{\"a\":[1,]}",
+                "{\"a\":tru}",
+                "{\"a\":nulll}",
+                "{\"a\" 1}",
+                "{'player_id':'p'}",
+                "\"p\" \"q\""));
+        // Jackson allows 1000 nested objects and arrays, the root one included
+        for (int depth = 998; depth <= 1001; depth++) {
+            String nested = "[".repeat(depth) + "]".repeat(depth);
+            payloads.add(nested);
+            payloads.add("{\"player_id\":\"p\",\"extra\":" + nested + "}");
+        }
+
+        for (String payload : payloads) {
+            String description = payload.length() > 80 ? payload.substring(0, 80) + "... (" + payload.length() + " chars)" : payload;
+            JsonNode expected;
+            try {
+                expected = mapper.readTree(payload);
+            } catch (IOException e) {
+                assertThrows(IOException.class, () -> decoder.decode(payload, event), "Jackson rejects " + description);
+                continue;
+            }
+            decoder.decode(payload, event);
+            JsonNode playerId = expected.get("player_id");
+            if (playerId != null && playerId.isTextual()) {
+                // Unpaired surrogates cannot be held as UTF-8 and come out as '?' either way
+                String utf8 = new String(playerId.asText().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+                assertEquals(utf8, event.getPlayerId(), "Player ID of " + description);
+            }
+        }
+    }
+
+    @Test
+    public void testDecode_CountsPerSchemaVersion() throws Exception {
+        decoder.decode("{\"player_id\":\"player1\"}", event);
+        decoder.decode("{\"player_id\":\"player2\",\"country\":\"US\"}", event);
+        decoder.decode("{\"player_id\":\"player3\",\"country\":\"CA\"}", event);
+        decoder.decode("{\"country\":\"CA\"}", event);
+        assertThrows(IOException.class, () -> decoder.decode("not json", event));
+
+        assertEquals(1, registry.getDecoder(LoginEvent.SCHEMA_V1).getDecodedCount());
+        assertEquals(2, registry.getDecoder(LoginEvent.SCHEMA_V2).getDecodedCount());
+        assertEquals(1, registry.getDecoder(LoginEvent.SCHEMA_V2).getFailedCount(), "V2 record without player ID should count as a V2 failure");
+        assertEquals(1, registry.getUndetectedCount());
+    }
+}
@@ -0,0 +1,156 @@
+package com.assignment.task1.decoder;
+
+import com.assignment.task1.protobuf.LoginMessageV1;
+import com.assignment.task1.protobuf.LoginMessageV2;
+import com.google.protobuf.Timestamp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginEventDecoderTest {
+
+    private LoginEventDecoder decoder;
+    private LoginEvent event;
+
+    @BeforeEach
+    public void setUp() {
+        SchemaDecoderRegistry registry = new SchemaDecoderRegistry(List.of(
+                new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV1.getDescriptor()),
+                new SchemaDecoder(LoginEvent.SCHEMA_V2, LoginMessageV2.getDescriptor())));
+        decoder = new LoginEventDecoder(PayloadFormat.AUTO, new JsonLoginEventDecoder(registry), new ProtobufLoginEventDecoder(registry));
+        event = new LoginEvent();
+    }
+
+    @Test
+    public void testDetectFormat() {
+        assertEquals(PayloadFormat.JSON, LoginEventDecoder.detectFormat(utf8("{\"player_id\":\"p\"}")));
+        assertEquals(PayloadFormat.JSON, LoginEventDecoder.detectFormat(utf8("  {\"player_id\":\"p\"}")));
+        assertEquals(PayloadFormat.JSON, LoginEventDecoder.detectFormat(utf8("\n{\"player_id\":\"p\"}")),
+                "A leading line feed should not hide a JSON object");
+        assertEquals(PayloadFormat.JSON, LoginEventDecoder.detectFormat(utf8("\r\n\t {\"player_id\":\"p\"}")));
+        assertEquals(PayloadFormat.JSON, LoginEventDecoder.detectFormat(utf8(" \n")));
+
+        byte[] binary = LoginMessageV1.newBuilder().setEventType("login").setPlayerId("p").build().toByteArray();
+        assertEquals(PayloadFormat.PROTOBUF, LoginEventDecoder.detectFormat(ByteBuffer.wrap(binary)));
+    }
+
+    @Test
+    public void testDecode_JsonWithLeadingLineFeed() throws Exception {
+        assertTrue(decoder.decode(utf8("\n{\n  \"player_id\": \"p\",\n  \"country\": \"US\"\n}\n"), event),
+                "Pretty-printed JSON should be decoded as JSON");
+        assertEquals("p", event.getPlayerId());
+        assertEquals("US", event.getCountry());
+    }
+
+    @Test
+    public void testDecode_BinaryThatLooksLikeIndentedJson() throws Exception {
+        // Tag 0x0A, then the length 123 of event_type, which reads as '{'
+        byte[] binary = LoginMessageV1.newBuilder().setEventType("l".repeat(123)).setPlayerId("p").build().toByteArray();
+        ByteBuffer data = ByteBuffer.wrap(binary);
+        assertEquals(PayloadFormat.JSON, LoginEventDecoder.detectFormat(data));
+
+        assertTrue(decoder.decode(data, event), "A binary message that is not valid JSON should fall back to protobuf");
+        assertEquals("p", event.getPlayerId());
+        assertEquals(0, data.position(), "Decoding must not consume the record buffer");
+    }
+
+    @Test
+    public void testDecode_BinaryV2WithTimestamp() throws Exception {
+        byte[] binary = LoginMessageV2.newBuilder()
+                .setEventType("login")
+                .setTimestamp(Timestamp.newBuilder().setSeconds(1727706600L).setNanos(250_000_000))
+                .setPlayerId("player2")
+                .setPlatform("android")
+                .setClientVersion(7)
+                .setCountry("US")
+                .build()
+                .toByteArray();
+        ByteBuffer data = ByteBuffer.wrap(binary);
+
+        assertTrue(decoder.decode(data, event));
+        assertEquals(LoginEvent.SCHEMA_V2, event.getSchemaVersion());
+        assertEquals("player2", event.getPlayerId());
+        assertEquals("US", event.getCountry());
+        assertEquals(1727706600250L, event.getTimestampMillis());
+        assertEquals(0, data.position(), "Decoding must not consume the record buffer");
+    }
+
+    @Test
+    public void testDecode_BinaryV1() throws Exception {
+        byte[] binary = LoginMessageV1.newBuilder().setEventType("login").setPlayerId("player1").build().toByteArray();
+
+        assertTrue(decoder.decode(ByteBuffer.wrap(binary), event));
+        assertEquals(LoginEvent.SCHEMA_V1, event.getSchemaVersion());
+        assertEquals("player1", event.getPlayerId());
+        assertNull(event.getCountry());
+    }
+
+    @Test
+    public void testDecode_MixedStream() throws Exception {
+        byte[] binary = LoginMessageV2.newBuilder().setPlayerId("binary").setCountry("FR").build().toByteArray();
+
+        assertTrue(decoder.decode(utf8("{\"player_id\":\"json\",\"country\":\"CA\"}"), event));
+        assertEquals("json", event.getPlayerId());
+        assertEquals("CA", event.getCountry());
+
+        assertTrue(decoder.decode(ByteBuffer.wrap(binary), event));
+        assertEquals("binary", event.getPlayerId());
+        assertEquals("FR", event.getCountry());
+    }
+
+    @Test
+    public void testDecode_DirectBuffer() throws Exception {
+        byte[] json = "{\"player_id\":\"direct\"}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.allocateDirect(json.length);
+        data.put(json).flip();
+
+        assertTrue(decoder.decode(data, event));
+        assertEquals("direct", event.getPlayerId());
+    }
+
+    @Test
+    public void testDecode_BinarySkipsUnknownFieldsAndGroups() throws Exception {
+        byte[] known = LoginMessageV1.newBuilder().setPlayerId("player1").build().toByteArray();
+        // Field 20 as varint, field 21 as a group holding a fixed32, field 22 as fixed64
+        byte[] unknown = {(byte) 0xA0, 0x01, 0x7F, (byte) 0xAB, 0x01, (byte) 0x0D, 1, 2, 3, 4, (byte) 0xAC, 0x01,
+                (byte) 0xB1, 0x01, 1, 2, 3, 4, 5, 6, 7, 8};
+        ByteBuffer data = ByteBuffer.allocate(unknown.length + known.length).put(unknown).put(known).flip();
+
+        assertTrue(decoder.decode(data, event), "Unknown fields must be skipped");
+        assertEquals("player1", event.getPlayerId());
+    }
+
+    @Test
+    public void testDecode_MalformedBinary() {
+        byte[] binary = LoginMessageV1.newBuilder().setEventType("login").setPlayerId("player1").build().toByteArray();
+        byte[] truncated = Arrays.copyOf(binary, binary.length - 2);
+        byte[] invalidUtf8 = {0x0A, 0x01, 0x6C, 0x5A, 0x02, (byte) 0xC3, 0x28};
+
+        assertThrows(IOException.class, () -> decoder.decode(ByteBuffer.wrap(truncated), event));
+        assertThrows(IOException.class, () -> decoder.decode(ByteBuffer.wrap(invalidUtf8), event),
+                "Invalid UTF-8 in the player ID must be rejected");
+    }
+
+    @Test
+    public void testDecode_DirectBinaryBuffer() throws Exception {
+        byte[] binary = LoginMessageV2.newBuilder().setPlayerId("direct").setCountry("JP").build().toByteArray();
+        ByteBuffer data = ByteBuffer.allocateDirect(binary.length);
+        data.put(binary).flip();
+
+        assertTrue(decoder.decode(data, event));
+        assertEquals("direct", event.getPlayerId());
+        assertEquals("JP", event.getCountry());
+        assertEquals(0, data.position(), "Decoding must not consume the record buffer");
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package com.assignment.task1.decoder;
+
+import com.google.protobuf.util.Timestamps;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Rfc3339TimestampsTest {
+
+    @Test
+    public void testParseMillis_MatchesTimestampsParse() throws Exception {
+        String[] values = {
+                "1970-01-01T00:00:00Z",
+                "2024-09-30T14:30:00.250Z",
+                "2024-02-29T23:59:59.999999999Z",
+                "2024-09-30T14:30:00.1+05:30",
+                "2024-09-30T00:15:00-08:00",
+                "1969-12-31T23:59:59.5Z",
+                "0001-01-01T00:00:00Z",
+                "9999-12-31T23:59:59.999Z"
+        };
+        for (String value : values) {
+            assertEquals(Timestamps.toMillis(Timestamps.parse(value)), parse(value), value);
+        }
+    }
+
+    @Test
+    public void testParseMillis_RejectsInvalidValues() {
+        String[] values = {
+                "yesterday",
+                "2024-09-30 14:30:00Z",
+                "2024-09-30T14:30:00",
+                "2024-02-30T14:30:00Z",
+                "2023-02-29T14:30:00Z",
+                "2024-09-30T24:00:00Z",
+                "2024-09-30T14:30:00.Z",
+                "2024-09-30T14:30:00.1234567890Z",
+                "2024-09-30T14:30:00+0200",
+                "2024-09-30T14:30:00ZZ",
+                "0000-01-01T00:00:00Z",
+                "2024-09-3xT14:30:00Z"
+        };
+        for (String value : values) {
+            assertThrows(IOException.class, () -> parse(value), value);
+        }
+    }
+
+    @Test
+    public void testParseMillis_Slice() throws Exception {
+        byte[] data = "\"2024-09-30T14:30:00.250Z\"".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(1727706600250L, Rfc3339Timestamps.parseMillis(data, 1, data.length - 2));
+    }
+
+    private static long parse(String value) throws IOException {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        return Rfc3339Timestamps.parseMillis(data, 0, data.length);
+    }
+}
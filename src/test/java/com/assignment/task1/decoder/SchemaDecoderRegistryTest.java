@@ -0,0 +1,56 @@
+package com.assignment.task1.decoder;
+
+import com.assignment.task1.protobuf.LoginMessageV1;
+import com.assignment.task1.protobuf.LoginMessageV2;
+import com.google.protobuf.Timestamp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaDecoderRegistryTest {
+
+    private SchemaDecoderRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        // Registration order must not matter
+        registry = new SchemaDecoderRegistry(List.of(
+                new SchemaDecoder(LoginEvent.SCHEMA_V2, LoginMessageV2.getDescriptor()),
+                new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV1.getDescriptor())));
+    }
+
+    @Test
+    public void testResolve_PicksLowestMatchingVersion() {
+        long v1Fields = (1L << 1) | (1L << 10) | (1L << 11) | (1L << 12) | (1L << 13);
+
+        assertEquals(LoginEvent.SCHEMA_V1, registry.resolve(v1Fields).getVersion());
+        assertEquals(LoginEvent.SCHEMA_V2, registry.resolve(v1Fields | (1L << 14)).getVersion());
+        assertEquals(LoginEvent.SCHEMA_V1, registry.resolve(0L).getVersion());
+    }
+
+    @Test
+    public void testResolve_UnknownFieldsAreIgnored() {
+        assertEquals(0L, registry.presenceBit(42), "Fields no version declares must not affect detection");
+        assertEquals(1L << 14, registry.presenceBit(14));
+    }
+
+    @Test
+    public void testRegistry_RejectsDuplicateVersion() {
+        assertThrows(IllegalArgumentException.class, () -> new SchemaDecoderRegistry(List.of(
+                new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV1.getDescriptor()),
+                new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV2.getDescriptor()))));
+    }
+
+    @Test
+    public void testSchemaDecoder_RejectsMessageWithoutPlayerId() {
+        assertThrows(IllegalArgumentException.class, () -> new SchemaDecoder(3, Timestamp.getDescriptor()));
+    }
+
+    @Test
+    public void testDescribeStats() {
+        assertEquals("v1=0/0 v2=0/0 undetected=0", registry.describeStats());
+    }
+}
@@ -0,0 +1,88 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.ConcurrentLongHashSet;
+import com.assignment.task1.util.XxHash64;
+import com.assignment.task1.watermark.WatermarkTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventTimeDeduplicationTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    private WatermarkTracker watermarkTracker;
+    private EventTimeDeduplication deduplication;
+
+    @BeforeEach
+    public void setUp() {
+        watermarkTracker = new WatermarkTracker();
+        deduplication = new EventTimeDeduplication(1, 10, watermarkTracker, ConcurrentLongHashSet::new,
+                Clock.fixed(Instant.ofEpochMilli(START), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testIsUniquePlayer_UsesEventTime() {
+        // A replayed backlog arrives all at once, but its events are minutes apart
+        assertTrue(isUnique("player1", START));
+        assertFalse(isUnique("player1", START + 30_000), "Duplicate within the event-time window should not be unique");
+        assertTrue(isUnique("player1", START + 5 * MINUTE), "Login five event-time minutes later should be unique again");
+        assertFalse(isUnique("player1", START + 5 * MINUTE + 10_000));
+    }
+
+    @Test
+    public void testIsUniquePlayer_OutOfOrderWithinWindow() {
+        assertTrue(isUnique("player1", START + 40_000));
+        assertFalse(isUnique("player1", START + 10_000), "An earlier login within the window is still a duplicate");
+    }
+
+    @Test
+    public void testIsUniquePlayer_RetiresBucketsBehindWatermark() {
+        assertTrue(isUnique("player1", START));
+
+        watermarkTracker.advance("shard-1", START + 3 * MINUTE);
+
+        assertTrue(isUnique("player1", START + 20_000), "Event behind the watermark cannot see retired buckets");
+        assertEquals(1, deduplication.getLateEventCount());
+        assertTrue(isUnique("player1", START + 20_000), "Late events are not remembered");
+    }
+
+    @Test
+    public void testIsUniquePlayer_ShardsSeveralWindowsApart() {
+        // shard-2 replays its backlog five windows ahead of shard-1, which holds the watermark back
+        watermarkTracker.advance("shard-1", START);
+        watermarkTracker.advance("shard-2", START + 5 * MINUTE);
+        assertTrue(isUnique("player1", START + 10_000));
+
+        for (int second = 0; second < 5 * 60; second += 5) {
+            assertTrue(isUnique("fast-player-" + second, START + 5 * MINUTE + second * 1000L));
+        }
+        watermarkTracker.advance("shard-1", START + 20_000);
+
+        assertFalse(isUnique("player1", START + 30_000), "The slow shard's buckets should survive the fast shard's events");
+        assertFalse(isUnique("fast-player-100", START + 5 * MINUTE + 110_000), "The fast shard should still be deduplicated");
+        assertEquals(0, deduplication.getLateEventCount(), "No event within the skew should be late");
+    }
+
+    @Test
+    public void testIsUniquePlayer_EventWithoutTimestampUsesWatermark() {
+        watermarkTracker.advance("shard-1", START + 10 * MINUTE);
+        assertTrue(isUnique("player1", START + 10 * MINUTE));
+
+        LoginEvent event = new LoginEvent();
+        event.setPlayerId("player1");
+
+        assertFalse(deduplication.isUniquePlayer(event), "Event without a timestamp should be placed at the watermark");
+    }
+
+    private boolean isUnique(String playerId, long eventTime) {
+        return deduplication.isUniquePlayer(XxHash64.hashUtf8(playerId), eventTime);
+    }
+}
@@ -0,0 +1,58 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.decoder.LoginEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class FilteredDeduplicationTest {
+
+    private PlayerDeduplication exact;
+    private FilteredDeduplication deduplication;
+
+    @BeforeEach
+    public void setUp() {
+        exact = spy(new FingerprintWindowDeduplication(1));
+        deduplication = new FilteredDeduplication(exact,
+                buckets -> new FingerprintWindowDeduplication(1, Clock.systemUTC(), buckets),
+                10000, 0.01);
+    }
+
+    @Test
+    public void testIsUniquePlayer() {
+        assertTrue(deduplication.isUniquePlayer(event("player1")), "First occurrence should be unique");
+        assertFalse(deduplication.isUniquePlayer(event("player1")), "Duplicate within window should not be unique");
+        assertTrue(deduplication.isUniquePlayer(event("player2")));
+    }
+
+    @Test
+    public void testDefinitelyNewPlayersSkipExactCheck() {
+        deduplication.isUniquePlayer(event("player1"));
+        deduplication.isUniquePlayer(event("player1"));
+
+        verify(exact, times(1)).recordUniquePlayer(any(LoginEvent.class));
+        verify(exact, times(1)).isUniquePlayer(any(LoginEvent.class));
+    }
+
+    @Test
+    public void testStatsReportFalsePositiveRate() {
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(deduplication.isUniquePlayer(event("player" + i)), "Every distinct player should be unique");
+        }
+
+        double observed = deduplication.getObservedFalsePositiveRate();
+        assertTrue(observed < 0.02, "Observed false-positive rate " + observed + " should be near the target");
+        assertTrue(deduplication.describeStats().contains("definitely-new="));
+    }
+
+    private static LoginEvent event(String playerId) {
+        LoginEvent event = new LoginEvent();
+        event.setPlayerId(playerId);
+        return event;
+    }
+}
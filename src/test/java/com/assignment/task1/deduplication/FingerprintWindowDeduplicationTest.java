@@ -0,0 +1,160 @@
+package com.assignment.task1.deduplication;
+
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.util.MappedLongHashSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FingerprintWindowDeduplicationTest {
+
+    @TempDir
+    Path directory;
+
+    private MutableClock clock;
+    private FingerprintWindowDeduplication deduplication;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock();
+        deduplication = new FingerprintWindowDeduplication(1, clock);
+    }
+
+    @Test
+    public void testIsUniquePlayer_DuplicateWithinWindow() {
+        assertTrue(deduplication.isUniquePlayer("player1"), "First occurrence should be unique");
+        assertFalse(deduplication.isUniquePlayer("player1"), "Duplicate within window should not be unique");
+        assertTrue(deduplication.isUniquePlayer("player2"));
+
+        clock.advance(59_000);
+        assertFalse(deduplication.isUniquePlayer("player1"), "Duplicate just before the window ends should not be unique");
+    }
+
+    @Test
+    public void testIsUniquePlayer_ExpiresAfterWindowAndBucket() {
+        assertTrue(deduplication.isUniquePlayer("player1"));
+
+        // Window of 60s plus one 15s bucket
+        clock.advance(75_000);
+        assertTrue(deduplication.isUniquePlayer("player1"), "Player should be unique again once its bucket has expired");
+    }
+
+    @Test
+    public void testIsUniquePlayer_EventUsesSameFingerprint() {
+        LoginEvent event = new LoginEvent();
+        event.setPlayerId("player1");
+
+        assertTrue(deduplication.isUniquePlayer(event));
+        assertFalse(deduplication.isUniquePlayer("player1"), "String and event checks must share state");
+    }
+
+    @Test
+    public void testHandlingHighVolumeOfUniqueIds() {
+        // Twice the hard cap of the Caffeine backend
+        int numPlayers = 200000;
+        for (int i = 0; i < numPlayers; i++) {
+            assertTrue(deduplication.isUniquePlayer("player" + i));
+        }
+        assertFalse(deduplication.isUniquePlayer("player0"), "Early IDs must not be evicted by volume");
+    }
+
+    @Test
+    public void testRotation_RecyclesExpiredBucketSets() {
+        AtomicInteger created = new AtomicInteger();
+        deduplication = new FingerprintWindowDeduplication(1, clock, () -> {
+            created.incrementAndGet();
+            return new MappedLongHashSet(directory, 1000);
+        });
+
+        // Twenty 15s buckets, five windows
+        for (int i = 0; i < 20; i++) {
+            assertTrue(deduplication.isUniquePlayer("player" + i));
+            if (i > FingerprintWindowDeduplication.BUCKETS_PER_WINDOW) {
+                awaitSpare();
+            }
+            clock.advance(15_000);
+        }
+
+        // One more set than the ring holds: the rotation swaps in a spare while the retired set is emptied
+        assertEquals(FingerprintWindowDeduplication.BUCKETS_PER_WINDOW + 2, created.get(),
+                "Expired bucket sets should be reused instead of creating new ones");
+        assertTrue(deduplication.isUniquePlayer("player0"), "A recycled bucket should not remember its old players");
+        assertFalse(deduplication.isUniquePlayer("player19"), "Players within the window should still be remembered");
+    }
+
+    @Test
+    public void testRotation_RecyclesOffTheCallingThread() {
+        AtomicInteger recycledOnCaller = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+        deduplication = new FingerprintWindowDeduplication(1, clock, () -> new MappedLongHashSet(directory, 1000) {
+            @Override
+            public boolean recycle() {
+                if (Thread.currentThread() == caller) {
+                    recycledOnCaller.incrementAndGet();
+                }
+                return super.recycle();
+            }
+        });
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(deduplication.isUniquePlayer("player" + i));
+            clock.advance(15_000);
+        }
+        awaitSpare();
+
+        assertEquals(0, recycledOnCaller.get(), "Rotating a bucket must not empty its table on the event thread");
+    }
+
+    @Test
+    public void testShutdown() {
+        assertTrue(deduplication.isUniquePlayer("player1"));
+        deduplication.shutdown();
+        assertTrue(deduplication.isUniquePlayer("player1"), "Player ID should be unique after the state is cleared");
+    }
+
+    private void awaitSpare() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (deduplication.getSpareCount() == 0) {
+            assertTrue(System.nanoTime() < deadline, "The retired bucket set should be recycled in the background");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis = 1_700_000_000_000L;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
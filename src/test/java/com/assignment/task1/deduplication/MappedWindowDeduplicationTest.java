@@ -0,0 +1,36 @@
+package com.assignment.task1.deduplication;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedWindowDeduplicationTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testIsUniquePlayer() {
+        MappedWindowDeduplication deduplication = new MappedWindowDeduplication(1, directory, 1000);
+
+        assertTrue(deduplication.isUniquePlayer("player1"), "First occurrence should be unique");
+        assertFalse(deduplication.isUniquePlayer("player1"), "Duplicate within window should not be unique");
+        assertTrue(deduplication.isUniquePlayer("player2"));
+    }
+
+    @Test
+    public void testHandlingHighVolumeOfUniqueIds() {
+        MappedWindowDeduplication deduplication = new MappedWindowDeduplication(1, directory, 500000);
+
+        int numPlayers = 300000;
+        for (int i = 0; i < numPlayers; i++) {
+            assertTrue(deduplication.isUniquePlayer("player" + i));
+        }
+        for (int i = 0; i < numPlayers; i += 1000) {
+            assertFalse(deduplication.isUniquePlayer("player" + i), "Early IDs must not be evicted by volume");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.assignment.task1.fanout;
+
+import com.assignment.task1.service.RecordBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.awssdk.services.kinesis.model.ShardIteratorType;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardEvent;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardRequest;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardResponseHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ShardSubscriptionTest {
+
+    private static final String SHARD_ID = "shardId-000000000000";
+
+    @Mock
+    private KinesisAsyncClient client;
+
+    @Mock
+    private Subscription subscription;
+
+    private final List<CompletableFuture<Void>> calls = new ArrayList<>();
+    private BlockingQueue<RecordBatch> batches;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Two buffered events plus the slot kept for the final batch
+        batches = new ArrayBlockingQueue<>(3);
+        when(client.subscribeToShard(any(SubscribeToShardRequest.class), any(SubscribeToShardResponseHandler.class)))
+                .thenAnswer(invocation -> {
+                    CompletableFuture<Void> call = new CompletableFuture<>();
+                    calls.add(call);
+                    return call;
+                });
+    }
+
+    @Test
+    public void testRequestsEventsOnlyWhileQueueHasRoom() throws Exception {
+        ShardSubscription shardSubscription = start(null);
+        ShardSubscription.EventSubscriber subscriber = shardSubscription.currentSubscriber();
+
+        subscriber.onSubscribe(subscription);
+        verify(subscription, times(1)).request(1);
+
+        subscriber.onNext(event("1", "a"));
+        subscriber.onNext(event("2", "b"));
+        assertEquals(2, batches.size(), "Each event should become a batch");
+        verify(subscription, times(2)).request(1);
+
+        batches.take();
+        shardSubscription.onBatchTaken();
+        verify(subscription, times(3)).request(1);
+    }
+
+    @Test
+    public void testEmptyEventsAreSkipped() {
+        ShardSubscription shardSubscription = start(null);
+        ShardSubscription.EventSubscriber subscriber = shardSubscription.currentSubscriber();
+        subscriber.onSubscribe(subscription);
+
+        subscriber.onNext(event("1"));
+
+        assertTrue(batches.isEmpty(), "An event without records should not be queued");
+        verify(subscription, times(2)).request(1);
+    }
+
+    @Test
+    public void testExpiredSubscriptionIsRenewedFromContinuation() {
+        ShardSubscription shardSubscription = start("5");
+        shardSubscription.currentSubscriber().onSubscribe(subscription);
+        shardSubscription.currentSubscriber().onNext(event("7", "a"));
+
+        calls.get(0).complete(null);
+
+        ArgumentCaptor<SubscribeToShardRequest> requests = ArgumentCaptor.forClass(SubscribeToShardRequest.class);
+        verify(client, times(2)).subscribeToShard(requests.capture(), any(SubscribeToShardResponseHandler.class));
+        SubscribeToShardRequest first = requests.getAllValues().get(0);
+        SubscribeToShardRequest renewed = requests.getAllValues().get(1);
+        assertEquals("5", first.startingPosition().sequenceNumber(), "The first subscription should start after the checkpoint");
+        assertEquals(ShardIteratorType.AFTER_SEQUENCE_NUMBER, renewed.startingPosition().type());
+        assertEquals("7", renewed.startingPosition().sequenceNumber(), "The renewal should continue after the last event");
+    }
+
+    @Test
+    public void testStartsAtTrimHorizonWithoutCheckpoint() {
+        start(null);
+
+        ArgumentCaptor<SubscribeToShardRequest> request = ArgumentCaptor.forClass(SubscribeToShardRequest.class);
+        verify(client).subscribeToShard(request.capture(), any(SubscribeToShardResponseHandler.class));
+        assertEquals(ShardIteratorType.TRIM_HORIZON, request.getValue().startingPosition().type());
+        assertEquals(SHARD_ID, request.getValue().shardId());
+        assertEquals("consumer-arn", request.getValue().consumerARN());
+    }
+
+    @Test
+    public void testClosedShardEndsStream() {
+        ShardSubscription shardSubscription = start(null);
+        shardSubscription.currentSubscriber().onSubscribe(subscription);
+
+        shardSubscription.currentSubscriber().onNext(event(null, "last"));
+        calls.get(0).complete(null);
+
+        RecordBatch batch = batches.poll();
+        assertNotNull(batch, "The last records should be queued");
+        assertTrue(batch.isShardEnd(), "An event without continuation should end the shard");
+        assertEquals("last", new String(batch.getRecords().get(0).getData().array(), StandardCharsets.UTF_8));
+        verify(subscription, times(1)).request(1);
+        verify(client, times(1)).subscribeToShard(any(SubscribeToShardRequest.class), any(SubscribeToShardResponseHandler.class));
+    }
+
+    @Test
+    public void testFailureIsHandedOverAsErrorBatch() {
+        start(null);
+
+        calls.get(0).completeExceptionally(new CompletionException(new IllegalStateException("connection reset")));
+
+        RecordBatch batch = batches.poll();
+        assertNotNull(batch, "A failure should reach the queue");
+        assertEquals("connection reset", batch.getError().getMessage());
+        verify(client, times(1)).subscribeToShard(any(SubscribeToShardRequest.class), any(SubscribeToShardResponseHandler.class));
+    }
+
+    @Test
+    public void testCloseCancelsWithoutRenewal() {
+        ShardSubscription shardSubscription = start(null);
+        shardSubscription.currentSubscriber().onSubscribe(subscription);
+
+        shardSubscription.close();
+        calls.get(0).complete(null);
+
+        verify(subscription).cancel();
+        verify(client, times(1)).subscribeToShard(any(SubscribeToShardRequest.class), any(SubscribeToShardResponseHandler.class));
+        assertTrue(batches.isEmpty(), "A closed subscription should not queue anything");
+    }
+
+    private ShardSubscription start(String afterSequence) {
+        ShardSubscription shardSubscription = new ShardSubscription(client, "consumer-arn", SHARD_ID, afterSequence, batches);
+        shardSubscription.start();
+        return shardSubscription;
+    }
+
+    private static SubscribeToShardEvent event(String continuation, String... payloads) {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < payloads.length; i++) {
+            records.add(Record.builder()
+                    .data(SdkBytes.fromUtf8String(payloads[i]))
+                    .sequenceNumber(continuation + "-" + i)
+                    .partitionKey("player")
+                    .build());
+        }
+        return SubscribeToShardEvent.builder()
+                .records(records)
+                .continuationSequenceNumber(continuation)
+                .millisBehindLatest(0L)
+                .build();
+    }
+}
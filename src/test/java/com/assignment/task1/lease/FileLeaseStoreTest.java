@@ -0,0 +1,50 @@
+package com.assignment.task1.lease;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileLeaseStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testConditionalWrites() throws Exception {
+        FileLeaseStore store = new FileLeaseStore(directory.resolve("leases/shards.tsv"));
+
+        assertTrue(store.createLeaseIfAbsent("shard-1"), "A missing lease should be created");
+        assertFalse(store.createLeaseIfAbsent("shard-1"), "An existing lease must not be reset");
+
+        assertTrue(store.takeLease("shard-1", "worker-a", 0), "An unchanged lease should be taken");
+        assertFalse(store.takeLease("shard-1", "worker-b", 0), "A lease written since it was read must not be taken");
+        assertFalse(store.renewLease("shard-1", "worker-b"), "Only the owner may renew");
+        assertTrue(store.renewLease("shard-1", "worker-a"), "The owner should renew");
+        assertFalse(store.updateCheckpoint("shard-1", "worker-b", "100"), "Only the owner may checkpoint");
+        assertTrue(store.updateCheckpoint("shard-1", "worker-a", "100"), "The owner should checkpoint");
+
+        assertEquals(List.of(new Lease("shard-1", "worker-a", 3, "100")), store.listLeases());
+    }
+
+    @Test
+    public void testInstancesShareTheFile() throws Exception {
+        Path file = directory.resolve("shards.tsv");
+        FileLeaseStore first = new FileLeaseStore(file);
+        FileLeaseStore second = new FileLeaseStore(file);
+
+        first.createLeaseIfAbsent("shard-1");
+        first.takeLease("shard-1", "worker-a", 0);
+        first.updateCheckpoint("shard-1", "worker-a", "100");
+        assertTrue(first.releaseLease("shard-1", "worker-a"), "The owner should release");
+
+        Lease released = second.listLeases().get(0);
+        assertNull(released.getOwner(), "A released lease has no owner");
+        assertEquals("100", released.getCheckpoint(), "The checkpoint should survive the release");
+        assertTrue(second.takeLease("shard-1", "worker-b", released.getCounter()), "The other instance should take the lease");
+        assertEquals("worker-b", first.listLeases().get(0).getOwner());
+    }
+}
@@ -0,0 +1,214 @@
+package com.assignment.task1.lease;
+
+import com.assignment.task1.checkpoint.CheckpointStore;
+import com.assignment.task1.checkpoint.ShardCheckpointer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaseCoordinatorTest {
+
+    private static final long LEASE_DURATION_MS = 30_000;
+    private static final List<String> SHARDS = List.of("shard-1", "shard-2", "shard-3", "shard-4");
+
+    @TempDir
+    Path directory;
+
+    private InMemoryLeaseStore store;
+    private MutableClock clock;
+
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryLeaseStore();
+        clock = new MutableClock();
+    }
+
+    @Test
+    public void testSingleWorkerTakesAllLeases() {
+        LeaseCoordinator coordinator = coordinator("worker-a");
+        coordinator.registerShards(SHARDS);
+        coordinator.refresh();
+
+        for (String shardId : SHARDS) {
+            assertTrue(coordinator.holdsLease(shardId), "A lone worker should hold " + shardId);
+        }
+    }
+
+    @Test
+    public void testSecondWorkerStealsItsShareOneLeaseAtATime() {
+        LeaseCoordinator first = coordinator("worker-a");
+        first.registerShards(SHARDS);
+        first.refresh();
+
+        LeaseCoordinator second = coordinator("worker-b");
+        second.refresh();
+        assertEquals(1, heldBy(second), "A new worker should steal a single lease per refresh");
+
+        first.refresh();
+        assertEquals(3, heldBy(first), "The worker stolen from should drop the lease on renewal");
+
+        second.refresh();
+        first.refresh();
+        second.refresh();
+        assertEquals(2, heldBy(first), "Leases should end up evenly spread");
+        assertEquals(2, heldBy(second), "Leases should end up evenly spread");
+    }
+
+    @Test
+    public void testLeasesOfStoppedWorkerFailOverAfterLeaseDuration() {
+        LeaseCoordinator first = coordinator("worker-a");
+        first.registerShards(SHARDS);
+        first.refresh();
+        store.updateCheckpoint("shard-1", "worker-a", "100");
+
+        ShardCheckpointer checkpointer = checkpointer();
+        LeaseCoordinator second = new LeaseCoordinator(store, checkpointer, "worker-b", LEASE_DURATION_MS, clock);
+        second.refresh();
+        second.refresh();
+        second.refresh();
+        assertEquals(2, heldBy(second), "Live leases should only be stolen down to an even split");
+
+        // worker-a stops renewing
+        clock.advance(LEASE_DURATION_MS);
+        second.refresh();
+
+        assertEquals(4, heldBy(second), "Expired leases should be taken over");
+        assertFalse(first.holdsLease("shard-1"), "A lease not renewed for a lease duration is not held");
+        assertEquals("100", checkpointer.getCheckpoint("shard-1"), "The previous owner's checkpoint should be adopted");
+    }
+
+    @Test
+    public void testTakeoverResumesFromPreviousOwnersCheckpoint() {
+        Path leaseFile = directory.resolve("shard-leases.tsv");
+        // Two processes on one host, each with its own view of the shared lease file
+        FileLeaseStore firstStore = new FileLeaseStore(leaseFile);
+        FileLeaseStore secondStore = new FileLeaseStore(leaseFile);
+
+        ShardCheckpointer firstCheckpointer = new ShardCheckpointer(new LeaseCheckpointStore(firstStore, "worker-a"));
+        LeaseCoordinator first = new LeaseCoordinator(firstStore, firstCheckpointer, "worker-a", LEASE_DURATION_MS, clock);
+        // A single shard, so worker-b has no share to steal while worker-a is alive
+        first.registerShards(List.of("shard-1"));
+        first.refresh();
+
+        ShardCheckpointer secondCheckpointer = new ShardCheckpointer(new LeaseCheckpointStore(secondStore, "worker-b"));
+        LeaseCoordinator second = new LeaseCoordinator(secondStore, secondCheckpointer, "worker-b", LEASE_DURATION_MS, clock);
+        second.refresh();
+        assertFalse(second.holdsLease("shard-1"), "A live lease should stay with its owner");
+
+        // worker-a saves its progress after worker-b has started, then stops
+        firstCheckpointer.checkpoint("shard-1", "100");
+        firstCheckpointer.commit(firstCheckpointer.capture());
+        firstCheckpointer.flush();
+        clock.advance(LEASE_DURATION_MS);
+        second.refresh();
+
+        assertTrue(second.holdsLease("shard-1"), "The expired lease should be taken over");
+        assertEquals("100", secondCheckpointer.getCheckpoint("shard-1"), "The new owner should resume where the previous owner stopped");
+    }
+
+    @Test
+    public void testShutdownReleasesLeases() {
+        LeaseCoordinator first = coordinator("worker-a");
+        first.registerShards(SHARDS);
+        first.refresh();
+        first.shutdown();
+
+        LeaseCoordinator second = coordinator("worker-b");
+        second.refresh();
+
+        assertEquals(4, heldBy(second), "Released leases should be taken without waiting for expiry");
+    }
+
+    @Test
+    public void testReleaseLease_HandsShardToAnotherWorker() {
+        LeaseCoordinator first = coordinator("worker-a");
+        first.registerShards(SHARDS);
+        first.refresh();
+
+        first.releaseLease("shard-1");
+        assertFalse(first.holdsLease("shard-1"), "A released lease is no longer held");
+
+        LeaseCoordinator second = coordinator("worker-b");
+        second.refresh();
+        assertTrue(second.holdsLease("shard-1"), "A released lease should be taken without waiting for expiry");
+    }
+
+    @Test
+    public void testDrainedShardIsReleased() {
+        LeaseCoordinator coordinator = coordinator("worker-a");
+        coordinator.registerShards(SHARDS);
+        coordinator.refresh();
+        store.updateCheckpoint("shard-1", "worker-a", ShardCheckpointer.SHARD_END);
+
+        coordinator.refresh();
+
+        assertFalse(coordinator.holdsLease("shard-1"), "A drained shard needs no lease");
+        assertEquals(3, heldBy(coordinator));
+    }
+
+    private LeaseCoordinator coordinator(String workerId) {
+        return new LeaseCoordinator(store, checkpointer(), workerId, LEASE_DURATION_MS, clock);
+    }
+
+    private static ShardCheckpointer checkpointer() {
+        return new ShardCheckpointer(new CheckpointStore() {
+            @Override
+            public Map<String, String> load() {
+                return new HashMap<>();
+            }
+
+            @Override
+            public void save(Map<String, String> checkpoints) {
+            }
+        });
+    }
+
+    private static int heldBy(LeaseCoordinator coordinator) {
+        int held = 0;
+        for (String shardId : SHARDS) {
+            if (coordinator.holdsLease(shardId)) {
+                held++;
+            }
+        }
+        return held;
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis = 1_700_000_000_000L;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.assignment.task1.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncOutputWriterTest {
+
+    @Test
+    public void testSubmit_WritesOnWriterThreadInOrder() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        List<Long> counts = new CopyOnWriteArrayList<>();
+        AsyncOutputWriter writer = new AsyncOutputWriter(List.of(snapshot -> {
+            threads.add(Thread.currentThread().getName());
+            counts.add(snapshot.getTotalCount());
+        }), 4, 5000);
+
+        assertTrue(writer.submit(snapshot(1)));
+        assertTrue(writer.submit(snapshot(2)));
+        assertTrue(writer.submit(snapshot(3)));
+        writer.shutdown();
+
+        assertEquals(List.of(1L, 2L, 3L), counts, "Snapshots should be written in submission order");
+        assertTrue(threads.stream().allMatch("output-writer"::equals), "Snapshots should be written on the writer thread: " + threads);
+        assertTrue(writer.describeStats().startsWith("written=3 failed=0 refused=0"), writer.describeStats());
+    }
+
+    @Test
+    public void testSubmit_RefusesWhenQueueIsFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncOutputWriter writer = new AsyncOutputWriter(List.of(snapshot -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }), 1, 5000);
+
+        assertTrue(writer.submit(snapshot(1)));
+        assertTrue(writing.await(5, TimeUnit.SECONDS), "The first snapshot should be picked up");
+        assertTrue(writer.submit(snapshot(2)), "One snapshot may wait in the queue");
+        long start = System.nanoTime();
+        assertFalse(writer.submit(snapshot(3)), "A full queue should refuse the snapshot");
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "Submitting must not wait for the writer");
+
+        release.countDown();
+        writer.shutdown();
+        assertTrue(writer.describeStats().startsWith("written=2 failed=0 refused=1"), writer.describeStats());
+        assertFalse(writer.submit(snapshot(4)), "A shut down writer should refuse snapshots");
+    }
+
+    @Test
+    public void testWrite_FailingSinkDoesNotStopOthers() {
+        List<Long> written = new CopyOnWriteArrayList<>();
+        OutputSink failing = snapshot -> {
+            throw new IOException("disk full");
+        };
+        AsyncOutputWriter writer = new AsyncOutputWriter(List.of(failing, snapshot -> written.add(snapshot.getTotalCount())), 4, 5000);
+
+        assertTrue(writer.submit(snapshot(7)));
+        writer.shutdown();
+
+        assertEquals(List.of(7L), written, "The second sink should still receive the snapshot");
+        assertTrue(writer.describeStats().startsWith("written=0 failed=1"), writer.describeStats());
+    }
+
+    @Test
+    public void testAfterWritten_RunsBehindSnapshotsUnlessOneFailed() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        AsyncOutputWriter writer = new AsyncOutputWriter(List.of(snapshot -> {
+            if (snapshot.getTotalCount() == 3) {
+                throw new IOException("disk full");
+            }
+            events.add("write-" + snapshot.getTotalCount());
+        }), 8, 5000);
+
+        assertTrue(writer.submit(snapshot(1)));
+        assertTrue(writer.submit(snapshot(2)));
+        assertTrue(writer.afterWritten(() -> events.add("action-1")));
+        assertTrue(writer.submit(snapshot(3)));
+        assertTrue(writer.afterWritten(() -> events.add("action-2")));
+        assertTrue(writer.submit(snapshot(4)));
+        assertTrue(writer.afterWritten(() -> events.add("action-3")));
+        writer.shutdown();
+        writer.shutdown();
+
+        assertEquals(List.of("write-1", "write-2", "action-1", "write-4", "action-3"), events,
+                "Actions should run behind their snapshots and be skipped after a failed one");
+        assertFalse(writer.afterWritten(() -> events.add("action-4")), "A shut down writer should refuse actions");
+    }
+
+    @Test
+    public void testAfterWritten_WaitsUntilBufferingSinkStoresSnapshots() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        // Snapshot 3 finishes the file holding 1 and 2; snapshot 5 fails and drops 3 and 4
+        AsyncOutputWriter writer = new AsyncOutputWriter(List.of(new BufferingSink(3, 5)), 16, 5000);
+
+        assertTrue(writer.submit(snapshot(1)));
+        assertTrue(writer.afterWritten(() -> events.add("action-1")));
+        assertTrue(writer.submit(snapshot(2)));
+        assertTrue(writer.afterWritten(() -> events.add("action-2")));
+        assertTrue(writer.submit(snapshot(3)));
+        assertTrue(writer.afterWritten(() -> events.add("action-3")));
+        assertTrue(writer.submit(snapshot(4)));
+        assertTrue(writer.afterWritten(() -> events.add("action-4")));
+        assertTrue(writer.submit(snapshot(5)));
+        assertTrue(writer.submit(snapshot(6)));
+        assertTrue(writer.afterWritten(() -> events.add("action-6")));
+        assertTrue(writer.submit(snapshot(7)));
+        assertTrue(writer.afterWritten(() -> events.add("action-7")));
+        writer.shutdown();
+
+        assertEquals(List.of("action-1", "action-2", "action-7"), events,
+                "Actions should wait until their snapshots are stored, and be skipped when a failure drops them");
+    }
+
+    // Buffers snapshots like a rolling file; only touched on the writer thread
+    private static final class BufferingSink implements OutputSink {
+        private final long rollingTotal;
+        private final long failingTotal;
+        private long writes;
+        private long durable;
+
+        BufferingSink(long rollingTotal, long failingTotal) {
+            this.rollingTotal = rollingTotal;
+            this.failingTotal = failingTotal;
+        }
+
+        @Override
+        public void write(OutputSnapshot snapshot) throws IOException {
+            writes++;
+            if (snapshot.getTotalCount() == failingTotal) {
+                // Like a sink that abandons its open files: nothing is buffered any more
+                durable = writes;
+                throw new IOException("disk full");
+            }
+            if (snapshot.getTotalCount() == rollingTotal) {
+                durable = writes - 1;
+            }
+        }
+
+        @Override
+        public long durableCount(long written) {
+            return durable;
+        }
+
+        @Override
+        public void close() {
+            durable = writes;
+        }
+    }
+
+    private static OutputSnapshot snapshot(long totalCount) {
+        return new OutputSnapshot(LocalDateTime.of(2024, 9, 30, 14, 30), totalCount, Map.of("US", totalCount));
+    }
+}
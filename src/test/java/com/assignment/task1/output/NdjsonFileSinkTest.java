@@ -0,0 +1,145 @@
+package com.assignment.task1.output;
+
+import com.assignment.task1.compression.PayloadCodec;
+import com.assignment.task1.dto.TotalUniquePlayerLogins;
+import com.assignment.task1.dto.UniquePlayerLoginsByCountry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NdjsonFileSinkTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 9, 30, 14, 30, 5, 123_000_000);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testWrite_PlainNdjson() throws Exception {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("US", 6789L);
+        counts.put("CA", 1234L);
+        counts.put("", 5L);
+        new NdjsonFileSink(directory, PayloadCodec.NONE).write(new OutputSnapshot(TIME, 8028, counts));
+
+        Path totalFile = singleFile(directory.resolve("metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14"));
+        assertTrue(totalFile.getFileName().toString().matches("total_unique_player_logins_20240930_143005_123_[0-9a-f-]{36}\\.ndjson"),
+                "Unexpected file name " + totalFile.getFileName());
+        List<String> totalLines = readLines(totalFile, PayloadCodec.NONE);
+        assertEquals(List.of("{\"date\":\"2024-09-30\",\"hour\":\"14\",\"minute\":\"30\","
+                + "\"metricName\":\"TotalUniquePlayerLogins\",\"loginCount\":8028}"), totalLines);
+
+        Path byCountryFile = singleFile(directory.resolve("metric_name=UniquePlayerLoginsByCountry/date=2024-09-30/hour=14"));
+        List<UniquePlayerLoginsByCountry> rows = new ArrayList<>();
+        for (String line : readLines(byCountryFile, PayloadCodec.NONE)) {
+            rows.add(objectMapper.readValue(line, UniquePlayerLoginsByCountry.class));
+        }
+        assertEquals(List.of("US", "CA", "N/A"), rows.stream().map(UniquePlayerLoginsByCountry::getCountry).collect(Collectors.toList()),
+                "Every country should be on its own line, a missing one as N/A");
+        assertEquals(6789L, rows.get(0).getLoginCount());
+        assertEquals("UniquePlayerLoginsByCountry", rows.get(0).getMetricName());
+        assertEquals("30", rows.get(0).getMinute());
+    }
+
+    @Test
+    public void testWrite_Gzip() throws Exception {
+        assertRoundTrip(PayloadCodec.GZIP, ".ndjson.gz");
+    }
+
+    @Test
+    public void testWrite_Zstd() throws Exception {
+        assertRoundTrip(PayloadCodec.ZSTD, ".ndjson.zst");
+    }
+
+    @Test
+    public void testWrite_LeavesNoTemporaryFiles() throws Exception {
+        NdjsonFileSink sink = new NdjsonFileSink(directory, PayloadCodec.GZIP);
+        sink.write(new OutputSnapshot(TIME, 1, Map.of("US", 1L)));
+        sink.write(new OutputSnapshot(TIME, 2, Map.of("US", 2L)));
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<String> names = files.filter(Files::isRegularFile)
+                    .map(file -> file.getFileName().toString())
+                    .collect(Collectors.toList());
+            assertEquals(4, names.size(), "Two files per snapshot expected: " + names);
+            assertTrue(names.stream().noneMatch(name -> name.endsWith(".tmp")), "Temporary files should have been renamed: " + names);
+        }
+    }
+
+    @Test
+    public void testWrite_ManyCountriesSpanSeveralBuffers() throws Exception {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            counts.put("C" + i, (long) i);
+        }
+        new NdjsonFileSink(directory, PayloadCodec.NONE).write(new OutputSnapshot(TIME, 5000, counts));
+
+        Path byCountryFile = singleFile(directory.resolve("metric_name=UniquePlayerLoginsByCountry/date=2024-09-30/hour=14"));
+        assertTrue(Files.size(byCountryFile) > 64 * 1024, "The file should be larger than the write buffer");
+        List<String> lines = readLines(byCountryFile, PayloadCodec.NONE);
+        assertEquals(5000, lines.size());
+        UniquePlayerLoginsByCountry last = objectMapper.readValue(lines.get(4999), UniquePlayerLoginsByCountry.class);
+        assertEquals("C4999", last.getCountry());
+        assertEquals(4999L, last.getLoginCount());
+    }
+
+    private void assertRoundTrip(PayloadCodec codec, String extension) throws Exception {
+        new NdjsonFileSink(directory, codec).write(new OutputSnapshot(TIME, 42, Map.of("DE", 42L)));
+
+        Path totalFile = singleFile(directory.resolve("metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14"));
+        assertTrue(totalFile.getFileName().toString().endsWith(extension), "Unexpected file name " + totalFile.getFileName());
+        List<String> lines = readLines(totalFile, codec);
+        assertEquals(1, lines.size());
+        TotalUniquePlayerLogins total = objectMapper.readValue(lines.get(0), TotalUniquePlayerLogins.class);
+        assertEquals(42L, total.getLoginCount());
+        assertEquals("2024-09-30", total.getDate());
+    }
+
+    private static Path singleFile(Path partition) throws IOException {
+        try (Stream<Path> files = Files.list(partition)) {
+            List<Path> list = files.sorted(Comparator.naturalOrder()).collect(Collectors.toList());
+            assertEquals(1, list.size(), "Expected exactly one file in " + partition + ": " + list);
+            return list.get(0);
+        }
+    }
+
+    private static List<String> readLines(Path file, PayloadCodec codec) throws IOException {
+        try (InputStream in = open(file, codec)) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(content.endsWith("\n"), "Every line should be terminated");
+            return List.of(content.split("\n"));
+        }
+    }
+
+    private static InputStream open(Path file, PayloadCodec codec) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        switch (codec) {
+            case GZIP:
+                return new GZIPInputStream(in);
+            case ZSTD:
+                return new ZstdInputStream(in);
+            default:
+                return in;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.assignment.task1.output;
+
+import com.assignment.task1.compression.PayloadCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParquetFileSinkTest {
+
+    private static final long HOUR_MS = 3_600_000;
+    private static final long LARGE = 1L << 40;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testWrite_AppendsIntervalsToOneFilePerPartition() throws Exception {
+        ParquetFileSink sink = new ParquetFileSink(directory, PayloadCodec.NONE, LARGE, HOUR_MS, LARGE);
+        sink.write(snapshot(14, 30, 3, Map.of("US", 2L, "DE", 1L)));
+        sink.write(snapshot(14, 31, 1, Map.of("US", 1L)));
+        sink.write(snapshot(14, 32, 2, Map.of("", 1L, "DE", 1L)));
+
+        Path totalPartition = directory.resolve("metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14");
+        Path byCountryPartition = directory.resolve("metric_name=UniquePlayerLoginsByCountry/date=2024-09-30/hour=14");
+        assertTrue(files(totalPartition).isEmpty(), "The open file should not be visible yet");
+
+        sink.close();
+
+        List<Path> totalFiles = files(totalPartition);
+        assertEquals(1, totalFiles.size(), "All intervals of the hour should share one file");
+        assertTrue(totalFiles.get(0).getFileName().toString().matches("total_unique_player_logins_20240930_143000_000_[0-9a-f-]{36}\\.parquet"),
+                "Unexpected file name " + totalFiles.get(0).getFileName());
+        ParquetTestReader total = new ParquetTestReader(totalFiles.get(0));
+        assertEquals(List.of("minute", "loginCount"), total.columns);
+        assertEquals(List.of(Map.of("minute", "30", "loginCount", 3L), Map.of("minute", "31", "loginCount", 1L),
+                Map.of("minute", "32", "loginCount", 2L)), total.rows);
+
+        List<Path> byCountryFiles = files(byCountryPartition);
+        assertEquals(1, byCountryFiles.size());
+        ParquetTestReader byCountry = new ParquetTestReader(byCountryFiles.get(0));
+        assertEquals(List.of("minute", "country", "loginCount"), byCountry.columns);
+        assertEquals(5, byCountry.rows.size());
+        assertTrue(byCountry.rows.contains(Map.of("minute", "32", "country", "N/A", "loginCount", 1L)),
+                "A missing country should be written as N/A: " + byCountry.rows);
+        assertEquals(List.of(0, 2), byCountry.encodings.get(1), "country should be dictionary encoded");
+
+        try (Stream<Path> all = Files.walk(directory)) {
+            assertTrue(all.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")), "No temporary file should remain");
+        }
+    }
+
+    @Test
+    public void testWrite_RollsWhenHourEnds() throws Exception {
+        ParquetFileSink sink = new ParquetFileSink(directory, PayloadCodec.NONE, LARGE, HOUR_MS, LARGE);
+        sink.write(snapshot(14, 59, 1, Map.of("US", 1L)));
+        sink.write(snapshot(15, 0, 2, Map.of("US", 2L)));
+
+        List<Path> finished = files(directory.resolve("metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14"));
+        assertEquals(1, finished.size(), "The file of the past hour should be finished");
+        assertEquals(List.of(Map.of("minute", "59", "loginCount", 1L)), new ParquetTestReader(finished.get(0)).rows);
+        assertTrue(files(directory.resolve("metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=15")).isEmpty(),
+                "The file of the current hour should still be open");
+    }
+
+    @Test
+    public void testDurableCount_OnlyCountsIntervalsInFinishedFiles() throws Exception {
+        ParquetFileSink sink = new ParquetFileSink(directory, PayloadCodec.NONE, LARGE, HOUR_MS, LARGE);
+        sink.write(snapshot(14, 58, 1, Map.of("US", 1L)));
+        sink.write(snapshot(14, 59, 1, Map.of()));
+        assertEquals(0, sink.durableCount(2), "Intervals in open files should not count");
+
+        sink.write(snapshot(15, 0, 2, Map.of("US", 2L)));
+        assertEquals(2, sink.durableCount(3), "Intervals of the finished hour should count");
+
+        sink.close();
+        assertEquals(3, sink.durableCount(3), "Closing should finish every interval");
+    }
+
+    @Test
+    public void testWrite_RollsAtRollIntervalAndSize() throws Exception {
+        ParquetFileSink sink = new ParquetFileSink(directory, PayloadCodec.NONE, LARGE, 2 * 60_000, LARGE);
+        sink.write(snapshot(14, 0, 1, Map.of()));
+        sink.write(snapshot(14, 1, 2, Map.of()));
+        sink.write(snapshot(14, 2, 3, Map.of()));
+        sink.close();
+
+        Path partition = directory.resolve("metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14");
+        List<Long> rowsPerFile = files(partition).stream()
+                .map(file -> (long) read(file).rows.size())
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(List.of(1L, 2L), rowsPerFile, "The file should be rolled once it spans the roll interval");
+        assertFalse(Files.exists(directory.resolve("metric_name=UniquePlayerLoginsByCountry")),
+                "Intervals without countries should not create a file");
+
+        Path sized = directory.resolve("sized");
+        ParquetFileSink sizedSink = new ParquetFileSink(sized, PayloadCodec.NONE, 1, HOUR_MS, LARGE);
+        sizedSink.write(snapshot(14, 0, 1, Map.of("US", 1L)));
+        assertEquals(1, files(sized.resolve("metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14")).size(),
+                "A file past the roll size should be finished right away");
+    }
+
+    @Test
+    public void testWrite_SmallRowGroupsAndLargeDictionaries() throws Exception {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            // Long runs of equal values next to distinct ones exercise both hybrid run kinds
+            counts.put(i < 20 ? "C" + i : "Country-" + i, (long) i);
+        }
+
+        for (long rowGroupBytes : new long[]{LARGE, 4096}) {
+            Path base = directory.resolve("row-groups-" + rowGroupBytes);
+            ParquetFileSink sink = new ParquetFileSink(base, PayloadCodec.GZIP, LARGE, HOUR_MS, rowGroupBytes);
+            sink.write(snapshot(14, 30, 3000, counts));
+            sink.write(snapshot(14, 31, 3000, counts));
+            sink.close();
+
+            List<Path> files = files(base.resolve("metric_name=UniquePlayerLoginsByCountry/date=2024-09-30/hour=14"));
+            ParquetTestReader reader = new ParquetTestReader(files.get(0));
+            assertEquals(6000, reader.rows.size());
+            if (rowGroupBytes == LARGE) {
+                assertEquals(1, reader.rowGroups, "Everything should fit one row group");
+            } else {
+                assertTrue(reader.rowGroups > 10, "Rows should have been flushed in many row groups: " + reader.rowGroups);
+            }
+            assertTrue(reader.codecs.stream().allMatch(codec -> codec == 2), "Pages should be gzip compressed");
+            int row = 0;
+            for (String minute : List.of("30", "31")) {
+                for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                    assertEquals(Map.of("minute", minute, "country", entry.getKey(), "loginCount", entry.getValue()),
+                            reader.rows.get(row++));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWrite_Zstd() throws Exception {
+        ParquetFileSink sink = new ParquetFileSink(directory, PayloadCodec.ZSTD, LARGE, HOUR_MS, LARGE);
+        sink.write(snapshot(14, 30, 2, Map.of("US", 2L)));
+        sink.close();
+
+        ParquetTestReader reader = read(files(directory.resolve("metric_name=UniquePlayerLoginsByCountry/date=2024-09-30/hour=14")).get(0));
+        assertEquals(List.of(Map.of("minute", "30", "country", "US", "loginCount", 2L)), reader.rows);
+        assertTrue(reader.codecs.stream().allMatch(codec -> codec == 6), "Pages should be zstd compressed");
+    }
+
+    private static OutputSnapshot snapshot(int hour, int minute, long total, Map<String, Long> counts) {
+        return new OutputSnapshot(LocalDateTime.of(2024, 9, 30, hour, minute), total, new LinkedHashMap<>(counts));
+    }
+
+    private static ParquetTestReader read(Path file) {
+        try {
+            return new ParquetTestReader(file);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Finished files only; temporary files are hidden
+    private static List<Path> files(Path partition) throws IOException {
+        if (!Files.exists(partition)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(partition)) {
+            return files.filter(file -> !file.getFileName().toString().startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.assignment.task1.output;
+
+import com.github.luben.zstd.Zstd;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads back the Parquet files written by {@link ParquetFileWriter}, following the format
+ * specification rather than the writer: the footer is decoded as generic Thrift structs and every
+ * page is decoded by its own header.
+ */
+final class ParquetTestReader {
+
+    final Map<Integer, Object> footer;
+    final List<String> columns = new ArrayList<>();
+    final List<Map<String, Object>> rows = new ArrayList<>();
+    final List<Integer> codecs = new ArrayList<>();
+    final List<List<Object>> encodings = new ArrayList<>();
+    int rowGroups;
+
+    ParquetTestReader(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        assertEquals("PAR1", new String(data, 0, 4, StandardCharsets.US_ASCII), "Leading magic");
+        assertEquals("PAR1", new String(data, data.length - 4, 4, StandardCharsets.US_ASCII), "Trailing magic");
+        int footerLength = ByteBuffer.wrap(data, data.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        Thrift thrift = new Thrift(data, data.length - 8 - footerLength);
+        footer = thrift.readStruct();
+        assertEquals(data.length - 8, thrift.pos, "The footer length should cover the footer exactly");
+
+        List<Object> schema = list(footer, 2);
+        for (Object element : schema.subList(1, schema.size())) {
+            columns.add(string(struct(element), 4));
+        }
+
+        for (Object rowGroupObject : list(footer, 4)) {
+            Map<Integer, Object> rowGroup = struct(rowGroupObject);
+            int rowCount = (int) (long) (Long) rowGroup.get(3);
+            List<Map<String, Object>> groupRows = new ArrayList<>();
+            for (int r = 0; r < rowCount; r++) {
+                groupRows.add(new LinkedHashMap<>());
+            }
+            List<Object> chunks = list(rowGroup, 1);
+            for (int c = 0; c < chunks.size(); c++) {
+                Map<Integer, Object> meta = struct(struct(chunks.get(c)).get(3));
+                codecs.add((Integer) meta.get(4));
+                encodings.add(list(meta, 2));
+                List<Object> values = readChunk(data, meta);
+                assertEquals(rowCount, values.size(), "Column " + columns.get(c) + " should have a value per row");
+                for (int r = 0; r < rowCount; r++) {
+                    groupRows.get(r).put(columns.get(c), values.get(r));
+                }
+            }
+            rows.addAll(groupRows);
+            rowGroups++;
+        }
+        assertEquals((long) rows.size(), footer.get(3), "num_rows should match the row groups");
+    }
+
+    private static List<Object> readChunk(byte[] data, Map<Integer, Object> meta) throws IOException {
+        int codec = (Integer) meta.get(4);
+        long valueCount = (Long) meta.get(5);
+        long start = meta.containsKey(11) ? (Long) meta.get(11) : (Long) meta.get(9);
+        Thrift thrift = new Thrift(data, (int) start);
+        List<Object> dictionary = null;
+        List<Object> values = new ArrayList<>();
+        while (values.size() < valueCount) {
+            Map<Integer, Object> header = thrift.readStruct();
+            int type = (Integer) header.get(1);
+            int uncompressedSize = (Integer) header.get(2);
+            int compressedSize = (Integer) header.get(3);
+            byte[] body = decompress(codec, data, thrift.pos, compressedSize, uncompressedSize);
+            thrift.pos += compressedSize;
+            ByteBuffer page = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+            if (type == 2) {
+                Map<Integer, Object> dictionaryHeader = struct(header.get(7));
+                dictionary = new ArrayList<>();
+                for (int i = 0; i < (Integer) dictionaryHeader.get(1); i++) {
+                    byte[] value = new byte[page.getInt()];
+                    page.get(value);
+                    dictionary.add(new String(value, StandardCharsets.UTF_8));
+                }
+            } else {
+                assertEquals(0, type, "Only v1 data pages are expected");
+                Map<Integer, Object> dataHeader = struct(header.get(5));
+                int pageValues = (Integer) dataHeader.get(1);
+                int encoding = (Integer) dataHeader.get(2);
+                if (encoding == 0) {
+                    for (int i = 0; i < pageValues; i++) {
+                        values.add(page.getLong());
+                    }
+                } else {
+                    assertTrue(encoding == 2 || encoding == 8, "Unexpected encoding " + encoding);
+                    assertNotNull(dictionary, "A dictionary page should come first");
+                    for (int index : hybrid(body, pageValues)) {
+                        values.add(dictionary.get(index));
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    // RLE/bit-packed hybrid, preceded by the bit width
+    private static int[] hybrid(byte[] body, int count) {
+        int bitWidth = body[0];
+        int[] values = new int[count];
+        int n = 0;
+        int pos = 1;
+        while (n < count) {
+            long header = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = body[pos++] & 0xFF;
+                header |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b >= 0x80);
+            if ((header & 1) == 0) {
+                int runLength = (int) (header >>> 1);
+                int value = 0;
+                for (int i = 0; i < (bitWidth + 7) / 8; i++) {
+                    value |= (body[pos++] & 0xFF) << (8 * i);
+                }
+                for (int i = 0; i < runLength; i++) {
+                    values[n++] = value;
+                }
+            } else {
+                int groupValues = (int) (header >>> 1) * 8;
+                long buffer = 0;
+                int bits = 0;
+                for (int i = 0; i < groupValues; i++) {
+                    while (bits < bitWidth) {
+                        buffer |= (long) (body[pos++] & 0xFF) << bits;
+                        bits += 8;
+                    }
+                    int value = (int) (buffer & ((1L << bitWidth) - 1));
+                    buffer >>>= bitWidth;
+                    bits -= bitWidth;
+                    if (n < count) {
+                        values[n++] = value;
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private static byte[] decompress(int codec, byte[] data, int offset, int length, int uncompressedSize) throws IOException {
+        byte[] body;
+        switch (codec) {
+            case 0:
+                body = new byte[length];
+                System.arraycopy(data, offset, body, 0, length);
+                break;
+            case 2:
+                try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data, offset, length))) {
+                    body = in.readAllBytes();
+                }
+                break;
+            case 6: {
+                byte[] compressed = new byte[length];
+                System.arraycopy(data, offset, compressed, 0, length);
+                body = Zstd.decompress(compressed, uncompressedSize);
+                break;
+            }
+            default:
+                throw new AssertionError("Unexpected codec " + codec);
+        }
+        assertEquals(uncompressedSize, body.length, "uncompressed_page_size should match the page");
+        return body;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<Integer, Object> struct(Object value) {
+        return (Map<Integer, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> list(Map<Integer, Object> struct, int fieldId) {
+        return (List<Object>) struct.get(fieldId);
+    }
+
+    static String string(Map<Integer, Object> struct, int fieldId) {
+        return new String((byte[]) struct.get(fieldId), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generic Thrift compact protocol decoder.
+     */
+    private static final class Thrift {
+        final byte[] data;
+        int pos;
+
+        Thrift(byte[] data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        Map<Integer, Object> readStruct() {
+            Map<Integer, Object> fields = new HashMap<>();
+            int fieldId = 0;
+            while (true) {
+                int header = data[pos++] & 0xFF;
+                if (header == 0) {
+                    return fields;
+                }
+                int type = header & 0x0F;
+                int delta = header >>> 4;
+                fieldId = delta != 0 ? fieldId + delta : (int) unzigzag(varint());
+                fields.put(fieldId, type == 1 ? Boolean.TRUE : type == 2 ? Boolean.FALSE : read(type));
+            }
+        }
+
+        private Object read(int type) {
+            switch (type) {
+                case 3:
+                    return data[pos++];
+                case 4:
+                case 5:
+                    return (int) unzigzag(varint());
+                case 6:
+                    return unzigzag(varint());
+                case 8: {
+                    int length = (int) varint();
+                    byte[] value = new byte[length];
+                    System.arraycopy(data, pos, value, 0, length);
+                    pos += length;
+                    return value;
+                }
+                case 9: {
+                    int header = data[pos++] & 0xFF;
+                    int size = header >>> 4;
+                    if (size == 15) {
+                        size = (int) varint();
+                    }
+                    List<Object> elements = new ArrayList<>();
+                    for (int i = 0; i < size; i++) {
+                        elements.add(read(header & 0x0F));
+                    }
+                    return elements;
+                }
+                case 12:
+                    return readStruct();
+                default:
+                    throw new AssertionError("Unexpected Thrift type " + type);
+            }
+        }
+
+        private long varint() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = data[pos++] & 0xFF;
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b >= 0x80);
+            return value;
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
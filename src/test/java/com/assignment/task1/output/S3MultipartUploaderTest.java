@@ -0,0 +1,134 @@
+package com.assignment.task1.output;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class S3MultipartUploaderTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14/file.parquet";
+
+    @Mock
+    private S3AsyncClient client;
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger clientsCreated = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("upload-1").build()));
+        when(client.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(UploadPartResponse.builder()
+                        .eTag("etag-" + invocation.<UploadPartRequest>getArgument(0).partNumber()).build()));
+        when(client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+        when(client.abortMultipartUpload(any(AbortMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build()));
+    }
+
+    @Test
+    public void testUpload_SendsFileInParts() throws Exception {
+        Path file = Files.write(directory.resolve("file.parquet"), new byte[10]);
+
+        uploader(4, 3).upload(file, KEY).get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<UploadPartRequest> parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(client, times(3)).uploadPart(parts.capture(), any(AsyncRequestBody.class));
+        assertEquals(List.of(1, 2, 3), parts.getAllValues().stream().map(UploadPartRequest::partNumber).collect(Collectors.toList()));
+        assertEquals(List.of(4L, 4L, 2L), parts.getAllValues().stream().map(UploadPartRequest::contentLength).collect(Collectors.toList()),
+                "All parts but the last should have the part size");
+        assertTrue(parts.getAllValues().stream().allMatch(part -> "upload-1".equals(part.uploadId()) && KEY.equals(part.key())));
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(client).completeMultipartUpload(complete.capture());
+        assertEquals(BUCKET, complete.getValue().bucket());
+        assertEquals(List.of("etag-1", "etag-2", "etag-3"), complete.getValue().multipartUpload().parts().stream()
+                .map(CompletedPart::eTag).collect(Collectors.toList()), "The parts should be completed in order");
+        verify(client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        assertEquals(1, clientsCreated.get(), "The client should be created once");
+    }
+
+    @Test
+    public void testUpload_RetriesFailedRequests() throws Exception {
+        Path file = Files.write(directory.resolve("file.parquet"), new byte[6]);
+        AtomicInteger calls = new AtomicInteger();
+        when(client.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() <= 2) {
+                return CompletableFuture.failedFuture(S3Exception.builder().statusCode(503).message("Slow Down").build());
+            }
+            return CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build());
+        });
+
+        uploader(4, 3).upload(file, KEY).get(5, TimeUnit.SECONDS);
+
+        verify(client, times(4)).uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class));
+        verify(client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void testUpload_AbortsOnceAttemptsAreExhausted() throws Exception {
+        Path file = Files.write(directory.resolve("file.parquet"), new byte[6]);
+        when(client.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).message("Internal Error").build()));
+
+        CompletableFuture<Void> upload = uploader(4, 3).upload(file, KEY);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> upload.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof S3Exception, "The last failure should be reported: " + error.getCause());
+        verify(client, times(3)).uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class));
+        verify(client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        ArgumentCaptor<AbortMultipartUploadRequest> abort = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(client).abortMultipartUpload(abort.capture());
+        assertEquals("upload-1", abort.getValue().uploadId(), "The failed upload should be aborted");
+    }
+
+    @Test
+    public void testUpload_MissingFileFailsWithoutRequests() {
+        CompletableFuture<Void> upload = uploader(4, 3).upload(directory.resolve("missing.parquet"), KEY);
+
+        assertThrows(ExecutionException.class, () -> upload.get(5, TimeUnit.SECONDS));
+        verifyNoInteractions(client);
+        assertEquals(0, clientsCreated.get(), "No client should be created for nothing to upload");
+    }
+
+    private S3MultipartUploader uploader(int partSizeBytes, int maxAttempts) {
+        return new S3MultipartUploader(() -> {
+            clientsCreated.incrementAndGet();
+            return client;
+        }, BUCKET, partSizeBytes, maxAttempts, 1, 1);
+    }
+}
@@ -0,0 +1,121 @@
+package com.assignment.task1.output;
+
+import com.assignment.task1.compression.PayloadCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class S3OutputSinkTest {
+
+    private static final OutputSnapshot SNAPSHOT =
+            new OutputSnapshot(LocalDateTime.of(2024, 9, 30, 14, 30), 3, Map.of("US", 2L, "DE", 1L));
+
+    @Mock
+    private S3MultipartUploader uploader;
+
+    @TempDir
+    Path spool;
+
+    private final List<CompletableFuture<Void>> uploads = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(uploader.upload(any(Path.class), anyString())).thenAnswer(invocation -> {
+            CompletableFuture<Void> upload = new CompletableFuture<>();
+            uploads.add(upload);
+            return upload;
+        });
+    }
+
+    @Test
+    public void testWrite_UploadsSpooledFilesUnderPartitionedKeys() throws Exception {
+        S3OutputSink sink = sink("logins", 4);
+        sink.write(SNAPSHOT);
+
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(uploader, times(2)).upload(any(Path.class), keys.capture());
+        assertTrue(keys.getAllValues().stream().anyMatch(key -> key.matches(
+                        "logins/metric_name=TotalUniquePlayerLogins/date=2024-09-30/hour=14/total_unique_player_logins_.*\\.ndjson")),
+                "Keys should follow the spool layout below the prefix: " + keys.getAllValues());
+        assertTrue(keys.getAllValues().stream().anyMatch(key -> key.startsWith(
+                "logins/metric_name=UniquePlayerLoginsByCountry/date=2024-09-30/hour=14/")), keys.getAllValues().toString());
+        assertEquals(2, spooledFiles().size(), "Files should stay in the spool while their uploads run");
+
+        uploads.forEach(upload -> upload.complete(null));
+        assertTrue(spooledFiles().isEmpty(), "Uploaded files should be deleted from the spool");
+        assertEquals("uploaded=2 failed=0 running=0", sink.describeStats());
+    }
+
+    @Test
+    public void testWrite_KeepsFailedUploadsForTheNextInterval() throws Exception {
+        S3OutputSink sink = sink("", 4);
+        sink.write(SNAPSHOT);
+        uploads.forEach(upload -> upload.completeExceptionally(new IOException("S3 unavailable")));
+        assertEquals(2, spooledFiles().size(), "Files should stay in the spool while S3 is unavailable");
+        assertEquals("uploaded=0 failed=2 running=0", sink.describeStats());
+
+        uploads.clear();
+        sink.write(SNAPSHOT);
+        assertEquals(4, uploads.size(), "The next write should retry the spooled files along with its own");
+        uploads.forEach(upload -> upload.complete(null));
+        assertTrue(spooledFiles().isEmpty(), "The spool should drain once S3 is back");
+    }
+
+    @Test
+    public void testWrite_BoundsRunningUploadsWithoutBlocking() throws Exception {
+        S3OutputSink sink = sink("", 1);
+        sink.write(SNAPSHOT);
+        sink.write(SNAPSHOT);
+        assertEquals(1, uploads.size(), "Only one upload may run at once");
+        assertEquals(4, spooledFiles().size(), "Writes should go on while uploads are pending");
+
+        // Each finished upload starts the next one
+        for (int i = 0; i < 4; i++) {
+            uploads.get(i).complete(null);
+        }
+        assertEquals(4, uploads.size());
+        assertTrue(spooledFiles().isEmpty(), "The backlog should drain one upload at a time");
+        verify(uploader, times(4)).upload(any(Path.class), anyString());
+    }
+
+    @Test
+    public void testClose_WaitsForUploadsAndClosesUploader() throws Exception {
+        S3OutputSink sink = sink("", 4);
+        when(uploader.upload(any(Path.class), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        sink.write(SNAPSHOT);
+        sink.close();
+
+        assertTrue(spooledFiles().isEmpty());
+        verify(uploader).close();
+    }
+
+    private S3OutputSink sink(String prefix, int maxInFlightUploads) {
+        return new S3OutputSink(new NdjsonFileSink(spool, PayloadCodec.NONE), spool, prefix, uploader, maxInFlightUploads, 5000);
+    }
+
+    private List<Path> spooledFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(spool)) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.assignment.task1.polling;
+
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.Record;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptivePollerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testIdlesWhenCaughtUp() {
+        AdaptivePoller poller = poller();
+
+        poller.onResult(new GetRecordsResult().withRecords(Collections.emptyList()).withMillisBehindLatest(0L), 0);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), poller.delayNanos(0), "An empty result at the tip should wait the idle delay");
+        assertEquals(1000, poller.getLimit());
+    }
+
+    @Test
+    public void testPollsAsFastAsLimitsAllowWhenBehind() {
+        AdaptivePoller poller = poller();
+
+        poller.onResult(result(60_000L), 0);
+
+        assertEquals(AdaptivePoller.MAX_LIMIT, poller.getLimit(), "A lagging shard should be read in the largest batches");
+        assertEquals(0, poller.delayNanos(0), "A lagging shard should be polled again right away");
+    }
+
+    @Test
+    public void testScalesWithLag() {
+        AdaptivePoller poller = poller();
+
+        poller.onResult(result(5_000L), 0);
+
+        assertEquals(5500, poller.getLimit(), "Half the lag threshold should ask for a limit halfway to the maximum");
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), poller.delayNanos(0));
+    }
+
+    @Test
+    public void testRespectsRateLimiter() {
+        AdaptivePoller poller = poller();
+        for (int i = 0; i < 5; i++) {
+            poller.onResult(result(60_000L), 0);
+        }
+
+        assertEquals(SECOND / 5, poller.delayNanos(0), "Even a lagging shard must stay within 5 calls per second");
+    }
+
+    @Test
+    public void testThrottlingBacksOffWithJitter() {
+        AdaptivePoller poller = poller();
+        poller.onResult(result(60_000L), 0);
+
+        for (int i = 1; i <= 10; i++) {
+            long backoffMillis = poller.onThrottled(0);
+            long ceiling = Math.min(5000, 200L << (i - 1));
+            assertTrue(backoffMillis >= 0 && backoffMillis <= ceiling, "Backoff " + backoffMillis + " exceeds " + ceiling);
+        }
+        assertEquals(1000, poller.getLimit(), "Throttling should bring the limit back down to the base limit");
+    }
+
+    private static AdaptivePoller poller() {
+        return new AdaptivePoller(1000, 1000, 10_000, 5000, new ShardRateLimiter(0), 0);
+    }
+
+    private static GetRecordsResult result(long millisBehindLatest) {
+        Record record = new Record().withData(ByteBuffer.wrap(new byte[10]));
+        return new GetRecordsResult().withRecords(Collections.singletonList(record)).withMillisBehindLatest(millisBehindLatest);
+    }
+}
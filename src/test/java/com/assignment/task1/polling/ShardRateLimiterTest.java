@@ -0,0 +1,34 @@
+package com.assignment.task1.polling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testCallLimit() {
+        ShardRateLimiter limiter = new ShardRateLimiter(0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.delayNanos(0), "A second's worth of calls may burst");
+            limiter.onCall(0, 0);
+        }
+
+        assertEquals(SECOND / 5, limiter.delayNanos(0), "The sixth call has to wait for one call token");
+        assertEquals(0, limiter.delayNanos(SECOND / 5));
+    }
+
+    @Test
+    public void testBytesAreChargedAfterTheCall() {
+        ShardRateLimiter limiter = new ShardRateLimiter(0);
+        // One call returned 6 MiB, 4 MiB more than a second's worth
+        limiter.onCall(0, 6L * 1024 * 1024);
+
+        assertEquals(2 * SECOND, limiter.delayNanos(0), "The byte debt has to be paid off at 2 MiB/s");
+        assertEquals(0, limiter.delayNanos(2 * SECOND));
+    }
+}
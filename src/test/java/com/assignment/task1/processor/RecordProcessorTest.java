@@ -1,5 +1,11 @@
 package com.assignment.task1.processor;
 
+import com.assignment.task1.decoder.JsonLoginEventDecoder;
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.decoder.SchemaDecoder;
+import com.assignment.task1.decoder.SchemaDecoderRegistry;
+import com.assignment.task1.protobuf.LoginMessageV1;
+import com.assignment.task1.protobuf.LoginMessageV2;
 import com.assignment.task1.deduplication.SlidingWindowDeduplication;
 
 import org.junit.jupiter.api.Test;
@@ -8,6 +14,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -22,7 +29,10 @@ public class RecordProcessorTest {
     @BeforeEach
     public void setUp() {
         deduplication = mock(SlidingWindowDeduplication.class);
-        recordProcessor = new RecordProcessor(deduplication);
+        SchemaDecoderRegistry registry = new SchemaDecoderRegistry(List.of(
+                new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV1.getDescriptor()),
+                new SchemaDecoder(LoginEvent.SCHEMA_V2, LoginMessageV2.getDescriptor())));
+        recordProcessor = new RecordProcessor(deduplication, new JsonLoginEventDecoder(registry));
     }
 
     @Test
@@ -2,14 +2,34 @@ package com.assignment.task1.service;
 
 import com.amazonaws.services.kinesis.AmazonKinesis;
 import com.amazonaws.services.kinesis.model.*;
+import com.assignment.task1.aggregation.EpochAggregator;
+import com.assignment.task1.aggregation.EventTimeWindowAggregator;
+import com.assignment.task1.aggregation.ExactLoginAggregator;
+import com.assignment.task1.checkpoint.ShardCheckpointer;
+import com.assignment.task1.compression.PayloadDecompressor;
 import com.assignment.task1.config.AppConfig;
+import com.assignment.task1.decoder.SchemaDecoderRegistry;
+import com.assignment.task1.deduplication.PlayerDeduplication;
+import com.assignment.task1.lease.LeaseCoordinator;
+import com.assignment.task1.output.AsyncOutputWriter;
+import com.assignment.task1.output.OutputSnapshot;
+import com.assignment.task1.watermark.WatermarkTracker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 public class KinesisConsumerServiceTest {
@@ -29,6 +49,27 @@ public class KinesisConsumerServiceTest {
     @Mock
     private ShardProcessingService shardProcessingService;
 
+    @Mock
+    private ShardCheckpointer checkpointer;
+
+    @Mock
+    private LeaseCoordinator leaseCoordinator;
+
+    @Mock
+    private PayloadDecompressor payloadDecompressor;
+
+    @Mock
+    private RecordProcessingService recordProcessingService;
+
+    @Mock
+    private SchemaDecoderRegistry schemaDecoderRegistry;
+
+    @Mock
+    private PlayerDeduplication deduplication;
+
+    @Mock
+    private AsyncOutputWriter outputWriter;
+
     // Declare shards as instance variables
     private Shard shard1;
     private Shard shard2;
@@ -38,10 +79,15 @@ public class KinesisConsumerServiceTest {
         MockitoAnnotations.openMocks(this);
         when(appConfig.getAws()).thenReturn(awsConfig);
         when(awsConfig.getStreamName()).thenReturn("test-stream");
+        when(shardProcessingService.processShard(any(Shard.class))).thenReturn(new CompletableFuture<>());
+        when(leaseCoordinator.holdsLease(anyString())).thenReturn(true);
         shard1 = new Shard().withShardId("shardId-000000000000");
         shard2 = new Shard().withShardId("shardId-000000000001");
         ListShardsResult listShardsResult = new ListShardsResult().withShards(Arrays.asList(shard1, shard2));
         when(kinesisClient.listShards(any(ListShardsRequest.class))).thenReturn(listShardsResult);
+        when(recordProcessingService.getDeduplication()).thenReturn(deduplication);
+        when(deduplication.describeStats()).thenReturn("");
+        when(payloadDecompressor.describeStats()).thenReturn("");
         kinesisConsumerService.init();
     }
 
@@ -56,4 +102,263 @@ public class KinesisConsumerServiceTest {
 
         verifyNoMoreInteractions(shardProcessingService);
     }
+
+    @Test
+    public void testDiscoverShardsFollowsNextToken() {
+        Shard shard3 = new Shard().withShardId("shardId-000000000002");
+        when(kinesisClient.listShards(any(ListShardsRequest.class)))
+                .thenReturn(new ListShardsResult().withShards(List.of(shard1)).withNextToken("page-2"))
+                .thenReturn(new ListShardsResult().withShards(List.of(shard2, shard3)));
+
+        kinesisConsumerService.discoverShards();
+
+        ArgumentCaptor<ListShardsRequest> requestCaptor = ArgumentCaptor.forClass(ListShardsRequest.class);
+        verify(kinesisClient, times(3)).listShards(requestCaptor.capture());
+        ListShardsRequest followUp = requestCaptor.getAllValues().get(2);
+        assertEquals("page-2", followUp.getNextToken(), "The second page should be requested with the token");
+        assertNull(followUp.getStreamName(), "A request with a token must not name the stream");
+
+        // Shards from the first discovery keep their consumer; only the new one is started
+        verify(shardProcessingService).processShard(shard3);
+        verify(shardProcessingService, times(3)).processShard(any(Shard.class));
+    }
+
+    @Test
+    public void testChildShardStartsOnlyAfterParentsAreDrained() {
+        Shard child = new Shard().withShardId("shardId-000000000002")
+                .withParentShardId(shard1.getShardId())
+                .withAdjacentParentShardId(shard2.getShardId());
+        when(kinesisClient.listShards(any(ListShardsRequest.class)))
+                .thenReturn(new ListShardsResult().withShards(Arrays.asList(shard1, shard2, child)));
+
+        when(checkpointer.isShardEnd(shard1.getShardId())).thenReturn(true);
+        kinesisConsumerService.discoverShards();
+        verify(shardProcessingService, never()).processShard(child);
+
+        when(checkpointer.isShardEnd(shard2.getShardId())).thenReturn(true);
+        kinesisConsumerService.discoverShards();
+        verify(shardProcessingService).processShard(child);
+    }
+
+    @Test
+    public void testChildOfExpiredParentStartsImmediately() {
+        Shard child = new Shard().withShardId("shardId-000000000002")
+                .withParentShardId("shardId-000000000099");
+        when(kinesisClient.listShards(any(ListShardsRequest.class)))
+                .thenReturn(new ListShardsResult().withShards(Arrays.asList(shard1, shard2, child)));
+
+        kinesisConsumerService.discoverShards();
+
+        verify(shardProcessingService).processShard(child);
+    }
+
+    @Test
+    public void testStoppedConsumerIsRestartedOnNextDiscovery() {
+        CompletableFuture<Void> consumer = new CompletableFuture<>();
+        Shard shard3 = new Shard().withShardId("shardId-000000000002");
+        when(shardProcessingService.processShard(shard3)).thenReturn(consumer);
+        when(kinesisClient.listShards(any(ListShardsRequest.class)))
+                .thenReturn(new ListShardsResult().withShards(Arrays.asList(shard1, shard2, shard3)));
+
+        kinesisConsumerService.discoverShards();
+        consumer.complete(null);
+        kinesisConsumerService.discoverShards();
+
+        verify(shardProcessingService, times(2)).processShard(shard3);
+        verify(shardProcessingService, times(1)).processShard(shard1);
+    }
+
+    @Test
+    public void testFailedConsumerReleasesLeaseAndIsRestarted() {
+        CompletableFuture<Void> consumer = new CompletableFuture<>();
+        Shard shard3 = new Shard().withShardId("shardId-000000000002");
+        when(shardProcessingService.processShard(shard3)).thenReturn(consumer);
+        when(kinesisClient.listShards(any(ListShardsRequest.class)))
+                .thenReturn(new ListShardsResult().withShards(Arrays.asList(shard1, shard2, shard3)));
+
+        kinesisConsumerService.discoverShards();
+        consumer.completeExceptionally(new IllegalStateException("retries exhausted"));
+
+        verify(leaseCoordinator).releaseLease(shard3.getShardId());
+        verify(leaseCoordinator, never()).releaseLease(shard1.getShardId());
+
+        // No other instance took the shard, so this one starts it again
+        kinesisConsumerService.balanceLeases();
+        verify(shardProcessingService, times(2)).processShard(shard3);
+    }
+
+    @Test
+    public void testOnlyLeasedShardsAreStarted() {
+        Shard shard3 = new Shard().withShardId("shardId-000000000002");
+        when(kinesisClient.listShards(any(ListShardsRequest.class)))
+                .thenReturn(new ListShardsResult().withShards(Arrays.asList(shard1, shard2, shard3)));
+        when(leaseCoordinator.holdsLease(shard3.getShardId())).thenReturn(false);
+
+        kinesisConsumerService.discoverShards();
+        verify(leaseCoordinator).registerShards(argThat(shardIds -> shardIds.contains(shard3.getShardId())));
+        verify(shardProcessingService, never()).processShard(shard3);
+
+        // The lease is taken over on a later rebalance
+        when(leaseCoordinator.holdsLease(shard3.getShardId())).thenReturn(true);
+        kinesisConsumerService.balanceLeases();
+        verify(shardProcessingService).processShard(shard3);
+    }
+
+    @Test
+    public void testOutputResultsQueuesSealedSnapshot() {
+        EpochAggregator aggregator = new EpochAggregator(ExactLoginAggregator::new);
+        when(recordProcessingService.getAggregator()).thenReturn(aggregator);
+        when(outputWriter.submit(any(OutputSnapshot.class))).thenReturn(true);
+        aggregator.add("player-1", "US");
+        aggregator.add("player-2", "US");
+        aggregator.add("player-3", "DE");
+
+        kinesisConsumerService.outputResults();
+
+        ArgumentCaptor<OutputSnapshot> snapshotCaptor = ArgumentCaptor.forClass(OutputSnapshot.class);
+        verify(outputWriter).submit(snapshotCaptor.capture());
+        OutputSnapshot snapshot = snapshotCaptor.getValue();
+        assertEquals(3, snapshot.getTotalCount());
+        assertEquals(Map.of("US", 2L, "DE", 1L), snapshot.getCountsByCountry());
+        assertEquals(0, aggregator.seal().getTotalCount(), "A written interval should not be carried over");
+    }
+
+    @Test
+    public void testOutputResultsCommitsCheckpointsOnceIntervalIsWritten() {
+        EpochAggregator aggregator = new EpochAggregator(ExactLoginAggregator::new);
+        when(recordProcessingService.getAggregator()).thenReturn(aggregator);
+        when(checkpointer.capture()).thenReturn(Map.of("shard-1", "10"));
+        when(outputWriter.submit(any(OutputSnapshot.class))).thenReturn(true);
+        when(outputWriter.afterWritten(any(Runnable.class))).thenReturn(true);
+        aggregator.add("player-1", "US");
+
+        kinesisConsumerService.outputResults();
+
+        ArgumentCaptor<Runnable> actionCaptor = ArgumentCaptor.forClass(Runnable.class);
+        InOrder inOrder = inOrder(checkpointer, outputWriter);
+        inOrder.verify(checkpointer).capture();
+        inOrder.verify(outputWriter).submit(any(OutputSnapshot.class));
+        inOrder.verify(outputWriter).afterWritten(actionCaptor.capture());
+        verify(checkpointer, never()).commit(any());
+
+        // Run by the writer thread once the interval is written
+        actionCaptor.getValue().run();
+        verify(checkpointer).commit(Map.of("shard-1", "10"));
+        verify(checkpointer, never()).restore(any());
+    }
+
+    @Test
+    public void testOutputResultsRestoresCheckpointsOfRefusedInterval() {
+        EpochAggregator aggregator = new EpochAggregator(ExactLoginAggregator::new);
+        when(recordProcessingService.getAggregator()).thenReturn(aggregator);
+        when(checkpointer.capture()).thenReturn(Map.of("shard-1", "10"));
+        when(outputWriter.submit(any(OutputSnapshot.class))).thenReturn(false);
+
+        kinesisConsumerService.outputResults();
+
+        verify(checkpointer).restore(Map.of("shard-1", "10"));
+        verify(outputWriter, never()).afterWritten(any(Runnable.class));
+        verify(checkpointer, never()).commit(any());
+    }
+
+    @Test
+    public void testOutputResultsCarriesIntervalOverWhenWriterIsBehind() {
+        EpochAggregator aggregator = new EpochAggregator(ExactLoginAggregator::new);
+        when(recordProcessingService.getAggregator()).thenReturn(aggregator);
+        when(outputWriter.submit(any(OutputSnapshot.class))).thenReturn(false, true);
+        aggregator.add("player-1", "US");
+
+        kinesisConsumerService.outputResults();
+        aggregator.add("player-2", "DE");
+        kinesisConsumerService.outputResults();
+
+        ArgumentCaptor<OutputSnapshot> snapshotCaptor = ArgumentCaptor.forClass(OutputSnapshot.class);
+        verify(outputWriter, times(2)).submit(snapshotCaptor.capture());
+        OutputSnapshot carriedOver = snapshotCaptor.getAllValues().get(1);
+        assertEquals(2, carriedOver.getTotalCount(), "The refused interval's players should be in the next one");
+        assertEquals(Map.of("US", 1L, "DE", 1L), carriedOver.getCountsByCountry());
+    }
+
+    @Test
+    public void testOutputResultsWritesClosedEventTimeWindowsOnce() {
+        long start = 1_700_000_040_000L;
+        WatermarkTracker watermarkTracker = new WatermarkTracker();
+        EventTimeWindowAggregator windows = new EventTimeWindowAggregator(60_000, 0, 16, watermarkTracker, ExactLoginAggregator::new);
+        when(recordProcessingService.getWindowAggregator()).thenReturn(windows);
+        when(outputWriter.submit(any(OutputSnapshot.class))).thenReturn(true, false, true);
+        // Logins without a timestamp are placed at the watermark
+        watermarkTracker.advance("shard-1", start);
+        windows.add("player-1", "US");
+        watermarkTracker.advance("shard-1", start + 60_000);
+        windows.add("player-2", "DE");
+        watermarkTracker.advance("shard-1", start + 120_000);
+
+        kinesisConsumerService.outputResults();
+        kinesisConsumerService.outputResults();
+
+        ArgumentCaptor<OutputSnapshot> snapshotCaptor = ArgumentCaptor.forClass(OutputSnapshot.class);
+        verify(outputWriter, times(3)).submit(snapshotCaptor.capture());
+        List<OutputSnapshot> snapshots = snapshotCaptor.getAllValues();
+        assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(start), ZoneId.systemDefault()), snapshots.get(0).getTime(),
+                "A window should be named by its start");
+        assertEquals(Map.of("US", 1L), snapshots.get(0).getCountsByCountry());
+        assertEquals(snapshots.get(1).getTime(), snapshots.get(2).getTime(), "A refused window should be written on the next flush");
+        assertEquals(Map.of("DE", 1L), snapshots.get(2).getCountsByCountry());
+        assertNull(windows.peekClosed(), "Every closed window should have been written once");
+        verify(recordProcessingService, never()).getAggregator();
+    }
+
+    @Test
+    public void testOutputResultsCommitsWindowCheckpointsOnceTheirWindowsAreWritten() {
+        long start = 1_700_000_040_000L;
+        WatermarkTracker watermarkTracker = new WatermarkTracker();
+        EventTimeWindowAggregator windows = new EventTimeWindowAggregator(60_000, 0, 16, watermarkTracker, ExactLoginAggregator::new);
+        when(recordProcessingService.getWindowAggregator()).thenReturn(windows);
+        when(checkpointer.capture()).thenReturn(Map.of("shard-1", "1"), Map.of());
+        when(outputWriter.submit(any(OutputSnapshot.class))).thenReturn(true);
+        runActionsOnSubmit();
+        watermarkTracker.advance("shard-1", start);
+        windows.add("player-1", "US");
+
+        kinesisConsumerService.outputResults();
+        verify(checkpointer, never()).commit(any());
+
+        watermarkTracker.advance("shard-1", start + 60_000);
+        kinesisConsumerService.outputResults();
+
+        InOrder inOrder = inOrder(outputWriter, checkpointer);
+        inOrder.verify(outputWriter).submit(any(OutputSnapshot.class));
+        inOrder.verify(checkpointer).commit(Map.of("shard-1", "1"));
+    }
+
+    @Test
+    public void testShutdownWritesOpenWindowsBeforeSavingCheckpoints() {
+        long start = 1_700_000_040_000L;
+        WatermarkTracker watermarkTracker = new WatermarkTracker();
+        EventTimeWindowAggregator windows = new EventTimeWindowAggregator(60_000, 0, 16, watermarkTracker, ExactLoginAggregator::new);
+        when(recordProcessingService.getWindowAggregator()).thenReturn(windows);
+        when(checkpointer.capture()).thenReturn(Map.of("shard-1", "7"));
+        when(outputWriter.submit(any(OutputSnapshot.class))).thenReturn(true);
+        runActionsOnSubmit();
+        watermarkTracker.advance("shard-1", start);
+        windows.add("player-1", "US");
+
+        kinesisConsumerService.shutdown();
+
+        ArgumentCaptor<OutputSnapshot> snapshotCaptor = ArgumentCaptor.forClass(OutputSnapshot.class);
+        InOrder inOrder = inOrder(outputWriter, checkpointer);
+        inOrder.verify(outputWriter).submit(snapshotCaptor.capture());
+        inOrder.verify(checkpointer).commit(Map.of("shard-1", "7"));
+        inOrder.verify(outputWriter).shutdown();
+        inOrder.verify(checkpointer).flush();
+        assertEquals(Map.of("US", 1L), snapshotCaptor.getValue().getCountsByCountry(), "The open window should be written");
+    }
+
+    // Stands in for the writer thread, which runs an action once the snapshots before it are written
+    private void runActionsOnSubmit() {
+        when(outputWriter.afterWritten(any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        });
+    }
 }
@@ -0,0 +1,120 @@
+package com.assignment.task1.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.assignment.task1.aggregation.EpochAggregator;
+import com.assignment.task1.aggregation.HashedLoginAggregator;
+import com.assignment.task1.decoder.JsonLoginEventDecoder;
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.decoder.LoginEventDecoder;
+import com.assignment.task1.decoder.PayloadFormat;
+import com.assignment.task1.decoder.ProtobufLoginEventDecoder;
+import com.assignment.task1.decoder.SchemaDecoder;
+import com.assignment.task1.decoder.SchemaDecoderRegistry;
+import com.assignment.task1.deduplication.FingerprintWindowDeduplication;
+import com.assignment.task1.protobuf.LoginMessageV1;
+import com.assignment.task1.protobuf.LoginMessageV2;
+import com.assignment.task1.watermark.WatermarkTracker;
+import com.google.protobuf.util.Timestamps;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the bytes the record hot path allocates, from the record buffer through decoding,
+ * deduplication and aggregation, with the fingerprint-based backends.
+ */
+public class RecordProcessingAllocationTest {
+
+    private static final int PLAYERS = 200;
+    private static final int WARM_UP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 100;
+    // Leaves room for the allocation counter itself and the odd JIT-related allocation
+    private static final double MAX_BYTES_PER_RECORD = 4.0;
+
+    private final Logger serviceLogger = (Logger) LoggerFactory.getLogger(RecordProcessingService.class);
+    private Level previousLevel;
+
+    private RecordProcessingService recordProcessingService;
+    private HashedLoginAggregator aggregator;
+    private ByteBuffer[] records;
+
+    @BeforeEach
+    public void setUp() {
+        // Debug logging deliberately materializes the player ID, so it is off as in production
+        previousLevel = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.INFO);
+
+        SchemaDecoderRegistry registry = new SchemaDecoderRegistry(List.of(
+                new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV1.getDescriptor()),
+                new SchemaDecoder(LoginEvent.SCHEMA_V2, LoginMessageV2.getDescriptor())));
+        aggregator = new HashedLoginAggregator();
+        Clock clock = Clock.fixed(Instant.parse("2024-09-30T14:30:00Z"), ZoneOffset.UTC);
+        recordProcessingService = new RecordProcessingService(new FingerprintWindowDeduplication(10, clock),
+                new LoginEventDecoder(PayloadFormat.AUTO, new JsonLoginEventDecoder(registry), new ProtobufLoginEventDecoder(registry)),
+                new EpochAggregator(() -> aggregator), new WatermarkTracker());
+
+        String[] countries = {"US", "DE", "FR", "BR", "JP"};
+        records = new ByteBuffer[PLAYERS * 2];
+        for (int i = 0; i < PLAYERS; i++) {
+            String country = countries[i % countries.length];
+            long millis = 1727706600000L + i;
+            records[2 * i] = ByteBuffer.wrap(("{\"event_type\":\"login\",\"player_id\":\"player-" + i + "\",\"country\":\"" + country
+                    + "\",\"platform\":\"ios\",\"timestamp\":\"" + Timestamps.toString(Timestamps.fromMillis(millis)) + "\"}")
+                    .getBytes(StandardCharsets.UTF_8));
+            records[2 * i + 1] = ByteBuffer.wrap(LoginMessageV2.newBuilder()
+                    .setEventType("login")
+                    .setPlayerId("player-" + (PLAYERS + i))
+                    .setCountry(country)
+                    .setTimestamp(Timestamps.fromMillis(millis))
+                    .build()
+                    .toByteArray());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        serviceLogger.setLevel(previousLevel);
+    }
+
+    @Test
+    public void testProcessRecord_AllocatesNearlyNothingPerRecord() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Allocation counters are not supported by this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // Warm-up fills the dedup and aggregation sets, sizes the scratch buffers and lets the JIT settle
+        processRounds(WARM_UP_ROUNDS);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        processRounds(MEASURED_ROUNDS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        double bytesPerRecord = allocated / (double) (MEASURED_ROUNDS * records.length);
+        assertTrue(bytesPerRecord <= MAX_BYTES_PER_RECORD,
+                String.format("Hot path allocated %.1f bytes per record", bytesPerRecord));
+        assertEquals(2 * PLAYERS, aggregator.getTotalCount(), "Every player should have been counted once");
+    }
+
+    private void processRounds(int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (ByteBuffer record : records) {
+                recordProcessingService.processRecord("shardId-000000000000", record);
+            }
+        }
+    }
+}
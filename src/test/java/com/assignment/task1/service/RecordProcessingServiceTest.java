@@ -1,25 +1,53 @@
 package com.assignment.task1.service;
 
+import com.assignment.task1.aggregation.EpochAggregator;
+import com.assignment.task1.aggregation.ExactLoginAggregator;
+import com.assignment.task1.decoder.JsonLoginEventDecoder;
+import com.assignment.task1.decoder.LoginEvent;
+import com.assignment.task1.decoder.LoginEventDecoder;
+import com.assignment.task1.decoder.PayloadFormat;
+import com.assignment.task1.decoder.ProtobufLoginEventDecoder;
+import com.assignment.task1.decoder.SchemaDecoder;
+import com.assignment.task1.decoder.SchemaDecoderRegistry;
 import com.assignment.task1.deduplication.SlidingWindowDeduplication;
+import com.assignment.task1.protobuf.LoginMessageV1;
+import com.assignment.task1.protobuf.LoginMessageV2;
+import com.assignment.task1.watermark.WatermarkTracker;
+import com.google.protobuf.util.Timestamps;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 public class RecordProcessingServiceTest {
 
     private RecordProcessingService recordProcessingService;
     private SlidingWindowDeduplication deduplication;
+    private ExactLoginAggregator aggregator;
+    private WatermarkTracker watermarkTracker;
 
     @BeforeEach
     public void setUp() {
         deduplication = Mockito.mock(SlidingWindowDeduplication.class);
-        recordProcessingService = new RecordProcessingService(deduplication);
+        // Route event-based checks to the String-based stubs of each test
+        when(deduplication.isUniquePlayer(any(LoginEvent.class))).thenCallRealMethod();
+        SchemaDecoderRegistry registry = new SchemaDecoderRegistry(List.of(
+                new SchemaDecoder(LoginEvent.SCHEMA_V1, LoginMessageV1.getDescriptor()),
+                new SchemaDecoder(LoginEvent.SCHEMA_V2, LoginMessageV2.getDescriptor())));
+        aggregator = new ExactLoginAggregator();
+        watermarkTracker = new WatermarkTracker();
+        recordProcessingService = new RecordProcessingService(deduplication,
+                new LoginEventDecoder(PayloadFormat.AUTO, new JsonLoginEventDecoder(registry), new ProtobufLoginEventDecoder(registry)),
+                new EpochAggregator(() -> aggregator), watermarkTracker);
     }
 
     @Test
@@ -30,8 +58,8 @@ public class RecordProcessingServiceTest {
 
         recordProcessingService.processRecord(jsonString);
 
-        Set<String> uniquePlayerLogins = recordProcessingService.getUniquePlayerLogins();
-        ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry = recordProcessingService.getUniquePlayerLoginsByCountry();
+        Set<String> uniquePlayerLogins = aggregator.getUniquePlayerLogins();
+        ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry = aggregator.getUniquePlayerLoginsByCountry();
 
         assertTrue(uniquePlayerLogins.contains("player1"), "Unique player logins should contain 'player1'");
         assertFalse(uniquePlayerLoginsByCountry.isEmpty(), "uniquePlayerLoginsByCountry should not be empty for V1 messages");
@@ -45,11 +73,57 @@ public class RecordProcessingServiceTest {
 
         recordProcessingService.processRecord(jsonString);
 
-        Set<String> uniquePlayerLogins = recordProcessingService.getUniquePlayerLogins();
-        ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry = recordProcessingService.getUniquePlayerLoginsByCountry();
+        Set<String> uniquePlayerLogins = aggregator.getUniquePlayerLogins();
+        ConcurrentMap<String, Set<String>> uniquePlayerLoginsByCountry = aggregator.getUniquePlayerLoginsByCountry();
 
         assertTrue(uniquePlayerLogins.contains("player2"), "Unique player logins should contain 'player2'");
         assertTrue(uniquePlayerLoginsByCountry.containsKey("US"), "uniquePlayerLoginsByCountry should contain 'US'");
         assertTrue(uniquePlayerLoginsByCountry.get("US").contains("player2"), "Country 'US' should contain 'player2'");
     }
+
+    @Test
+    public void testProcessRecord_BinaryLoginMessageV2() {
+        byte[] payload = LoginMessageV2.newBuilder()
+                .setPlayerId("player3")
+                .setCountry("DE")
+                .build()
+                .toByteArray();
+
+        when(deduplication.isUniquePlayer("player3")).thenReturn(true);
+
+        recordProcessingService.processRecord(ByteBuffer.wrap(payload));
+
+        assertTrue(aggregator.getUniquePlayerLogins().contains("player3"), "Unique player logins should contain 'player3'");
+        assertTrue(aggregator.getUniquePlayerLoginsByCountry().get("DE").contains("player3"), "Country 'DE' should contain 'player3'");
+    }
+
+    @Test
+    public void testProcessRecord_JsonBufferHonoursPositionAndLimit() {
+        byte[] payload = "garbage{\"playerId\":\"player4\"}garbage".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.wrap(payload, 7, payload.length - 14);
+
+        when(deduplication.isUniquePlayer("player4")).thenReturn(true);
+
+        recordProcessingService.processRecord(data);
+
+        assertTrue(aggregator.getUniquePlayerLogins().contains("player4"), "Unique player logins should contain 'player4'");
+    }
+
+    @Test
+    public void testProcessRecord_ShardRecordAdvancesWatermark() {
+        byte[] payload = LoginMessageV2.newBuilder()
+                .setPlayerId("player5")
+                .setCountry("US")
+                .setTimestamp(Timestamps.fromMillis(1727706600250L))
+                .build()
+                .toByteArray();
+
+        when(deduplication.isUniquePlayer("player5")).thenReturn(true);
+
+        recordProcessingService.processRecord("shardId-000000000000", ByteBuffer.wrap(payload));
+
+        assertEquals(1727706600250L, watermarkTracker.getShardWatermark("shardId-000000000000"));
+        assertEquals(1727706600250L, watermarkTracker.getWatermark(), "A single shard's watermark is the stream watermark");
+        assertTrue(aggregator.getUniquePlayerLogins().contains("player5"), "Unique player logins should contain 'player5'");
+    }
 }
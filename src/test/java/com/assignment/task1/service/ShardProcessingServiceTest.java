@@ -3,15 +3,36 @@ package com.assignment.task1.service;
 import com.amazonaws.services.kinesis.model.Record;
 import com.amazonaws.services.kinesis.AmazonKinesis;
 import com.amazonaws.services.kinesis.model.*;
+import com.assignment.task1.checkpoint.ExtendedSequenceNumber;
+import com.assignment.task1.checkpoint.ShardCheckpointer;
+import com.assignment.task1.compression.PayloadDecompressor;
 import com.assignment.task1.config.AppConfig;
+import com.assignment.task1.deaggregation.KplDeaggregatorTest;
+import com.assignment.task1.fanout.FanOutConsumer;
+import com.assignment.task1.fanout.ShardSubscription;
+import com.assignment.task1.lease.LeaseCoordinator;
+import com.assignment.task1.watermark.WatermarkTracker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -26,6 +47,21 @@ public class ShardProcessingServiceTest {
     @Mock
     private RecordProcessingService recordProcessingService;
 
+    @Mock
+    private WatermarkTracker watermarkTracker;
+
+    @Mock
+    private ShardCheckpointer checkpointer;
+
+    @Mock
+    private LeaseCoordinator leaseCoordinator;
+
+    @Mock
+    private FanOutConsumer fanOutConsumer;
+
+    @Spy
+    private PayloadDecompressor payloadDecompressor = new PayloadDecompressor(1 << 20);
+
     @Mock
     private AppConfig appConfig;
 
@@ -41,9 +77,13 @@ public class ShardProcessingServiceTest {
         when(appConfig.getBuffer()).thenReturn(bufferConfig);
         when(bufferConfig.getSize()).thenReturn(1000);
         when(bufferConfig.getTimeMs()).thenReturn(5000);
+        when(appConfig.getPoll()).thenReturn(new AppConfig.PollConfig());
+        when(appConfig.getFanOut()).thenReturn(new AppConfig.FanOutConfig());
+        when(appConfig.getParallel()).thenReturn(new AppConfig.ParallelConfig());
 
         when(appConfig.getAws()).thenReturn(awsConfig);
         when(awsConfig.getStreamName()).thenReturn("test-stream");
+        when(leaseCoordinator.holdsLease(anyString())).thenReturn(true);
 
         shardProcessingService.init();
     }
@@ -71,7 +111,9 @@ public class ShardProcessingServiceTest {
         future.get(); // Wait for processing to complete
 
         verify(kinesisClient, times(2)).getRecords(any(GetRecordsRequest.class));
-        verify(recordProcessingService, times(1)).processRecord(anyString());
+        verify(recordProcessingService, times(1)).processRecord(eq("shardId-000000000000"), any(ByteBuffer.class));
+        verify(watermarkTracker).register("shardId-000000000000");
+        verify(watermarkTracker).release("shardId-000000000000");
     }
 
     @Test
@@ -84,6 +126,282 @@ public class ShardProcessingServiceTest {
 
         // Check that getRecords is never called since shard iterator is null
         verify(kinesisClient, never()).getRecords(any(GetRecordsRequest.class));
-        verify(recordProcessingService, never()).processRecord(anyString());
+        verify(recordProcessingService, never()).processRecord(anyString(), any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testProcessShard_ResumesFromCheckpoint() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000002");
+        when(checkpointer.getCheckpoint("shardId-000000000002")).thenReturn("49590338271490256608559692538361571095921575989136588898");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+
+        Record record = new Record()
+                .withData(ByteBuffer.wrap("testData".getBytes()))
+                .withSequenceNumber("49590338271490256608559692538361571095921575989136588899");
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.singletonList(record)).withNextShardIterator(null));
+
+        shardProcessingService.processShard(shard).get();
+
+        ArgumentCaptor<GetShardIteratorRequest> request = ArgumentCaptor.forClass(GetShardIteratorRequest.class);
+        verify(kinesisClient).getShardIterator(request.capture());
+        assertEquals(ShardIteratorType.AFTER_SEQUENCE_NUMBER.toString(), request.getValue().getShardIteratorType());
+        assertEquals("49590338271490256608559692538361571095921575989136588898", request.getValue().getStartingSequenceNumber());
+        verify(checkpointer).checkpoint("shardId-000000000002", "49590338271490256608559692538361571095921575989136588899");
+    }
+
+    @Test
+    public void testProcessShard_MarksDrainedShardEnd() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000003");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.emptyList()).withNextShardIterator(null));
+
+        shardProcessingService.processShard(shard).get();
+
+        verify(checkpointer).checkpoint("shardId-000000000003", ShardCheckpointer.SHARD_END);
+    }
+
+    @Test
+    public void testProcessShard_SkipsShardAlreadyAtEnd() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000004");
+        when(checkpointer.isShardEnd("shardId-000000000004")).thenReturn(true);
+
+        shardProcessingService.processShard(shard).get();
+
+        verify(kinesisClient, never()).getShardIterator(any(GetShardIteratorRequest.class));
+    }
+
+    @Test
+    public void testProcessShard_StopsWhenLeaseIsLost() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000005");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.emptyList()).withNextShardIterator("nextShardIterator"));
+        when(leaseCoordinator.holdsLease("shardId-000000000005")).thenReturn(true, false);
+
+        shardProcessingService.processShard(shard).get();
+
+        verify(kinesisClient, times(1)).getRecords(any(GetRecordsRequest.class));
+        verify(checkpointer, never()).checkpoint("shardId-000000000005", ShardCheckpointer.SHARD_END);
+        // The shard is not done, so it keeps holding the watermark back
+        verify(watermarkTracker, never()).release("shardId-000000000005");
+    }
+
+    @Test
+    public void testProcessShard_PipelinedReadsToShardEnd() throws Exception {
+        when(bufferConfig.getPrefetchBatches()).thenReturn(2);
+        shardProcessingService.init();
+
+        Shard shard = new Shard().withShardId("shardId-000000000006");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        Record first = new Record().withData(ByteBuffer.wrap("first".getBytes())).withSequenceNumber("1");
+        Record second = new Record().withData(ByteBuffer.wrap("second".getBytes())).withSequenceNumber("2");
+        Record third = new Record().withData(ByteBuffer.wrap("third".getBytes())).withSequenceNumber("3");
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(new GetRecordsResult().withRecords(Arrays.asList(first, second)).withNextShardIterator("nextShardIterator"))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.singletonList(third)).withNextShardIterator(null));
+
+        shardProcessingService.processShard(shard).get();
+
+        InOrder inOrder = inOrder(recordProcessingService, checkpointer);
+        inOrder.verify(recordProcessingService).processRecord("shardId-000000000006", first.getData());
+        inOrder.verify(recordProcessingService).processRecord("shardId-000000000006", second.getData());
+        inOrder.verify(recordProcessingService).processRecord("shardId-000000000006", third.getData());
+        inOrder.verify(checkpointer).checkpoint("shardId-000000000006", "3");
+        inOrder.verify(checkpointer).checkpoint("shardId-000000000006", ShardCheckpointer.SHARD_END);
+        verify(kinesisClient, times(2)).getRecords(any(GetRecordsRequest.class));
+    }
+
+    @Test
+    public void testProcessShard_PipelinedFetchErrorIsRetried() throws Exception {
+        when(bufferConfig.getPrefetchBatches()).thenReturn(2);
+        shardProcessingService.init();
+
+        Shard shard = new Shard().withShardId("shardId-000000000007");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenThrow(new ExpiredIteratorException("iterator expired"))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.emptyList()).withNextShardIterator(null));
+
+        shardProcessingService.processShard(shard).get();
+
+        // The failed fetch reaches the processing thread, which starts a new attempt from the checkpoint
+        verify(kinesisClient, times(2)).getShardIterator(any(GetShardIteratorRequest.class));
+        verify(checkpointer).checkpoint("shardId-000000000007", ShardCheckpointer.SHARD_END);
+    }
+
+    @Test
+    public void testProcessShard_FailsOnceRetriesRunOut() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000011");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenThrow(new ExpiredIteratorException("iterator expired"));
+
+        CompletableFuture<Void> future = shardProcessingService.processShard(shard);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, future::get, "The consumer should report that it gave up");
+        assertTrue(failure.getCause() instanceof ExpiredIteratorException, "The last error should be passed on");
+        verify(kinesisClient, times(4)).getShardIterator(any(GetShardIteratorRequest.class));
+        verify(watermarkTracker, never()).release("shardId-000000000011");
+    }
+
+    @Test
+    public void testProcessShard_ThrottledCallIsRetriedWithSameIterator() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000008");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenThrow(new ProvisionedThroughputExceededException("slow down"))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.emptyList()).withNextShardIterator(null));
+
+        shardProcessingService.processShard(shard).get();
+
+        ArgumentCaptor<GetRecordsRequest> requests = ArgumentCaptor.forClass(GetRecordsRequest.class);
+        verify(kinesisClient, times(2)).getRecords(requests.capture());
+        assertEquals("shardIterator", requests.getAllValues().get(1).getShardIterator(), "A throttled call should be repeated as is");
+        verify(kinesisClient, times(1)).getShardIterator(any(GetShardIteratorRequest.class));
+        verify(checkpointer).checkpoint("shardId-000000000008", ShardCheckpointer.SHARD_END);
+    }
+
+    @Test
+    public void testProcessShard_FanOutPushesToShardEnd() throws Exception {
+        AppConfig.FanOutConfig fanOut = new AppConfig.FanOutConfig();
+        fanOut.setEnabled(true);
+        when(appConfig.getFanOut()).thenReturn(fanOut);
+        shardProcessingService.init();
+
+        Shard shard = new Shard().withShardId("shardId-000000000009");
+        when(checkpointer.getCheckpoint("shardId-000000000009")).thenReturn("41");
+        Record record = new Record().withData(ByteBuffer.wrap("pushed".getBytes())).withSequenceNumber("42");
+        ShardSubscription subscription = mock(ShardSubscription.class);
+        when(fanOutConsumer.subscribe(eq("shardId-000000000009"), eq("41"), any())).thenAnswer(invocation -> {
+            BlockingQueue<RecordBatch> batches = invocation.getArgument(2);
+            batches.add(RecordBatch.of(Collections.singletonList(record), true));
+            return subscription;
+        });
+
+        shardProcessingService.processShard(shard).get();
+
+        verify(recordProcessingService).processRecord("shardId-000000000009", record.getData());
+        verify(checkpointer).checkpoint("shardId-000000000009", "42");
+        verify(checkpointer).checkpoint("shardId-000000000009", ShardCheckpointer.SHARD_END);
+        verify(subscription).onBatchTaken();
+        verify(subscription).close();
+        verify(kinesisClient, never()).getShardIterator(any(GetShardIteratorRequest.class));
+    }
+
+    @Test
+    public void testProcessShard_DeaggregatesKplRecords() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000010");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        Record aggregate = new Record()
+                .withData(ByteBuffer.wrap(KplDeaggregatorTest.aggregate("{\"playerId\":\"a\"}", "{\"playerId\":\"b\"}", "{\"playerId\":\"c\"}")))
+                .withSequenceNumber("100");
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.singletonList(aggregate)).withNextShardIterator(null));
+
+        shardProcessingService.processShard(shard).get();
+
+        verify(recordProcessingService, times(3)).processRecord(eq("shardId-000000000010"), any(ByteBuffer.class));
+        verify(checkpointer).checkpoint("shardId-000000000010", "100");
+        verify(checkpointer).checkpoint("shardId-000000000010", ShardCheckpointer.SHARD_END);
+    }
+
+    @Test
+    public void testProcessShard_ResumesInsidePartlyProcessedAggregate() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000011");
+        // No checkpoint for the first attempt; the second sees the one left by the failure
+        when(checkpointer.getCheckpoint("shardId-000000000011")).thenReturn(null, null, ExtendedSequenceNumber.format("100", 0));
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        Record aggregate = new Record()
+                .withData(ByteBuffer.wrap(KplDeaggregatorTest.aggregate("{\"playerId\":\"a\"}", "{\"playerId\":\"b\"}", "{\"playerId\":\"c\"}")))
+                .withSequenceNumber("100");
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.singletonList(aggregate)).withNextShardIterator(null));
+        doNothing().doThrow(new IllegalStateException("sink unavailable")).doNothing()
+                .when(recordProcessingService).processRecord(anyString(), any(ByteBuffer.class));
+
+        shardProcessingService.processShard(shard).get();
+
+        // Two user records per attempt: the first attempt fails on the second, the retry skips the first
+        verify(recordProcessingService, times(4)).processRecord(eq("shardId-000000000011"), any(ByteBuffer.class));
+        verify(checkpointer).checkpoint("shardId-000000000011", ExtendedSequenceNumber.format("100", 0));
+        verify(checkpointer).checkpoint("shardId-000000000011", "100");
+        ArgumentCaptor<GetShardIteratorRequest> requests = ArgumentCaptor.forClass(GetShardIteratorRequest.class);
+        verify(kinesisClient, times(2)).getShardIterator(requests.capture());
+        assertEquals(ShardIteratorType.AT_SEQUENCE_NUMBER.toString(), requests.getAllValues().get(1).getShardIteratorType(),
+                "A partly processed aggregate should be read again");
+        assertEquals("100", requests.getAllValues().get(1).getStartingSequenceNumber());
+    }
+
+    @Test
+    public void testProcessShard_DecompressesGzipPayload() throws Exception {
+        Shard shard = new Shard().withShardId("shardId-000000000012");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write("{\"playerId\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        Record record = new Record().withData(ByteBuffer.wrap(compressed.toByteArray())).withSequenceNumber("1");
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(new GetRecordsResult().withRecords(Collections.singletonList(record)).withNextShardIterator(null));
+        ArgumentCaptor<ByteBuffer> payload = ArgumentCaptor.forClass(ByteBuffer.class);
+
+        shardProcessingService.processShard(shard).get();
+
+        verify(recordProcessingService).processRecord(eq("shardId-000000000012"), payload.capture());
+        assertEquals("{\"playerId\":\"a\"}", StandardCharsets.UTF_8.decode(payload.getValue()).toString(),
+                "The decoder should receive the decompressed payload");
+        assertEquals(1, payloadDecompressor.getCompressedRecords());
+    }
+
+    @Test
+    public void testProcessShard_ProcessesLargeBatchInParallel() throws Exception {
+        AppConfig.ParallelConfig parallel = new AppConfig.ParallelConfig();
+        parallel.setThreshold(8);
+        parallel.setChunkSize(2);
+        parallel.setParallelism(4);
+        when(appConfig.getParallel()).thenReturn(parallel);
+        shardProcessingService.init();
+
+        Shard shard = new Shard().withShardId("shardId-000000000013");
+        when(kinesisClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenReturn(new GetShardIteratorResult().withShardIterator("shardIterator"));
+        List<Record> records = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            records.add(new Record().withData(ByteBuffer.wrap(("record" + i).getBytes())).withSequenceNumber(String.valueOf(i)));
+        }
+        when(kinesisClient.getRecords(any(GetRecordsRequest.class)))
+                .thenReturn(new GetRecordsResult().withRecords(records).withNextShardIterator(null));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> threads.add(Thread.currentThread().getName()))
+                .when(recordProcessingService).processRecord(eq("shardId-000000000013"), any(ByteBuffer.class));
+
+        try {
+            shardProcessingService.processShard(shard).get();
+        } finally {
+            shardProcessingService.shutdown();
+        }
+
+        for (Record record : records) {
+            verify(recordProcessingService).processRecord("shardId-000000000013", record.getData());
+        }
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("kinesis-process-")),
+                "Chunks should run on the processing pool, ran on " + threads);
+        // Only the end of the whole batch is checkpointed, after every chunk completed
+        InOrder inOrder = inOrder(checkpointer);
+        inOrder.verify(checkpointer).checkpoint("shardId-000000000013", "10");
+        inOrder.verify(checkpointer).checkpoint("shardId-000000000013", ShardCheckpointer.SHARD_END);
+        verify(checkpointer, times(2)).checkpoint(eq("shardId-000000000013"), anyString());
     }
 }
@@ -0,0 +1,63 @@
+package com.assignment.task1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockedBloomFilterTest {
+
+    @Test
+    public void testNoFalseNegatives() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(100000, 0.01);
+        for (int i = 0; i < 100000; i++) {
+            filter.add(XxHash64.hashUtf8("player" + i));
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(filter.contains(XxHash64.hashUtf8("player" + i)), "Added values must always be reported as present");
+        }
+    }
+
+    @Test
+    public void testAdd_ReportsDefinitelyNewOnce() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(1000, 0.01);
+        long value = XxHash64.hashUtf8("player1");
+
+        assertTrue(filter.add(value), "First add should report the value as new");
+        assertFalse(filter.add(value), "Second add should report the value as possibly seen");
+        assertEquals(1, filter.size());
+    }
+
+    @Test
+    public void testFalsePositiveRate_MatchesTargetAndEstimate() {
+        int n = 200000;
+        BlockedBloomFilter filter = new BlockedBloomFilter(n, 0.01);
+        for (int i = 0; i < n; i++) {
+            filter.add(XxHash64.hashUtf8("player" + i));
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        int queries = 500000;
+        int falsePositives = 0;
+        for (int i = 0; i < queries; i++) {
+            if (filter.contains(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        double observed = falsePositives / (double) queries;
+
+        assertTrue(observed < 0.0125, "Observed rate " + observed + " should be close to the 1% target");
+        assertEquals(observed, filter.expectedFalsePositiveRate(), 0.002, "Estimate should track the observed rate");
+    }
+
+    @Test
+    public void testClear() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(1000, 0.01);
+        filter.add(42);
+        filter.clear();
+
+        assertFalse(filter.contains(42));
+        assertEquals(0, filter.size());
+    }
+}
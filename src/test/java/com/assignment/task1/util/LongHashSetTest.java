@@ -0,0 +1,94 @@
+package com.assignment.task1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashSetTest {
+
+    @Test
+    public void testAddAndContains_MatchesHashSet() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> reference = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            // Small range forces plenty of duplicates
+            long value = random.nextInt(50000) - 25000;
+            assertEquals(reference.add(value), set.add(value), "add should report novelty like HashSet for " + value);
+        }
+
+        assertEquals(reference.size(), set.size());
+        for (long value = -25000; value < 25000; value++) {
+            assertEquals(reference.contains(value), set.contains(value));
+        }
+    }
+
+    @Test
+    public void testZeroValue() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0L));
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertTrue(set.contains(0L));
+        assertEquals(1, set.size());
+
+        List<Long> visited = new ArrayList<>();
+        set.forEach(visited::add);
+        assertEquals(List.of(0L), visited);
+    }
+
+    @Test
+    public void testClear() {
+        LongHashSet set = new LongHashSet(1000);
+        for (long i = 1; i <= 1000; i++) {
+            set.add(i * 31);
+        }
+        set.clear();
+
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(31));
+    }
+
+    @Test
+    public void testConcurrentAdd_EachValueAddedOnce() throws Exception {
+        ConcurrentLongHashSet set = new ConcurrentLongHashSet(16);
+        AtomicInteger novel = new AtomicInteger();
+        int threads = 8;
+        int values = 50000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    // Every thread adds the same values, only one add per value may win
+                    for (int i = 0; i < values; i++) {
+                        if (set.add(XxHash64.hashUtf8("player" + i))) {
+                            novel.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(values, novel.get());
+        assertEquals(values, set.size());
+        assertTrue(set.contains(XxHash64.hashUtf8("player123")));
+    }
+}
@@ -0,0 +1,108 @@
+package com.assignment.task1.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedLongHashSetTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testAddAndContains_MatchesHashSet() throws Exception {
+        MappedLongHashSet set = new MappedLongHashSet(directory, 50000);
+        Set<Long> reference = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextInt(50000) - 25000;
+            assertEquals(reference.add(value), set.add(value), "add should report novelty like HashSet for " + value);
+        }
+
+        assertEquals(reference.size(), set.size());
+        assertEquals(0, set.getRejectedCount());
+        for (long value = -25000; value < 25000; value++) {
+            assertEquals(reference.contains(value), set.contains(value));
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count(), "Backing file should be removed once mapped");
+        }
+    }
+
+    @Test
+    public void testAdd_RejectsWhenFull() {
+        MappedLongHashSet set = new MappedLongHashSet(directory, 100);
+        int capacity = (int) (set.tableBytes() / Long.BYTES);
+
+        for (long i = 1; i <= capacity; i++) {
+            assertTrue(set.add(XxHash64.hashUtf8("player" + i)), "New values are reported as new even when full");
+        }
+
+        assertTrue(set.getRejectedCount() > 0, "Values beyond the load limit should be rejected");
+        assertEquals(capacity, set.size() + set.getRejectedCount());
+    }
+
+    @Test
+    public void testRecycle_EmptiesTableForReuse() {
+        MappedLongHashSet set = new MappedLongHashSet(directory, 100);
+        int capacity = (int) (set.tableBytes() / Long.BYTES);
+        set.add(0);
+        for (long i = 1; i <= capacity; i++) {
+            set.add(XxHash64.hashUtf8("player" + i));
+        }
+
+        assertTrue(set.recycle());
+        assertEquals(0, set.size(), "A recycled set should be empty");
+        assertEquals(0, set.getRejectedCount());
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(XxHash64.hashUtf8("player1")));
+
+        assertTrue(set.add(XxHash64.hashUtf8("player1")), "A recycled set should take values again");
+        assertFalse(set.add(XxHash64.hashUtf8("player1")));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testConcurrentAdd_EachValueAddedOnce() throws Exception {
+        MappedLongHashSet set = new MappedLongHashSet(directory, 50000);
+        AtomicInteger novel = new AtomicInteger();
+        int threads = 8;
+        int values = 50000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < values; i++) {
+                        if (set.add(XxHash64.hashUtf8("player" + i))) {
+                            novel.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(values, novel.get());
+        assertEquals(values, set.size());
+    }
+}
@@ -0,0 +1,70 @@
+package com.assignment.task1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Utf8Test {
+
+    @Test
+    public void testIsValid_WellFormedText() {
+        byte[] data = "player-1 é世😀".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(Utf8.isValid(data, 0, data.length));
+        assertTrue(Utf8.isValid(data, 0, 0), "An empty slice is valid");
+    }
+
+    @Test
+    public void testIsValid_RejectsMalformedSequences() {
+        byte[][] invalid = {
+                {(byte) 0xC3},                                  // truncated
+                {(byte) 0xC3, 0x28},                            // bad continuation
+                {(byte) 0xC0, (byte) 0xAF},                     // overlong '/'
+                {(byte) 0xE0, (byte) 0x80, (byte) 0xAF},        // overlong '/'
+                {(byte) 0xED, (byte) 0xA0, (byte) 0x80},        // surrogate U+D800
+                {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, // above U+10FFFF
+                {(byte) 0x80},                                  // stray continuation
+                {(byte) 0xFF}
+        };
+        for (byte[] data : invalid) {
+            assertFalse(Utf8.isValid(data, 0, data.length), "Sequence should be rejected: " + toHex(data));
+        }
+    }
+
+    @Test
+    public void testIsValid_AgreesWithStrictDecoder() {
+        Random random = new Random(42);
+        byte[] data = new byte[6];
+        for (int i = 0; i < 200_000; i++) {
+            random.nextBytes(data);
+            int length = 1 + random.nextInt(data.length);
+            assertEquals(decodesStrictly(data, length), Utf8.isValid(data, 0, length), toHex(data));
+        }
+    }
+
+    private static boolean decodesStrictly(byte[] data, int length) {
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(data, 0, length));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    private static String toHex(byte[] data) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : data) {
+            sb.append(String.format("%02X ", b));
+        }
+        return sb.toString().trim();
+    }
+}
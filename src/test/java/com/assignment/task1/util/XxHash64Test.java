@@ -0,0 +1,33 @@
+package com.assignment.task1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XxHash64Test {
+
+    @Test
+    public void testReferenceValues() {
+        assertEquals(0xEF46DB3751D8E999L, XxHash64.hashUtf8(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, XxHash64.hashUtf8("a"));
+        assertEquals(0x44BC2CF5AD770999L, XxHash64.hashUtf8("abc"));
+    }
+
+    @Test
+    public void testStringAndBytesHashAlike() {
+        String playerId = "player-éü-😀-with-a-fairly-long-suffix-0123456789";
+        byte[] utf8 = playerId.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length + 5);
+        direct.position(5);
+        direct.put(utf8);
+
+        long expected = XxHash64.hash(utf8, 0, utf8.length);
+        assertEquals(expected, XxHash64.hashUtf8(playerId));
+        assertEquals(expected, XxHash64.hash(direct, 5, utf8.length));
+        assertEquals(expected, XxHash64.hash(ByteBuffer.wrap(utf8), 0, utf8.length));
+    }
+}
@@ -0,0 +1,174 @@
+package com.assignment.task1.watermark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatermarkTrackerTest {
+
+    private WatermarkTracker tracker;
+
+    @BeforeEach
+    public void setUp() {
+        tracker = new WatermarkTracker();
+    }
+
+    @Test
+    public void testWatermark_IsLowestShard() {
+        tracker.register("shard-1");
+        tracker.register("shard-2");
+        tracker.advance("shard-1", 5000);
+        tracker.advance("shard-2", 3000);
+
+        assertEquals(3000, tracker.getWatermark(), "Stream watermark should follow the slowest shard");
+
+        tracker.advance("shard-2", 8000);
+        assertEquals(5000, tracker.getWatermark());
+    }
+
+    @Test
+    public void testAdvance_NeverGoesBack() {
+        tracker.advance("shard-1", 5000);
+        tracker.advance("shard-1", 4000);
+
+        assertEquals(5000, tracker.getShardWatermark("shard-1"), "Out-of-order events must not move a shard back");
+        assertEquals(5000, tracker.getWatermark());
+    }
+
+    @Test
+    public void testRegisteredShardHoldsWatermarkBack() {
+        tracker.register("shard-1");
+        tracker.register("shard-2");
+        tracker.advance("shard-1", 5000);
+
+        assertEquals(WatermarkTracker.NO_WATERMARK, tracker.getWatermark(), "A shard without events yet should hold the watermark");
+
+        tracker.release("shard-2");
+        assertEquals(5000, tracker.getWatermark(), "A released shard should no longer count");
+    }
+
+    @Test
+    public void testRegister_NewShardStartsAtWatermark() {
+        tracker.advance("shard-1", 5000);
+        tracker.register("shard-2");
+
+        assertEquals(5000, tracker.getWatermark(), "A shard registered later must not lower the watermark");
+        assertEquals(5000, tracker.getShardWatermark("shard-2"));
+
+        tracker.advance("shard-1", 8000);
+        assertEquals(5000, tracker.getWatermark(), "A new shard should hold the watermark until its first event");
+
+        tracker.advance("shard-2", 3000);
+        assertEquals(5000, tracker.getWatermark(), "An event behind the watermark must not lower it");
+
+        tracker.advance("shard-2", 7000);
+        assertEquals(7000, tracker.getWatermark());
+    }
+
+    @Test
+    public void testRegister_KeepsEventTimeOfShardStartedAgain() {
+        tracker.register("shard-1");
+        tracker.register("shard-2");
+        tracker.advance("shard-1", 5000);
+        tracker.advance("shard-2", 3000);
+
+        // A shard that failed is started again without being released
+        tracker.register("shard-2");
+        tracker.advance("shard-1", 8000);
+
+        assertEquals(3000, tracker.getWatermark(), "A shard started again should hold the watermark where it stopped");
+    }
+
+    @Test
+    public void testIdleShardStopsHoldingWatermarkBack() {
+        MutableClock clock = new MutableClock();
+        tracker = new WatermarkTracker(10_000, clock);
+        tracker.register("shard-2");
+        tracker.advance("shard-1", 5000);
+        assertEquals(WatermarkTracker.NO_WATERMARK, tracker.getWatermark(), "A shard without events should hold the watermark at first");
+
+        clock.advance(10_000);
+        tracker.advance("shard-1", 6000);
+        tracker.checkIdle();
+        assertEquals(6000, tracker.getWatermark(), "A shard without events for the idle timeout should no longer count");
+
+        tracker.advance("shard-2", 4000);
+        tracker.advance("shard-1", 9000);
+        assertEquals(6000, tracker.getWatermark(), "An idle shard should count again from its next event without lowering the watermark");
+
+        tracker.advance("shard-2", 8000);
+        assertEquals(8000, tracker.getWatermark());
+
+        clock.advance(10_000);
+        tracker.advance("shard-1", 10000);
+        tracker.checkIdle();
+        assertEquals(10000, tracker.getWatermark(), "A shard that went quiet should no longer freeze the watermark");
+    }
+
+    @Test
+    public void testCheckIdle_FindsIdleShardsWithoutTraffic() {
+        MutableClock clock = new MutableClock();
+        tracker = new WatermarkTracker(10_000, clock);
+        tracker.register("shard-1");
+        tracker.register("shard-2");
+        tracker.advance("shard-1", 5000);
+        tracker.advance("shard-2", 3000);
+
+        clock.advance(10_000);
+        assertEquals(3000, tracker.getWatermark(), "Idle shards are only noticed by the check");
+
+        tracker.checkIdle();
+        assertEquals(5000, tracker.getWatermark(), "The check should find idle shards while no shard advances");
+    }
+
+    @Test
+    public void testAllShardsIdle_WatermarkIsHighestEventTime() {
+        MutableClock clock = new MutableClock();
+        tracker = new WatermarkTracker(10_000, clock);
+        tracker.register("shard-1");
+        tracker.register("shard-2");
+        tracker.advance("shard-1", 5000);
+        tracker.advance("shard-2", 3000);
+
+        clock.advance(10_000);
+        tracker.register("shard-3");
+        assertEquals(3000, tracker.getWatermark(), "A newly registered shard should hold the watermark until it is idle");
+
+        tracker.release("shard-3");
+        assertEquals(5000, tracker.getWatermark(), "With every shard idle, everything read so far is complete");
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.assignment.task1.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardWorkerExecutorTest {
+
+    @Test
+    public void testEveryTaskRunsAtOnce() throws Exception {
+        ShardWorkerExecutor executor = new ShardWorkerExecutor(ShardWorkerExecutor.perTaskThreadFactory("test-shard-"), 5000);
+        int shards = 200;
+        CountDownLatch started = new CountDownLatch(shards);
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (int i = 0; i < shards; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        assertTrue(started.await(10, TimeUnit.SECONDS), "Blocked workers must not keep other shards from starting");
+        assertEquals(shards, executor.getActiveCount());
+        release.countDown();
+        assertTrue(executor.shutdown(), "Finished workers should be joined");
+    }
+
+    @Test
+    public void testFailureIsCountedAndReachesTheCaller() {
+        ShardWorkerExecutor executor = new ShardWorkerExecutor(ShardWorkerExecutor.perTaskThreadFactory("test-shard-"), 5000);
+
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+            throw new IllegalStateException("shard failed");
+        }, executor);
+        executor.execute(() -> {
+            throw new IllegalStateException("worker failed");
+        });
+
+        assertThrows(Exception.class, future::join, "The failure should complete the future exceptionally");
+        assertTrue(executor.shutdown());
+        assertEquals(1, executor.getFailedCount(), "A task that throws should be counted");
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test
+    public void testShutdownInterruptsWorkersAndRejectsNewTasks() throws Exception {
+        ShardWorkerExecutor executor = new ShardWorkerExecutor(ShardWorkerExecutor.perTaskThreadFactory("test-shard-"), 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(executor.shutdown(), "A sleeping worker should stop when interrupted");
+        assertEquals(0, executor.getActiveCount());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    }
+
+    @Test
+    public void testTaskSubmittedDuringShutdownIsStoppedOrRejected() throws Exception {
+        ShardWorkerExecutor executor = new ShardWorkerExecutor(ShardWorkerExecutor.perTaskThreadFactory("test-shard-"), 5000);
+        Runnable sleeper = () -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CountDownLatch submitting = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            submitting.countDown();
+            try {
+                while (true) {
+                    executor.execute(sleeper);
+                }
+            } catch (RejectedExecutionException e) {
+                // Shut down
+            }
+        });
+        submitter.start();
+        assertTrue(submitting.await(5, TimeUnit.SECONDS));
+        Thread.sleep(20);
+
+        assertTrue(executor.shutdown(), "Every worker accepted before the shutdown should be interrupted and joined");
+        submitter.join(5000);
+        assertFalse(submitter.isAlive(), "Tasks should be rejected once shut down");
+        assertEquals(0, executor.getActiveCount(), "No worker should outlive the shutdown");
+    }
+}